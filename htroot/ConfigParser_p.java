@@ -27,6 +27,7 @@
 
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.document.Parser;
+import net.yacy.document.ParserLanes;
 import net.yacy.document.TextParser;
 import net.yacy.document.parser.pdfParser;
 import net.yacy.search.Switchboard;
@@ -92,6 +93,32 @@ public class ConfigParser_p {
 
         prop.put("parser", i);
 
+        // parser lanes and parse statistics
+        int l = 0;
+        for (final ParserLanes.Lane lane: ParserLanes.Lane.values()) {
+            if (!lane.threaded) continue;
+            prop.put("lanes_" + l + "_name", lane.key());
+            prop.put("lanes_" + l + "_threads", ParserLanes.threads(lane));
+            prop.put("lanes_" + l + "_timeout", ParserLanes.timeout(lane));
+            prop.put("lanes_" + l + "_running", ParserLanes.running(lane));
+            l++;
+        }
+        prop.put("lanes", l);
+        int s = 0;
+        for (final Parser parser: TextParser.parsers()) {
+            final ParserLanes.Statistics stats = ParserLanes.statistics(parser.getName());
+            if (stats == null) continue;
+            prop.put("statistics_" + s + "_name", parser.getName());
+            prop.put("statistics_" + s + "_lane", ParserLanes.lane(parser).key());
+            prop.put("statistics_" + s + "_documents", stats.documents());
+            prop.put("statistics_" + s + "_failures", stats.failures());
+            prop.put("statistics_" + s + "_timeouts", stats.timeouts());
+            prop.put("statistics_" + s + "_avgtime", stats.averageTime());
+            prop.put("statistics_" + s + "_maxtime", stats.maxTime());
+            s++;
+        }
+        prop.put("statistics", s);
+
         prop.put("individualPages", sb.getConfigBool(SwitchboardConstants.PARSER_PDF_INDIVIDUALPAGES, false));
         prop.put("individualPagePropertyname", sb.getConfig(SwitchboardConstants.PARSER_PDF_INDIVIDUALPAGES_KEY, "page"));
 
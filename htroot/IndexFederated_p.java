@@ -77,6 +77,13 @@ public class IndexFederated_p {
                 final long fileSizeMax = (OS.isWindows) ? sb.getConfigLong("filesize.max.win", Integer.MAX_VALUE) : sb.getConfigLong( "filesize.max.other", Integer.MAX_VALUE);
                 sb.index.connectCitation(wordCacheMaxCount, fileSizeMax);
             } catch (final IOException e) { ConcurrentLog.logException(e); } // switch on
+            boolean post_core_edges = post.getBoolean(SwitchboardConstants.CORE_SERVICE_EDGES);
+            final boolean previous_core_edges = sb.index.connectedHyperlinkEdges() && env.getConfigBool(SwitchboardConstants.CORE_SERVICE_EDGES, false);
+            env.setConfig(SwitchboardConstants.CORE_SERVICE_EDGES, post_core_edges);
+            if (previous_core_edges && !post_core_edges) sb.index.disconnectHyperlinkEdges(); // switch off
+            if (!previous_core_edges && post_core_edges) try {
+                sb.index.connectHyperlinkEdges(sb.getConfigInt(SwitchboardConstants.CORE_SERVICE_EDGES_PARTITIONS, SwitchboardConstants.CORE_SERVICE_EDGES_PARTITIONS_DEFAULT));
+            } catch (final IOException e) { ConcurrentLog.logException(e); } // switch on
             boolean webgraph = post.getBoolean(SwitchboardConstants.CORE_SERVICE_WEBGRAPH);
             sb.index.fulltext().setUseWebgraph(webgraph);
             env.setConfig(SwitchboardConstants.CORE_SERVICE_WEBGRAPH, webgraph);
@@ -215,6 +222,7 @@ public class IndexFederated_p {
 						SwitchboardConstants.CORE_SERVICE_FULLTEXT_DEFAULT) ? 1 : 0);
         prop.put("core.service.rwi.checked", env.getConfigBool(SwitchboardConstants.CORE_SERVICE_RWI, false) ? 1 : 0);
         prop.put(SwitchboardConstants.CORE_SERVICE_CITATION + ".checked", env.getConfigBool(SwitchboardConstants.CORE_SERVICE_CITATION, false) ? 1 : 0);
+        prop.put(SwitchboardConstants.CORE_SERVICE_EDGES + ".checked", env.getConfigBool(SwitchboardConstants.CORE_SERVICE_EDGES, false) ? 1 : 0);
         prop.put(SwitchboardConstants.CORE_SERVICE_WEBGRAPH + ".checked", env.getConfigBool(SwitchboardConstants.CORE_SERVICE_WEBGRAPH, false) ? 1 : 0);
 		prop.put("solr.indexing.solrremote.checked",
 				env.getConfigBool(SwitchboardConstants.FEDERATED_SERVICE_SOLR_INDEXING_ENABLED,
@@ -62,6 +62,8 @@ public class PerformanceConcurrency_p {
             prop.put("table_" + c + "_queuesize", p.getQueueSize());
             prop.put("table_" + c + "_queuesizemax", p.getMaxQueueSize());
             prop.put("table_" + c + "_concurrency", p.getMaxConcurrency());
+            prop.put("table_" + c + "_concurrencybounds", p.isAdaptive() ? p.getMinConcurrencyBound() + "&nbsp;..&nbsp;" + p.getMaxConcurrencyBound() : "fixed");
+            prop.putHTML("table_" + c + "_decision", p.getControlDecision() == null ? "" : p.getControlDecision());
             prop.put("table_" + c + "_executors", p.getExecutors());
             prop.putHTML("table_" + c + "_childs", p.getChilds());
 
@@ -73,7 +73,11 @@ public class linkstructure {
             if (hostname == null) return prop;
             
             // now collect _all_ documents inside the domain until a timeout appears
-            hlg.fill(fulltext.getDefaultConnector(), hostname, null, maxtime, maxnodes);
+            if (sb.index.connectedHyperlinkEdges()) {
+                hlg.fill(sb.index.hyperlinkEdges(), hostname, null, maxtime, maxnodes);
+            } else {
+                hlg.fill(fulltext.getDefaultConnector(), hostname, null, maxtime, maxnodes);
+            }
             maxdepth = hlg.findLinkDepth();
         } catch (final MalformedURLException e) {}
         else if (post.get("to", null) != null) try {
@@ -31,6 +31,7 @@ import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.util.Memory;
 import net.yacy.crawler.CrawlSwitchboard;
 import net.yacy.crawler.data.CrawlProfile;
+import net.yacy.http.servlets.YaCyQoSFilter;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.io.ByteCount;
 import net.yacy.kelondro.util.MemoryControl;
@@ -82,6 +83,23 @@ public class status_p {
 		prop.put("trafficProxy", ByteCount.getAccountCount(ByteCount.PROXY));
 		prop.put("trafficCrawler", ByteCount.getAccountCount(ByteCount.CRAWLER));
 
+        // admission control of the http server
+        int c = 0;
+        for (final YaCyQoSFilter.Admission admission: YaCyQoSFilter.admissions()) {
+            prop.put("admission_" + c + "_name", admission.requestClass.configName());
+            prop.put("admission_" + c + "_active", admission.active());
+            prop.put("admission_" + c + "_concurrency", admission.concurrency);
+            prop.put("admission_" + c + "_queued", admission.queued());
+            prop.put("admission_" + c + "_queueLimit", admission.queueLimit);
+            prop.put("admission_" + c + "_requests", admission.requests());
+            prop.put("admission_" + c + "_rejected", admission.rejected());
+            prop.put("admission_" + c + "_timeouts", admission.timeouts());
+            prop.put("admission_" + c + "_latencyAvg", admission.latencyAvg());
+            prop.put("admission_" + c + "_latencyMax", admission.latencyMax());
+            c++;
+        }
+        prop.put("admission", c);
+
         // index size
         prop.putNum("urlpublictextSize", fulltext.collectionSize());
         prop.putNum("urlpublictextSegmentCount", fulltext.getDefaultConnector().getSegmentCount());
@@ -24,7 +24,10 @@
 
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Set;
 
+import net.yacy.cora.document.CompletionIndex;
 import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.protocol.ResponseHeader;
@@ -67,25 +70,27 @@ public class suggest {
         final int count = (post == null) ? 10 : Math.min(30, post.getInt("count", 20));
 
         int c = 0;
-        final DidYouMean didYouMean = new DidYouMean(sb.index, querystring);
-        final Collection<StringBuilder> suggestions = didYouMean.getSuggestions(timeout, count, sb.index.fulltext().collectionSize() < 2000000);
         //[#[query]#,[#{suggestions}##[text]##(eol)#,::#(/eol)##{/suggestions}#]]
-        synchronized (suggestions) {
-            for (StringBuilder suggestion: suggestions) {
-                if (c >= meanMax) break;
-                try {
-                    String s = suggestion.toString();
-                    if (json) {
-                        prop.putJSON("suggestions_" + c + "_text", s);
-                    } else if (xml) {
-                        prop.putXML("suggestions_" + c + "_text", s);
-                    } else {
-                        prop.putHTML("suggestions_" + c + "_text", s);
+        // first ask the completion index; this is lock-free and does not touch the term index
+        final Set<String> found = new HashSet<String>();
+        for (final String s: CompletionIndex.complete(querystring, count)) {
+            if (c >= meanMax) break;
+            if (found.add(s)) putSuggestion(prop, c++, s, json, xml);
+        }
+
+        // only if the completion index does not know enough completions, compute word variations
+        if (c < count) {
+            final DidYouMean didYouMean = new DidYouMean(sb.index, querystring);
+            final Collection<StringBuilder> suggestions = didYouMean.getSuggestions(timeout, count - c, sb.index.fulltext().collectionSize() < 2000000);
+            synchronized (suggestions) {
+                for (StringBuilder suggestion: suggestions) {
+                    if (c >= meanMax) break;
+                    try {
+                        String s = suggestion.toString();
+                        if (found.add(s)) putSuggestion(prop, c++, s, json, xml);
+                    } catch (final ConcurrentModificationException e) {
+                        ConcurrentLog.logException(e);
                     }
-                    prop.put("suggestions_" + c + "_eol", 0);
-                    c++;
-                } catch (final ConcurrentModificationException e) {
-                    ConcurrentLog.logException(e);
                 }
             }
         }
@@ -123,4 +128,15 @@ public class suggest {
         return prop;
     }
 
+    private static void putSuggestion(final servletProperties prop, final int c, final String s, final boolean json, final boolean xml) {
+        if (json) {
+            prop.putJSON("suggestions_" + c + "_text", s);
+        } else if (xml) {
+            prop.putXML("suggestions_" + c + "_text", s);
+        } else {
+            prop.putHTML("suggestions_" + c + "_text", s);
+        }
+        prop.put("suggestions_" + c + "_eol", 0);
+    }
+
 }
@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -63,6 +64,7 @@ import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.peers.EventChannel;
 import net.yacy.peers.Network;
 import net.yacy.peers.Protocol;
+import net.yacy.peers.SearchResultCodec;
 import net.yacy.peers.Seed;
 import net.yacy.peers.graphics.ProfilingGraph;
 import net.yacy.search.EventTracker;
@@ -139,6 +141,7 @@ public final class search {
         String profile = post.get("profile", ""); // remote profile hand-over
         if (profile.length() > 0) profile = crypt.simpleDecode(profile);
         //final boolean includesnippet = post.get("includesnippet", "false").equals("true");
+        final boolean binaryResult = SearchResultCodec.FORMAT.equals(post.get(SearchResultCodec.FORMAT_ATTRIBUTE, "")); // the requester understands the binary result format
         Bitfield constraint = ((post.containsKey("constraint")) && (post.get("constraint", "").length() > 0)) ? new Bitfield(4, post.get("constraint", "______")) : null;
         if (constraint != null) {
         	// check bad handover parameter from older versions
@@ -412,13 +415,24 @@ public final class search {
             // result is a List of urlEntry elements
             final long timer = System.currentTimeMillis();
             final StringBuilder links = new StringBuilder(6000);
-            String resource = null;
-            WeakPriorityBlockingQueue.Element<URIMetadataNode> entry;
-            for (int i = 0; i < accu.size(); i++) {
-                entry = accu.get(i);
-                resource = entry.getElement().resource();
-                if (resource != null) {
-                    links.append("resource").append(i).append('=').append(resource).append(serverCore.CRLF_STRING);
+            if (binaryResult) {
+                // the requesting peer understands the compact binary result format
+                final List<Map<String, String>> resources = new ArrayList<Map<String, String>>(accu.size());
+                for (int i = 0; i < accu.size(); i++) {
+                    final URIMetadataNode node = accu.get(i).getElement();
+                    final Map<String, String> properties = node.transportProperties(node.resourceSnippet());
+                    if (properties != null) resources.add(properties);
+                }
+                links.append(SearchResultCodec.RESPONSE_PROPERTY).append('=').append(SearchResultCodec.encode(resources)).append(serverCore.CRLF_STRING);
+            } else {
+                String resource = null;
+                WeakPriorityBlockingQueue.Element<URIMetadataNode> entry;
+                for (int i = 0; i < accu.size(); i++) {
+                    entry = accu.get(i);
+                    resource = entry.getElement().resource();
+                    if (resource != null) {
+                        links.append("resource").append(i).append('=').append(resource).append(serverCore.CRLF_STRING);
+                    }
                 }
             }
             theQuery.transmitcount = accu.size() + 1;
@@ -29,8 +29,11 @@
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import net.yacy.cora.document.encoding.ASCII;
@@ -44,17 +47,21 @@ import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.Memory;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
 import net.yacy.kelondro.data.word.WordReferenceRow;
 import net.yacy.kelondro.index.RowHandleSet;
+import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.peers.EventChannel;
 import net.yacy.peers.Network;
 import net.yacy.peers.Protocol;
+import net.yacy.peers.RWITransferCodec;
 import net.yacy.peers.Seed;
 import net.yacy.repository.Blacklist.BlacklistType;
 import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
+import net.yacy.search.index.Segment;
 import net.yacy.server.serverObjects;
 import net.yacy.server.serverSwitch;
 
@@ -115,7 +122,7 @@ public final class transferRWI {
 //      final String key      = (String) post.get("key", "");             // transmission key
         final int wordc       = post.getInt("wordc", 0);                  // number of different words
         final int entryc      = post.getInt("entryc", 0);                 // number of entries in indexes
-        byte[] indexes        = post.get("indexes", "").getBytes();       // the indexes, as list of word entries
+        final String indexes  = post.get("indexes", "");                  // the indexes, as list of word entries or in binary format
         boolean granted       = sb.getConfigBool(SwitchboardConstants.INDEX_RECEIVE_ALLOW, false);
         final boolean blockBlacklist = sb.getConfigBool(SwitchboardConstants.INDEX_RECEIVE_BLOCK_BLACKLIST, false);
         final long cachelimit = sb.getConfigLong(SwitchboardConstants.WORDCACHE_MAX_COUNT, 100000);
@@ -167,81 +174,118 @@ public final class transferRWI {
         } else {
             // we want and can receive indexes
             // log value status (currently added to find outOfMemory error
-            if (sb.getLog().isFine()) sb.getLog().fine("Processing " + indexes.length + " bytes / " + wordc + " words / " + entryc + " entries from " + otherPeerName);
+            if (sb.getLog().isFine()) sb.getLog().fine("Processing " + indexes.length() + " chars / " + wordc + " words / " + entryc + " entries from " + otherPeerName);
             final long startProcess = System.currentTimeMillis();
 
-            // decode request
-            //System.out.println("STRINGS " + UTF8.String(indexes));
-            final Iterator<String> it = FileUtils.strings(indexes);
-
-            // free memory
-            indexes = null;
-
-            // now parse the Strings in the value-vector and write index entries
-            String estring;
-            int p;
-            String wordHash;
-            byte[] urlHash;
-            WordReferenceRow iEntry;
             final HandleSet unknownURL = new RowHandleSet(Word.commonHashLength, Word.commonHashOrder, 0);
             final ArrayList<String> wordhashes = new ArrayList<String>();
             int received = 0;
             int blocked = 0;
-            int count = 0;
             Set<String> testids = new HashSet<String>();
-            while (it.hasNext()) {
-                estring = it.next();
-                count++;
-                if (count > 1000) break; // protection against flooding
-
-                // check if RWI entry is well-formed
-                p = estring.indexOf('{',0);
-                if (p < 0 || estring.indexOf("x=",0) < 0 || !(estring.indexOf("[B@",0) < 0)) {
-                    blocked++;
-                    continue;
+            if (RWITransferCodec.FORMAT.equals(post.get(RWITransferCodec.FORMAT_ATTRIBUTE, ""))) {
+                // decode the binary rows directly into reference containers
+                List<ReferenceContainer<WordReference>> containers;
+                try {
+                    containers = RWITransferCodec.decode(indexes, Segment.wordReferenceFactory, 1000); // protection against flooding
+                } catch (final IOException e) {
+                    Network.log.warn("transferRWI: bad binary index transmission from peer " + otherPeerName + ": " + e.getMessage());
+                    containers = new ArrayList<ReferenceContainer<WordReference>>(0);
+                    blocked = entryc;
                 }
-                wordHash = estring.substring(0, p);
-                wordhashes.add(wordHash);
-                iEntry = new WordReferenceRow(estring.substring(p));
-                urlHash = iEntry.urlhash();
+                final Map<String, Boolean> accepted = new HashMap<String, Boolean>(); // the check result for each url hash
+                for (final ReferenceContainer<WordReference> container: containers) {
+                    wordhashes.add(ASCII.String(container.getTermHash()));
+                    final ReferenceContainer<WordReference> checked;
+                    try {
+                        checked = new ReferenceContainer<WordReference>(Segment.wordReferenceFactory, container.getTermHash(), container.size());
+                        final Iterator<WordReference> i = container.entries();
+                        while (i.hasNext()) {
+                            final WordReference iEntry = i.next();
+                            final String id = ASCII.String(iEntry.urlhash());
+                            Boolean accept = accepted.get(id);
+                            if (accept == null) {
+                                accept = accept(sb, iEntry.urlhash(), blockBlacklist, otherPeerName);
+                                accepted.put(id, accept);
+                            }
+                            if (!accept.booleanValue()) {
+                                blocked++;
+                                continue;
+                            }
+                            checked.add(iEntry);
+                            testids.add(id);
+                            received++;
+                        }
+                    } catch (final SpaceExceededException e) {
+                        ConcurrentLog.logException(e);
+                        continue;
+                    }
 
-                // block blacklisted entries
-                if ((blockBlacklist) && (Switchboard.urlBlacklist.hashInBlacklistedCache(BlacklistType.DHT, urlHash))) {
-                    Network.log.fine("transferRWI: blocked blacklisted URLHash '" + ASCII.String(urlHash) + "' from peer " + otherPeerName);
-                    blocked++;
-                    continue;
+                    // learn all entries of the term at once
+                    if (!checked.isEmpty()) try {
+                        sb.index.storeRWI(checked);
+                    } catch (final Exception e) {
+                        ConcurrentLog.logException(e);
+                    }
                 }
+            } else {
+                // decode request
+                //System.out.println("STRINGS " + UTF8.String(indexes));
+                final Iterator<String> it = FileUtils.strings(indexes.getBytes());
 
-                // check if the entry is in our network domain
-                final String urlRejectReason = sb.crawlStacker.urlInAcceptedDomainHash(urlHash);
-                if (urlRejectReason != null) {
-                    Network.log.warn("transferRWI: blocked URL hash '" + ASCII.String(urlHash) + "' (" + urlRejectReason + ") from peer " + otherPeerName + "; peer is suspected to be a spam-peer (or something is wrong)");
-                    //if (yacyCore.log.isFine()) yacyCore.log.logFine("transferRWI: blocked URL hash '" + urlHash + "' (" + urlRejectReason + ") from peer " + otherPeerName);
-                    blocked++;
-                    continue;
-                }
+                // now parse the Strings in the value-vector and write index entries
+                String estring;
+                int p;
+                String wordHash;
+                byte[] urlHash;
+                WordReferenceRow iEntry;
+                int count = 0;
+                while (it.hasNext()) {
+                    estring = it.next();
+                    count++;
+                    if (count > 1000) break; // protection against flooding
 
-                // learn entry
-                try {
-                    sb.index.storeRWI(ASCII.getBytes(wordHash), iEntry);
-                } catch (final Exception e) {
-                    ConcurrentLog.logException(e);
+                    // check if RWI entry is well-formed
+                    p = estring.indexOf('{',0);
+                    if (p < 0 || estring.indexOf("x=",0) < 0 || !(estring.indexOf("[B@",0) < 0)) {
+                        blocked++;
+                        continue;
+                    }
+                    wordHash = estring.substring(0, p);
+                    wordhashes.add(wordHash);
+                    iEntry = new WordReferenceRow(estring.substring(p));
+                    urlHash = iEntry.urlhash();
+
+                    // block blacklisted entries and entries which are not in our network domain
+                    if (!accept(sb, urlHash, blockBlacklist, otherPeerName)) {
+                        blocked++;
+                        continue;
+                    }
+
+                    // learn entry
+                    try {
+                        sb.index.storeRWI(ASCII.getBytes(wordHash), iEntry);
+                    } catch (final Exception e) {
+                        ConcurrentLog.logException(e);
+                    }
+
+                    // check if we need to ask for the corresponding URL
+                    testids.add(ASCII.String(urlHash));
+                    received++;
                 }
+            }
 
-                // check if we need to ask for the corresponding URL
-                testids.add(ASCII.String(urlHash));
-                received++;
+            // check all urls at once if we need to ask for them
+            Set<String> known;
+            try {
+                known = sb.index.fulltext().exists(testids);
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+                known = new HashSet<String>(0);
             }
             for (String id: testids) {
+                if (known.contains(id)) continue;
                 try {
-                    try {
-                        if (sb.index.fulltext().getLoadTime(id) < 0) {
-                            unknownURL.put(ASCII.getBytes(id));
-                        }
-                    } catch (IOException e) {
-                        ConcurrentLog.logException(e);
-                        unknownURL.put(ASCII.getBytes(id));
-                    }
+                    unknownURL.put(ASCII.getBytes(id));
                 } catch (final SpaceExceededException e) {
                     sb.getLog().warn("transferRWI: DB-Error while trying to determine if URL with hash '" + id + "' is known.", e);
                 }
@@ -277,6 +321,23 @@ public final class transferRWI {
         return prop;
     }
 
+    /**
+     * check if a received reference may be stored
+     * @return false if the url is blacklisted for the DHT or not in our network domain
+     */
+    private static boolean accept(final Switchboard sb, final byte[] urlHash, final boolean blockBlacklist, final String otherPeerName) {
+        if ((blockBlacklist) && (Switchboard.urlBlacklist.hashInBlacklistedCache(BlacklistType.DHT, urlHash))) {
+            Network.log.fine("transferRWI: blocked blacklisted URLHash '" + ASCII.String(urlHash) + "' from peer " + otherPeerName);
+            return false;
+        }
+        final String urlRejectReason = sb.crawlStacker.urlInAcceptedDomainHash(urlHash);
+        if (urlRejectReason != null) {
+            Network.log.warn("transferRWI: blocked URL hash '" + ASCII.String(urlHash) + "' (" + urlRejectReason + ") from peer " + otherPeerName + "; peer is suspected to be a spam-peer (or something is wrong)");
+            return false;
+        }
+        return true;
+    }
+
     /**
      * @param requestIdentifier
      * @param msg
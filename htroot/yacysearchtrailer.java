@@ -133,7 +133,7 @@ public class yacysearchtrailer {
             prop.put("nav-topics", "0");
         } else {
             prop.put("nav-topics", "1");
-            navigatorIterator = topicNavigator.keys(false);
+            navigatorIterator = topicNavigator.keys(false, TOPWORDS_MAXCOUNT).iterator();
             int i = 0;
             // first sort the list to a form where the greatest element is in the middle
             LinkedList<Map.Entry<String, Integer>> cloud = new LinkedList<Map.Entry<String, Integer>>();
@@ -179,7 +179,7 @@ public class yacysearchtrailer {
             //int httpCount = theSearch.protocolNavigator.delete("http");
             //int httpsCount = theSearch.protocolNavigator.delete("https");
             //theSearch.protocolNavigator.inc("http(s)", httpCount + httpsCount);            
-            navigatorIterator = theSearch.protocolNavigator.keys(false);
+            navigatorIterator = theSearch.protocolNavigator.keys(false, theSearch.getQuery().getStandardFacetsMaxCount()).iterator();
             int i = 0, pos = 0, neg = 0;
             String nav, rawNav;
             String oldQuery = theSearch.query.getQueryGoal().query_original; // prepare hack to make radio-button like navigation
@@ -293,7 +293,7 @@ public class yacysearchtrailer {
                     continue vocnav;
                 }
                 prop.put(fileType, "nav-vocabulary_" + navvoccount + "_navname", navname);
-                navigatorIterator = ve.getValue().keys(false);
+                navigatorIterator = ve.getValue().keys(false, 20).iterator();
                 int i = 0;
                 String nav, rawNav;
                 while (i < 20 && navigatorIterator.hasNext()) {
@@ -344,7 +344,7 @@ public class yacysearchtrailer {
             prop.put("navs_" + ni + "_name", naviname);
             prop.put("navs_" + ni + "_count", navi.size());
 
-            navigatorIterator = navi.keys(false);
+            navigatorIterator = navi.keys(false, theSearch.getQuery().getStandardFacetsMaxCount()).iterator();
             int i = 0, pos = 0, neg = 0;
             String nav, rawNav;
             while (i < theSearch.getQuery().getStandardFacetsMaxCount() && navigatorIterator.hasNext()) {
@@ -0,0 +1,290 @@
+/**
+ *  CompletionIndex
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.yacy.cora.sorting.ConcurrentScoreMap;
+import net.yacy.cora.sorting.WeightedPrefixTrie;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.MemoryControl;
+
+/**
+ * A type-ahead completion index for the suggest servlet.
+ * Indexed words and past search queries are collected together with their frequency
+ * in a bounded score map. From time to time a background thread compiles this map into
+ * immutable {@link WeightedPrefixTrie}s which are then published with a single volatile write,
+ * so that completion requests never block and never wait for a rebuild.
+ * Indexed words are appended to a character buffer and are normalized and counted in batches, so that
+ * the indexing threads do not allocate for every word. A rebuild compiles only the terms which changed
+ * since the last full rebuild into a small delta trie; the large base trie is compiled again only when
+ * the delta becomes too large.
+ */
+public class CompletionIndex {
+
+    private final static ConcurrentLog log = new ConcurrentLog(CompletionIndex.class.getName());
+
+    private static final int minTermLength = 2;          // shorter words and queries are not learned
+    private static final int maxTermLength = 64;         // longer words and queries are not learned
+    private static final int maxCollectSize = 200000;    // maximum size of the collection map
+    private static final int maxTrieSize = 100000;       // maximum number of terms in the base trie
+    private static final int maxDeltaSize = 10000;       // maximum number of terms in the delta trie
+    private static final int maxPendingChars = 65536;    // size of the buffer of learned words before they are counted
+    private static final long rebuildPeriod = 60000L;    // minimum time between two rebuilds
+    private static final int queryWeight = 10;           // weight of a successful query compared to an indexed word
+
+    private static final ConcurrentScoreMap<String> collected = new ConcurrentScoreMap<String>();
+    private static final Set<String> changed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()); // terms changed since the last full rebuild
+    private static final StringBuilder pending = new StringBuilder(); // learned words which are not counted yet, each followed by a line break
+    private static final AtomicBoolean dirty = new AtomicBoolean(false);
+    private static final AtomicBoolean fullRebuild = new AtomicBoolean(false); // true if too many terms changed for a delta; then changed terms are not recorded
+    private static final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private static volatile Tries tries = Tries.EMPTY;
+    private static volatile long lastRebuild = 0;
+
+    /**
+     * the published tries; the weight of a term in the delta trie replaces its weight in the base trie
+     */
+    private static final class Tries {
+
+        private static final Tries EMPTY = new Tries(WeightedPrefixTrie.EMPTY, WeightedPrefixTrie.EMPTY, 0);
+
+        private final WeightedPrefixTrie base, delta;
+        private final int size;
+
+        private Tries(final WeightedPrefixTrie base, final WeightedPrefixTrie delta, final int size) {
+            this.base = base;
+            this.delta = delta;
+            this.size = size;
+        }
+
+        private long weight(final String term) {
+            final long w = this.delta.weight(term);
+            return w > 0 ? w : this.base.weight(term);
+        }
+
+        private List<String> complete(final String prefix, final int maxcount) {
+            if (this.delta.size() == 0) return this.base.complete(prefix, maxcount);
+            final Map<String, Long> weights = new HashMap<String, Long>();
+            for (final String term: this.base.complete(prefix, maxcount)) weights.put(term, Long.valueOf(weight(term)));
+            for (final String term: this.delta.complete(prefix, maxcount)) weights.put(term, Long.valueOf(weight(term)));
+            final List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(weights.entrySet());
+            Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+                @Override
+                public int compare(final Map.Entry<String, Long> a, final Map.Entry<String, Long> b) {
+                    return b.getValue().compareTo(a.getValue());
+                }
+            });
+            final List<String> result = new ArrayList<String>(Math.min(maxcount, entries.size()));
+            for (final Map.Entry<String, Long> entry: entries) {
+                if (result.size() >= maxcount) break;
+                result.add(entry.getKey());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * learn a word which appeared in an indexed document. The word is only buffered here;
+     * it is counted together with other words when the buffer is full or the trie is rebuilt.
+     * @param word
+     */
+    public static void learnWord(final CharSequence word) {
+        if (word == null || word.length() < minTermLength || word.length() > maxTermLength) return;
+        synchronized (pending) {
+            pending.append(word).append('\n');
+            if (pending.length() < maxPendingChars) {
+                if (!dirty.get()) dirty.set(true);
+                return;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * learn a query string which was submitted and produced results
+     * @param query the query string
+     * @param resultCount the number of results for the query
+     */
+    public static void learnQuery(final String query, final int resultCount) {
+        if (resultCount <= 0 || query == null) return;
+        learn(normalize(query, 0, query.length()), queryWeight);
+    }
+
+    /**
+     * count the buffered words
+     */
+    private static void drain() {
+        final String words;
+        synchronized (pending) {
+            if (pending.length() == 0) return;
+            words = pending.toString();
+            pending.setLength(0);
+        }
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        int start = 0;
+        for (int end = words.indexOf('\n'); end >= 0; end = words.indexOf('\n', start)) {
+            final String term = normalize(words, start, end);
+            final Integer count = counts.get(term);
+            counts.put(term, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+            start = end + 1;
+        }
+        for (final Map.Entry<String, Integer> entry: counts.entrySet()) learn(entry.getKey(), entry.getValue().intValue());
+    }
+
+    private static void learn(final String term, final int weight) {
+        if (term.length() < minTermLength || term.length() > maxTermLength) return;
+        collected.inc(term, weight);
+        if (!fullRebuild.get() && changed.add(term) && changed.size() > maxDeltaSize) {
+            // the next rebuild is a full rebuild anyway; do not let the set grow while no rebuild is triggered
+            fullRebuild.set(true);
+            changed.clear();
+        }
+        dirty.set(true);
+        if (!collected.sizeSmaller(maxCollectSize)) {
+            collected.shrinkToMaxSize(maxCollectSize / 2);
+        }
+    }
+
+    private static String normalize(final CharSequence s, final int from, final int to) {
+        final StringBuilder sb = new StringBuilder(to - from);
+        boolean space = true;
+        for (int i = from; i < to; i++) {
+            final char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (!space) sb.append(' ');
+                space = true;
+            } else {
+                sb.append(c);
+                space = false;
+            }
+        }
+        if (space && sb.length() > 0) sb.setLength(sb.length() - 1);
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * compute completions for a given prefix from the last published tries.
+     * This triggers an asynchronous rebuild of the tries if new terms have been learned.
+     * @param prefix the beginning of the word or query
+     * @param maxcount the maximum number of completions
+     * @return completions ordered by descending frequency, the prefix itself is not included
+     */
+    public static List<String> complete(final String prefix, final int maxcount) {
+        final String p = normalize(prefix, 0, prefix.length());
+        if (dirty.get() && System.currentTimeMillis() - lastRebuild > rebuildPeriod) rebuildAsync();
+        final List<String> result = new ArrayList<String>(tries.complete(p, maxcount + 1));
+        result.remove(p);
+        while (result.size() > maxcount) result.remove(result.size() - 1);
+        return result;
+    }
+
+    /**
+     * start a rebuild of the tries in a background thread unless one is already running
+     */
+    public static void rebuildAsync() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        final Thread t = new Thread(CompletionIndex.class.getSimpleName() + ".rebuild") {
+            @Override
+            public void run() {
+                try {
+                    rebuild();
+                } finally {
+                    rebuilding.set(false);
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * count the buffered words and publish the changed terms. Only the delta trie is compiled unless
+     * there is no base trie yet or too many terms changed since the last full rebuild.
+     */
+    public static void rebuild() {
+        drain();
+        dirty.set(false);
+        lastRebuild = System.currentTimeMillis();
+        if (MemoryControl.shortStatus()) {
+            // do not add more pressure now; keep the old tries and try again later
+            collected.shrinkToMaxSize(maxCollectSize / 4);
+            dirty.set(true);
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        final Tries current = tries;
+        final Map<String, Long> m = new HashMap<String, Long>();
+        if (fullRebuild.getAndSet(false) || current.base.size() == 0 || changed.size() > maxDeltaSize) {
+            changed.clear(); // terms which change from now on are in the next delta
+            for (final String term: collected.keys(false, maxTrieSize)) {
+                final int score = collected.get(term);
+                if (score > 0) m.put(term, Long.valueOf(score));
+            }
+            tries = new Tries(new WeightedPrefixTrie(m), WeightedPrefixTrie.EMPTY, m.size());
+            if (log.isFine()) log.fine("rebuilt completion trie with " + m.size() + " terms in " + (System.currentTimeMillis() - start) + " milliseconds");
+        } else {
+            int added = 0;
+            for (final String term: changed) {
+                final int score = collected.get(term);
+                if (score <= 0) continue;
+                m.put(term, Long.valueOf(score));
+                if (current.base.weight(term) == 0) added++;
+            }
+            tries = new Tries(current.base, new WeightedPrefixTrie(m), current.base.size() + added);
+            if (log.isFine()) log.fine("updated completion trie with " + m.size() + " changed terms in " + (System.currentTimeMillis() - start) + " milliseconds");
+        }
+    }
+
+    /**
+     * @return the number of terms in the currently published tries
+     */
+    public static int size() {
+        return tries.size;
+    }
+
+    /**
+     * @return the number of recorded changed terms for the next delta trie
+     */
+    static int changedSize() {
+        return changed.size();
+    }
+
+    public static void clear() {
+        synchronized (pending) {
+            pending.setLength(0);
+        }
+        collected.clear();
+        changed.clear();
+        fullRebuild.set(false);
+        tries = Tries.EMPTY;
+        dirty.set(false);
+    }
+
+}
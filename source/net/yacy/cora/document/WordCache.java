@@ -217,11 +217,24 @@ public class WordCache {
             return;
         }
         commonWords.inc(word);
+        CompletionIndex.learnWord(word);
         if (!(commonWords.sizeSmaller(commonWordsMaxSize))) {
             commonWords.shrinkToMaxSize(commonWordsMaxSize / 2);
         }
     }
 
+    /**
+     * add a word to the generic dictionary; the word is only copied if it is long enough to be learned
+     * @param chars the characters of the word in the range 0 to length
+     * @param length
+     */
+    public static void learn(final char[] chars, final int length) {
+        if (length < commonWordsMinLength) {
+            return;
+        }
+        learn(new StringBuilder(length).append(chars, 0, length));
+    }
+
     public static void learn(Collection<String> wordset) {
         for (String s: wordset) {
             learn(new StringBuilder(s));
@@ -0,0 +1,446 @@
+/**
+ *  BufferedSolrConnector
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.solr.connector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.params.ModifiableSolrParams;
+
+import net.yacy.cora.sorting.ReversibleScoreMap;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.search.schema.CollectionSchema;
+
+/**
+ * A group-commit write buffer in front of another connector.
+ * Added documents are collected and written with a single add(Collection) call as soon as
+ * the buffer holds a given number of documents, a given (estimated) number of bytes or when the
+ * oldest buffered document reaches a given age. The flush on count or size is done by the thread
+ * which adds the document; as flushes are serialized, a producer which is faster than the
+ * index has to wait for the running flush, which gives back pressure to the indexing stage.
+ *
+ * Documents are not visible for searches before they are committed within Solr anyway;
+ * documents which are still in the buffer are visible for {@link #getDocumentById(String, String...)}
+ * and {@link #getLoadTimeURL(String)} to keep double-checks correct.
+ * All other operations are delegated to the wrapped connector; operations which may
+ * conflict with buffered documents (updates, deletions, commits) flush the buffer first.
+ */
+public class BufferedSolrConnector extends AbstractSolrConnector implements SolrConnector {
+
+    private final static ConcurrentLog log = new ConcurrentLog(BufferedSolrConnector.class.getName());
+
+    private final SolrConnector connector;
+    private final String name;
+    private final int maxCount;
+    private final long maxBytes;
+    private final long maxAge;
+
+    private LinkedHashMap<String, SolrInputDocument> pending; // the buffer, guarded by this
+    private Map<String, SolrInputDocument> inflight;          // the batch which is currently written, guarded by this
+    private long pendingBytes;                                 // estimated size of the pending documents
+    private long oldest;                                       // time when the oldest pending document was added, 0 if empty
+    private final Object flushLock = new Object();             // serializes the write of batches
+    private final AtomicLong anonymousIDs = new AtomicLong(0); // keys for documents without id
+    private Thread ager;
+
+    /**
+     * @param connector the connector which receives the batches
+     * @param name the name of the core, used for logging and the flush thread name
+     * @param maxCount flush when this number of documents is buffered
+     * @param maxBytes flush when the estimated size of the buffered documents exceeds this number of bytes
+     * @param maxAge flush when the oldest buffered document is older than this number of milliseconds
+     */
+    public BufferedSolrConnector(final SolrConnector connector, final String name, final int maxCount, final long maxBytes, final long maxAge) {
+        this.connector = connector;
+        this.name = name;
+        this.maxCount = Math.max(1, maxCount);
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        this.pending = new LinkedHashMap<String, SolrInputDocument>();
+        this.inflight = Collections.emptyMap();
+        this.pendingBytes = 0;
+        this.oldest = 0;
+        this.ager = null;
+        if (this.maxCount > 1 && maxAge > 0) {
+            this.ager = new Thread(BufferedSolrConnector.class.getSimpleName() + ".flush(" + name + ")") {
+                @Override
+                public void run() {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        try {
+                            Thread.sleep(Math.max(10, BufferedSolrConnector.this.maxAge / 2));
+                        } catch (final InterruptedException e) {
+                            return;
+                        }
+                        final long age;
+                        synchronized (BufferedSolrConnector.this) {
+                            age = BufferedSolrConnector.this.oldest == 0 ? 0 : System.currentTimeMillis() - BufferedSolrConnector.this.oldest;
+                        }
+                        if (age >= BufferedSolrConnector.this.maxAge || (age > 0 && MemoryControl.shortStatus())) {
+                            try {
+                                flush();
+                            } catch (final IOException | SolrException e) {
+                                log.warn("flush of " + BufferedSolrConnector.this.name + " failed: " + e.getMessage());
+                            }
+                        }
+                    }
+                }
+            };
+            this.ager.setDaemon(true);
+            this.ager.start();
+        }
+    }
+
+    /**
+     * @return the wrapped connector
+     */
+    public SolrConnector getConnector() {
+        return this.connector;
+    }
+
+    /**
+     * write all buffered documents to the wrapped connector.
+     * If the batch cannot be written, its documents are written one by one: documents which are rejected by the
+     * index are logged with their id and reported with a SolrException; documents which were not written because
+     * the index could not be reached are put back into the buffer and written with the next flush.
+     * @throws IOException if the index could not be reached; the documents which were not written are kept in the buffer
+     * @throws SolrException if documents were rejected by the index
+     */
+    public void flush() throws IOException, SolrException {
+        synchronized (this.flushLock) {
+            final Map<String, SolrInputDocument> taken;
+            final long takenOldest;
+            synchronized (this) {
+                if (this.pending.isEmpty()) return;
+                taken = this.pending;
+                takenOldest = this.oldest;
+                this.inflight = taken;
+                this.pending = new LinkedHashMap<String, SolrInputDocument>();
+                this.pendingBytes = 0;
+                this.oldest = 0;
+            }
+            final long start = System.currentTimeMillis();
+            final LinkedHashMap<String, SolrInputDocument> unwritten = new LinkedHashMap<String, SolrInputDocument>(taken);
+            final List<String> rejected = new ArrayList<String>();
+            IOException failure = null;
+            SolrException rejection = null;
+            try {
+                try {
+                    this.connector.add(new ArrayList<SolrInputDocument>(taken.values()));
+                    unwritten.clear();
+                } catch (final IOException | SolrException e) {
+                    log.warn("flush of " + taken.size() + " documents to " + this.name + " failed, writing them one by one: " + e.getMessage());
+                    for (final Map.Entry<String, SolrInputDocument> entry: taken.entrySet()) {
+                        try {
+                            this.connector.add(entry.getValue());
+                        } catch (final SolrException ee) {
+                            log.warn("document " + entry.getKey() + " rejected by " + this.name + ": " + ee.getMessage(), ee);
+                            rejected.add(entry.getKey());
+                            rejection = ee;
+                        } catch (final IOException ee) {
+                            failure = ee; // the index cannot be reached: keep this and all following documents
+                            break;
+                        }
+                        unwritten.remove(entry.getKey());
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    if (!unwritten.isEmpty()) {
+                        // put the documents back in front of the buffer; documents which were added meanwhile replace older versions
+                        final LinkedHashMap<String, SolrInputDocument> p = new LinkedHashMap<String, SolrInputDocument>(unwritten);
+                        p.putAll(this.pending);
+                        this.pending = p;
+                        for (final SolrInputDocument doc: unwritten.values()) this.pendingBytes += estimateSize(doc);
+                        this.oldest = this.oldest == 0 ? takenOldest : Math.min(this.oldest, takenOldest);
+                    }
+                    this.inflight = Collections.emptyMap();
+                }
+            }
+            if (failure != null) {
+                log.warn(unwritten.size() + " documents for " + this.name + " are kept in the buffer for the next flush: " + failure.getMessage());
+                throw failure;
+            }
+            if (rejection != null) throw new SolrException(SolrException.ErrorCode.getErrorCode(rejection.code()), rejected.size() + " documents rejected by " + this.name + ": " + rejected, rejection);
+            if (log.isFine()) log.fine("flushed " + taken.size() + " documents to " + this.name + " in " + (System.currentTimeMillis() - start) + " milliseconds");
+        }
+    }
+
+    private static long estimateSize(final SolrInputDocument doc) {
+        long size = 0;
+        for (final SolrInputField field: doc) {
+            size += field.getName().length() + 8;
+            final Object value = field.getValue();
+            if (value instanceof Collection) {
+                for (final Object v: (Collection<?>) value) size += v == null ? 4 : v instanceof String ? ((String) v).length() * 2 : 16;
+            } else {
+                size += value == null ? 4 : value instanceof String ? ((String) value).length() * 2 : 16;
+            }
+        }
+        return size;
+    }
+
+    private String key(final SolrInputDocument doc) {
+        final Object id = doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+        return id == null ? "\u0000" + this.anonymousIDs.incrementAndGet() : id.toString();
+    }
+
+    @Override
+    public void add(final SolrInputDocument solrdoc) throws IOException, SolrException {
+        if (this.maxCount <= 1) {
+            this.connector.add(solrdoc);
+            return;
+        }
+        final boolean full;
+        synchronized (this) {
+            this.pending.put(key(solrdoc), solrdoc);
+            this.pendingBytes += estimateSize(solrdoc);
+            if (this.oldest == 0) this.oldest = System.currentTimeMillis();
+            full = this.pending.size() >= this.maxCount || this.pendingBytes >= this.maxBytes;
+        }
+        if (full) flush(); // blocks while another flush is running: back pressure for the producer
+    }
+
+    @Override
+    public void add(final Collection<SolrInputDocument> solrdocs) throws IOException, SolrException {
+        if (this.maxCount <= 1) {
+            this.connector.add(solrdocs);
+            return;
+        }
+        final boolean full;
+        synchronized (this) {
+            for (final SolrInputDocument solrdoc: solrdocs) {
+                this.pending.put(key(solrdoc), solrdoc);
+                this.pendingBytes += estimateSize(solrdoc);
+            }
+            if (this.oldest == 0 && !this.pending.isEmpty()) this.oldest = System.currentTimeMillis();
+            full = this.pending.size() >= this.maxCount || this.pendingBytes >= this.maxBytes;
+        }
+        if (full) flush();
+    }
+
+    @Override
+    public void update(final SolrInputDocument solrdoc) throws IOException, SolrException {
+        // a partial update must be applied to the stored version of the document
+        flush();
+        this.connector.update(solrdoc);
+    }
+
+    @Override
+    public void update(final Collection<SolrInputDocument> solrdoc) throws IOException, SolrException {
+        flush();
+        this.connector.update(solrdoc);
+    }
+
+    private synchronized SolrInputDocument buffered(final String id) {
+        final SolrInputDocument doc = this.pending.get(id);
+        return doc == null ? this.inflight.get(id) : doc;
+    }
+
+    /**
+     * @param ids document ids
+     * @return the ids of the documents which are still in the buffer, not yet written to the wrapped connector
+     */
+    public synchronized Set<String> bufferedIds(final Collection<String> ids) {
+        final Set<String> buffered = new HashSet<String>();
+        for (final String id: ids) {
+            if (this.pending.containsKey(id) || this.inflight.containsKey(id)) buffered.add(id);
+        }
+        return buffered;
+    }
+
+    @Override
+    public SolrDocument getDocumentById(final String id, final String ... fields) throws IOException {
+        final SolrInputDocument buffered = buffered(id);
+        if (buffered == null) return this.connector.getDocumentById(id, fields);
+        final SolrDocument doc = new SolrDocument();
+        if (fields == null || fields.length == 0) {
+            for (final SolrInputField field: buffered) doc.setField(field.getName(), field.getValue());
+        } else {
+            for (final String field: fields) {
+                final SolrInputField f = buffered.getField(field);
+                if (f != null) doc.setField(field, f.getValue());
+            }
+        }
+        return doc;
+    }
+
+    @Override
+    public LoadTimeURL getLoadTimeURL(final String id) throws IOException {
+        final SolrInputDocument buffered = buffered(id);
+        if (buffered != null) {
+            final LoadTimeURL ltu = AbstractSolrConnector.getLoadTimeURL(buffered);
+            if (ltu != null) return ltu;
+        }
+        return this.connector.getLoadTimeURL(id);
+    }
+
+    @Override
+    public int bufferSize() {
+        final int b;
+        synchronized (this) {
+            b = this.pending.size() + this.inflight.size();
+        }
+        return b + this.connector.bufferSize();
+    }
+
+    @Override
+    public void clearCaches() {
+        this.connector.clearCaches();
+    }
+
+    @Override
+    public long getSize() {
+        return this.connector.getSize();
+    }
+
+    @Override
+    public void commit(final boolean softCommit) {
+        try {
+            flush();
+        } catch (final IOException | SolrException e) {
+            log.warn("flush of " + this.name + " before commit failed: " + e.getMessage(), e);
+        }
+        this.connector.commit(softCommit);
+    }
+
+    @Override
+    public void optimize(final int maxSegments) {
+        this.connector.optimize(maxSegments);
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return this.connector.getSegmentCount();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.connector.isClosed();
+    }
+
+    /**
+     * write all buffered documents and stop the flush thread without closing the wrapped connector.
+     * Documents which are added afterwards are still buffered but only written on count, size or commit.
+     */
+    public void closeBuffer() {
+        if (this.ager != null) this.ager.interrupt();
+        try {
+            flush();
+        } catch (final IOException | SolrException e) {
+            log.warn("flush of " + this.name + " at close failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closeBuffer();
+        this.connector.close();
+    }
+
+    @Override
+    public void clear() throws IOException {
+        synchronized (this) {
+            this.pending.clear();
+            this.pendingBytes = 0;
+            this.oldest = 0;
+        }
+        this.connector.clear();
+    }
+
+    @Override
+    public void deleteById(final String id) throws IOException {
+        flush();
+        this.connector.deleteById(id);
+    }
+
+    @Override
+    public void deleteByIds(final Collection<String> ids) throws IOException {
+        flush();
+        this.connector.deleteByIds(ids);
+    }
+
+    @Override
+    public void deleteByQuery(final String querystring) throws IOException {
+        flush();
+        this.connector.deleteByQuery(querystring);
+    }
+
+    @Override
+    public QueryResponse getResponseByParams(final ModifiableSolrParams query) throws IOException {
+        return this.connector.getResponseByParams(query);
+    }
+
+    @Override
+    public SolrDocumentList getDocumentListByParams(final ModifiableSolrParams params) throws IOException {
+        return this.connector.getDocumentListByParams(params);
+    }
+
+    @Override
+    public SolrDocumentList getDocumentListByQuery(final String querystring, final String sort, final int offset, final int count, final String ... fields) throws IOException {
+        return this.connector.getDocumentListByQuery(querystring, sort, offset, count, fields);
+    }
+
+    @Override
+    public long getCountByQuery(final String querystring) throws IOException {
+        return this.connector.getCountByQuery(querystring);
+    }
+
+    @Override
+    public LinkedHashMap<String, ReversibleScoreMap<String>> getFacets(final String query, final int maxresults, final String ... fields) throws IOException {
+        return this.connector.getFacets(query, maxresults, fields);
+    }
+
+    @Override
+    public BlockingQueue<SolrDocument> concurrentDocumentsByQuery(final String querystring, final String sort, final int offset, final int maxcount, final long maxtime, final int buffersize, final int concurrency, final boolean prefetchIDs, final String ... fields) {
+        return this.connector.concurrentDocumentsByQuery(querystring, sort, offset, maxcount, maxtime, buffersize, concurrency, prefetchIDs, fields);
+    }
+
+    @Override
+    public BlockingQueue<SolrDocument> concurrentDocumentsByQueries(final List<String> querystrings, final String sort, final int offset, final int maxcount, final long maxtime, final int buffersize, final int concurrency, final boolean prefetchIDs, final String ... fields) {
+        return this.connector.concurrentDocumentsByQueries(querystrings, sort, offset, maxcount, maxtime, buffersize, concurrency, prefetchIDs, fields);
+    }
+
+    @Override
+    public BlockingQueue<String> concurrentIDsByQuery(final String querystring, final String sort, final int offset, final int maxcount, final long maxtime, final int buffersize, final int concurrency) {
+        return this.connector.concurrentIDsByQuery(querystring, sort, offset, maxcount, maxtime, buffersize, concurrency);
+    }
+
+    @Override
+    public BlockingQueue<String> concurrentIDsByQueries(final List<String> querystrings, final String sort, final int offset, final int maxcount, final long maxtime, final int buffersize, final int concurrency) {
+        return this.connector.concurrentIDsByQueries(querystrings, sort, offset, maxcount, maxtime, buffersize, concurrency);
+    }
+
+}
@@ -27,10 +27,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import net.yacy.cora.federate.solr.connector.BufferedSolrConnector;
 import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
 import net.yacy.cora.federate.solr.connector.MirrorSolrConnector;
 import net.yacy.cora.federate.solr.connector.RemoteSolrConnector;
 import net.yacy.cora.federate.solr.connector.SolrConnector;
+import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
 
@@ -38,7 +40,7 @@ public class InstanceMirror {
 
     private EmbeddedInstance embeddedSolrInstance;
     private ShardInstance remoteSolrInstance;
-    private Map<String, SolrConnector> mirrorConnectorCache;
+    private Map<String, BufferedSolrConnector> mirrorConnectorCache;
     private Map<String, EmbeddedSolrConnector> embeddedConnectorCache;
     private Map<String, RemoteSolrConnector> remoteConnectorCache;
 
@@ -64,7 +66,7 @@ public class InstanceMirror {
     }
 
     public void disconnectEmbedded() {
-        mirrorConnectorCache.clear();
+        closeMirrorBuffers();
         if (this.embeddedSolrInstance == null) return;
         Set<SolrConnector> connectors = new HashSet<SolrConnector>();
         connectors.addAll(this.embeddedConnectorCache.values());
@@ -88,7 +90,7 @@ public class InstanceMirror {
     }
 
     public void disconnectRemote() {
-        mirrorConnectorCache.clear();
+        closeMirrorBuffers();
         if (this.remoteSolrInstance == null) return;
         for (RemoteSolrConnector connector: this.remoteConnectorCache.values()) connector.close();
         this.remoteConnectorCache.clear();
@@ -96,6 +98,20 @@ public class InstanceMirror {
         this.remoteSolrInstance = null;
     }
 
+    /**
+     * write the buffered documents of all mirror connectors and forget the mirror connectors
+     */
+    private void closeMirrorBuffers() {
+        for (BufferedSolrConnector connector: this.mirrorConnectorCache.values()) {
+            try {
+                connector.closeBuffer();
+            } catch (final Throwable e) {
+                ConcurrentLog.logException(e);
+            }
+        }
+        this.mirrorConnectorCache.clear();
+    }
+
     /**
      * Close this instance and it's connectors and cores
      */
@@ -175,11 +191,21 @@ public class InstanceMirror {
     }
 
     public SolrConnector getGenericMirrorConnector(String corename) {
-        SolrConnector msc = this.mirrorConnectorCache.get(corename);
+        BufferedSolrConnector msc = this.mirrorConnectorCache.get(corename);
         if (msc != null) return msc;
         EmbeddedSolrConnector esc = getEmbeddedConnector(corename);
         RemoteSolrConnector rsc = getRemoteConnector(corename);
-        msc = new MirrorSolrConnector(esc, rsc);
+        // documents are written in batches, see BufferedSolrConnector
+        int count = SwitchboardConstants.SOLR_INGEST_BUFFER_COUNT_DEFAULT;
+        long bytes = SwitchboardConstants.SOLR_INGEST_BUFFER_BYTES_DEFAULT;
+        long maxage = SwitchboardConstants.SOLR_INGEST_BUFFER_MAXAGE_DEFAULT;
+        final Switchboard sb = Switchboard.getSwitchboard();
+        if (sb != null) {
+            count = sb.getConfigInt(SwitchboardConstants.SOLR_INGEST_BUFFER_COUNT, count);
+            bytes = sb.getConfigLong(SwitchboardConstants.SOLR_INGEST_BUFFER_BYTES, bytes);
+            maxage = sb.getConfigLong(SwitchboardConstants.SOLR_INGEST_BUFFER_MAXAGE, maxage);
+        }
+        msc = new BufferedSolrConnector(new MirrorSolrConnector(esc, rsc), corename, count, bytes, maxage);
         this.mirrorConnectorCache.put(corename, msc);
         return msc;
     }
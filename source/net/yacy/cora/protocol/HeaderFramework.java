@@ -94,6 +94,7 @@ public class HeaderFramework extends TreeMap<String, String> implements Map<Stri
     public static final String LOCATION = "Location";
     public static final String ETAG = "ETag";
     public static final String VIA = "Via";
+    public static final String RETRY_AFTER = "Retry-After";
 
     public static final String X_FORWARDED_FOR = "X-Forwarded-For";
     public static final String X_ROBOTS_TAG = "X-Robots-Tag"; // see http://googleblog.blogspot.com/2007/07/robots-exclusion-protocol-now-with-even.html
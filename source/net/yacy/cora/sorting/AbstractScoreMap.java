@@ -77,6 +77,14 @@ public abstract class AbstractScoreMap<E> implements ScoreMap<E> {
         */
     }
 
+    @Override
+    public List<E> keys(final boolean up, final int maxcount) {
+        List<E> list = new ArrayList<E>(Math.min(maxcount, this.size()));
+        Iterator<E> i = this.keys(up);
+        while (list.size() < maxcount && i.hasNext()) list.add(i.next());
+        return list;
+    }
+
     @Override
     public Collection<E> keyList(final boolean up) {
         List<E> list = new ArrayList<E>(this.size());
@@ -0,0 +1,415 @@
+/**
+ *  InternedScoreMap
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.sorting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A score map for counting facets: every key is interned to an int id once and
+ * the scores are stored in a primitive int array indexed by that id.
+ * Incrementing an already known key does not allocate any objects, in contrast to the
+ * {@link ConcurrentScoreMap} which creates a new counter object on every increment.
+ * Sorted views are only materialized when they are requested with {@link #keys(boolean)}.
+ * All methods are thread-safe. Increments and reads of known keys share a read lock and change the scores
+ * atomically; only new keys, deletions and the shrink methods take the exclusive lock.
+ */
+public class InternedScoreMap<E> extends AbstractScoreMap<E> implements ScoreMap<E> {
+
+    private static final int initialSize = 16;
+
+    /** a mapping from a key to its id; changed only with the write lock */
+    private final ConcurrentHashMap<E, Integer> ids;
+
+    /** the key for each id; null if the key was deleted. Changed only with the write lock */
+    private Object[] keys;
+
+    /** the score for each id; the array is replaced only with the write lock */
+    private AtomicIntegerArray scores;
+
+    /** the next unused id */
+    private int next;
+
+    /** sum of all scores */
+    private final AtomicLong gcount;
+
+    private final ReentrantReadWriteLock lock;
+
+    /** Eventual registered object listening on map updates */
+    private ScoreMapUpdatesListener updatesListener;
+
+    public InternedScoreMap() {
+        this(null);
+    }
+
+    /**
+     * @param updatesListener an eventual object listening on score map updates
+     */
+    public InternedScoreMap(final ScoreMapUpdatesListener updatesListener) {
+        this.ids = new ConcurrentHashMap<E, Integer>();
+        this.keys = new Object[initialSize];
+        this.scores = new AtomicIntegerArray(initialSize);
+        this.next = 0;
+        this.gcount = new AtomicLong(0);
+        this.lock = new ReentrantReadWriteLock();
+        this.updatesListener = updatesListener;
+    }
+
+    /**
+     * Dispatch the update event to the eventually registered listener.
+     */
+    private void dispatchUpdateToListener() {
+        if (this.updatesListener != null) {
+            this.updatesListener.updatedScoreMap();
+        }
+    }
+
+    /**
+     * @param updatesListener an eventual object which wants to listen to successful updates on this score map
+     */
+    public void setUpdatesListener(final ScoreMapUpdatesListener updatesListener) {
+        this.updatesListener = updatesListener;
+    }
+
+    /**
+     * get the id of a key, create a new id if the key is unknown; must be called with the write lock
+     */
+    private int intern(final E obj) {
+        final Integer id = this.ids.get(obj);
+        if (id != null) return id.intValue();
+        if (this.next == this.keys.length) {
+            if (this.ids.size() < this.next / 2) {
+                compact();
+            } else {
+                this.keys = Arrays.copyOf(this.keys, this.next * 2);
+                final AtomicIntegerArray s = new AtomicIntegerArray(this.next * 2);
+                for (int i = 0; i < this.next; i++) s.set(i, this.scores.get(i));
+                this.scores = s;
+            }
+        }
+        final int i = this.next++;
+        this.keys[i] = obj;
+        this.scores.set(i, 0);
+        this.ids.put(obj, Integer.valueOf(i));
+        return i;
+    }
+
+    /**
+     * remove the gaps of deleted keys and assign new ids
+     */
+    @SuppressWarnings("unchecked")
+    private void compact() {
+        int c = 0;
+        for (int i = 0; i < this.next; i++) {
+            if (this.keys[i] == null) continue;
+            if (c != i) {
+                this.keys[c] = this.keys[i];
+                this.scores.set(c, this.scores.get(i));
+                this.keys[i] = null;
+                this.ids.put((E) this.keys[c], Integer.valueOf(c));
+            }
+            c++;
+        }
+        this.next = c;
+    }
+
+    @Override
+    public void clear() {
+        this.lock.writeLock().lock();
+        try {
+            this.ids.clear();
+            this.keys = new Object[initialSize];
+            this.scores = new AtomicIntegerArray(initialSize);
+            this.next = 0;
+            this.gcount.set(0);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        dispatchUpdateToListener();
+    }
+
+    @Override
+    public int shrinkToMaxSize(final int maxsize) {
+        this.lock.writeLock().lock();
+        try {
+            if (this.ids.size() <= maxsize) {
+                return 0;
+            }
+            int deletedNb = 0;
+            int minScore = getMinScore();
+            while (this.ids.size() > maxsize) {
+                minScore++;
+                deletedNb += shrinkToMinScore(minScore);
+            }
+            return deletedNb;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int shrinkToMinScore(final int minScore) {
+        int deletedNb = 0;
+        this.lock.writeLock().lock();
+        try {
+            for (int i = 0; i < this.next; i++) {
+                if (this.keys[i] != null && this.scores.get(i) < minScore) {
+                    this.ids.remove(this.keys[i]);
+                    this.keys[i] = null;
+                    this.gcount.addAndGet(-this.scores.get(i));
+                    deletedNb++;
+                }
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        if (deletedNb > 0) {
+            dispatchUpdateToListener();
+        }
+        return deletedNb;
+    }
+
+    public long totalCount() {
+        return this.gcount.get();
+    }
+
+    @Override
+    public int size() {
+        return this.ids.size();
+    }
+
+    @Override
+    public boolean sizeSmaller(final int size) {
+        return this.ids.size() < size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.ids.isEmpty();
+    }
+
+    @Override
+    public void inc(final E obj) {
+        inc(obj, 1);
+    }
+
+    @Override
+    public void dec(final E obj) {
+        inc(obj, -1);
+    }
+
+    @Override
+    public void dec(final E obj, final int decrementScore) {
+        inc(obj, -decrementScore);
+    }
+
+    @Override
+    public void inc(final E obj, final int incrementScore) {
+        if (obj == null) return;
+        if (!incKnown(obj, incrementScore)) {
+            this.lock.writeLock().lock();
+            try {
+                final int i = intern(obj); // must be computed before the array is accessed because it may be replaced
+                this.scores.addAndGet(i, incrementScore);
+                this.gcount.addAndGet(incrementScore);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+        dispatchUpdateToListener();
+    }
+
+    /**
+     * increment the score of a key which has an id already
+     * @return false if the key is unknown
+     */
+    private boolean incKnown(final E obj, final int incrementScore) {
+        this.lock.readLock().lock();
+        try {
+            final Integer id = this.ids.get(obj);
+            if (id == null) return false;
+            this.scores.addAndGet(id.intValue(), incrementScore);
+            this.gcount.addAndGet(incrementScore);
+            return true;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void set(final E obj, final int newScore) {
+        if (obj == null) return;
+        this.lock.writeLock().lock();
+        try {
+            final int i = intern(obj);
+            this.gcount.addAndGet(newScore - this.scores.getAndSet(i, newScore));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        dispatchUpdateToListener();
+    }
+
+    @Override
+    public int delete(final E obj) {
+        if (obj == null) return 0;
+        final int score;
+        this.lock.writeLock().lock();
+        try {
+            final Integer id = this.ids.remove(obj);
+            if (id == null) return 0;
+            this.keys[id.intValue()] = null;
+            score = this.scores.get(id.intValue());
+            this.gcount.addAndGet(-score);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        dispatchUpdateToListener();
+        return score;
+    }
+
+    @Override
+    public boolean containsKey(final E obj) {
+        return this.ids.containsKey(obj);
+    }
+
+    @Override
+    public int get(final E obj) {
+        if (obj == null) return 0;
+        this.lock.readLock().lock();
+        try {
+            final Integer id = this.ids.get(obj);
+            if (id == null) return 0;
+            return this.scores.get(id.intValue());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public int getMinScore() {
+        this.lock.readLock().lock();
+        try {
+            if (this.ids.isEmpty()) return -1;
+            int minScore = Integer.MAX_VALUE;
+            for (int i = 0; i < this.next; i++) {
+                if (this.keys[i] != null && this.scores.get(i) < minScore) minScore = this.scores.get(i);
+            }
+            return minScore;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public int getMaxScore() {
+        this.lock.readLock().lock();
+        try {
+            if (this.ids.isEmpty()) return -1;
+            int maxScore = Integer.MIN_VALUE;
+            for (int i = 0; i < this.next; i++) {
+                if (this.keys[i] != null && this.scores.get(i) > maxScore) maxScore = this.scores.get(i);
+            }
+            return maxScore;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a snapshot of all keys in no particular order
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        this.lock.readLock().lock();
+        try {
+            final List<E> l = new ArrayList<E>(this.ids.size());
+            for (int i = 0; i < this.next; i++) {
+                if (this.keys[i] != null) l.add((E) this.keys[i]);
+            }
+            return l.iterator();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates and returns a sorted view to the keys. Sortorder is the score value.
+     * The ordering is computed on primitive values, keys are only touched for the result list.
+     * @param up true = asc order, false = reverse order
+     * @return iterator accessing the keys in order of score values
+     */
+    @Override
+    public Iterator<E> keys(final boolean up) {
+        return keys(up, Integer.MAX_VALUE).iterator();
+    }
+
+    /**
+     * Creates a list of the keys with the highest (or lowest) scores.
+     * @param up true = asc order, false = reverse order
+     * @param maxcount the maximum number of returned keys
+     * @return at most maxcount keys in order of score values
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<E> keys(final boolean up, final int maxcount) {
+        long[] order;
+        final Object[] k;
+        this.lock.readLock().lock();
+        try {
+            // each element holds the score in the upper and the id in the lower 32 bits
+            order = new long[this.next];
+            int c = 0;
+            for (int i = 0; i < this.next; i++) {
+                if (this.keys[i] != null) order[c++] = (((long) this.scores.get(i)) << 32) | i;
+            }
+            if (c < order.length) order = Arrays.copyOf(order, c);
+            k = this.keys.clone();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        Arrays.sort(order);
+        final int count = Math.min(maxcount, order.length);
+        final List<E> l = new ArrayList<E>(count);
+        for (int j = 0; j < count; j++) {
+            l.add((E) k[(int) (up ? order[j] : order[order.length - 1 - j])]);
+        }
+        return l;
+    }
+
+    /**
+     * Creates and returns a sorted view of the keys, sorted by their own natural order.
+     * @param up true = asc order, false = reverse order
+     * @return iterator accessing the keys in natural order
+     */
+    public Iterator<E> keysByNaturalOrder(final boolean up) {
+        final TreeSet<E> sortedKeys = up ? new TreeSet<E>() : new TreeSet<E>(Collections.reverseOrder());
+        final Iterator<E> i = iterator();
+        while (i.hasNext()) sortedKeys.add(i.next());
+        return sortedKeys.iterator();
+    }
+
+}
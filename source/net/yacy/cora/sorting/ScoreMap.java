@@ -75,6 +75,14 @@ public interface ScoreMap<E> extends Iterable<E> {
     public String toString();
 
     public Iterator<E> keys(final boolean up);
+
+    /**
+     * Creates a list of the keys with the highest (or lowest) scores.
+     * @param up true = asc order, false = reverse order
+     * @param maxcount the maximum number of returned keys
+     * @return at most maxcount keys in order of score values
+     */
+    public List<E> keys(final boolean up, final int maxcount);
     
     public Collection<E> keyList(final boolean up);
 
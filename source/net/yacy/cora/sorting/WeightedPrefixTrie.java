@@ -0,0 +1,192 @@
+/**
+ *  WeightedPrefixTrie
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.sorting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * An immutable, weighted radix trie for prefix completion.
+ * Nodes are stored in flat primitive arrays; edge labels are not copied but
+ * referenced as character ranges of the stored terms. Every node knows the
+ * highest weight within its subtree, so the top-k completions of a prefix are
+ * found by a best-first walk that visits only the nodes that can contribute
+ * to the result.
+ * Because instances are never modified after construction they can be shared
+ * between any number of reading threads without locking.
+ */
+public final class WeightedPrefixTrie {
+
+    public static final WeightedPrefixTrie EMPTY = new WeightedPrefixTrie(Collections.<String, Long>emptyMap());
+
+    private final String[] terms;     // the sorted terms
+    private final long[] weights;     // weight of each term
+
+    private final int[] nodeTerm;     // index of a term which contains the edge label of the node
+    private final int[] labelStart;   // start of the edge label within nodeTerm
+    private final int[] labelEnd;     // end of the edge label within nodeTerm (exclusive)
+    private final int[] terminal;     // index of the term ending at this node or -1
+    private final int[] firstChild;   // first child node or -1
+    private final int[] nextSibling;  // next sibling node or -1
+    private final long[] maxWeight;   // maximum weight of all terms in the subtree
+    private int nodeCount;
+
+    /**
+     * construct a trie from a term/weight mapping
+     * @param termWeights the terms and their weights; terms are used as given (no case normalization)
+     */
+    public WeightedPrefixTrie(final Map<String, Long> termWeights) {
+        this.terms = termWeights.keySet().toArray(new String[termWeights.size()]);
+        Arrays.sort(this.terms);
+        this.weights = new long[this.terms.length];
+        for (int i = 0; i < this.terms.length; i++) this.weights[i] = termWeights.get(this.terms[i]).longValue();
+
+        // a radix trie never has more than 2 * n nodes (plus the root)
+        final int maxNodes = 2 * this.terms.length + 1;
+        this.nodeTerm = new int[maxNodes];
+        this.labelStart = new int[maxNodes];
+        this.labelEnd = new int[maxNodes];
+        this.terminal = new int[maxNodes];
+        this.firstChild = new int[maxNodes];
+        this.nextSibling = new int[maxNodes];
+        this.maxWeight = new long[maxNodes];
+        this.nodeCount = 0;
+        build(0, this.terms.length, 0);
+    }
+
+    /**
+     * create the node for all terms in [lo, hi) which share the first depth characters
+     * @return the node index
+     */
+    private int build(int lo, final int hi, final int depth) {
+        final int node = this.nodeCount++;
+        this.firstChild[node] = -1;
+        this.nextSibling[node] = -1;
+        this.terminal[node] = -1;
+        this.maxWeight[node] = 0;
+        if (lo >= hi) {
+            // only possible for the root of an empty trie
+            this.nodeTerm[node] = -1;
+            return node;
+        }
+        // the common prefix of a sorted range is the common prefix of its first and last element
+        final int end = depth + commonPrefixLength(this.terms[lo], this.terms[hi - 1], depth);
+        this.nodeTerm[node] = lo;
+        this.labelStart[node] = depth;
+        this.labelEnd[node] = end;
+        if (this.terms[lo].length() == end) {
+            this.terminal[node] = lo;
+            this.maxWeight[node] = this.weights[lo];
+            lo++;
+        }
+        int last = -1;
+        while (lo < hi) {
+            final char c = this.terms[lo].charAt(end);
+            int groupEnd = lo + 1;
+            while (groupEnd < hi && this.terms[groupEnd].charAt(end) == c) groupEnd++;
+            final int child = build(lo, groupEnd, end);
+            if (last < 0) this.firstChild[node] = child; else this.nextSibling[last] = child;
+            last = child;
+            if (this.maxWeight[child] > this.maxWeight[node]) this.maxWeight[node] = this.maxWeight[child];
+            lo = groupEnd;
+        }
+        return node;
+    }
+
+    private static int commonPrefixLength(final String a, final String b, final int from) {
+        final int l = Math.min(a.length(), b.length());
+        int i = from;
+        while (i < l && a.charAt(i) == b.charAt(i)) i++;
+        return i - from;
+    }
+
+    /**
+     * @return the number of terms in the trie
+     */
+    public int size() {
+        return this.terms.length;
+    }
+
+    /**
+     * @return the weight of a term or 0 if the term is not contained
+     */
+    public long weight(final String term) {
+        final int i = Arrays.binarySearch(this.terms, term);
+        return i < 0 ? 0 : this.weights[i];
+    }
+
+    /**
+     * find the terms starting with a given prefix having the highest weights
+     * @param prefix the prefix of all returned terms
+     * @param maxcount the maximum number of returned terms
+     * @return up to maxcount terms, ordered by descending weight
+     */
+    public List<String> complete(final String prefix, final int maxcount) {
+        if (this.terms.length == 0 || maxcount <= 0) return Collections.emptyList();
+        int node = 0;
+        int p = 0;
+        // walk down until the prefix is consumed
+        walk: while (true) {
+            final String t = this.terms[this.nodeTerm[node]];
+            final int e = this.labelEnd[node];
+            for (int i = this.labelStart[node]; i < e; i++) {
+                if (p == prefix.length()) break walk;
+                if (t.charAt(i) != prefix.charAt(p)) return Collections.emptyList();
+                p++;
+            }
+            if (p == prefix.length()) break walk;
+            final char c = prefix.charAt(p);
+            int child = this.firstChild[node];
+            while (child >= 0 && this.terms[this.nodeTerm[child]].charAt(this.labelStart[child]) != c) child = this.nextSibling[child];
+            if (child < 0) return Collections.emptyList();
+            node = child;
+        }
+
+        // best-first search; node entries are encoded as (index + 1), term entries as -(index + 1)
+        final List<String> result = new ArrayList<String>(Math.min(maxcount, 16));
+        final PriorityQueue<long[]> queue = new PriorityQueue<long[]>(16, new Comparator<long[]>() {
+            @Override
+            public int compare(final long[] a, final long[] b) {
+                return Long.compare(b[0], a[0]);
+            }
+        });
+        queue.add(new long[]{this.maxWeight[node], node + 1});
+        while (!queue.isEmpty() && result.size() < maxcount) {
+            final long[] entry = queue.poll();
+            final int ref = (int) entry[1];
+            if (ref < 0) {
+                result.add(this.terms[-ref - 1]);
+                continue;
+            }
+            final int n = ref - 1;
+            if (this.terminal[n] >= 0) queue.add(new long[]{this.weights[this.terminal[n]], -(this.terminal[n] + 1)});
+            for (int child = this.firstChild[n]; child >= 0; child = this.nextSibling[child]) {
+                queue.add(new long[]{this.maxWeight[child], child + 1});
+            }
+        }
+        return result;
+    }
+
+}
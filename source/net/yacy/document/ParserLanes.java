@@ -0,0 +1,304 @@
+/**
+ *  ParserLanes
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.cora.document.id.MultiProtocolURL;
+
+/**
+ * Execution lanes for the parsers.
+ * Every parser belongs to a lane of a parser family. The parsers of the markup lane, which handle the bulk of
+ * all documents, run directly in the calling thread. The document, archive and media lanes each have their own
+ * number of concurrently running parser threads and their own deadline for the parsing of a single
+ * document. The calling thread waits for the result at most until the deadline; then the parser thread is
+ * interrupted and the document fails with a {@link Parser.Failure}. A parser which does not react on the
+ * interrupt keeps its lane slot until it terminates, so slow or hanging formats can only exhaust their own
+ * lane and never block the html parser.
+ * Parsers which are called from within a lane, i.e. for the entries of an archive, run directly in the thread
+ * of the calling parser and are covered by its deadline.
+ */
+public final class ParserLanes {
+
+    public enum Lane {
+        MARKUP(false, Math.max(2, Runtime.getRuntime().availableProcessors()), 30000),
+        DOCUMENT(true, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 120000),
+        ARCHIVE(true, Math.max(1, Runtime.getRuntime().availableProcessors() / 4), 180000),
+        MEDIA(true, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 30000);
+
+        /** true if the parsers of the lane run in lane threads with a deadline, false if they run in the calling thread */
+        public final boolean threaded;
+        public final int defaultThreads;
+        public final long defaultTimeout;
+
+        private Lane(final boolean threaded, final int defaultThreads, final long defaultTimeout) {
+            this.threaded = threaded;
+            this.defaultThreads = defaultThreads;
+            this.defaultTimeout = defaultTimeout;
+        }
+
+        /**
+         * @return the name of the lane as used in configuration keys
+         */
+        public String key() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /** the number of threads and the deadline of a lane */
+    private static final class LaneState {
+        private final int threads;
+        private final long timeout;
+        private final Semaphore permits;
+        private final AtomicInteger running;
+
+        private LaneState(final int threads, final long timeout) {
+            this.threads = threads;
+            this.timeout = timeout;
+            this.permits = new Semaphore(threads, true);
+            this.running = new AtomicInteger(0);
+        }
+    }
+
+    /** parse statistics of a single parser */
+    public static final class Statistics {
+        private final AtomicLong documents = new AtomicLong(0);
+        private final AtomicLong failures = new AtomicLong(0);
+        private final AtomicLong timeouts = new AtomicLong(0);
+        private final AtomicLong time = new AtomicLong(0);
+        private final AtomicLong maxTime = new AtomicLong(0);
+
+        private void record(final long t, final boolean success) {
+            if (success) this.documents.incrementAndGet(); else this.failures.incrementAndGet();
+            this.time.addAndGet(t);
+            long m;
+            while (t > (m = this.maxTime.get()) && !this.maxTime.compareAndSet(m, t)) {}
+        }
+
+        /** @return the number of successfully parsed documents */
+        public long documents() {return this.documents.get();}
+        /** @return the number of failed parse attempts, including timeouts */
+        public long failures() {return this.failures.get();}
+        /** @return the number of parse attempts which exceeded the deadline of the lane */
+        public long timeouts() {return this.timeouts.get();}
+        /** @return the average parse time in milliseconds */
+        public long averageTime() {
+            final long c = this.documents.get() + this.failures.get();
+            return c == 0 ? 0 : this.time.get() / c;
+        }
+        /** @return the maximum parse time in milliseconds */
+        public long maxTime() {return this.maxTime.get();}
+    }
+
+    private static final Map<Parser, Lane> parser2lane = new ConcurrentHashMap<Parser, Lane>();
+    private static final ConcurrentHashMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+    private static final LaneState[] lanes = new LaneState[Lane.values().length];
+    static {
+        for (final Lane lane: Lane.values()) lanes[lane.ordinal()] = new LaneState(lane.defaultThreads, lane.defaultTimeout);
+    }
+
+    /** true for threads which execute a parser task of a lane */
+    private static final ThreadLocal<Boolean> inLane = new ThreadLocal<Boolean>();
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(0);
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "ParserLanes-" + this.count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * assign a parser to a lane; parsers without a lane are executed in the {@link Lane#MARKUP} lane
+     */
+    public static void assign(final Parser parser, final Lane lane) {
+        parser2lane.put(parser, lane);
+    }
+
+    public static Lane lane(final Parser parser) {
+        final Lane lane = parser2lane.get(parser);
+        return lane == null ? Lane.MARKUP : lane;
+    }
+
+    /**
+     * set the size and the deadline of a lane; parsers which are running already finish with the former setting.
+     * This has no effect on the parsers of lanes which are not {@link Lane#threaded}.
+     * @param threads the maximum number of concurrently running parsers in the lane
+     * @param timeout the maximum time in milliseconds for the parsing of one document, including the time waiting for a free lane slot
+     */
+    public static void configure(final Lane lane, final int threads, final long timeout) {
+        lanes[lane.ordinal()] = new LaneState(Math.max(1, threads), Math.max(1000, timeout));
+    }
+
+    public static int threads(final Lane lane) {
+        return lanes[lane.ordinal()].threads;
+    }
+
+    public static long timeout(final Lane lane) {
+        return lanes[lane.ordinal()].timeout;
+    }
+
+    /**
+     * @return the number of parsers of the lane which are running at the moment, including parsers which exceeded the deadline
+     */
+    public static int running(final Lane lane) {
+        return lanes[lane.ordinal()].running.get();
+    }
+
+    /**
+     * @return the statistics of the parser with the given name or null if the parser has not been used yet
+     */
+    public static Statistics statistics(final String parserName) {
+        return statistics.get(parserName);
+    }
+
+    private static Statistics statistics(final Parser parser) {
+        Statistics s = statistics.get(parser.getName());
+        if (s == null) {
+            s = new Statistics();
+            final Statistics s0 = statistics.putIfAbsent(parser.getName(), s);
+            if (s0 != null) s = s0;
+        }
+        return s;
+    }
+
+    /**
+     * run a parser task in the lane of the parser
+     * @param parser the parser which is used by the task
+     * @param location the url of the parsed document
+     * @param task the parser call
+     * @return the documents produced by the task
+     * @throws Parser.Failure if the task failed or if it did not finish before the deadline of the lane
+     */
+    public static Document[] parse(final Parser parser, final MultiProtocolURL location, final Callable<Document[]> task) throws Parser.Failure {
+        final Statistics stats = statistics(parser);
+        final long start = System.currentTimeMillis();
+        final Lane lane = lane(parser);
+        if (!lane.threaded || inLane.get() != null) {
+            // markup and document parsers and nested calls of a parser within a lane (i.e. archive entries) run in the current thread
+            boolean success = false;
+            try {
+                final Document[] docs = task.call();
+                success = true;
+                return docs;
+            } catch (final Parser.Failure e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new Parser.Failure("parser failed: " + parser.getName(), location, e);
+            } finally {
+                stats.record(System.currentTimeMillis() - start, success);
+            }
+        }
+
+        final LaneState state = lanes[lane.ordinal()];
+        final long deadline = start + state.timeout;
+        try {
+            if (!state.permits.tryAcquire(state.timeout, TimeUnit.MILLISECONDS)) {
+                stats.timeouts.incrementAndGet();
+                stats.record(System.currentTimeMillis() - start, false);
+                throw new Parser.Failure("parser lane '" + lane.key() + "' was busy until the deadline of " + state.timeout + " ms", location, new TimeoutException());
+            }
+        } catch (final InterruptedException e) {
+            stats.record(System.currentTimeMillis() - start, false);
+            Thread.currentThread().interrupt();
+            throw new Parser.Failure("interrupted while waiting for parser lane '" + lane.key() + "'", location, e);
+        }
+
+        // 0: waiting, 1: running, 2: abandoned before start
+        final AtomicInteger taskState = new AtomicInteger(0);
+        final Future<Document[]> future;
+        try {
+            future = executor.submit(new Callable<Document[]>() {
+                @Override
+                public Document[] call() throws Exception {
+                    if (!taskState.compareAndSet(0, 1)) return null;
+                    final Thread current = Thread.currentThread();
+                    final String name = current.getName();
+                    current.setName("parser-" + lane.key() + ": " + location.toNormalform(true)); // set a name to get the address in Thread Dump
+                    inLane.set(Boolean.TRUE);
+                    state.running.incrementAndGet();
+                    try {
+                        return task.call();
+                    } finally {
+                        state.running.decrementAndGet();
+                        inLane.remove();
+                        current.setName(name);
+                        state.permits.release();
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            state.permits.release();
+            stats.record(System.currentTimeMillis() - start, false);
+            throw new Parser.Failure("parser lane '" + lane.key() + "' rejected the document", location, e);
+        }
+
+        try {
+            final Document[] docs = future.get(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            stats.record(System.currentTimeMillis() - start, true);
+            return docs;
+        } catch (final TimeoutException e) {
+            if (taskState.compareAndSet(0, 2)) {
+                state.permits.release(); // the task was never started
+            } else {
+                future.cancel(true);
+            }
+            stats.timeouts.incrementAndGet();
+            stats.record(System.currentTimeMillis() - start, false);
+            throw new Parser.Failure("parser " + parser.getName() + " exceeded the deadline of " + state.timeout + " ms", location, e);
+        } catch (final InterruptedException e) {
+            if (taskState.compareAndSet(0, 2)) state.permits.release(); else future.cancel(true);
+            stats.record(System.currentTimeMillis() - start, false);
+            Thread.currentThread().interrupt();
+            throw new Parser.Failure("interrupted while parsing with " + parser.getName(), location, e);
+        } catch (final ExecutionException e) {
+            stats.record(System.currentTimeMillis() - start, false);
+            final Throwable cause = e.getCause();
+            if (cause instanceof Parser.Failure) throw (Parser.Failure) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new Parser.Failure("parser failed: " + parser.getName(), location, cause);
+        }
+    }
+
+    /**
+     * @return true if the failure was caused by an exceeded deadline; the source stream of the document may
+     * then still be read by the abandoned parser and must not be used for another attempt
+     */
+    public static boolean isTimeout(final Parser.Failure e) {
+        return e.getCause() instanceof TimeoutException;
+    }
+
+}
@@ -32,6 +32,7 @@ import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.input.CloseShieldInputStream;
@@ -91,37 +92,37 @@ public final class TextParser {
     private static final Map<String, Object> denyExtensionx = new ConcurrentHashMap<String, Object>();
 
     static {
-        initParser(new apkParser());
-        initParser(new bzipParser());
+        initParser(new apkParser(), ParserLanes.Lane.ARCHIVE);
+        initParser(new bzipParser(), ParserLanes.Lane.ARCHIVE);
         initParser(new csvParser());
-        initParser(new docParser());
-        initParser(new gzipParser());
+        initParser(new docParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new gzipParser(), ParserLanes.Lane.ARCHIVE);
         // AugmentParser calls internally RDFaParser (therefore add before RDFa)
         // if (Switchboard.getSwitchboard().getConfigBool("parserAugmentation", true)) initParser(new AugmentParser()); // experimental implementation, not working yet (2015-06-05)
         // RDFaParser calls internally htmlParser (therefore add before html)
         // if (Switchboard.getSwitchboard().getConfigBool("parserAugmentation.RDFa", true)) initParser(new RDFaParser()); // experimental implementation, not working yet (2015-06-04)
         initParser(new htmlParser()); // called within rdfa parser
-        initParser(new genericImageParser());
-        initParser(new metadataImageParser());
+        initParser(new genericImageParser(), ParserLanes.Lane.MEDIA);
+        initParser(new metadataImageParser(), ParserLanes.Lane.MEDIA);
         initParser(new linkScraperParser());
-        initParser(new mmParser());
-        initParser(new odtParser());
-        initParser(new ooxmlParser());
-        initParser(new pdfParser());
-        initParser(new pptParser());
-        initParser(new psParser());
+        initParser(new mmParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new odtParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new ooxmlParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new pdfParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new pptParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new psParser(), ParserLanes.Lane.DOCUMENT);
         initParser(new rssParser());
-        initParser(new rtfParser());
-        initParser(new sevenzipParser());
-        initParser(new sidAudioParser());
-        initParser(new svgParser());
-        initParser(new tarParser());
+        initParser(new rtfParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new sevenzipParser(), ParserLanes.Lane.ARCHIVE);
+        initParser(new sidAudioParser(), ParserLanes.Lane.MEDIA);
+        initParser(new svgParser(), ParserLanes.Lane.MEDIA);
+        initParser(new tarParser(), ParserLanes.Lane.ARCHIVE);
         initParser(new torrentParser());
         initParser(new vcfParser());
-        initParser(new vsdParser());
-        initParser(new xlsParser());
-        initParser(new zipParser());
-        initParser(new audioTagParser());
+        initParser(new vsdParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new xlsParser(), ParserLanes.Lane.DOCUMENT);
+        initParser(new zipParser(), ParserLanes.Lane.ARCHIVE);
+        initParser(new audioTagParser(), ParserLanes.Lane.MEDIA);
         /* Order is important : the generic XML parser must be initialized in last, so it will be effectively used only as a fallback one
          * when a specialized parser exists for any XML based format (examples : rssParser or ooxmlParser must be tried first) */
         initParser(genericXMLIdiom);
@@ -143,6 +144,11 @@ public final class TextParser {
     	return mimeTypes;
     }
 
+    private static void initParser(final Parser parser, final ParserLanes.Lane lane) {
+        ParserLanes.assign(parser, lane);
+        initParser(parser);
+    }
+
     private static void initParser(final Parser parser) {
         String prototypeMime = null;
         for (final String mime: parser.supportedMimeTypes()) {
@@ -308,6 +314,9 @@ public final class TextParser {
 						return parseSource(location, mimeType, parser, charset, ignore_class_name, scraper, timezoneOffset,
 								nonCloseInputStream, maxLinks, maxBytes);
 					} catch (Parser.Failure e) {
+						/* A parser which exceeded its deadline may still read the stream : no other parser can be tried */
+						if (ParserLanes.isTimeout(e)) throw e;
+
 						/* Try to reset the marked stream. If the failed parser has consumed too many bytes : 
 						 * too bad, the marks is invalid and process fails now with an IOException */
 						markableStream.reset();
@@ -321,20 +330,28 @@ public final class TextParser {
 							 * In that case our HTTP client (see GzipResponseInterceptor) is already uncompressing the stream on the fly,
 							 * that's why the gzipparser fails opening the stream. 
 							 * (see RFC 7231 section 3.1.2.2 for "Content-Encoding" header specification https://tools.ietf.org/html/rfc7231#section-3.1.2.2)*/
-							gzipParser gzParser = (gzipParser)parser; 
+							final gzipParser gzParser = (gzipParser)parser; 
 						
-							nonCloseInputStream = new CloseShieldInputStream(markableStream);
+							final InputStream uncompressedStream = new CloseShieldInputStream(markableStream);
 							
-							Document maindoc = gzipParser.createMainDocument(location, mimeType, charset, gzParser);
+							final Document maindoc = gzipParser.createMainDocument(location, mimeType, charset, gzParser);
 
 							try {
-								Document[] docs = gzParser.parseCompressedInputStream(location,
-										charset, timezoneOffset, depth,
-										nonCloseInputStream, maxLinks, maxBytes);
+								Document[] docs = ParserLanes.parse(gzParser, location, new Callable<Document[]>() {
+									@Override
+									public Document[] call() throws Exception {
+										return gzParser.parseCompressedInputStream(location, charset, timezoneOffset, depth,
+												uncompressedStream, maxLinks, maxBytes);
+									}
+								});
 								if (docs != null) {
 									maindoc.addSubDocuments(docs);
 								}
 								return new Document[] { maindoc };
+							} catch(Parser.Failure e1) {
+								if (ParserLanes.isTimeout(e1)) throw e1;
+								/* Try again to reset the marked stream if the failed parser has not consumed too many bytes */
+								markableStream.reset();
 							} catch(Exception e1) {
 								/* Try again to reset the marked stream if the failed parser has not consumed too many bytes */
 								markableStream.reset();
@@ -437,21 +454,23 @@ public final class TextParser {
         assert parser != null;
 
         if (AbstractParser.log.isFine()) AbstractParser.log.fine("Parsing " + location + " with mimeType '" + mimeType + "' and file extension '" + fileExt + "'.");
-        try {
-            final Document[] docs;
-            if(parser.isParseWithLimitsSupported()) {
-            	docs = parser.parseWithLimits(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, sourceStream, maxLinks, maxBytes);
-            } else {
-            	/* Parser do not support partial parsing within limits : let's control it here*/
-    			InputStream limitedSource = new StrictLimitInputStream(sourceStream, maxBytes);
-            	docs = parser.parse(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, limitedSource);
+        return ParserLanes.parse(parser, location, new Callable<Document[]>() {
+            @Override
+            public Document[] call() throws Exception {
+                try {
+                    if(parser.isParseWithLimitsSupported()) {
+                        return parser.parseWithLimits(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, sourceStream, maxLinks, maxBytes);
+                    }
+                    /* Parser do not support partial parsing within limits : let's control it here*/
+                    InputStream limitedSource = new StrictLimitInputStream(sourceStream, maxBytes);
+                    return parser.parse(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, limitedSource);
+                } catch(Parser.Failure e) {
+                    throw e;
+                } catch (final Exception e) {
+                    throw new Parser.Failure("parser failed: " + parser.getName(), location);
+                }
             }
-            return docs;
-        } catch(Parser.Failure e) {
-        	throw e;
-        } catch (final Exception e) {
-            throw new Parser.Failure("parser failed: " + parser.getName(), location);
-        }
+        });
     }
 
     /**
@@ -500,16 +519,26 @@ public final class TextParser {
             	    bis = new ByteArrayInputStream(sourceArray);
             	}
                 try {
-                	if(parser.isParseWithLimitsSupported()) {
-                		docs = parser.parseWithLimits(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, bis, maxLinks, maxBytes);
-                	} else {
-                        /* Partial parsing is not supported by this parser : check content length now */
-                       	if(sourceArray.length > maxBytes) {
-                       		throw new Parser.Failure("Content size is over maximum size of " + maxBytes + "", location);		
-                       	}
-                		docs = parser.parse(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, bis);
-                	}
+                	final ByteArrayInputStream source = bis;
+                	docs = ParserLanes.parse(parser, location, new Callable<Document[]>() {
+                		@Override
+                		public Document[] call() throws Exception {
+                			if(parser.isParseWithLimitsSupported()) {
+                				return parser.parseWithLimits(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, source, maxLinks, maxBytes);
+                			}
+                			/* Partial parsing is not supported by this parser : check content length now */
+                			if(sourceArray.length > maxBytes) {
+                				throw new Parser.Failure("Content size is over maximum size of " + maxBytes + "", location);		
+                			}
+                			return parser.parse(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, source);
+                		}
+                	});
                 } catch (final Parser.Failure e) {
+                	if (ParserLanes.isTimeout(e)) {
+                		/* the deadline of the document is over : do not try other parsers */
+                		Thread.currentThread().setName(origName);
+                		throw e;
+                	}
 					if(parser instanceof gzipParser && e.getCause() instanceof GZIPOpeningStreamException && 
 							(parsers.size() == 1 || (parsers.size() == 2 && parsers.contains(genericIdiom)))) {
 						/* The gzip parser failed directly when opening the content stream : before falling back to the generic parser,
@@ -519,16 +548,21 @@ public final class TextParser {
 						 * In that case our HTTP client (see GzipResponseInterceptor) is already uncompressing the stream on the fly,
 						 * that's why the gzipparser fails opening the stream. 
 						 * (see RFC 7231 section 3.1.2.2 for "Content-Encoding" header specification https://tools.ietf.org/html/rfc7231#section-3.1.2.2)*/
-						gzipParser gzParser = (gzipParser)parser;
+						final gzipParser gzParser = (gzipParser)parser;
 						
 						bis = new ByteArrayInputStream(sourceArray);
+						final ByteArrayInputStream uncompressedSource = bis;
 					
 						Document maindoc = gzipParser.createMainDocument(location, mimeType, charset, gzParser);
 
 						try {
-							docs = gzParser.parseCompressedInputStream(location,
-									charset, timezoneOffset, depth,
-									bis, maxLinks, maxBytes);
+							docs = ParserLanes.parse(gzParser, location, new Callable<Document[]>() {
+								@Override
+								public Document[] call() throws Exception {
+									return gzParser.parseCompressedInputStream(location, charset, timezoneOffset, depth,
+											uncompressedSource, maxLinks, maxBytes);
+								}
+							});
 							if (docs != null) {
 								maindoc.addSubDocuments(docs);
 							}
@@ -27,7 +27,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -57,6 +56,7 @@ public class Tokenizer {
 
     //private Properties analysis;
     protected final Map<String, Word> words; // a string (the words) to (indexWord) - relation (key: words are lowercase)
+    protected WordTable wordTable; // the same words, accessed with the char buffer of a WordScanner during tokenization
     private final Set<String> synonyms; // a set of synonyms to the words
     protected final Map<String, Set<Tagging.Metatag>> tags = new HashMap<String, Set<Tagging.Metatag>>(); // a set of tags, discovered from Autotagging
     
@@ -66,6 +66,7 @@ public class Tokenizer {
 
     public Tokenizer(final DigestURL root, final String text, final WordCache meaningLib, boolean doAutotagging, final VocabularyScraper scraper) {
         this.words = new TreeMap<String, Word>(NaturalOrder.naturalComparator);
+        this.wordTable = new WordTable();
         this.synonyms = new LinkedHashSet<String>();
         assert text != null;
         final String[] wordcache = new String[LibraryProvider.autotagging.getMaxWordsInTerm() - 1];
@@ -82,43 +83,49 @@ public class Tokenizer {
         if (LibraryProvider.autotagging.isEmpty()) doAutotagging = false;
 
         // read source
-        WordTokenizer wordenum = new WordTokenizer(new SentenceReader(text), meaningLib);
+        final WordScanner scanner = new WordScanner(text);
         try {
-            while (wordenum.hasMoreElements()) {
-                String word = wordenum.nextElement().toString().toLowerCase(Locale.ENGLISH);
+            while (scanner.next()) {
+                // put word to words statistics cache
+                if (meaningLib != null) WordCache.learn(scanner.buffer(), scanner.length());
                 // handle punktuation (start new sentence)
-                if (word.length() == 1 && SentenceReader.punctuation(word.charAt(0))) {
+                if (scanner.isPunctuation()) {
                     // store sentence
                     if (wordInSentenceCounter > 1) // if no word in sentence repeated punktuation ".....", don't count as sentence
                         allsentencecounter++;
                     wordInSentenceCounter = 1;
                     continue;
                 }
-                if (word.length() < wordminsize) continue;
+                scanner.toLowerCase();
+                if (scanner.length() < wordminsize) continue;
+                final char[] word = scanner.buffer();
+                final int length = scanner.length();
 
                 // get tags from autotagging
                 if (doAutotagging) {
+                    String w = this.wordTable.key(word, length);
+                    if (w == null) w = scanner.toString();
                     Set<String> vocabularyNames = LibraryProvider.autotagging.getVocabularyNames();
                     extendVocabularies(root, scraper, vocabularyNames);
                     
-                    extractAutoTagsFromText(wordcache, word, vocabularyNames);
+                    extractAutoTagsFromText(wordcache, w, vocabularyNames);
+
+                    // shift wordcache
+                    System.arraycopy(wordcache, 1, wordcache, 0, wordcache.length - 1);
+                    wordcache[wordcache.length - 1] = w;
                 }
-                // shift wordcache
-                System.arraycopy(wordcache, 1, wordcache, 0, wordcache.length - 1);
-                wordcache[wordcache.length - 1] = word;
 
                 // check index.of detection
-                if (last_last && comb_indexof && word.equals("modified")) {
+                if (last_last && comb_indexof && scanner.matches("modified")) {
                     this.RESULT_FLAGS.set(flag_cat_indexof, true);
-                    wordenum.pre(true); // parse lines as they come with CRLF
                 }
-                if (last_index && (wordminsize > 2 || word.equals("of"))) comb_indexof = true;
-                last_last = word.equals("last");
-                last_index = word.equals("index");
+                if (last_index && (wordminsize > 2 || scanner.matches("of"))) comb_indexof = true;
+                last_last = scanner.matches("last");
+                last_index = scanner.matches("index");
 
                 // store word
                 allwordcounter++;
-                Word wsp = this.words.get(word);
+                Word wsp = this.wordTable.get(word, length);
                 if (wsp != null) {
                     // word already exists
                     wsp.inc();
@@ -126,14 +133,13 @@ public class Tokenizer {
                     // word does not yet exist, create new word entry
                     wsp = new Word(allwordcounter, wordInSentenceCounter, allsentencecounter + 100); // nomal sentence start at 100 !
                     wsp.flags = this.RESULT_FLAGS.clone();
-                    this.words.put(word, wsp);
+                    this.words.put(this.wordTable.put(word, length, wsp), wsp);
                 }
                 // we now have the unique handle of the word, put it into the sentence:
                 wordInSentenceCounter++;
             }
         } finally {
-            wordenum.close();
-            wordenum = null;
+            scanner.close();
         }
 
         if (pseudostemming) {
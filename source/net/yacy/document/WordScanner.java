@@ -0,0 +1,146 @@
+/**
+ *  WordScanner
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A tokenizer which scans a text into one reusable char buffer.
+ * It produces the same tokens as a {@link WordTokenizer} on a {@link SentenceReader}:
+ * words are runs of characters which are neither {@link SentenceReader#invisible(char) invisible}
+ * nor {@link SentenceReader#punctuation(char) punctuation}, and every punctuation character is a token of its own.
+ * In contrast to the WordTokenizer no objects are created per sentence or per word; the current token
+ * is only valid until the next call of {@link #next()}.
+ */
+public final class WordScanner {
+
+    private CharSequence text;
+    private int pos;
+    private char[] buffer;
+    private int length;
+    private boolean punctuation;
+
+    public WordScanner(final CharSequence text) {
+        assert text != null;
+        this.text = text;
+        this.pos = 0;
+        this.buffer = new char[32];
+        this.length = 0;
+        this.punctuation = false;
+    }
+
+    /**
+     * move to the next token
+     * @return true if a token was found, false if the end of the text is reached
+     */
+    public boolean next() {
+        this.length = 0;
+        this.punctuation = false;
+        if (this.text == null) return false;
+        final int end = this.text.length();
+        while (this.pos < end) {
+            final char c = this.text.charAt(this.pos++);
+            if (SentenceReader.punctuation(c)) {
+                if (this.length > 0) {
+                    this.pos--; // deliver the punctuation as next token
+                    return true;
+                }
+                this.buffer[0] = c;
+                this.length = 1;
+                this.punctuation = true;
+                return true;
+            }
+            if (SentenceReader.invisible(c)) {
+                if (this.length > 0) return true;
+                continue;
+            }
+            if (this.length == this.buffer.length) this.buffer = Arrays.copyOf(this.buffer, this.length * 2);
+            this.buffer[this.length++] = c;
+        }
+        return this.length > 0;
+    }
+
+    /**
+     * @return the characters of the current token in the range 0 to {@link #length()}; the array is reused
+     */
+    public char[] buffer() {
+        return this.buffer;
+    }
+
+    /**
+     * @return the number of characters of the current token
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * @return true if the current token is a single punctuation character
+     */
+    public boolean isPunctuation() {
+        return this.punctuation;
+    }
+
+    /**
+     * convert the current token to lower case in place, with the same result as String.toLowerCase(Locale.ENGLISH)
+     */
+    public void toLowerCase() {
+        for (int i = 0; i < this.length; i++) {
+            final char c = this.buffer[i];
+            if (c < 128) {
+                if (c >= 'A' && c <= 'Z') this.buffer[i] = (char) (c + 32);
+            } else if (c == '\u0130' || c == '\u03a3') {
+                // characters with a length-changing or context-dependent lower case form are converted by the String method
+                final String lc = new String(this.buffer, 0, this.length).toLowerCase(Locale.ENGLISH);
+                if (lc.length() > this.buffer.length) this.buffer = new char[lc.length()];
+                lc.getChars(0, lc.length(), this.buffer, 0);
+                this.length = lc.length();
+                return;
+            } else {
+                this.buffer[i] = Character.toLowerCase(c);
+            }
+        }
+    }
+
+    /**
+     * compare the current token with a string
+     * @param s
+     * @return true if the token has the same characters as s
+     */
+    public boolean matches(final String s) {
+        if (s.length() != this.length) return false;
+        for (int i = 0; i < this.length; i++) {
+            if (this.buffer[i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.buffer, 0, this.length);
+    }
+
+    public void close() {
+        this.text = null;
+        this.length = 0;
+    }
+
+}
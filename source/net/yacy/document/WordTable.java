@@ -0,0 +1,138 @@
+/**
+ *  WordTable
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import net.yacy.kelondro.data.word.Word;
+
+/**
+ * An open addressing hash table from words to their {@link Word} statistics which is
+ * accessed with char ranges, i.e. the buffer of a {@link WordScanner}.
+ * A String for a word is only created once, when the word is added to the table;
+ * looking up an already known word does not create any objects.
+ * This class is not thread-safe.
+ */
+public final class WordTable {
+
+    private String[] keys;
+    private Word[] words;
+    private int[] hashes;
+    private int size;
+
+    public WordTable() {
+        this.keys = new String[256];
+        this.words = new Word[256];
+        this.hashes = new int[256];
+        this.size = 0;
+    }
+
+    private static int hash(final char[] chars, final int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) h = 31 * h + chars[i];
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * find the slot of a word
+     * @return the slot holding the word or the empty slot where it has to be inserted
+     */
+    private int slot(final char[] chars, final int length, final int hash) {
+        final int mask = this.keys.length - 1;
+        int i = hash & mask;
+        String k;
+        probe: while ((k = this.keys[i]) != null) {
+            if (this.hashes[i] == hash && k.length() == length) {
+                for (int j = 0; j < length; j++) {
+                    if (k.charAt(j) != chars[j]) {
+                        i = (i + 1) & mask;
+                        continue probe;
+                    }
+                }
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * get the statistics of a word
+     * @param chars the characters of the word in the range 0 to length
+     * @param length
+     * @return the word statistics or null if the word is not in the table
+     */
+    public Word get(final char[] chars, final int length) {
+        return this.words[slot(chars, length, hash(chars, length))];
+    }
+
+    /**
+     * get the String of a word which is already in the table
+     * @return the word as String or null if the word is not in the table
+     */
+    public String key(final char[] chars, final int length) {
+        return this.keys[slot(chars, length, hash(chars, length))];
+    }
+
+    /**
+     * add a word or replace its statistics
+     * @param chars the characters of the word in the range 0 to length
+     * @param length
+     * @param word the statistics of the word
+     * @return the word as String
+     */
+    public String put(final char[] chars, final int length, final Word word) {
+        final int hash = hash(chars, length);
+        int i = slot(chars, length, hash);
+        if (this.keys[i] == null) {
+            if ((this.size + 1) * 4 > this.keys.length * 3) {
+                grow();
+                i = slot(chars, length, hash);
+            }
+            this.keys[i] = new String(chars, 0, length);
+            this.hashes[i] = hash;
+            this.size++;
+        }
+        this.words[i] = word;
+        return this.keys[i];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    private void grow() {
+        final String[] oldKeys = this.keys;
+        final Word[] oldWords = this.words;
+        final int[] oldHashes = this.hashes;
+        final int capacity = oldKeys.length * 2;
+        final int mask = capacity - 1;
+        this.keys = new String[capacity];
+        this.words = new Word[capacity];
+        this.hashes = new int[capacity];
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null) continue;
+            int i = oldHashes[j] & mask;
+            while (this.keys[i] != null) i = (i + 1) & mask;
+            this.keys[i] = oldKeys[j];
+            this.words[i] = oldWords[j];
+            this.hashes[i] = oldHashes[j];
+        }
+    }
+
+}
@@ -0,0 +1,257 @@
+/**
+ *  ParallelSurrogateReader
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.content;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.xml.sax.SAXException;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.crawler.CrawlStacker;
+import net.yacy.search.schema.CollectionConfiguration;
+
+/**
+ * Reads a surrogate dump with several threads. The dump is split by a {@link SurrogateChunker} into chunks of
+ * complete records; each chunk is decoded by one of the worker threads with a {@link SurrogateReader}, and the
+ * surrogates are handed to a {@link Handler} within the same worker thread.
+ * Chunks are finished out of order, but the progress is reported in input order: the committed offset is the end
+ * of the last chunk for which all preceding chunks are also finished, so an import which is interrupted can be
+ * resumed at this offset without losing records, provided that the handler has stored the surrogates of the
+ * finished chunks.
+ */
+public class ParallelSurrogateReader {
+
+    private final static ConcurrentLog log = new ConcurrentLog("ParallelSurrogateReader");
+
+    private final static SurrogateChunker.Chunk POISON_CHUNK = new SurrogateChunker.Chunk(-1, 0, ByteBuffer.allocate(0));
+
+    /** the consumer of the surrogates */
+    public interface Handler {
+        /**
+         * process one surrogate; this is called concurrently by all worker threads. The surrogate must be passed to
+         * the index when this returns, a chunk counts as finished for the committed offset after its last surrogate.
+         * @param surrogate a SolrInputDocument or a DCEntry instance
+         */
+        public void process(Object surrogate);
+    }
+
+    /** a listener which is informed about the import progress in input order */
+    public interface Progress {
+        /**
+         * @param committed the offset up to which all records have been processed
+         * @param records the number of surrogates which have been processed so far
+         */
+        public void committed(long committed, long records);
+    }
+
+    private final SurrogateChunker chunker;
+    private final CrawlStacker crawlStacker;
+    private final CollectionConfiguration configuration;
+    private final int concurrency;
+    private final AtomicBoolean terminate;
+    private final TreeMap<Integer, long[]> finished; // sequence -> {end, records} of finished chunks ahead of the committed offset
+    private int nextSequence;
+    private long committed, records;
+
+    /**
+     * @param chunker the source of the chunks
+     * @param crawlStacker the crawl stacker which is used to check the urls of the surrogates
+     * @param configuration the collection configuration to convert Solr documents
+     * @param concurrency the number of decoding threads
+     */
+    public ParallelSurrogateReader(final SurrogateChunker chunker, final CrawlStacker crawlStacker, final CollectionConfiguration configuration, final int concurrency) {
+        this.chunker = chunker;
+        this.crawlStacker = crawlStacker;
+        this.configuration = configuration;
+        this.concurrency = Math.max(1, concurrency);
+        this.terminate = new AtomicBoolean(false);
+        this.finished = new TreeMap<>();
+        this.nextSequence = 0;
+        this.committed = chunker.position();
+        this.records = 0;
+    }
+
+    /**
+     * stop reading; chunks which are in work are finished
+     */
+    public void terminate() {
+        this.terminate.set(true);
+    }
+
+    /**
+     * @return the offset up to which all records of the input have been processed
+     */
+    public synchronized long committed() {
+        return this.committed;
+    }
+
+    /**
+     * read all chunks and process their surrogates; returns when all chunks are processed or the reader was terminated
+     * @param handler the consumer of the surrogates
+     * @param progress a listener for the progress or null
+     * @return true if the whole input was processed, false if reading was terminated
+     */
+    public boolean process(final Handler handler, final Progress progress) throws IOException {
+        final BlockingQueue<SurrogateChunker.Chunk> queue = new ArrayBlockingQueue<>(this.concurrency * 2);
+        final Thread[] workers = new Thread[this.concurrency];
+        for (int t = 0; t < this.concurrency; t++) {
+            workers[t] = new Thread("ParallelSurrogateReader-" + t) {
+                @Override
+                public void run() {
+                    SurrogateChunker.Chunk chunk;
+                    try {
+                        while ((chunk = queue.take()) != POISON_CHUNK) {
+                            final long count = decode(chunk, handler);
+                            commit(chunk, count, progress);
+                        }
+                    } catch (final InterruptedException e) {
+                        ConcurrentLog.logException(e);
+                    }
+                }
+            };
+            workers[t].setPriority(5);
+            workers[t].start();
+        }
+
+        boolean complete = false;
+        try {
+            SurrogateChunker.Chunk chunk;
+            while (!this.terminate.get()) {
+                chunk = this.chunker.next();
+                if (chunk == null) {
+                    complete = true;
+                    break;
+                }
+                queue.put(chunk);
+            }
+        } catch (final InterruptedException e) {
+            ConcurrentLog.logException(e);
+        } finally {
+            for (int t = 0; t < this.concurrency; t++) {
+                try {
+                    queue.put(POISON_CHUNK);
+                } catch (final InterruptedException e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
+            for (int t = 0; t < this.concurrency; t++) {
+                try {workers[t].join();} catch (final InterruptedException e) {}
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * decode the surrogates of a chunk and hand them over to the handler
+     * @return the number of surrogates in the chunk
+     */
+    private long decode(final SurrogateChunker.Chunk chunk, final Handler handler) {
+        final long[] count = new long[1];
+        final boolean solrDump = this.chunker.isSolrDump();
+        final InputStream content;
+        if (solrDump) {
+            content = new ByteBufferInputStream(chunk.data.duplicate());
+        } else {
+            final ByteBuffer records = SurrogateChunker.records(chunk.data.duplicate());
+            if (!records.hasRemaining()) return 0;
+            final InputStream[] parts = new InputStream[]{
+                new ByteArrayInputStream(SurrogateReader.SURROGATES_MAIN_ELEMENT_OPEN.getBytes(StandardCharsets.UTF_8)),
+                new ByteBufferInputStream(records),
+                new ByteArrayInputStream(SurrogateReader.SURROGATES_MAIN_ELEMENT_CLOSE.getBytes(StandardCharsets.UTF_8))};
+            content = new SequenceInputStream(Collections.enumeration(Arrays.asList(parts)));
+        }
+        try {
+            final SurrogateReader reader = new SurrogateReader(new PushbackInputStream(content, SurrogateReader.PUSHBACK_SIZE), 1, this.crawlStacker, this.configuration, 0) {
+                @Override
+                protected void emit(final Object surrogate) {
+                    count[0]++;
+                    try {
+                        handler.process(surrogate);
+                    } catch (final RuntimeException e) {
+                        ConcurrentLog.logException(e);
+                    }
+                }
+            };
+            reader.read(solrDump);
+        } catch (final SAXException e) {
+            log.warn("bad surrogate chunk at offset " + chunk.start + ": " + e.getMessage());
+        } catch (final IOException e) {
+            log.warn("cannot read surrogate chunk at offset " + chunk.start + ": " + e.getMessage());
+        }
+        return count[0];
+    }
+
+    /**
+     * record that a chunk is finished and advance the committed offset over all chunks which are finished in input order
+     */
+    private void commit(final SurrogateChunker.Chunk chunk, final long count, final Progress progress) {
+        synchronized (this) {
+            this.finished.put(chunk.sequence, new long[]{chunk.end, count});
+            if (chunk.sequence != this.nextSequence) return;
+            long[] f;
+            while ((f = this.finished.remove(this.nextSequence)) != null) {
+                this.committed = f[0];
+                this.records += f[1];
+                this.nextSequence++;
+            }
+            if (progress != null) progress.committed(this.committed, this.records); // called inside the lock so that the reports are ordered
+        }
+    }
+
+    /** an input stream reading from a byte buffer without copying it */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) return 0;
+            if (!this.buffer.hasRemaining()) return -1;
+            final int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ *  SurrogateChunker
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.content;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits a surrogate dump into chunks which end at record boundaries, so that the chunks can be decoded independently.
+ * A Solr xml data dump contains one document per line and is split at line ends; a surrogate xml file is split after
+ * the closing tag of a record, document or doc element.
+ * Files are mapped into memory chunk by chunk, streams are read into large buffers. Each chunk knows the offset of its
+ * end within the (uncompressed) input, which can be used to resume an interrupted import.
+ */
+public class SurrogateChunker implements Closeable {
+
+    private static final byte[][] RECORD_END = new byte[][]{
+        "</record>".getBytes(StandardCharsets.US_ASCII),
+        "</document>".getBytes(StandardCharsets.US_ASCII),
+        "</doc>".getBytes(StandardCharsets.US_ASCII)};
+    private static final byte[][] RECORD_START = new byte[][]{
+        "<record".getBytes(StandardCharsets.US_ASCII),
+        "<document".getBytes(StandardCharsets.US_ASCII),
+        "<doc".getBytes(StandardCharsets.US_ASCII)};
+
+    /** a part of the input which contains only complete records */
+    public static class Chunk {
+        /** the number of the chunk, starting with 0 for the first chunk which is read */
+        public final int sequence;
+        /** the offset of the first and the offset behind the last byte of the chunk within the input */
+        public final long start, end;
+        /** the content of the chunk */
+        public final ByteBuffer data;
+
+        public Chunk(final int sequence, final long start, final ByteBuffer data) {
+            this.sequence = sequence;
+            this.start = start;
+            this.end = start + data.remaining();
+            this.data = data;
+        }
+    }
+
+    private final FileChannel channel;
+    private final InputStream stream;
+    private final int chunkSize;
+    private final boolean solrDump;
+    private byte[] buffer;
+    private int buffered;
+    private long position;
+    private int sequence;
+    private boolean eof;
+
+    /**
+     * create a chunker for a file; the chunks are memory-mapped regions of the file
+     * @param channel a channel of the file
+     * @param offset the position where reading starts; this must be the start of the file or the end of a chunk
+     * @param chunkSize the size of the chunks; a chunk is larger if a single record is larger
+     */
+    public SurrogateChunker(final FileChannel channel, final long offset, final int chunkSize) throws IOException {
+        this.channel = channel;
+        this.stream = null;
+        this.chunkSize = Math.max(SurrogateReader.PUSHBACK_SIZE, chunkSize);
+        final ByteBuffer head = ByteBuffer.allocate((int) Math.min(SurrogateReader.PUSHBACK_SIZE, channel.size()));
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) {}
+        this.solrDump = SurrogateReader.isSolrDump(head.array(), head.position());
+        this.position = Math.min(offset, channel.size());
+        this.sequence = 0;
+        this.eof = false;
+    }
+
+    /**
+     * create a chunker for a stream
+     * @param stream the (uncompressed) input stream
+     * @param offset the number of bytes which are skipped; this must be 0 or the end of a chunk
+     * @param chunkSize the size of the chunks; a chunk is larger if a single record is larger
+     */
+    public SurrogateChunker(final InputStream stream, final long offset, final int chunkSize) throws IOException {
+        this.channel = null;
+        this.stream = stream;
+        this.chunkSize = Math.max(SurrogateReader.PUSHBACK_SIZE, chunkSize);
+        this.buffer = new byte[this.chunkSize];
+        this.buffered = fill(0);
+        this.solrDump = SurrogateReader.isSolrDump(this.buffer, Math.min(this.buffered, SurrogateReader.PUSHBACK_SIZE));
+        this.position = 0;
+        this.sequence = 0;
+        this.eof = this.buffered < this.buffer.length;
+        // skip the part of the input which had been imported before
+        long skip = offset;
+        while (skip > 0 && this.buffered > 0) {
+            final int s = (int) Math.min(skip, this.buffered);
+            System.arraycopy(this.buffer, s, this.buffer, 0, this.buffered - s);
+            this.buffered -= s;
+            this.position += s;
+            skip -= s;
+            if (!this.eof) {
+                final int n = fill(this.buffered);
+                this.eof = this.buffered + n < this.buffer.length;
+                this.buffered += n;
+            }
+        }
+    }
+
+    /**
+     * @return true if the input is a Solr xml data dump, false if it contains surrogate xml records
+     */
+    public boolean isSolrDump() {
+        return this.solrDump;
+    }
+
+    /**
+     * @return the offset where the next chunk starts
+     */
+    public long position() {
+        return this.position;
+    }
+
+    /**
+     * read the next chunk
+     * @return the next chunk or null if the input is exhausted
+     */
+    public Chunk next() throws IOException {
+        return this.channel == null ? nextFromStream() : nextFromChannel();
+    }
+
+    private Chunk nextFromChannel() throws IOException {
+        final long size = this.channel.size();
+        if (this.position >= size) return null;
+        long length = Math.min(this.chunkSize, size - this.position);
+        while (true) {
+            final ByteBuffer data = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+            final boolean last = this.position + length >= size;
+            final int cut = last ? (int) length : boundary(data, (int) length);
+            if (cut > 0) {
+                data.limit(cut);
+                final Chunk chunk = new Chunk(this.sequence++, this.position, data.slice());
+                this.position += cut;
+                return chunk;
+            }
+            // a single record is larger than the chunk
+            length = Math.min(Math.min(Integer.MAX_VALUE, length * 2), size - this.position);
+        }
+    }
+
+    private Chunk nextFromStream() throws IOException {
+        if (this.buffered == 0 && this.eof) return null;
+        while (true) {
+            final int cut = this.eof ? this.buffered : boundary(ByteBuffer.wrap(this.buffer, 0, this.buffered), this.buffered);
+            if (cut > 0) {
+                final byte[] content = new byte[cut];
+                System.arraycopy(this.buffer, 0, content, 0, cut);
+                System.arraycopy(this.buffer, cut, this.buffer, 0, this.buffered - cut);
+                this.buffered -= cut;
+                final Chunk chunk = new Chunk(this.sequence++, this.position, ByteBuffer.wrap(content));
+                this.position += cut;
+                if (!this.eof) {
+                    final int n = fill(this.buffered);
+                    this.eof = this.buffered + n < this.buffer.length;
+                    this.buffered += n;
+                }
+                return chunk;
+            }
+            // a single record is larger than the buffer
+            final byte[] b = new byte[this.buffer.length * 2];
+            System.arraycopy(this.buffer, 0, b, 0, this.buffered);
+            this.buffer = b;
+            final int n = fill(this.buffered);
+            this.eof = this.buffered + n < this.buffer.length;
+            this.buffered += n;
+        }
+    }
+
+    /** read from the stream into the buffer until it is full or the stream ends */
+    private int fill(final int offset) throws IOException {
+        int n = 0, r;
+        while (offset + n < this.buffer.length && (r = this.stream.read(this.buffer, offset + n, this.buffer.length - offset - n)) >= 0) n += r;
+        return n;
+    }
+
+    /**
+     * find the last record boundary
+     * @return the number of bytes up to and including the last record end or 0 if there is no record end
+     */
+    private int boundary(final ByteBuffer data, final int length) {
+        if (this.solrDump) {
+            for (int i = length - 1; i >= 0; i--) if (data.get(i) == '\n') return i + 1;
+            return 0;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            if (data.get(i) != '>') continue;
+            for (final byte[] tag: RECORD_END) {
+                if (matches(data, i - tag.length + 1, tag)) return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * remove everything before the first record start and behind the last record end from a surrogate xml chunk;
+     * this removes the xml declaration and the surrounding element of the file from the first and last chunk
+     * @param data the content of a chunk
+     * @return the records in the chunk; an empty buffer if there are none
+     */
+    public static ByteBuffer records(final ByteBuffer data) {
+        final int limit = data.limit();
+        int start = -1;
+        search: for (int i = data.position(); i < limit; i++) {
+            if (data.get(i) != '<') continue;
+            for (final byte[] tag: RECORD_START) {
+                if (matches(data, i, tag) && i + tag.length < limit) {
+                    final byte c = data.get(i + tag.length);
+                    if (c == '>' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {start = i; break search;}
+                }
+            }
+        }
+        final ByteBuffer records = data.duplicate();
+        if (start < 0) {
+            records.limit(records.position());
+            return records.slice();
+        }
+        int end = start;
+        search: for (int i = limit - 1; i > start; i--) {
+            if (data.get(i) != '>') continue;
+            for (final byte[] tag: RECORD_END) {
+                if (matches(data, i - tag.length + 1, tag)) {end = i + 1; break search;}
+            }
+        }
+        records.position(start);
+        records.limit(end);
+        return records.slice();
+    }
+
+    private static boolean matches(final ByteBuffer data, final int offset, final byte[] pattern) {
+        if (offset < data.position() || offset + pattern.length > data.limit()) return false;
+        for (int j = 0; j < pattern.length; j++) {
+            final byte b = data.get(offset + j);
+            if (b != pattern[j] && !(b >= 'A' && b <= 'Z' && b + 32 == pattern[j])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) this.channel.close();
+        if (this.stream != null) this.stream.close();
+    }
+}
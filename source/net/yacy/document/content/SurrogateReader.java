@@ -74,7 +74,7 @@ public class SurrogateReader extends DefaultHandler implements Runnable {
     public final static SolrInputDocument POISON_DOCUMENT = new SolrInputDocument();
     
     /** Maximum bytes number that can be unread on the underlying input stream */
-    private static final int PUSHBACK_SIZE = 1024;
+    public static final int PUSHBACK_SIZE = 1024;
 
     // class variables
     private final StringBuilder buffer;
@@ -130,37 +130,7 @@ public class SurrogateReader extends DefaultHandler implements Runnable {
     public void run() {
         // test the syntax of the stream by reading parts of the beginning
         try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(this.inputStream, StandardCharsets.UTF_8));
-            if (isSolrDump()) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    if (!line.startsWith("<doc>")) continue;
-                    try {
-                        NamedList<Object> nl = new XMLResponseParser().processResponse(new StringReader("<result>" + line + "</result>")); // 
-                        SolrDocument doc = (SolrDocument) nl.iterator().next().getValue();
-
-                        // check if url is in accepted domain
-                        String u = (String) doc.getFieldValue("sku");
-                        if (u != null) {
-                            try {
-                                DigestURL url = new DigestURL(u);
-                                final String urlRejectReason = this.crawlStacker.urlInAcceptedDomain(url);
-                                if ( urlRejectReason == null ) {
-                                    // convert SolrDocument to SolrInputDocument
-                                    this.surrogates.put(this.configuration.toSolrInputDocument(doc));
-                                }
-                            } catch (MalformedURLException e) {
-                            }
-                        }
-                    } catch (Throwable ee) {
-                        // bad line
-                    }
-                }
-            } else {
-                final InputSource inputSource = new InputSource(br);
-                inputSource.setEncoding(StandardCharsets.UTF_8.name());
-                this.saxParser.parse(inputSource, this);
-            }
+            read(isSolrDump());
         } catch (final SAXParseException e) {
             ConcurrentLog.logException(e);
         } catch (final SAXException e) {
@@ -182,6 +152,53 @@ public class SurrogateReader extends DefaultHandler implements Runnable {
             }
         }
     }
+
+    /**
+     * Read all surrogates from the input stream and hand them over to {@link #emit(Object)}.
+     * @param solrDump true when the stream contains a Solr xml data dump with one document per line,
+     * false when it contains surrogate xml records
+     */
+    public void read(final boolean solrDump) throws IOException, SAXException {
+        BufferedReader br = new BufferedReader(new InputStreamReader(this.inputStream, StandardCharsets.UTF_8));
+        if (solrDump) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.startsWith("<doc>")) continue;
+                try {
+                    NamedList<Object> nl = new XMLResponseParser().processResponse(new StringReader("<result>" + line + "</result>")); // 
+                    SolrDocument doc = (SolrDocument) nl.iterator().next().getValue();
+
+                    // check if url is in accepted domain
+                    String u = (String) doc.getFieldValue("sku");
+                    if (u != null) {
+                        try {
+                            DigestURL url = new DigestURL(u);
+                            final String urlRejectReason = this.crawlStacker.urlInAcceptedDomain(url);
+                            if ( urlRejectReason == null ) {
+                                // convert SolrDocument to SolrInputDocument
+                                emit(this.configuration.toSolrInputDocument(doc));
+                            }
+                        } catch (MalformedURLException e) {
+                        }
+                    }
+                } catch (Throwable ee) {
+                    // bad line
+                }
+            }
+        } else {
+            final InputSource inputSource = new InputSource(br);
+            inputSource.setEncoding(StandardCharsets.UTF_8.name());
+            this.saxParser.parse(inputSource, this);
+        }
+    }
+
+    /**
+     * Hand over a surrogate which has been read. The default implementation puts it into the queue of this reader.
+     * @param surrogate a SolrInputDocument or DCEntry instance
+     */
+    protected void emit(final Object surrogate) throws InterruptedException {
+        this.surrogates.put(surrogate);
+    }
     
     /**
      * Check for format string in responseHeader "yacy.index.export.solr.xml"
@@ -196,14 +213,7 @@ public class SurrogateReader extends DefaultHandler implements Runnable {
 		int nbRead = -1;
 		try {
                     nbRead = this.inputStream.read(b);
-                    if (nbRead > 0) {
-                        String s = new String(b, 0, nbRead, StandardCharsets.UTF_8);
-                        if (s.contains("format=\"yacy.index.export.solr.xml\"")) {
-                            res = true;
-                        } else if ((s.contains("<response>") && s.contains("<result>")) || s.startsWith("<doc>")) {
-                            res = true;
-                        }
-                    }
+                    res = isSolrDump(b, nbRead);
 		} catch (IOException e) {
 			ConcurrentLog.logException(e);
 		} finally {
@@ -217,6 +227,17 @@ public class SurrogateReader extends DefaultHandler implements Runnable {
 		}
 		return res;
 	}
+
+    /**
+     * @param head the first bytes of a surrogate stream
+     * @param length the number of valid bytes in head
+     * @return true when the bytes are likely the beginning of a Solr xml data dump
+     */
+    public static boolean isSolrDump(final byte[] head, final int length) {
+        if (length <= 0) return false;
+        final String s = new String(head, 0, length, StandardCharsets.UTF_8);
+        return s.contains("format=\"yacy.index.export.solr.xml\"") || (s.contains("<response>") && s.contains("<result>")) || s.startsWith("<doc>");
+    }
     
     @Override
     public void startElement(final String uri, final String name, String tag, final Attributes atts) throws SAXException {
@@ -247,7 +268,7 @@ public class SurrogateReader extends DefaultHandler implements Runnable {
                 final String urlRejectReason = this.crawlStacker.urlInAcceptedDomain(this.dcEntry.getIdentifier(true));
                 if ( urlRejectReason == null ) {
                     // DCEntry can not be converted to SolrInputDocument as DC schema has nothing to do with Solr collection schema
-                    this.surrogates.put(this.dcEntry);
+                    emit(this.dcEntry);
                 }
             } catch (final InterruptedException e) {
                 ConcurrentLog.logException(e);
@@ -23,10 +23,20 @@
 package net.yacy.document.importer;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.protocol.HeaderFramework;
@@ -37,6 +47,7 @@ import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.document.TextParser;
+import net.yacy.kelondro.util.FileUtils;
 import net.yacy.search.Switchboard;
 import net.yacy.server.http.ChunkedInputStream;
 import org.jwat.common.HeaderLine;
@@ -55,24 +66,34 @@ import org.jwat.warc.WarcRecord;
  *
  * http://archive-access.sourceforge.net/warc/warc_file_format-0.9.html
  * http://archive-access.sourceforge.net/warc/
+ *
+ * Archive files are imported in parallel: the offsets of the response records are taken from a CDX index next to
+ * the archive (see {@link WarcOffsetIndex}) which is built with a first scan if it does not exist. Records which
+ * shall not be indexed (non-200 status, unsupported mime type, duplicate payload digest) are skipped by their index
+ * entry, all others are read and handed to the indexer by several threads. The offset up to which all records are
+ * processed is stored in a checkpoint file, an interrupted import is resumed there.
  */
 public class WarcImporter extends Thread implements Importer {
 
     static public WarcImporter job; // static object to assure only one importer is running (if started from a servlet, this object is used to store the thread)
 
     private final InputStream source; // current input warc archive
+    private final File file; // input archive file, null if the input is a stream
     private String name; // file name of input source
     
-    private int recordCnt; // number of responses indexed (for statistic)
+    private final AtomicInteger recordCnt; // number of responses indexed (for statistic)
+    private int skipped; // number of responses skipped by their index entry (for statistic)
     private long startTime; // (for statistic)
     private final long sourceSize; // length of the input source (for statistic)
-    private long consumed; // bytes consumed from input source (for statistic)
-    private boolean abort = false; // flag to signal stop of import
+    private volatile long consumed; // bytes consumed from input source (for statistic)
+    private volatile boolean abort = false; // flag to signal stop of import
+    private volatile boolean stopped = false; // true when the import was stopped before the end of the input
 
     public WarcImporter(InputStream f) {
     	super("WarcImporter - from InputStream");
         source = f;
-        recordCnt = 0;
+        file = null;
+        recordCnt = new AtomicInteger(0);
         sourceSize = -1;
     }
 
@@ -92,7 +113,158 @@ public class WarcImporter extends Thread implements Importer {
        super("WarcImporter - from file " + f.getName());
        name = f.getName();
        sourceSize = f.length();
-       source = new FileInputStream(f);
+       if (!f.exists()) throw new FileNotFoundException(f.getAbsolutePath());
+       source = null;
+       file = f;
+       recordCnt = new AtomicInteger(0);
+    }
+
+    /**
+     * the checkpoint file of a warc archive which contains the offset up to which all records have been processed
+     */
+    public static File checkpointFile(final File warc) {
+        return new File(warc.getParentFile(), warc.getName() + ".checkpoint");
+    }
+
+    /**
+     * Imports a warc archive file with several threads, using the offset index of the archive.
+     * The import starts at the checkpoint of a previous, interrupted import.
+     *
+     * @param warc the archive file
+     * @param concurrency number of threads which read records and hand them to the indexer
+     * @throws IOException
+     */
+    public void indexWarcFile(final File warc, final int concurrency) throws IOException {
+        job = this;
+        startTime = System.currentTimeMillis();
+        final BooleanSupplier stop = new BooleanSupplier() {
+            @Override
+            public boolean getAsBoolean() {
+                return abort || Switchboard.getSwitchboard().shallTerminate();
+            }
+        };
+        final WarcOffsetIndex index = WarcOffsetIndex.load(warc, stop);
+        if (index == null) {
+            // terminated while the index was built
+            this.stopped = true;
+            job = null;
+            return;
+        }
+        final List<WarcOffsetIndex.Entry> entries = index.entries();
+        final boolean compressed = WarcOffsetIndex.isCompressed(warc);
+        final File checkpoint = checkpointFile(warc);
+        final long resume = readCheckpoint(checkpoint);
+        if (resume > 0) ConcurrentLog.info("WarcImporter", "resuming import of " + warc.getName() + " at offset " + resume);
+        this.consumed = resume;
+
+        final BitSet done = new BitSet(entries.size());
+        final BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(concurrency * 4);
+        final Integer poison = Integer.valueOf(-1);
+        final long[] lastCheckpoint = new long[]{System.currentTimeMillis()};
+        try (final FileChannel channel = FileChannel.open(warc.toPath(), StandardOpenOption.READ)) {
+            final Thread[] workers = new Thread[concurrency];
+            for (int t = 0; t < concurrency; t++) {
+                workers[t] = new Thread("WarcImporter-" + warc.getName() + "-" + t) {
+                    @Override
+                    public void run() {
+                        Integer i;
+                        try {
+                            while ((i = queue.take()) != poison) {
+                                final WarcOffsetIndex.Entry entry = entries.get(i.intValue());
+                                try {
+                                    final WarcReader reader = WarcOffsetIndex.recordReader(channel, entry, compressed);
+                                    try {
+                                        final WarcRecord wrec = reader.getNextRecord();
+                                        if (wrec != null && indexWarcRecord(wrec)) recordCnt.incrementAndGet();
+                                    } finally {
+                                        reader.close();
+                                    }
+                                } catch (final IOException e) {
+                                    ConcurrentLog.warn("WarcImporter", "cannot read record at offset " + entry.offset + " of " + warc.getName() + ": " + e.getMessage());
+                                }
+                                finished(done, entries, i.intValue(), checkpoint, lastCheckpoint);
+                            }
+                        } catch (final InterruptedException e) {
+                            ConcurrentLog.logException(e);
+                        }
+                    }
+                };
+                workers[t].start();
+            }
+
+            // schedule the records in archive order; records which shall not be indexed are skipped by their index entry
+            final Set<String> digests = new HashSet<>();
+            try {
+                int i = 0;
+                for (; i < entries.size(); i++) {
+                    if (stop.getAsBoolean()) break;
+                    final WarcOffsetIndex.Entry entry = entries.get(i);
+                    final boolean duplicate = !"-".equals(entry.digest) && !digests.add(entry.digest);
+                    if (entry.offset < resume || duplicate || entry.status != 200 || TextParser.supportsMime(entry.mime) != null) {
+                        if (entry.offset >= resume) skipped++;
+                        finished(done, entries, i, checkpoint, lastCheckpoint);
+                        continue;
+                    }
+                    queue.put(Integer.valueOf(i));
+                }
+                this.stopped = i < entries.size();
+            } catch (final InterruptedException e) {
+                ConcurrentLog.logException(e);
+            } finally {
+                for (int t = 0; t < concurrency; t++) {
+                    try {queue.put(poison);} catch (final InterruptedException e) {}
+                }
+                for (int t = 0; t < concurrency; t++) {
+                    try {workers[t].join();} catch (final InterruptedException e) {}
+                }
+            }
+        }
+        if (!this.stopped) {
+            FileUtils.deletedelete(checkpoint);
+        } else {
+            writeCheckpoint(checkpoint, this.consumed);
+        }
+        ConcurrentLog.info("WarcImporter", "Indexed " + recordCnt + " documents, skipped " + skipped + " responses" + (this.stopped ? ", stopped at offset " + this.consumed : ""));
+        job = null;
+    }
+
+    /**
+     * mark a record as processed and advance the checkpoint over all records which are processed in archive order
+     */
+    private void finished(final BitSet done, final List<WarcOffsetIndex.Entry> entries, final int i, final File checkpoint, final long[] lastCheckpoint) {
+        synchronized (done) {
+            done.set(i);
+            final int next = done.nextClearBit(0);
+            this.consumed = next < entries.size() ? entries.get(next).offset : this.sourceSize;
+            final long now = System.currentTimeMillis();
+            if (now - lastCheckpoint[0] > 10000) {
+                lastCheckpoint[0] = now;
+                writeCheckpoint(checkpoint, this.consumed);
+            }
+        }
+    }
+
+    private static long readCheckpoint(final File checkpoint) {
+        if (!checkpoint.exists()) return 0;
+        try {
+            return Long.parseLong(new String(FileUtils.read(checkpoint), StandardCharsets.US_ASCII).trim());
+        } catch (final IOException | NumberFormatException e) {
+            ConcurrentLog.warn("WarcImporter", "cannot read checkpoint " + checkpoint + ", starting from the beginning");
+            return 0;
+        }
+    }
+
+    private static void writeCheckpoint(final File checkpoint, final long offset) {
+        final File tmp = new File(checkpoint.getParentFile(), checkpoint.getName() + ".tmp");
+        try {
+            FileUtils.copy(Long.toString(offset).getBytes(StandardCharsets.US_ASCII), tmp);
+            if (!tmp.renameTo(checkpoint)) {
+                FileUtils.deletedelete(checkpoint);
+                tmp.renameTo(checkpoint);
+            }
+        } catch (final IOException e) {
+            ConcurrentLog.warn("WarcImporter", "cannot write checkpoint " + checkpoint + ": " + e.getMessage());
+        }
     }
 
     /**
@@ -104,7 +276,6 @@ public class WarcImporter extends Thread implements Importer {
      */
     public void indexWarcRecords(InputStream f) throws IOException {
 
-        byte[] content;
         job = this;
         startTime = System.currentTimeMillis();
 
@@ -112,78 +283,92 @@ public class WarcImporter extends Thread implements Importer {
         WarcRecord wrec = localwarcReader.getNextRecord();
         while (wrec != null && !abort) {
 
-            HeaderLine hl = wrec.getHeader(WarcConstants.FN_WARC_TYPE);
-            if (hl != null && hl.value.equals(WarcConstants.RT_RESPONSE)) { // filter responses
-
-                hl = wrec.getHeader(WarcConstants.FN_WARC_TARGET_URI);
-                DigestURL location = new DigestURL(hl.value);
+            if (indexWarcRecord(wrec)) recordCnt.incrementAndGet();
+            this.consumed = localwarcReader.getConsumed();
+            wrec = localwarcReader.getNextRecord();
+        }
+        localwarcReader.close();
+        this.stopped = abort;
+        ConcurrentLog.info("WarcImporter", "Indexed " + recordCnt + " documents");
+        job = null;
+    }
 
-                HttpHeader http = wrec.getHttpHeader();
+    /**
+     * Hands a response record with status 200 and a supported mime type over to the indexer.
+     *
+     * @param wrec the warc record
+     * @return true if the record was handed over to the indexer
+     * @throws IOException
+     */
+    private boolean indexWarcRecord(final WarcRecord wrec) throws IOException {
+        byte[] content;
+        HeaderLine hl = wrec.getHeader(WarcConstants.FN_WARC_TYPE);
+        if (hl == null || !hl.value.equals(WarcConstants.RT_RESPONSE)) return false; // filter responses
 
-                if (http != null && http.statusCode == 200) { // process http response header OK (status 200)
+        hl = wrec.getHeader(WarcConstants.FN_WARC_TARGET_URI);
+        DigestURL location = new DigestURL(hl.value);
 
-                    if (TextParser.supportsMime(http.contentType) == null) { // check availability of parser
+        HttpHeader http = wrec.getHttpHeader();
 
-                        InputStream istream = wrec.getPayloadContent();
-                        hl = http.getHeader(HeaderFramework.TRANSFER_ENCODING);
-                        if (hl != null && hl.value.contains("chunked")) {
-                            // because chunked stream.read doesn't read source fully, make sure all chunks are read
-                            istream = new ChunkedInputStream(istream);
-                            final ByteBuffer bbuffer = new ByteBuffer();
-                            int c;
-                            while ((c = istream.read()) >= 0) {
-                                bbuffer.append(c);
-                            }
-                            content = bbuffer.getBytes();
-                        } else {
-                            content = new byte[(int) http.getPayloadLength()];
-                            istream.read(content, 0, content.length);
-                        }
-                        istream.close();
+        if (http == null || http.statusCode == null || http.statusCode != 200) return false; // process http response header OK (status 200)
+        if (TextParser.supportsMime(http.contentType) != null) return false; // check availability of parser
 
-                        RequestHeader requestHeader = new RequestHeader();
+        InputStream istream = wrec.getPayloadContent();
+        hl = http.getHeader(HeaderFramework.TRANSFER_ENCODING);
+        if (hl != null && hl.value.contains("chunked")) {
+            // because chunked stream.read doesn't read source fully, make sure all chunks are read
+            istream = new ChunkedInputStream(istream);
+            final ByteBuffer bbuffer = new ByteBuffer();
+            int c;
+            while ((c = istream.read()) >= 0) {
+                bbuffer.append(c);
+            }
+            content = bbuffer.getBytes();
+        } else {
+            content = new byte[(int) http.getPayloadLength()];
+            int n = 0, r;
+            while (n < content.length && (r = istream.read(content, n, content.length - n)) >= 0) n += r;
+        }
+        istream.close();
 
-                        ResponseHeader responseHeader = new ResponseHeader(http.statusCode);
-                        for (HeaderLine hx : http.getHeaderList()) { // include all original response headers for parser
-                            responseHeader.put(hx.name, hx.value);
-                        }
+        RequestHeader requestHeader = new RequestHeader();
 
-                        final Request request = new Request(
-                                ASCII.getBytes(Switchboard.getSwitchboard().peers.mySeed().hash),
-                                location,
-                                requestHeader.referer() == null ? null : requestHeader.referer().hash(),
-                                "warc",
-                                responseHeader.lastModified(),
-                                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile.handle(),
-                                0,
-                                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile.timezoneOffset());
-
-                        final Response response = new Response(
-                                request,
-                                requestHeader,
-                                responseHeader,
-                                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile,
-                                false,
-                                content
-                        );
-
-                        Switchboard.getSwitchboard().toIndexer(response);
-                        recordCnt++;
-                    }
-                }
-            }
-            this.consumed = localwarcReader.getConsumed();
-            wrec = localwarcReader.getNextRecord();
+        ResponseHeader responseHeader = new ResponseHeader(http.statusCode);
+        for (HeaderLine hx : http.getHeaderList()) { // include all original response headers for parser
+            responseHeader.put(hx.name, hx.value);
         }
-        localwarcReader.close();
-        ConcurrentLog.info("WarcImporter", "Indexed " + recordCnt + " documents");
-        job = null;
+
+        final Request request = new Request(
+                ASCII.getBytes(Switchboard.getSwitchboard().peers.mySeed().hash),
+                location,
+                requestHeader.referer() == null ? null : requestHeader.referer().hash(),
+                "warc",
+                responseHeader.lastModified(),
+                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile.handle(),
+                0,
+                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile.timezoneOffset());
+
+        final Response response = new Response(
+                request,
+                requestHeader,
+                responseHeader,
+                Switchboard.getSwitchboard().crawler.defaultSurrogateProfile,
+                false,
+                content
+        );
+
+        Switchboard.getSwitchboard().toIndexer(response);
+        return true;
     }
 
     @Override
     public void run() {
         try {
-            this.indexWarcRecords(this.source);
+            if (this.file != null) {
+                this.indexWarcFile(this.file, Runtime.getRuntime().availableProcessors());
+            } else {
+                this.indexWarcRecords(this.source);
+            }
         } catch (IOException ex) {
             ConcurrentLog.info("WarcImporter", ex.getMessage());
         }
@@ -196,6 +381,13 @@ public class WarcImporter extends Thread implements Importer {
         this.abort = true;
     }
 
+    /**
+     * @return true when the import was stopped before the end of the input; an import of a file is resumed at its checkpoint
+     */
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
     /**
      * Filename of the input source
      * @return
@@ -211,7 +403,7 @@ public class WarcImporter extends Thread implements Importer {
      */
     @Override
     public int count() {
-        return this.recordCnt;
+        return this.recordCnt.get();
     }
 
     /**
@@ -220,8 +412,8 @@ public class WarcImporter extends Thread implements Importer {
      */
     @Override
     public int speed() {
-        if (this.recordCnt == 0) return 0;
-        return (int) (this.recordCnt / Math.max(0L, runningTime() ));
+        if (this.recordCnt.get() == 0) return 0;
+        return (int) (this.recordCnt.get() / Math.max(1L, runningTime() ));
     }
 
     /**
@@ -0,0 +1,302 @@
+/**
+ *  WarcOffsetIndex
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.importer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+
+import org.jwat.common.HeaderLine;
+import org.jwat.common.HttpHeader;
+import org.jwat.warc.WarcConstants;
+import org.jwat.warc.WarcReader;
+import org.jwat.warc.WarcReaderFactory;
+import org.jwat.warc.WarcRecord;
+
+/**
+ * An index of the response records in a warc archive, stored in a CDX file next to the archive.
+ * For each response the index contains the offset and the length of the record within the archive file, so that
+ * the records (the gzip members of a compressed archive) can be read independently of each other, and the header
+ * information which is needed to decide whether a record shall be indexed at all: the target url, the http status,
+ * the mime type and the payload digest.
+ * CDX files of other tools are read if their legend contains the fields a, S and V.
+ */
+public class WarcOffsetIndex {
+
+    /** the legend of the CDX files which are written: original url, date, mime type, status, digest, length, offset */
+    public static final String LEGEND = " CDX a b m s k S V";
+
+    /** one response record of a warc archive */
+    public static class Entry {
+        public final long offset, length;
+        public final String url, date, mime, digest;
+        public final int status;
+
+        public Entry(final long offset, final long length, final String url, final String date, final String mime, final int status, final String digest) {
+            this.offset = offset;
+            this.length = length;
+            this.url = url;
+            this.date = date;
+            this.mime = mime;
+            this.status = status;
+            this.digest = digest;
+        }
+    }
+
+    private final List<Entry> entries;
+
+    private WarcOffsetIndex(final List<Entry> entries) {
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry e0, final Entry e1) {
+                return Long.compare(e0.offset, e1.offset);
+            }
+        });
+        this.entries = entries;
+    }
+
+    /**
+     * @return the response records ordered by their offset
+     */
+    public List<Entry> entries() {
+        return this.entries;
+    }
+
+    /**
+     * the CDX file of a warc archive
+     */
+    public static File indexFile(final File warc) {
+        return new File(warc.getParentFile(), warc.getName() + ".cdx");
+    }
+
+    /**
+     * read the index of a warc archive from its CDX file or build it by a scan of the archive, which is stored then
+     * @param warc the archive file
+     * @param abort a condition to stop the scan
+     * @return the index or null if the scan was stopped
+     */
+    public static WarcOffsetIndex load(final File warc, final BooleanSupplier abort) throws IOException {
+        final File cdx = indexFile(warc);
+        if (cdx.exists() && cdx.lastModified() >= warc.lastModified()) {
+            final WarcOffsetIndex index = read(cdx);
+            if (index != null) return index;
+        }
+        final WarcOffsetIndex index = build(warc, abort);
+        if (index != null) index.write(cdx);
+        return index;
+    }
+
+    /**
+     * read a CDX file
+     * @return the index or null if the CDX file has no offsets and lengths
+     */
+    public static WarcOffsetIndex read(final File cdx) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cdx), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (line == null || !line.startsWith(" CDX ")) return null;
+            final String[] legend = line.substring(5).trim().split(" ");
+            int a = -1, b = -1, m = -1, s = -1, k = -1, length = -1, offset = -1;
+            for (int i = 0; i < legend.length; i++) {
+                switch (legend[i]) {
+                    case "a": a = i; break;
+                    case "b": b = i; break;
+                    case "m": m = i; break;
+                    case "s": s = i; break;
+                    case "k": k = i; break;
+                    case "S": length = i; break;
+                    case "V": offset = i; break;
+                    default: break;
+                }
+            }
+            if (a < 0 || length < 0 || offset < 0) return null;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(" ");
+                if (fields.length < legend.length) continue;
+                try {
+                    entries.add(new Entry(
+                            Long.parseLong(fields[offset]),
+                            Long.parseLong(fields[length]),
+                            fields[a],
+                            b < 0 ? "-" : fields[b],
+                            m < 0 ? "-" : fields[m],
+                            s < 0 || "-".equals(fields[s]) ? 0 : Integer.parseInt(fields[s]),
+                            k < 0 ? "-" : fields[k]));
+                } catch (final NumberFormatException e) {
+                    // skip a broken line
+                }
+            }
+        }
+        return new WarcOffsetIndex(entries);
+    }
+
+    /**
+     * build the index of a warc archive with a sequential scan of all records; the payloads are not read
+     * @param warc the archive file, plain or gzip compressed
+     * @param abort a condition to stop the scan
+     * @return the index or null if the scan was stopped
+     */
+    public static WarcOffsetIndex build(final File warc, final BooleanSupplier abort) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        try (final InputStream is = new BufferedInputStream(new FileInputStream(warc), 65536)) {
+            final WarcReader reader = WarcReaderFactory.getReader(is);
+            try {
+                long pendingOffset = -1;
+                String[] pending = null;
+                WarcRecord record;
+                while ((record = reader.getNextRecord()) != null) {
+                    if (abort != null && abort.getAsBoolean()) return null;
+                    final long offset = reader.getStartOffset();
+                    if (pending != null) add(entries, pendingOffset, offset - pendingOffset, pending);
+                    pending = null;
+                    final HeaderLine type = record.getHeader(WarcConstants.FN_WARC_TYPE);
+                    final HeaderLine target = record.getHeader(WarcConstants.FN_WARC_TARGET_URI);
+                    if (type == null || !WarcConstants.RT_RESPONSE.equals(type.value) || target == null) continue;
+                    final HttpHeader http = record.getHttpHeader();
+                    final HeaderLine date = record.getHeader(WarcConstants.FN_WARC_DATE);
+                    final HeaderLine digest = record.getHeader(WarcConstants.FN_WARC_PAYLOAD_DIGEST);
+                    pendingOffset = offset;
+                    pending = new String[]{
+                            target.value,
+                            date == null ? null : date.value,
+                            http == null ? null : http.contentType,
+                            http == null || http.statusCode == null ? null : http.statusCode.toString(),
+                            digest == null ? null : digest.value};
+                }
+                if (pending != null) add(entries, pendingOffset, warc.length() - pendingOffset, pending);
+            } finally {
+                reader.close();
+            }
+        }
+        return new WarcOffsetIndex(entries);
+    }
+
+    private static void add(final List<Entry> entries, final long offset, final long length, final String[] fields) {
+        entries.add(new Entry(offset, length, field(fields[0]), date(fields[1]), mime(fields[2]), fields[3] == null ? 0 : Integer.parseInt(fields[3]), field(fields[4])));
+    }
+
+    /** a field value without spaces; '-' for a missing value */
+    private static String field(final String value) {
+        if (value == null || value.isEmpty()) return "-";
+        return value.trim().replace(" ", "%20");
+    }
+
+    /** the mime type without parameters */
+    private static String mime(final String contentType) {
+        if (contentType == null) return "-";
+        final int p = contentType.indexOf(';');
+        return field((p < 0 ? contentType : contentType.substring(0, p)).trim().toLowerCase(Locale.ROOT));
+    }
+
+    /** the 14 digit CDX date of a warc date like 2017-04-30T12:00:00Z */
+    private static String date(final String warcDate) {
+        if (warcDate == null) return "-";
+        final StringBuilder sb = new StringBuilder(14);
+        for (int i = 0; i < warcDate.length() && sb.length() < 14; i++) {
+            final char c = warcDate.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        return sb.length() == 0 ? "-" : sb.toString();
+    }
+
+    /**
+     * @return true if the archive is gzip compressed
+     */
+    public static boolean isCompressed(final File warc) throws IOException {
+        try (final InputStream is = new FileInputStream(warc)) {
+            return is.read() == 0x1f && is.read() == 0x8b;
+        }
+    }
+
+    /**
+     * open a reader for a single record of an archive; the reader does not close the channel
+     * @param channel a channel of the archive file which may be shared by several threads
+     * @param entry the record
+     * @param compressed true if the archive is gzip compressed
+     * @return a reader which returns the record with its first call of getNextRecord()
+     */
+    public static WarcReader recordReader(final FileChannel channel, final Entry entry, final boolean compressed) throws IOException {
+        final InputStream in = new BufferedInputStream(new RangeInputStream(channel, entry.offset, entry.length), 65536);
+        return compressed ? WarcReaderFactory.getReaderCompressed(in) : WarcReaderFactory.getReaderUncompressed(in);
+    }
+
+    /** an input stream for a part of a file which uses positional reads, so that a channel can be read concurrently */
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        private RangeInputStream(final FileChannel channel, final long offset, final long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) return 0;
+            final int n = (int) Math.min(len, this.end - this.position);
+            if (n <= 0) return -1;
+            final int r = this.channel.read(ByteBuffer.wrap(b, off, n), this.position);
+            if (r < 0) return -1;
+            this.position += r;
+            return r;
+        }
+    }
+
+    /**
+     * write the index as CDX file; the file is written to a temporary file first and then renamed
+     */
+    public void write(final File cdx) throws IOException {
+        final File tmp = new File(cdx.getParentFile(), cdx.getName() + ".tmp");
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            writer.write(LEGEND);
+            writer.write('\n');
+            for (final Entry entry: this.entries) {
+                writer.write(entry.url + " " + entry.date + " " + entry.mime + " " + (entry.status == 0 ? "-" : Integer.toString(entry.status)) + " " + entry.digest + " " + entry.length + " " + entry.offset + "\n");
+            }
+        }
+        if (cdx.exists()) cdx.delete();
+        if (!tmp.renameTo(cdx)) throw new IOException("cannot rename " + tmp + " to " + cdx);
+    }
+}
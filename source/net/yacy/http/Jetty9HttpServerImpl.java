@@ -29,8 +29,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.security.KeyStore;
+import java.util.EnumSet;
 import java.util.StringTokenizer;
 
+import javax.servlet.DispatcherType;
+
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 
@@ -49,6 +52,7 @@ import org.eclipse.jetty.server.handler.DefaultHandler;
 import org.eclipse.jetty.server.handler.HandlerList;
 import org.eclipse.jetty.server.handler.InetAccessHandler;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
@@ -56,6 +60,7 @@ import org.eclipse.jetty.webapp.WebAppContext;
 
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.http.servlets.YaCyDefaultServlet;
+import net.yacy.http.servlets.YaCyQoSFilter;
 import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
 import net.yacy.utils.PKCS12Tool;
@@ -143,6 +148,13 @@ public class Jetty9HttpServerImpl implements YaCyHttpServer {
         sholder.setAsyncSupported(true); // needed for YaCyQoSFilter
         //sholder.setInitParameter("welcomeFile", "index.html"); // default is index.html, welcome.html
         htrootContext.addServlet(sholder, "/*");
+
+        // admission control with concurrency and queue limits per request class
+        if (sb.getConfigBool(SwitchboardConstants.SERVER_ADMISSION, SwitchboardConstants.SERVER_ADMISSION_DEFAULT)) {
+            FilterHolder qosholder = new FilterHolder(YaCyQoSFilter.class);
+            qosholder.setAsyncSupported(true); // waiting requests are suspended
+            htrootContext.addFilter(qosholder, "/*", EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+        }
         
         /* Handle gzip compression of responses to user agents accepting it */
 		final GzipHandler gzipHandler;
@@ -154,6 +166,8 @@ public class Jetty9HttpServerImpl implements YaCyHttpServer {
 			 * the GZIPRequestWrapper in the YaCyDefaultServlet
 			 */
 			gzipHandler.setInflateBufferSize(0);
+			/* Server-Sent Events must reach the client at once and may not be held in the deflater */
+			gzipHandler.addExcludedMimeTypes("text/event-stream");
 			htrootContext.setGzipHandler(gzipHandler);
 		}
 
@@ -177,6 +191,9 @@ public class Jetty9HttpServerImpl implements YaCyHttpServer {
         
         // add GSA servlet
         //htrootContext.addServlet(GSAsearchServlet.class,"/gsa/search");
+
+        // add search event stream servlet
+        //htrootContext.addServlet(SearchEventStreamServlet.class,"/yacysearch.sse");
         // --- eof default servlet mappings --------------------------------------------
 
         // define list of YaCy specific general handlers
@@ -0,0 +1,147 @@
+/**
+ *  SSIOutputStream
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.http.servlets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import net.yacy.cora.util.ConcurrentLog;
+
+/**
+ * An output stream which handles server side includes of the form &lt;!--#include virtual="path"--&gt; while the
+ * content is written through to the target stream. Only the bytes of a possible include directive are held back;
+ * when a directive is complete, the preceding content is flushed and the include is executed with {@link #include(String)},
+ * which must write the included content to the same target.
+ */
+public abstract class SSIOutputStream extends OutputStream {
+
+    private final static byte[] INCLUDE = "<!--#include virtual=\"".getBytes(StandardCharsets.US_ASCII);
+    private final static byte[] END = "-->".getBytes(StandardCharsets.US_ASCII);
+
+    /** directives which are not closed within this number of bytes are written as they are */
+    private final static int MAX_DIRECTIVE_LENGTH = 4096;
+
+    private final OutputStream out;
+    private final byte[] pending; // the bytes of a possible directive
+    private int pendingLength;
+    private int matched; // the number of matched bytes of INCLUDE
+
+    /**
+     * @param out the target stream
+     */
+    public SSIOutputStream(final OutputStream out) {
+        this.out = out;
+        this.pending = new byte[MAX_DIRECTIVE_LENGTH];
+        this.pendingLength = 0;
+        this.matched = 0;
+    }
+
+    /**
+     * write the content of an include to the target stream
+     * @param path the path of the include directive
+     */
+    protected abstract void include(String path) throws IOException;
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (this.matched < INCLUDE.length) {
+            if (b == (INCLUDE[this.matched] & 0xff)) {
+                this.pending[this.pendingLength++] = (byte) b;
+                this.matched++;
+                return;
+            }
+            if (this.matched > 0) {
+                // the start of the directive does not repeat within the directive, so a mismatch can only start a new directive
+                writePending();
+                if (b == (INCLUDE[0] & 0xff)) {
+                    this.pending[this.pendingLength++] = (byte) b;
+                    this.matched = 1;
+                    return;
+                }
+            }
+            this.out.write(b);
+            return;
+        }
+
+        // inside of a directive
+        this.pending[this.pendingLength++] = (byte) b;
+        if (this.pendingLength >= INCLUDE.length + 2 + END.length && endsWithEnd()) { // min length 24; <!--#include virtual="a"
+            final int end = this.pendingLength - END.length;
+            int rightquote = INCLUDE.length + 1;
+            while (rightquote < end && this.pending[rightquote] != '"') rightquote++;
+            final String directive = new String(this.pending, 0, this.pendingLength, StandardCharsets.UTF_8);
+            this.pendingLength = 0;
+            this.matched = 0;
+            if (rightquote < end) {
+                this.out.flush();
+                include(directive.substring(INCLUDE.length, rightquote));
+            } else {
+                ConcurrentLog.warn("FILEHANDLER", "SSIOutputStream: closing quote missing " + directive);
+            }
+        } else if (this.pendingLength == this.pending.length) {
+            writePending();
+        }
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        final int end = off + len;
+        int i = off;
+        while (i < end) {
+            if (this.matched == 0) {
+                // copy everything up to the next possible directive
+                int p = i;
+                while (p < end && b[p] != INCLUDE[0]) p++;
+                if (p > i) this.out.write(b, i, p - i);
+                i = p;
+                if (i == end) break;
+            }
+            write(b[i++] & 0xff);
+        }
+    }
+
+    private boolean endsWithEnd() {
+        for (int i = 0; i < END.length; i++) {
+            if (this.pending[this.pendingLength - END.length + i] != END[i]) return false;
+        }
+        return true;
+    }
+
+    private void writePending() throws IOException {
+        this.out.write(this.pending, 0, this.pendingLength);
+        this.pendingLength = 0;
+        this.matched = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * write an incomplete directive as it is and close the target stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.pendingLength > 0) writePending();
+        this.out.close();
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ *  SearchEventStreamServlet
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.http.servlets;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.yacy.cora.date.ISO8601Formatter;
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.sorting.ScoreMap;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.JSONObject;
+import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.search.Switchboard;
+import net.yacy.search.SwitchboardConstants;
+import net.yacy.search.navigator.Navigator;
+import net.yacy.search.query.QueryParams;
+import net.yacy.search.query.SearchEvent;
+import net.yacy.search.query.SearchEventCache;
+import net.yacy.search.snippet.TextSnippet;
+
+/**
+ * Streams the results of a running search event as Server-Sent Events (text/event-stream).
+ * Instead of loading yacysearchitem once per result and polling yacysearchtrailer, a client
+ * opens one connection with the eventID of a search and receives
+ * <ul>
+ * <li><code>item</code> events with each ranked result as soon as it is available (including its snippet),</li>
+ * <li><code>nav</code> events with the navigator entries which changed since the last <code>nav</code> event,
+ * a changed count of 0 means that the entry was removed,</li>
+ * <li><code>stats</code> events with the current result counts and</li>
+ * <li>a final <code>done</code> event when all requested items are delivered and the search feeding is finished.</li>
+ * </ul>
+ * Navigator changes are detected with the navigator generation counter of the search event, which is
+ * increased by the score map update listeners of all navigators.
+ * Parameters: eventID (required), item (first item, default is the query offset), maxtime (milliseconds, default 30000).
+ * A client may hold at most maxStreamsPerClient streams at the same time (servlet init parameter, default 4);
+ * further requests are answered with 503 Service Unavailable. The number of all open streams is limited by the
+ * stream class of the admission control (see {@link YaCyQoSFilter}), so that streams do not occupy the search class.
+ */
+public class SearchEventStreamServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 2620917465412264113L;
+
+    private static final long pollTimeout = 250;      // maximum time to wait for a single result before navigators are checked again
+    private static final long heartbeatPeriod = 5000; // a comment line is sent after this time without events to detect closed connections
+    private static final long defaultMaxTime = 30000;
+    private static final long maxMaxTime = 120000;
+    private static final int defaultMaxStreamsPerClient = 4;
+
+    private int maxStreamsPerClient = defaultMaxStreamsPerClient;
+    private final Map<String, Integer> streams = new HashMap<String, Integer>(); // client address to number of open streams
+
+    @Override
+    public void init(final ServletConfig config) throws ServletException {
+        super.init(config);
+        this.maxStreamsPerClient = parseInt(config.getInitParameter("maxStreamsPerClient"), defaultMaxStreamsPerClient);
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        doGet(request, response);
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        final String eventID = request.getParameter("eventID");
+        final SearchEvent theSearch = eventID == null ? null : SearchEventCache.getEvent(eventID);
+        if (theSearch == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "search event not found");
+            return;
+        }
+        final String client = request.getRemoteAddr();
+        if (!openStream(client)) {
+            response.setHeader("Retry-After", Long.toString(defaultMaxTime / 1000));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "too many streams");
+            return;
+        }
+        try {
+            stream(request, response, theSearch);
+        } finally {
+            closeStream(client);
+        }
+    }
+
+    private void stream(final HttpServletRequest request, final HttpServletResponse response, final SearchEvent theSearch) throws IOException {
+        final int start = parseInt(request.getParameter("item"), theSearch.query.offset);
+        final long maxtime = Math.min(maxMaxTime, Math.max(0, parseInt(request.getParameter("maxtime"), (int) defaultMaxTime)));
+        final int navigatorMaxCount = Switchboard.getSwitchboard().getConfigInt(SwitchboardConstants.SEARCH_NAVIGATION_MAXCOUNT, QueryParams.FACETS_STANDARD_MAXCOUNT_DEFAULT);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Cache-Control", "no-cache");
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+
+        final long deadline = System.currentTimeMillis() + maxtime;
+        final Map<String, Map<String, Integer>> sentNavigators = new HashMap<String, Map<String, Integer>>();
+        final int end = theSearch.query.neededResults();
+        long navGeneration = -1;
+        long lastEvent = System.currentTimeMillis();
+        int item = Math.max(0, start);
+        boolean itemsExhausted = item >= end;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                final long generation = theSearch.getNavGeneration();
+                if (generation != navGeneration) {
+                    navGeneration = generation;
+                    writeNavigatorDelta(out, theSearch, sentNavigators, navigatorMaxCount);
+                    writeEvent(out, "stats", stats(theSearch, navGeneration));
+                    lastEvent = System.currentTimeMillis();
+                }
+                if (!itemsExhausted) {
+                    final URIMetadataNode result = theSearch.oneResult(item, pollTimeout);
+                    if (result != null) {
+                        writeEvent(out, "item", item(theSearch, result, item));
+                        lastEvent = System.currentTimeMillis();
+                        item++;
+                        itemsExhausted = item >= end;
+                        continue;
+                    }
+                    // no more items only if nothing can be added to the result list any more; feeding must be checked first
+                    itemsExhausted = theSearch.isFeedingFinished() && theSearch.isResultQueueEmpty();
+                } else if (theSearch.isFeedingFinished()) {
+                    break;
+                } else {
+                    try {
+                        Thread.sleep(pollTimeout);
+                    } catch (final InterruptedException e) {
+                        break;
+                    }
+                }
+                if (System.currentTimeMillis() - lastEvent > heartbeatPeriod) {
+                    out.print(": keepalive\n\n");
+                    out.flush();
+                    lastEvent = System.currentTimeMillis();
+                }
+                if (out.checkError()) return; // the client closed the connection
+            }
+            // a final update of all navigators which changed after the last check
+            writeNavigatorDelta(out, theSearch, sentNavigators, navigatorMaxCount);
+            final JSONObject done = stats(theSearch, theSearch.getNavGeneration());
+            done.put("items", item - Math.max(0, start));
+            done.put("finished", theSearch.isFeedingFinished());
+            writeEvent(out, "done", done);
+        } catch (final RuntimeException e) {
+            ConcurrentLog.logException(e);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * count a new stream of a client
+     * @return false if the client has reached the maximum number of streams
+     */
+    private boolean openStream(final String client) {
+        synchronized (this.streams) {
+            final Integer c = this.streams.get(client);
+            final int count = c == null ? 0 : c.intValue();
+            if (count >= this.maxStreamsPerClient) return false;
+            this.streams.put(client, count + 1);
+            return true;
+        }
+    }
+
+    private void closeStream(final String client) {
+        synchronized (this.streams) {
+            final Integer c = this.streams.get(client);
+            if (c == null || c.intValue() <= 1) this.streams.remove(client); else this.streams.put(client, c.intValue() - 1);
+        }
+    }
+
+    private static int parseInt(final String s, final int dflt) {
+        if (s == null || s.isEmpty()) return dflt;
+        try {
+            return Integer.parseInt(s);
+        } catch (final NumberFormatException e) {
+            return dflt;
+        }
+    }
+
+    private static void writeEvent(final PrintWriter out, final String event, final JSONObject data) {
+        // the JSON serialization does not contain line breaks, so the data fits into a single data line
+        out.print("event: ");
+        out.print(event);
+        out.print("\ndata: ");
+        out.print(data.toString());
+        out.print("\n\n");
+        out.flush();
+    }
+
+    private static JSONObject stats(final SearchEvent theSearch, final long navGeneration) {
+        final JSONObject stats = new JSONObject();
+        stats.put("totalcount", theSearch.getResultCount());
+        stats.put("localIndexCount", theSearch.local_rwi_available.get() + theSearch.local_solr_stored.get() - theSearch.local_solr_evicted.get());
+        stats.put("remoteIndexCount", theSearch.remote_rwi_available.get() + theSearch.remote_solr_available.get());
+        stats.put("remotePeerCount", theSearch.remote_rwi_peerCount.get() + theSearch.remote_solr_peerCount.get());
+        stats.put("navGeneration", navGeneration);
+        return stats;
+    }
+
+    private static JSONObject item(final SearchEvent theSearch, final URIMetadataNode result, final int item) {
+        final JSONObject j = new JSONObject();
+        j.put("item", item);
+        j.put("urlhash", ASCII.String(result.hash()));
+        j.put("link", result.urlstring());
+        j.put("title", result.title());
+        final TextSnippet snippet = result.textSnippet();
+        j.put("description", snippet == null ? "" : snippet.descriptionline(theSearch.query.getQueryGoal()));
+        j.put("mimetype", result.mime());
+        j.put("size", result.filesize());
+        j.put("date", ISO8601Formatter.FORMATTER.format(result.moddate()));
+        j.put("ranking", result.score());
+        return j;
+    }
+
+    /**
+     * write a nav event with all navigator entries which changed since the last call
+     * @param sent the navigator entries which have been sent before, this is updated
+     */
+    private static void writeNavigatorDelta(final PrintWriter out, final SearchEvent theSearch, final Map<String, Map<String, Integer>> sent, final int maxcount) {
+        final Map<String, ScoreMap<String>> navigators = new LinkedHashMap<String, ScoreMap<String>>();
+        for (final Map.Entry<String, Navigator> entry: theSearch.navigatorPlugins.entrySet()) navigators.put(entry.getKey(), entry.getValue());
+        if (theSearch.locationNavigator != null) navigators.put("location", theSearch.locationNavigator);
+        if (theSearch.protocolNavigator != null) navigators.put("protocol", theSearch.protocolNavigator);
+        if (theSearch.dateNavigator != null) navigators.put("date", theSearch.dateNavigator);
+        for (final Map.Entry<String, ScoreMap<String>> entry: theSearch.vocabularyNavigator.entrySet()) navigators.put("vocabulary_" + entry.getKey(), entry.getValue());
+
+        final JSONObject delta = new JSONObject();
+        for (final Map.Entry<String, ScoreMap<String>> navigator: navigators.entrySet()) {
+            // the current top entries of this navigator
+            final Map<String, Integer> current = new LinkedHashMap<String, Integer>();
+            for (final String key: navigator.getValue().keys(false, maxcount)) {
+                final int count = navigator.getValue().get(key);
+                if (count > 0) current.put(key, count);
+            }
+            Map<String, Integer> previous = sent.get(navigator.getKey());
+            if (previous == null) previous = new HashMap<String, Integer>();
+            final JSONObject changes = new JSONObject();
+            for (final Map.Entry<String, Integer> e: current.entrySet()) {
+                if (!e.getValue().equals(previous.get(e.getKey()))) changes.put(e.getKey(), e.getValue().intValue());
+            }
+            for (final String key: previous.keySet()) {
+                if (!current.containsKey(key)) changes.put(key, 0);
+            }
+            if (changes.length() > 0) delta.put(navigator.getKey(), changes);
+            sent.put(navigator.getKey(), current);
+        }
+        if (delta.length() > 0) writeEvent(out, "nav", delta);
+    }
+
+}
@@ -0,0 +1,218 @@
+/**
+ *  ServletRegistry
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.http.servlets;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.yacy.cora.protocol.RequestHeader;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.server.serverClassLoader;
+import net.yacy.server.serverObjects;
+import net.yacy.server.serverSwitch;
+
+/**
+ * The registry of the YaCy servlets in the htroot directory. The directory is scanned once when the registry is created;
+ * each servlet is registered with its path without the file extension, so that a request path is mapped to its servlet
+ * with a single map lookup and without any access to the file system. The respond methods are bound to method handles
+ * by a background thread after the scan and are kept for the lifetime of the entry.
+ * The directory is scanned again in the background at most every {@link #RELOAD_INTERVAL} milliseconds: new servlets
+ * are added, deleted servlets are removed and changed class files are loaded again with a new class loader.
+ */
+public class ServletRegistry {
+
+    /** the minimum time between two scans of the servlet directory */
+    public static final long RELOAD_INTERVAL = 10000;
+
+    /** the type of the bound respond methods */
+    private static final MethodType RESPOND_TYPE = MethodType.methodType(Object.class, RequestHeader.class, serverObjects.class, serverSwitch.class);
+
+    /** a servlet class file and its respond method */
+    public static class Entry {
+        public final File classFile;
+        public final long lastModified, length;
+        private final serverClassLoader loader;
+        private volatile MethodHandle respond; // the bound method or null if not yet bound
+        private volatile Exception failure; // the reason why the method cannot be bound or null
+
+        private Entry(final File classFile, final long lastModified, final long length, final serverClassLoader loader) {
+            this.classFile = classFile;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.loader = loader;
+            this.respond = null;
+            this.failure = null;
+        }
+
+        /**
+         * load the class and bind the respond method if this was not done before
+         * @return the method or null if the class or the method cannot be loaded
+         */
+        private synchronized MethodHandle bind() {
+            if (this.respond != null || this.failure != null) return this.respond;
+            try {
+                final Class<?> c = this.loader.loadClass(this.classFile);
+                final Method m = c.getMethod("respond", RequestHeader.class, serverObjects.class, serverSwitch.class);
+                this.respond = MethodHandles.publicLookup().unreflect(m).asType(RESPOND_TYPE);
+            } catch (final ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+                this.failure = e;
+            } catch (final LinkageError e) {
+                this.failure = new ClassNotFoundException(e.getMessage(), e);
+            }
+            return this.respond;
+        }
+
+        /**
+         * call the respond method of the servlet
+         * @return the result of the servlet
+         * @throws InvocationTargetException if the servlet throws an exception or if it cannot be loaded
+         */
+        public Object respond(final RequestHeader header, final serverObjects post, final serverSwitch env) throws InvocationTargetException {
+            MethodHandle handle = this.respond;
+            if (handle == null) {
+                handle = bind();
+                if (handle == null) {
+                    final Exception e = this.failure;
+                    final String message = e instanceof NoSuchMethodException
+                            ? "method 'respond' not found in class " + this.classFile + ": " + e.getMessage()
+                            : "class " + this.classFile + " is missing:" + e.getMessage();
+                    ConcurrentLog.severe("FILEHANDLER", "ServletRegistry: " + message);
+                    throw new InvocationTargetException(e, message);
+                }
+            }
+            try {
+                return (Object) handle.invokeExact(header, post, env);
+            } catch (final Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
+
+    private final File htroot;
+    private final Map<String, Entry> entries;
+    private final AtomicBoolean reloading;
+    private volatile long nextReload;
+
+    /**
+     * create the registry with a scan of the servlet directory and start binding the servlets in the background
+     * @param htroot the servlet directory
+     */
+    public ServletRegistry(final File htroot) {
+        this.htroot = htroot;
+        this.entries = new ConcurrentHashMap<String, Entry>();
+        this.reloading = new AtomicBoolean(false);
+        reload();
+        final Thread binder = new Thread("ServletRegistry.bind") {
+            @Override
+            public void run() {
+                for (final Entry entry: ServletRegistry.this.entries.values()) entry.bind();
+            }
+        };
+        binder.setDaemon(true);
+        binder.start();
+    }
+
+    /**
+     * find the servlet of a request path
+     * @param path the path of a template within the htroot, like /yacy/hello.html
+     * @return the servlet entry or null if there is no servlet for the path
+     */
+    public Entry get(final String path) {
+        if (System.currentTimeMillis() > this.nextReload && this.reloading.compareAndSet(false, true)) {
+            final Thread reloader = new Thread("ServletRegistry.reload") {
+                @Override
+                public void run() {
+                    try {
+                        reload();
+                    } finally {
+                        ServletRegistry.this.reloading.set(false);
+                    }
+                }
+            };
+            reloader.setDaemon(true);
+            reloader.start();
+        }
+        final String key = key(path);
+        return key == null ? null : this.entries.get(key);
+    }
+
+    /**
+     * @return the number of registered servlets
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * scan the servlet directory and update the registry: new servlets are added, deleted servlets are removed and
+     * changed servlets are registered with a new class loader, because a class loader can define a class only once
+     */
+    public synchronized void reload() {
+        final Map<String, File> files = new HashMap<String, File>();
+        scan(this.htroot, "", files);
+        serverClassLoader loader = null;
+        for (final Map.Entry<String, File> file: files.entrySet()) {
+            final long lastModified = file.getValue().lastModified();
+            final long length = file.getValue().length();
+            final Entry entry = this.entries.get(file.getKey());
+            if (entry != null && entry.lastModified == lastModified && entry.length == length) continue;
+            if (loader == null) loader = new serverClassLoader();
+            this.entries.put(file.getKey(), new Entry(file.getValue(), lastModified, length, loader));
+            if (entry != null) ConcurrentLog.info("FILEHANDLER", "ServletRegistry: reloading changed servlet " + file.getValue());
+        }
+        final Iterator<String> i = this.entries.keySet().iterator();
+        while (i.hasNext()) {
+            if (!files.containsKey(i.next())) i.remove();
+        }
+        this.nextReload = System.currentTimeMillis() + RELOAD_INTERVAL;
+    }
+
+    private static void scan(final File dir, final String prefix, final Map<String, File> files) {
+        final String[] names = dir.list();
+        if (names == null) return;
+        for (final String name: names) {
+            final File f = new File(dir, name);
+            if (name.endsWith(".class")) {
+                if (name.indexOf('$') < 0 && f.isFile()) files.put(prefix + name.substring(0, name.length() - 6), f);
+            } else if (f.isDirectory()) {
+                scan(f, prefix + name + '/', files);
+            }
+        }
+    }
+
+    /**
+     * @param path a request path like /yacy/hello.html
+     * @return the path without leading slash and without file extension, or null if the path has no file extension
+     */
+    static String key(final String path) {
+        final int p = path.lastIndexOf('.');
+        if (p < 0 || p < path.lastIndexOf('/')) return null;
+        return path.substring(path.startsWith("/") ? 1 : 0, p);
+    }
+}
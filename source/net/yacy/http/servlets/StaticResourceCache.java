@@ -0,0 +1,293 @@
+/**
+ *  StaticResourceCache
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.http.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jetty.server.HttpOutput;
+
+import net.yacy.cora.order.Digest;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * A cache for the static files of the htroot and the skins.
+ * For each file the cache holds a strong ETag which is computed from the content, the content itself if the file
+ * is small and a gzip compressed variant for compressible mime types. Compressed variants which do not fit into the
+ * memory limit are stored in a directory on disk, named by the path of the file and the digest of the content, so that
+ * they survive a restart and every file owns its compressed variant, even if other files have the same content.
+ * An entry is replaced when the modification time or the length of the file changes.
+ */
+public class StaticResourceCache {
+
+    /** files and compressed variants up to this size are held in memory */
+    public static final int MAX_MEMORY_FILE_SIZE = 256 * 1024;
+
+    /** files smaller than this are not compressed */
+    public static final int MIN_COMPRESS_SIZE = 256;
+
+    /** compressed variants on disk which have not been used for this time are deleted at startup */
+    private static final long GZIP_FILE_MAX_AGE = 30L * 24L * 60L * 60L * 1000L;
+
+    /** a cached file */
+    public static class Entry {
+        public final File file;
+        public final long lastModified, length;
+        public final String etag, gzipEtag;
+        private final byte[] content; // the content or null if it is not held in memory
+        private final byte[] gzipContent; // the compressed variant in memory or null
+        private final File gzipFile; // the compressed variant on disk or null
+        private final long gzipLength;
+
+        private Entry(final File file, final long lastModified, final long length, final String digest,
+                final byte[] content, final byte[] gzipContent, final File gzipFile, final long gzipLength) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.etag = "\"" + digest + "\"";
+            this.gzipEtag = "\"" + digest + "-gz\"";
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.gzipFile = gzipFile;
+            this.gzipLength = gzipLength;
+        }
+
+        /**
+         * @return true if a gzip compressed variant exists
+         */
+        public boolean hasGzip() {
+            return this.gzipContent != null || this.gzipFile != null;
+        }
+
+        /**
+         * @param gzip true for the compressed variant
+         * @return the number of bytes of the variant
+         */
+        public long length(final boolean gzip) {
+            return gzip ? this.gzipLength : this.length;
+        }
+
+        private long memory() {
+            return (this.content == null ? 0 : this.content.length) + (this.gzipContent == null ? 0 : this.gzipContent.length);
+        }
+
+        /**
+         * write the content or the compressed variant. Content in memory is handed over to jetty as a buffer;
+         * files are transferred from their channel without a stream copy if the output is a jetty output.
+         * @param out the response output stream
+         * @param gzip true for the compressed variant
+         */
+        public void writeTo(final OutputStream out, final boolean gzip) throws IOException {
+            final byte[] b = gzip ? this.gzipContent : this.content;
+            if (b != null) {
+                if (out instanceof HttpOutput) {
+                    ((HttpOutput) out).sendContent(ByteBuffer.wrap(b));
+                } else {
+                    out.write(b);
+                }
+                return;
+            }
+            final File f = gzip ? this.gzipFile : this.file;
+            if (out instanceof HttpOutput) {
+                try (final FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+                    ((HttpOutput) out).sendContent(channel);
+                }
+            } else {
+                FileUtils.copy(f, out);
+            }
+        }
+    }
+
+    private final File gzipPath;
+    private final long memoryLimit;
+    private final boolean compress;
+    private final Map<File, Entry> entries;
+    private final AtomicLong memory;
+
+    /**
+     * @param gzipPath the directory for compressed variants on disk
+     * @param memoryLimit the maximum number of bytes of content and compressed variants held in memory
+     * @param compress true if compressed variants shall be created
+     */
+    public StaticResourceCache(final File gzipPath, final long memoryLimit, final boolean compress) {
+        this.gzipPath = gzipPath;
+        this.memoryLimit = memoryLimit;
+        this.compress = compress;
+        this.entries = new ConcurrentHashMap<File, Entry>();
+        this.memory = new AtomicLong(0);
+        if (compress) {
+            gzipPath.mkdirs();
+            final File[] files = gzipPath.listFiles();
+            if (files != null) for (final File f: files) {
+                if (f.getName().endsWith(".tmp") || f.lastModified() < System.currentTimeMillis() - GZIP_FILE_MAX_AGE) FileUtils.deletedelete(f);
+            }
+        }
+    }
+
+    /**
+     * get the entry of a file; a new entry is created if the file is not cached or if it has changed
+     * @param file a static file
+     * @param mime the mime type of the file or null
+     * @return the entry
+     */
+    public Entry get(final File file, final String mime) throws IOException {
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        final Entry entry = this.entries.get(file);
+        if (entry != null && entry.lastModified == lastModified && entry.length == length) return entry;
+
+        final Entry created = create(file, lastModified, length, this.compress && compressible(mime, length));
+        final Entry old = this.entries.put(file, created);
+        this.memory.addAndGet(created.memory());
+        if (old != null) {
+            this.memory.addAndGet(-old.memory());
+            // the compressed variant belongs to this file only, see create()
+            if (old.gzipFile != null && !old.gzipFile.equals(created.gzipFile)) FileUtils.deletedelete(old.gzipFile);
+        }
+        return created;
+    }
+
+    private Entry create(final File file, final long lastModified, final long length, final boolean compress) throws IOException {
+        final boolean inMemory = length <= MAX_MEMORY_FILE_SIZE && this.memory.get() + length <= this.memoryLimit;
+        final byte[] content = inMemory ? FileUtils.read(file) : null;
+        final String digest = content == null ? Digest.encodeMD5Hex(file) : Digest.encodeMD5Hex(content);
+        if (!compress) return new Entry(file, lastModified, length, digest, content, null, null, 0);
+
+        // a compressed variant from an earlier run
+        final File gzipFile = new File(this.gzipPath, Digest.encodeMD5Hex(file.getAbsolutePath()) + "-" + digest + ".gz");
+        if (gzipFile.exists()) {
+            gzipFile.setLastModified(System.currentTimeMillis());
+            return new Entry(file, lastModified, length, digest, content, null, gzipFile, gzipFile.length());
+        }
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream((int) Math.min(length / 2 + 64, Integer.MAX_VALUE));
+        try (final OutputStream gz = new GZIPOutputStream(bos, 8192)) {
+            if (content != null) {
+                gz.write(content);
+            } else {
+                try (final InputStream in = new FileInputStream(file)) {
+                    FileUtils.copy(in, gz);
+                }
+            }
+        }
+        final byte[] gzipContent = bos.toByteArray();
+        if (gzipContent.length >= length) return new Entry(file, lastModified, length, digest, content, null, null, 0); // compression does not help
+        if (gzipContent.length <= MAX_MEMORY_FILE_SIZE && this.memory.get() + length + gzipContent.length <= this.memoryLimit) {
+            return new Entry(file, lastModified, length, digest, content, gzipContent, null, gzipContent.length);
+        }
+        // concurrent requests for the same file write their own temporary file; the move replaces a variant with the same content
+        final File tmp = File.createTempFile(digest, ".tmp", this.gzipPath);
+        try {
+            try (final OutputStream os = new FileOutputStream(tmp)) {
+                os.write(gzipContent);
+            }
+            try {
+                Files.move(tmp.toPath(), gzipFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), gzipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException e) {
+            ConcurrentLog.warn("FILEHANDLER", "StaticResourceCache: cannot store compressed variant of " + file + ": " + e.getMessage());
+            FileUtils.deletedelete(tmp);
+            return new Entry(file, lastModified, length, digest, content, null, null, 0);
+        }
+        return new Entry(file, lastModified, length, digest, content, null, gzipFile, gzipContent.length);
+    }
+
+    /**
+     * @return the number of bytes of content held in memory
+     */
+    public long memory() {
+        return this.memory.get();
+    }
+
+    /**
+     * @param mime a mime type or null
+     * @param length the size of the file
+     * @return true if a file of the mime type is worth compressing
+     */
+    public static boolean compressible(final String mime, final long length) {
+        if (mime == null || length < MIN_COMPRESS_SIZE) return false;
+        final String m = mime.toLowerCase(Locale.ROOT);
+        return m.startsWith("text/")
+                || m.contains("javascript")
+                || m.contains("json")
+                || m.contains("xml")
+                || m.equals("image/svg+xml")
+                || m.equals("image/x-icon")
+                || m.equals("image/vnd.microsoft.icon")
+                || m.equals("application/vnd.ms-fontobject")
+                || m.equals("application/x-font-ttf")
+                || m.equals("font/ttf")
+                || m.equals("font/otf");
+    }
+
+    /**
+     * @param acceptEncoding the value of an Accept-Encoding request header or null
+     * @return true if the header accepts gzip
+     */
+    public static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (final String coding: acceptEncoding.split(",")) {
+            final String[] parts = coding.trim().split(";");
+            final String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("x-gzip") && !name.equals("*")) continue;
+            if (parts.length > 1) {
+                final String q = parts[1].trim().replace(" ", "");
+                if (q.startsWith("q=") && q.substring(2).matches("0(\\.0*)?")) continue;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param ifNoneMatch the value of an If-None-Match request header or null
+     * @param etag the current ETag
+     * @return true if the header contains the ETag
+     */
+    public static boolean matches(final String ifNoneMatch, final String etag) {
+        if (ifNoneMatch == null) return false;
+        for (final String tag: ifNoneMatch.split(",")) {
+            String t = tag.trim();
+            if (t.equals("*")) return true;
+            if (t.startsWith("W/")) t = t.substring(2);
+            if (t.equals(etag)) return true;
+        }
+        return false;
+    }
+}
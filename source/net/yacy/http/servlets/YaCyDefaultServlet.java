@@ -20,19 +20,12 @@ package net.yacy.http.servlets;
 
 import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.ref.SoftReference;
-import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
@@ -43,7 +36,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -68,7 +60,6 @@ import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.protocol.ResponseHeader;
-import net.yacy.cora.util.ByteBuffer;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.data.BadTransactionException;
 import net.yacy.data.InvalidURLLicenceException;
@@ -83,9 +74,7 @@ import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
 import net.yacy.server.http.HTTPDFileHandler;
 import net.yacy.server.http.TemplateEngine;
-import net.yacy.server.serverClassLoader;
 import net.yacy.server.serverObjects;
-import net.yacy.server.serverSwitch;
 import net.yacy.server.servletProperties;
 import net.yacy.visualization.RasterPlotter;
 
@@ -146,8 +135,8 @@ public class YaCyDefaultServlet extends HttpServlet  {
     
     protected File _htLocalePath;
     protected File _htDocsPath;    
-    protected static final serverClassLoader provider = new serverClassLoader(/*this.getClass().getClassLoader()*/);
-    protected ConcurrentHashMap<File, SoftReference<Method>> templateMethodCache = null;
+    protected ServletRegistry _servlets; // the servlets of the resource base
+    protected StaticResourceCache _staticCache = null; // ETags and precompressed variants of static files; null if disabled
     // settings for multipart/form-data
     protected static final File TMPDIR = new File(System.getProperty("java.io.tmpdir"));
     protected static final int SIZE_FILE_THRESHOLD = 1024 * 1024 * 1024; // 1GB is a lot but appropriate for multi-document pushed using the push_p.json servlet
@@ -190,7 +179,26 @@ public class YaCyDefaultServlet extends HttpServlet  {
         if (ConcurrentLog.isFine("FILEHANDLER")) {
             ConcurrentLog.fine("FILEHANDLER","YaCyDefaultServlet: resource base = " + _resourceBase);
         }
-        templateMethodCache = new ConcurrentHashMap<File, SoftReference<Method>>();
+        File htroot = null;
+        try {
+            htroot = _resourceBase.getFile();
+        } catch (IOException e) {
+            ConcurrentLog.logException(e);
+        }
+        if (htroot == null) {
+            ConcurrentLog.severe("FILEHANDLER", "YaCyDefaultServlet: resource base " + _resourceBase + " is not a directory");
+            throw new UnavailableException("resource base " + _resourceBase + " is not a directory");
+        }
+        _servlets = new ServletRegistry(htroot);
+        if (ConcurrentLog.isFine("FILEHANDLER")) {
+            ConcurrentLog.fine("FILEHANDLER","YaCyDefaultServlet: " + _servlets.size() + " servlets registered");
+        }
+        if (sb.getConfigBool(SwitchboardConstants.SERVER_STATICCACHE, SwitchboardConstants.SERVER_STATICCACHE_DEFAULT)) {
+            _staticCache = new StaticResourceCache(
+                    new File(sb.getDataPath(SwitchboardConstants.WORK_PATH, SwitchboardConstants.WORK_PATH_DEFAULT), "staticgz"),
+                    sb.getConfigLong(SwitchboardConstants.SERVER_STATICCACHE_MEMORY, SwitchboardConstants.SERVER_STATICCACHE_MEMORY_DEFAULT) * 1024L * 1024L,
+                    sb.getConfigBool(SwitchboardConstants.SERVER_RESPONSE_COMPRESS_GZIP, SwitchboardConstants.SERVER_RESPONSE_COMPRESS_GZIP_DEFAULT));
+        }
     }
     
     /* ------------------------------------------------------------ */
@@ -273,15 +281,7 @@ public class YaCyDefaultServlet extends HttpServlet  {
             // Look for a class resource
             boolean hasClass = false;
             if (reqRanges == null && !endsWithSlash) {
-                final int p = pathInContext.lastIndexOf('.');
-                if (p >= 0) {
-                    String pathofClass = pathInContext.substring(0, p) + ".class";
-                    Resource classresource = _resourceBase.addPath(pathofClass);
-                    // Does a class resource exist?
-                    if (classresource != null && classresource.exists() && !classresource.isDirectory()) {
-                        hasClass = true;
-                    }
-                }
+                hasClass = _servlets.get(pathInContext) != null;
             }
             
             // find resource
@@ -503,6 +503,13 @@ public class YaCyDefaultServlet extends HttpServlet  {
             Enumeration<String> reqRanges)
             throws IOException {
 
+        // complete files are served from the static resource cache
+        final File file = include || reqRanges != null || _staticCache == null ? null : resource.getFile();
+        if (file != null && file.isFile()) {
+            sendCached(request, response, file);
+            return;
+        }
+
         final long content_length = resource.length();
 
         // Get the output stream (or writer)
@@ -639,6 +646,54 @@ public class YaCyDefaultServlet extends HttpServlet  {
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * send a static file from the static resource cache. The response has a strong ETag, so that clients
+     * revalidate with If-None-Match and get a 304 response without content; the gzip compressed variant is
+     * sent if the client accepts it. Files requested with a version parameter (v=) are cached for one year.
+     * 
+     * @param request
+     * @param response
+     * @param file the static file
+     * @throws IOException
+     */
+    protected void sendCached(HttpServletRequest request, HttpServletResponse response, File file) throws IOException {
+        final String mimeType = _mimeTypes.getMimeByExtension(file.getName());
+        final StaticResourceCache.Entry entry = _staticCache.get(file, mimeType);
+        final boolean gzip = entry.hasGzip() && StaticResourceCache.acceptsGzip(request.getHeader(HeaderFramework.ACCEPT_ENCODING));
+        final String etag = gzip ? entry.gzipEtag : entry.etag;
+
+        if (response.containsHeader(HeaderFramework.LAST_MODIFIED)) {
+            response.getHeaders(HeaderFramework.LAST_MODIFIED).clear(); // see sendData: caching is controlled by cache-control and the ETag
+        }
+        if (request.getParameter("v") != null) {
+            response.setHeader(HeaderFramework.CACHE_CONTROL, "public, max-age=31536000, immutable"); // versioned asset: one year
+        } else {
+            response.setHeader(HeaderFramework.CACHE_CONTROL, "public, max-age=" + Integer.toString(600)); // seconds; ten minutes
+        }
+        response.setHeader(HeaderFramework.ETAG, etag);
+        if (entry.hasGzip()) response.setHeader(HttpHeader.VARY.asString(), HeaderFramework.ACCEPT_ENCODING);
+
+        if (StaticResourceCache.matches(request.getHeader(HttpHeader.IF_NONE_MATCH.asString()), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        if (response.getContentType() == null && mimeType != null) response.setContentType(mimeType);
+        if (gzip) response.setHeader(HeaderFramework.CONTENT_ENCODING, HeaderFramework.CONTENT_ENCODING_GZIP); // the jetty GzipHandler does not compress again
+        final long count = entry.length(gzip);
+        if (count < Integer.MAX_VALUE) {
+            response.setContentLength((int) count);
+        } else {
+            response.setHeader(HeaderFramework.CONTENT_LENGTH, Long.toString(count));
+        }
+        if (_acceptRanges && !gzip) { // ranges are served from the uncompressed file
+            response.setHeader(HeaderFramework.ACCEPT_RANGES, "bytes");
+        }
+        if (HttpMethod.HEAD.is(request.getMethod())) return;
+        entry.writeTo(response.getOutputStream(), gzip);
+    }
+
     /* ------------------------------------------------------------ */
     protected void writeHeaders(HttpServletResponse response, Resource resource, long count) {
         if (response.getContentType() == null) {
@@ -669,8 +724,8 @@ public class YaCyDefaultServlet extends HttpServlet  {
     }
 
     
-    protected Object invokeServlet(final File targetClass, final RequestHeader request, final serverObjects args) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        return rewriteMethod(targetClass).invoke(null, new Object[]{request, args, Switchboard.getSwitchboard()}); // add switchboard
+    protected Object invokeServlet(final ServletRegistry.Entry servlet, final RequestHeader request, final serverObjects args) throws InvocationTargetException {
+        return servlet.respond(request, args, Switchboard.getSwitchboard()); // add switchboard
     }
     
     /**
@@ -758,62 +813,6 @@ public class YaCyDefaultServlet extends HttpServlet  {
         return _resourceBase.addPath(path).getFile();
     }
 
-    protected File rewriteClassFile(final File template) {
-        try {
-            String f = template.getCanonicalPath();
-            final int p = f.lastIndexOf('.');
-            if (p < 0) {
-                return null;
-            }
-            f = f.substring(0, p) + ".class";
-            final File cf = new File(f);
-            if (cf.exists()) {
-                return cf;
-            }
-            return null;
-        } catch (final IOException e) {
-            return null;
-        }
-    }
-
-    protected Method rewriteMethod(final File classFile) throws InvocationTargetException {
-        Method m = null;
-        // now make a class out of the stream
-        try {
-            final SoftReference<Method> ref = templateMethodCache.get(classFile);
-            if (ref != null) {
-                m = ref.get();
-                if (m == null) {
-                    templateMethodCache.remove(classFile);
-                } else {
-                    return m;
-                }
-            }
-
-            final Class<?> c = provider.loadClass(classFile);
-            
-            final Class<?>[] params = (Class<?>[]) Array.newInstance(Class.class, 3);
-            params[0]=  RequestHeader.class;
-            params[1] = serverObjects.class;
-            params[2] = serverSwitch.class;
-            m = c.getMethod("respond", params);
-
-            if (MemoryControl.shortStatus()) {
-                templateMethodCache.clear();
-            } else {
-                // store the method into the cache
-                templateMethodCache.put(classFile, new SoftReference<Method>(m));
-            }
-        } catch (final ClassNotFoundException e) {
-            ConcurrentLog.severe("FILEHANDLER","YaCyDefaultServlet: class " + classFile + " is missing:" + e.getMessage());
-            throw new InvocationTargetException(e, "class " + classFile + " is missing:" + e.getMessage());
-        } catch (final NoSuchMethodException e) {
-            ConcurrentLog.severe("FILEHANDLER","YaCyDefaultServlet: method 'respond' not found in class " + classFile + ": " + e.getMessage());
-            throw new InvocationTargetException(e, "method 'respond' not found in class " + classFile + ": " + e.getMessage());
-        }
-        return m;
-    }
-
     /**
      * Handles a YaCy servlet template, reads the template and replaces the template
      * items with actual values. Because of supported server side includes target 
@@ -838,7 +837,7 @@ public class YaCyDefaultServlet extends HttpServlet  {
             }
         }
         File targetFile = getLocalizedFile(target, localeSelection);
-        File targetClass = rewriteClassFile(_resourceBase.addPath(target).getFile());
+        ServletRegistry.Entry servlet = _servlets.get(target);
         String targetExt = target.substring(target.lastIndexOf('.') + 1);
 
         long now = System.currentTimeMillis();
@@ -856,7 +855,7 @@ public class YaCyDefaultServlet extends HttpServlet  {
             response.setDateHeader(HeaderFramework.EXPIRES, now); // expires now
         }
         
-        if ((targetClass != null)) {
+        if (servlet != null) {
             serverObjects args = new serverObjects();
             Enumeration<String> argNames = request.getParameterNames(); // on ssi jetty dispatcher merged local ssi query parameters
             while (argNames.hasMoreElements()) {
@@ -879,9 +878,9 @@ public class YaCyDefaultServlet extends HttpServlet  {
             try {
                 if (args.isEmpty()) {
                     // yacy servlets typically test for args != null (but not for args .isEmpty())
-                    tmp = invokeServlet(targetClass, legacyRequestHeader, null); 
+                    tmp = invokeServlet(servlet, legacyRequestHeader, null); 
                 } else {
-                    tmp = invokeServlet(targetClass, legacyRequestHeader, args);
+                    tmp = invokeServlet(servlet, legacyRequestHeader, args);
                 }
             } catch(InvocationTargetException e) {
             	if(e.getCause() instanceof InvalidURLLicenceException) {
@@ -908,9 +907,6 @@ public class YaCyDefaultServlet extends HttpServlet  {
                 }
             	ConcurrentLog.logException(e);
                 throw new ServletException(targetFile.getAbsolutePath());
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                ConcurrentLog.logException(e);
-                throw new ServletException(targetFile.getAbsolutePath());
             }
 
             if (tmp instanceof RasterPlotter || tmp instanceof EncodedImage || tmp instanceof Image) {
@@ -1075,39 +1071,15 @@ public class YaCyDefaultServlet extends HttpServlet  {
                 
                 String mimeType = Classification.ext2mime(targetExt, MimeTypes.Type.TEXT_HTML.asString());
 
-                InputStream fis;
-                long fileSize = targetFile.length();
-
-                if (fileSize <= Math.min(4 * 1024 * 1204, MemoryControl.available() / 100)) {
-                    // read file completely into ram, avoid that too many files are open at the same time
-                    fis = new ByteArrayInputStream(FileUtils.read(targetFile));
-                } else {
-                    fis = new BufferedInputStream(new FileInputStream(targetFile));
-                }
-
-                // set response header
+                // set response header; all headers are set here because the page is streamed
                 response.setContentType(mimeType);
                 response.setStatus(HttpServletResponse.SC_OK);
-                ByteArrayOutputStream bas = new ByteArrayOutputStream(4096);
-                try {
-                	// apply templates
-                	TemplateEngine.writeTemplate(targetFile.getName(), fis, bas, templatePatterns);
-                	
-                    // handle SSI
-                    parseSSI (bas.toByteArray(),request,response);
-                } finally {
-                	try {
-                		fis.close();
-                	} catch(IOException ignored) {
-                		ConcurrentLog.warn("FILEHANDLER", "YaCyDefaultServlet: could not close target file " + targetFile.getName());
-                	}
-                	
-                	try {
-                		bas.close();
-                	} catch(IOException ignored) {
-                		/* Should never happen with a ByteArrayOutputStream */
-                	}
-                }
+
+                // apply templates and handle SSI while the page is written to the client: pages which fit into the
+                // response buffer are sent with a content length, larger pages with chunked transfer encoding
+                final OutputStream out = ssiOutputStream(request, response);
+                TemplateEngine.writeTemplate(targetFile.getName(), targetFile, out, templatePatterns);
+                out.close();
             }
         }
     }
@@ -1200,38 +1172,24 @@ public class YaCyDefaultServlet extends HttpServlet  {
     }
     
     /**
-     * parse SSI line and include resource (<!--#include virtual="file.html" -->)
+     * create an output stream to the response which handles server side includes (&lt;!--#include virtual="path"--&gt;)
+     * with the request dispatcher
      */
-    protected void parseSSI(final byte[] in, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
-        ByteBuffer buffer = new ByteBuffer(in);
-        OutputStream out = response.getOutputStream();
-        final byte[] inctxt ="<!--#include virtual=\"".getBytes();
-        int offset = 0;
-        int p = buffer.indexOf(inctxt, offset);
-        int end;
-        while (p >= 0 && (end = buffer.indexOf("-->".getBytes(), p + 24)) > 0 ) { // min length 24; <!--#include virtual="a"
-            out.write(in, offset, p - offset);
-            out.flush();
-            // find right end quote
-            final int rightquote = buffer.indexOf("\"".getBytes(), p + 23);
-            if (rightquote > 0 && rightquote < end) {
-                final String path = buffer.toString(p + 22, rightquote - p - 22);
+    protected OutputStream ssiOutputStream(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        return new SSIOutputStream(response.getOutputStream()) {
+            @Override
+            protected void include(final String path) throws IOException {
                 RequestDispatcher dispatcher = request.getRequestDispatcher(path);
                 try {
                     dispatcher.include(request, response);
                 } catch (IOException ex) {
                     if (path.indexOf("yacysearch") < 0) ConcurrentLog.warn("FILEHANDLER", "YaCyDefaultServlet: parseSSI dispatcher problem - " + ex.getMessage() + ": " + path);
                     // this is probably a time-out; it may occur during search requests; for search requests we consider that normal
+                } catch (ServletException ex) {
+                    throw new IOException(ex);
                 }
-            } else {
-                ConcurrentLog.warn("FILEHANDLER", "YaCyDefaultServlet: parseSSI closing quote missing " + buffer.toString(p, end - p) + " in " + request.getPathInfo());
             }
-            offset = end + 3; // after "-->"
-            p = buffer.indexOf(inctxt, offset);
-        }
-        out.write(in, offset, in.length - offset);
-        out.close();
-        buffer.close();
+        };
     }
 
     /**
@@ -19,31 +19,478 @@
  */
 package net.yacy.http.servlets;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import net.yacy.cora.protocol.Domains;
-import org.eclipse.jetty.servlets.QoSFilter;
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.search.Switchboard;
+import net.yacy.search.SwitchboardConstants;
 
 /**
- * Quality of Service Filter based on Jetty QosFilter
- * to prioritize requests from localhost
- * The intention is to improve the responsivness of web/user interface for the local admin
- * To activate this filter uncomment the predefined filter setting in web.xml
+ * Quality of Service Filter with an admission control for classes of requests.
+ * Each request is assigned to a class (p2p, search, stream, api, admin, proxy or other); each class has its own limit of
+ * concurrently processed requests and its own queue of waiting requests, so that a burst of requests of one class
+ * cannot starve the others. Waiting requests are suspended and do not occupy a server thread; requests which cannot be
+ * suspended block their thread and wait in the same queue, the number of blocked requests of all classes is limited
+ * separately. If the queue of a class is full or a request waited too long, it is answered early with 503
+ * (Service Unavailable) and a Retry-After header.
+ * Requests are classified by their path first. Requests from localhost to pages outside of the p2p, search, stream, api
+ * and proxy classes are assigned to the admin class, which replaces the former priority of localhost; this keeps the
+ * public search of a peer behind a reverse proxy, where all requests come from localhost, in its own class.
+ * The filter is activated by the application if server.admission is true; the limits are set in yacy.init. The sum of
+ * the concurrency of all classes and of the blocked requests must stay well below the size of the server thread pool.
  */
-public class YaCyQoSFilter extends QoSFilter {
+public class YaCyQoSFilter implements Filter {
+
+    /** the classes of requests */
+    public enum RequestClass {
+        P2P(30, 100),    // peer-to-peer calls in /yacy/ and the solr interface
+        SEARCH(30, 100), // public search pages and search interfaces
+        STREAM(10, 0),   // the event streams of searches, each is held open up to two minutes and is not queued
+        API(20, 100),    // the api servlets
+        ADMIN(20, 50),   // protected pages and all other requests from localhost
+        PROXY(10, 50),   // the url proxy
+        OTHER(30, 200);  // all other pages and static files
+
+        public final int defaultConcurrency, defaultQueue;
+
+        private RequestClass(final int defaultConcurrency, final int defaultQueue) {
+            this.defaultConcurrency = defaultConcurrency;
+            this.defaultQueue = defaultQueue;
+        }
+
+        /** @return the name of the class in the configuration */
+        public String configName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** the admission control and the statistics of a request class */
+    public static class Admission {
+        public final RequestClass requestClass;
+        public final int concurrency, queueLimit;
+        private final Semaphore passes;
+        private final Queue<Waiter> queue;
+        private final AtomicInteger queued;
+        private final AtomicLong requests, latencySum, latencyMax, rejected, timeouts;
+
+        /**
+         * @param requestClass the class of requests
+         * @param concurrency the maximum number of concurrently processed requests
+         * @param queueLimit the maximum number of waiting requests
+         */
+        public Admission(final RequestClass requestClass, final int concurrency, final int queueLimit) {
+            this.requestClass = requestClass;
+            this.concurrency = concurrency;
+            this.queueLimit = queueLimit;
+            this.passes = new Semaphore(concurrency, true);
+            this.queue = new ConcurrentLinkedQueue<Waiter>();
+            this.queued = new AtomicInteger(0);
+            this.requests = new AtomicLong(0);
+            this.latencySum = new AtomicLong(0);
+            this.latencyMax = new AtomicLong(0);
+            this.rejected = new AtomicLong(0);
+            this.timeouts = new AtomicLong(0);
+        }
+
+        /**
+         * @return true if a pass is available without waiting
+         */
+        public boolean tryAcquire() {
+            return this.passes.tryAcquire();
+        }
+
+        /**
+         * wait for a pass; used for requests which cannot be suspended. The request waits in the same queue as the
+         * suspended requests and gets a pass in the order of arrival.
+         * @return true if a pass was acquired within the timeout
+         */
+        public boolean tryAcquire(final long timeout) throws InterruptedException {
+            if (this.passes.tryAcquire()) return true;
+            if (!reserveQueue()) return false;
+            final BlockedRequest waiter = new BlockedRequest();
+            enqueue(waiter);
+            try {
+                if (waiter.await(timeout)) return true;
+            } catch (final InterruptedException e) {
+                // if the pass has been handed over meanwhile, it is given back
+                if (!remove(waiter)) release();
+                throw e;
+            }
+            if (!remove(waiter)) return true; // the pass was handed over after the timeout
+            this.timeouts.incrementAndGet();
+            return false;
+        }
+
+        /**
+         * reserve a place in the queue
+         * @return false if the queue is full; the request is counted as rejected
+         */
+        private boolean reserveQueue() {
+            if (this.queued.incrementAndGet() > this.queueLimit) {
+                this.queued.decrementAndGet();
+                this.rejected.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * put a waiting request into the queue. If a pass has been released in the meantime, it is handed over to
+         * the first waiting request at once.
+         */
+        private void enqueue(final Waiter waiter) {
+            this.queue.add(waiter);
+            handOverFree();
+        }
+
+        /**
+         * remove a waiting request from the queue when it waited too long
+         * @return true if the request was still waiting
+         */
+        private boolean timeout(final Waiter waiter) {
+            if (!remove(waiter)) return false;
+            this.timeouts.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * remove a waiting request from the queue
+         * @return false if a pass has been handed over to the request already
+         */
+        private boolean remove(final Waiter waiter) {
+            if (!this.queue.remove(waiter)) return false;
+            this.queued.decrementAndGet();
+            return true;
+        }
+
+        /**
+         * release a pass at the end of a request. The pass is handed over to the first waiting request, if any.
+         */
+        public void release() {
+            if (handOver()) return;
+            this.passes.release();
+            handOverFree();
+        }
+
+        /**
+         * hand free passes over to waiting requests. A release which found the queue empty and an enqueue which found
+         * no pass may overlap; both call this after their own change, so the request cannot be left waiting with a free pass.
+         */
+        private void handOverFree() {
+            while (!this.queue.isEmpty() && this.passes.tryAcquire()) {
+                if (!handOver()) this.passes.release();
+            }
+        }
+
+        /**
+         * hand the pass of the caller over to the first waiting request
+         * @return false if no request is waiting; the caller keeps the pass
+         */
+        private boolean handOver() {
+            Waiter next;
+            while ((next = this.queue.poll()) != null) {
+                this.queued.decrementAndGet();
+                if (next.resume()) return true;
+                // the request does not wait any more, try the next one
+            }
+            return false;
+        }
+
+        /**
+         * count a finished request
+         * @param latency the time between the arrival and the end of the request in milliseconds
+         */
+        public void finished(final long latency) {
+            this.requests.incrementAndGet();
+            this.latencySum.addAndGet(latency);
+            long max;
+            while (latency > (max = this.latencyMax.get()) && !this.latencyMax.compareAndSet(max, latency)) {}
+        }
+
+        /** @return the number of requests which are processed now */
+        public int active() {
+            return Math.max(0, this.concurrency - this.passes.availablePermits());
+        }
+
+        /** @return the number of waiting requests */
+        public int queued() {
+            return this.queued.get();
+        }
+
+        /** @return the number of finished requests */
+        public long requests() {
+            return this.requests.get();
+        }
+
+        /** @return the average time between arrival and end of the finished requests in milliseconds */
+        public long latencyAvg() {
+            final long count = this.requests.get();
+            return count == 0 ? 0 : this.latencySum.get() / count;
+        }
+
+        /** @return the maximum time between arrival and end of a finished request in milliseconds */
+        public long latencyMax() {
+            return this.latencyMax.get();
+        }
+
+        /** @return the number of requests which were rejected because the queue was full */
+        public long rejected() {
+            return this.rejected.get();
+        }
+
+        /** @return the number of requests which were rejected because they waited too long */
+        public long timeouts() {
+            return this.timeouts.get();
+        }
+    }
+
+    /** a request which waits for a pass */
+    private interface Waiter {
+        /**
+         * hand a pass over to the request
+         * @return false if the request does not wait any more
+         */
+        public boolean resume();
+    }
+
+    /** a suspended request; it is dispatched again when it gets a pass */
+    private static class SuspendedRequest implements Waiter {
+        private final AsyncContext context;
+
+        private SuspendedRequest(final AsyncContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public boolean resume() {
+            try {
+                this.context.getRequest().setAttribute(STATE, STATE_RESUMED);
+                this.context.dispatch();
+                return true;
+            } catch (final IllegalStateException e) {
+                return false; // the request is not suspended any more
+            }
+        }
+    }
+
+    /** a request which cannot be suspended and blocks its thread while it waits */
+    private static class BlockedRequest implements Waiter {
+        private boolean resumed = false;
+
+        @Override
+        public synchronized boolean resume() {
+            this.resumed = true;
+            notifyAll();
+            return true;
+        }
+
+        /**
+         * @return true if the request got a pass within the timeout
+         */
+        private synchronized boolean await(final long timeout) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + timeout;
+            long wait;
+            while (!this.resumed && (wait = deadline - System.currentTimeMillis()) > 0) wait(wait);
+            return this.resumed;
+        }
+    }
+
+    /** request attribute for the admission state of a request */
+    private static final String STATE = YaCyQoSFilter.class.getName() + ".state";
+    /** request attribute for the arrival time of a request */
+    private static final String START = YaCyQoSFilter.class.getName() + ".start";
+
+    private static final String STATE_ADMITTED = "admitted"; // the request has a pass
+    private static final String STATE_QUEUED = "queued"; // the request is suspended and waits for a pass
+    private static final String STATE_RESUMED = "resumed"; // a pass has been handed over to the suspended request
+    private static final String STATE_TIMEOUT = "timeout"; // the request waited too long
+
+    /** the admission control of the filter instance, shared for the statistics */
+    private static volatile Map<RequestClass, Admission> admissions = Collections.emptyMap();
+
+    private Map<RequestClass, Admission> classes;
+    private Semaphore blocked; // the places for requests which block their thread while they wait
+    private long timeout;
+    private int retryAfter;
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {
+        final Switchboard sb = Switchboard.getSwitchboard();
+        this.timeout = sb == null ? SwitchboardConstants.SERVER_ADMISSION_TIMEOUT_DEFAULT
+                : sb.getConfigLong(SwitchboardConstants.SERVER_ADMISSION_TIMEOUT, SwitchboardConstants.SERVER_ADMISSION_TIMEOUT_DEFAULT);
+        this.retryAfter = sb == null ? SwitchboardConstants.SERVER_ADMISSION_RETRYAFTER_DEFAULT
+                : sb.getConfigInt(SwitchboardConstants.SERVER_ADMISSION_RETRYAFTER, SwitchboardConstants.SERVER_ADMISSION_RETRYAFTER_DEFAULT);
+        this.blocked = new Semaphore(Math.max(0, sb == null ? SwitchboardConstants.SERVER_ADMISSION_BLOCKED_DEFAULT
+                : sb.getConfigInt(SwitchboardConstants.SERVER_ADMISSION_BLOCKED, SwitchboardConstants.SERVER_ADMISSION_BLOCKED_DEFAULT)));
+        this.classes = new EnumMap<RequestClass, Admission>(RequestClass.class);
+        for (final RequestClass c: RequestClass.values()) {
+            final String prefix = SwitchboardConstants.SERVER_ADMISSION + "." + c.configName();
+            final int concurrency = sb == null ? c.defaultConcurrency : sb.getConfigInt(prefix + ".concurrency", c.defaultConcurrency);
+            final int queue = sb == null ? c.defaultQueue : sb.getConfigInt(prefix + ".queue", c.defaultQueue);
+            if (concurrency > 0) this.classes.put(c, new Admission(c, concurrency, Math.max(0, queue)));
+        }
+        admissions = this.classes;
+        ConcurrentLog.info("SERVER", "YaCyQoSFilter: admission control for " + this.classes.keySet());
+    }
+
+    /**
+     * @return the admission control of all request classes with a concurrency limit
+     */
+    public static Collection<Admission> admissions() {
+        return admissions.values();
+    }
 
     /**
-     * set priority for localhost to max
-     * @param request
-     * @return priority
+     * assign a request to a class
+     * @param path the path of the request within the context
+     * @param local true if the request comes from localhost; only pages of no other class are then admin requests
+     * @return the request class
      */
+    public static RequestClass classify(final String path, final boolean local) {
+        if (path.contains("_p.")) return RequestClass.ADMIN;
+        if (path.startsWith("/yacy/") || path.startsWith("/solr/")) return RequestClass.P2P;
+        if (path.equals("/yacysearch.sse")) return RequestClass.STREAM;
+        if (path.startsWith("/yacysearch") || path.startsWith("/suggest.") || path.startsWith("/yacyinteractive.")
+                || path.startsWith("/gsa/") || path.startsWith("/opensearchdescription.")) return RequestClass.SEARCH;
+        if (path.startsWith("/api/")) return RequestClass.API;
+        if (path.equals("/proxy") || path.startsWith("/proxy.")) return RequestClass.PROXY;
+        return local ? RequestClass.ADMIN : RequestClass.OTHER;
+    }
+
     @Override
-    protected int getPriority(ServletRequest request) {
-        if (request.getServerName().equalsIgnoreCase(Domains.LOCALHOST)) {
-            return 10; // highest priority for "localhost"
-        } else if (Domains.isLocalhost(request.getRemoteAddr())) {
-            return 9;
-        } else {
-            return super.getPriority(request); // standard: authenticated = 2, other = 1 or 0
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+        final Object state = request.getAttribute(STATE);
+        if (STATE_ADMITTED.equals(state)) {
+            // another dispatch of a request which has been admitted already
+            chain.doFilter(request, response);
+            return;
+        }
+        final HttpServletRequest httpRequest = (HttpServletRequest) request;
+        final String path = httpRequest.getServletPath() + (httpRequest.getPathInfo() == null ? "" : httpRequest.getPathInfo());
+        final Admission admission = this.classes.get(classify(path, Domains.isLocalhost(request.getRemoteAddr())));
+        if (admission == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (state == null) {
+            request.setAttribute(START, Long.valueOf(System.currentTimeMillis()));
+            if (!admission.tryAcquire()) {
+                if (request.isAsyncSupported()) {
+                    if (!admission.reserveQueue()) {
+                        reject(response);
+                        return;
+                    }
+                    // suspend the request until a pass is handed over or the timeout is reached
+                    request.setAttribute(STATE, STATE_QUEUED);
+                    final AsyncContext context = request.startAsync();
+                    context.setTimeout(this.timeout);
+                    final SuspendedRequest waiter = new SuspendedRequest(context);
+                    context.addListener(new TimeoutListener(admission, waiter));
+                    admission.enqueue(waiter);
+                    return;
+                }
+                // the request blocks its thread, the number of such requests is limited for all classes together
+                if (!this.blocked.tryAcquire()) {
+                    admission.rejected.incrementAndGet();
+                    reject(response);
+                    return;
+                }
+                try {
+                    if (!admission.tryAcquire(this.timeout)) {
+                        reject(response);
+                        return;
+                    }
+                } catch (final InterruptedException e) {
+                    reject(response);
+                    return;
+                } finally {
+                    this.blocked.release();
+                }
+            }
+        } else if (!STATE_RESUMED.equals(state)) {
+            // the request waited too long
+            reject(response);
+            return;
+        }
+
+        // the request has a pass, either at once or handed over after a suspension
+        request.setAttribute(STATE, STATE_ADMITTED);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            final Object start = request.getAttribute(START);
+            if (start instanceof Long) admission.finished(System.currentTimeMillis() - ((Long) start).longValue());
+            admission.release();
+        }
+    }
+
+    private void reject(final ServletResponse response) throws IOException {
+        final HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.setHeader(HeaderFramework.RETRY_AFTER, Integer.toString(this.retryAfter));
+        httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    /** dispatches a suspended request again when it waited too long, the dispatch is then rejected; removes broken requests from the queue */
+    private static class TimeoutListener implements AsyncListener {
+        private final Admission admission;
+        private final Waiter waiter;
+
+        private TimeoutListener(final Admission admission, final Waiter waiter) {
+            this.admission = admission;
+            this.waiter = waiter;
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) throws IOException {
+            final AsyncContext context = event.getAsyncContext();
+            if (this.admission.timeout(this.waiter)) {
+                context.getRequest().setAttribute(STATE, STATE_TIMEOUT);
+                context.dispatch();
+            }
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) throws IOException {
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) throws IOException {
+            this.admission.remove(this.waiter);
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event) throws IOException {
         }
     }
+
+    @Override
+    public void destroy() {
+        admissions = Collections.emptyMap();
+    }
 }
@@ -27,14 +27,17 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -726,84 +729,142 @@ public class URIMetadataNode extends SolrDocument /* implements Comparable<URIMe
         }
     }
 
-    protected StringBuilder corePropList() {
-        // generate a parseable string; this is a simple property-list
-        final StringBuilder s = new StringBuilder(300);
+    /**
+     * create an entry from transport properties with plain values as produced by {@link #transportProperties(String)}
+     * @param properties the property names and their plain (not encoded) values
+     * @param collection
+     * @return the entry or null if the properties are not valid
+     */
+    public static URIMetadataNode importEntry(final Map<String, String> properties, String collection) {
+        final Properties prop = new Properties();
+        for (final Map.Entry<String, String> entry: properties.entrySet()) {
+            // mark values which are encoded in the text form as plain values
+            prop.setProperty(entry.getKey(), ENCODED_PROPERTIES.contains(entry.getKey()) ? "p|" + entry.getValue() : entry.getValue());
+        }
+        try {
+            return new URIMetadataNode(prop, collection);
+        } catch (final kelondroException | MalformedURLException e) {
+            // wrong format
+            ConcurrentLog.severe("URIMetadataNode", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * the names of transport properties which are encoded with {@link crypt#simpleEncode(String)} in the text form
+     */
+    public static final Set<String> ENCODED_PROPERTIES = Collections.unmodifiableSet(new HashSet<String>(
+            Arrays.asList("url", "descr", "author", "tags", "publisher", "mime", "favicon", "snippet")));
+
+    /**
+     * generate the properties to transport the data over p2p connections.
+     * The values are not encoded, see {@link #ENCODED_PROPERTIES} for the values which are encoded in the text form.
+     * @param snippet an optional snippet to be included or null
+     * @return the properties in a stable order or null if the properties cannot be generated
+     */
+    public LinkedHashMap<String, String> transportProperties(final String snippet) {
+        final LinkedHashMap<String, String> p = new LinkedHashMap<String, String>();
 
         // create new formatters to make concurrency possible
         final GenericFormatter formatter = new GenericFormatter(GenericFormatter.FORMAT_SHORT_DAY, GenericFormatter.time_minute);
 
         try {
-            s.append("hash=").append(ASCII.String(this.hash()));
-            s.append(",url=").append(crypt.simpleEncode(this.url().toNormalform(true)));
-            s.append(",descr=").append(crypt.simpleEncode(this.dc_title()));
-            s.append(",author=").append(crypt.simpleEncode(this.dc_creator()));
-            s.append(",tags=").append(crypt.simpleEncode(Tagging.cleanTagFromAutotagging(this.dc_subject())));
-            s.append(",publisher=").append(crypt.simpleEncode(this.dc_publisher()));
-            s.append(",lat=").append(this.lat());
-            s.append(",lon=").append(this.lon());
-            s.append(",mod=").append(formatter.format(this.moddate()));
-            s.append(",load=").append(formatter.format(this.loaddate()));
-            s.append(",fresh=").append(formatter.format(this.freshdate()));
-            s.append(",referrer=").append(this.referrerHash() == null ? "" : ASCII.String(this.referrerHash()));
-            //s.append(",md5=").append(this.md5()); // md5 never calculated / not used, also removed from this(prop) 2015-11-27
-            s.append(",size=").append(this.filesize());
-            s.append(",wc=").append(this.wordCount());
+            p.put("hash", ASCII.String(this.hash()));
+            p.put("url", this.url().toNormalform(true));
+            p.put("descr", this.dc_title());
+            p.put("author", this.dc_creator());
+            p.put("tags", Tagging.cleanTagFromAutotagging(this.dc_subject()));
+            p.put("publisher", this.dc_publisher());
+            p.put("lat", Double.toString(this.lat()));
+            p.put("lon", Double.toString(this.lon()));
+            p.put("mod", formatter.format(this.moddate()));
+            p.put("load", formatter.format(this.loaddate()));
+            p.put("fresh", formatter.format(this.freshdate()));
+            p.put("referrer", this.referrerHash() == null ? "" : ASCII.String(this.referrerHash()));
+            //p.put("md5", this.md5()); // md5 never calculated / not used, also removed from this(prop) 2015-11-27
+            p.put("size", Long.toString(this.filesize()));
+            p.put("wc", Integer.toString(this.wordCount()));
             final char dt = this.doctype();
-            s.append(",dt=").append(dt);
+            p.put("dt", Character.toString(dt));
             // if default revert from doctype to mime doesn't match actual mime,
             // include mime in the properties
             final String mime = this.mime();
             if (mime != null) {
                 final String[] mimex = Response.doctype2mime(null,dt);
                 if (!mime.equals(mimex[0])) { // include mime if not equal to recalc by dt (to make sure correct mime is recorded)
-                    s.append(",mime=").append(crypt.simpleEncode(mime));
+                    p.put("mime", mime);
                 }
             }
-            s.append(",flags=").append(this.flags().exportB64());
-            s.append(",lang=").append(this.language());
-            s.append(",llocal=").append(this.llocal());
-            s.append(",lother=").append(this.lother());
-            s.append(",limage=").append(this.limage());
-            s.append(",laudio=").append(this.laudio());
-            s.append(",lvideo=").append(this.lvideo());
-            s.append(",lapp=").append(this.lapp());
-            s.append(",score=").append(Long.toString(this.score()));
+            p.put("flags", this.flags().exportB64());
+            p.put("lang", this.language());
+            p.put("llocal", Integer.toString(this.llocal()));
+            p.put("lother", Integer.toString(this.lother()));
+            p.put("limage", Integer.toString(this.limage()));
+            p.put("laudio", Integer.toString(this.laudio()));
+            p.put("lvideo", Integer.toString(this.lvideo()));
+            p.put("lapp", Integer.toString(this.lapp()));
+            p.put("score", Long.toString(this.score()));
             if (this.word() != null) {
                 // append also word properties
                 final String wprop = this.word().toPropertyForm();
-                s.append(",wi=").append(Base64Order.enhancedCoder.encodeString(wprop));
+                p.put("wi", Base64Order.enhancedCoder.encodeString(wprop));
             }
             /* Add favicon URL with preferred size being 16x16 pixels if known */
             if(!this.getIcons().isEmpty()) {
             	IconEntry faviconEntry = this.getFavicon(new Dimension(16, 16));
             	if(faviconEntry != null) {
-            		s.append(",favicon=").append(crypt.simpleEncode(faviconEntry.getUrl().toNormalform(false)));
+            		p.put("favicon", faviconEntry.getUrl().toNormalform(false));
             	}
             }
-            return s;
+            if (snippet != null) p.put("snippet", snippet);
+            return p;
         } catch (final Throwable e) {
             ConcurrentLog.logException(e);
             return null;
         }
     }
 
+    /**
+     * @return the snippet which is transported with {@link #resource()} or null if no snippet exists
+     */
+    public String resourceSnippet() {
+        if ((this.textSnippet == null) || (!this.textSnippet.exists())) {
+            return null;
+        }
+        return this.textSnippet.getLineRaw();
+    }
+
+    protected StringBuilder corePropList() {
+        return corePropList(null);
+    }
+
+    private StringBuilder corePropList(final String snippet) {
+        // generate a parseable string; this is a simple property-list
+        final LinkedHashMap<String, String> p = transportProperties(snippet);
+        if (p == null) return null;
+        final StringBuilder s = new StringBuilder(300 + (snippet == null ? 0 : snippet.length() * 2));
+        for (final Map.Entry<String, String> entry: p.entrySet()) {
+            if (s.length() > 0) s.append(',');
+            final String value = entry.getValue();
+            s.append(entry.getKey()).append('=');
+            s.append(ENCODED_PROPERTIES.contains(entry.getKey()) ? crypt.simpleEncode(value == null ? "" : value) : value);
+        }
+        return s;
+    }
+
     /**
      * the toString format to transport the data over p2p connections.
      */
     public String toString(String snippet) {
         // add information needed for remote transport
-        final StringBuilder core = corePropList();
+        final StringBuilder core = corePropList(snippet);
         if (core == null)
             return null;
 
-        core.ensureCapacity(core.length() + snippet.length() * 2);
         core.insert(0, '{');
-        core.append(",snippet=").append(crypt.simpleEncode(snippet));
         core.append('}');
 
         return core.toString();
-        //return "{" + core + ",snippet=" + crypt.simpleEncode(snippet) + "}";
     }
 
 
@@ -1003,10 +1064,11 @@ public class URIMetadataNode extends SolrDocument /* implements Comparable<URIMe
      */
     public String resource() {
         // generate transport resource
-        if ((this.textSnippet == null) || (!this.textSnippet.exists())) {
+        final String snippet = resourceSnippet();
+        if (snippet == null) {
             return this.toString();
         }
-        return this.toString(this.textSnippet.getLineRaw());
+        return this.toString(snippet);
     }
     
     @Override
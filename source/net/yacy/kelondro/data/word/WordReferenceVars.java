@@ -29,8 +29,10 @@ package net.yacy.kelondro.data.word;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
 
 import net.yacy.cora.date.MicroDate;
 import net.yacy.cora.document.encoding.ASCII;
@@ -537,120 +539,81 @@ public class WordReferenceVars extends AbstractReference implements WordReferenc
     }
 
     /**
-     * transform a reference container into a stream of parsed entries
+     * decode a reference container into an array of parsed entries.
+     * Large containers are decoded in parallel slices on the shared {@link #pool}; no threads are created here.
      * @param container
-     * @return a blocking queue filled with WordReferenceVars that is still filled when the object is returned
+     * @param maxtime the maximum time for decoding; entries which could not be decoded in time are omitted
+     * @param local true if the container was retrieved from the local index
+     * @return the decoded entries
      */
-    public static BlockingQueue<WordReferenceVars> transform(final ReferenceContainer<WordReference> container, final long maxtime, final boolean local) {
-    	final LinkedBlockingQueue<WordReferenceVars> vars = new LinkedBlockingQueue<WordReferenceVars>();
-    	if (container.size() <= 100) {
-    	    // transform without concurrency to omit thread creation overhead
-    	    for (final Row.Entry entry: container) {
-    	        try {
-    	            vars.put(new WordReferenceVars(new WordReferenceRow(entry), local));
-    	        } catch (final InterruptedException e) {}
-    	    }
-            try {
-                vars.put(WordReferenceVars.poison);
-            } catch (final InterruptedException e) {}
-            return vars;
-    	}
-    	final Thread distributor = new TransformDistributor(container, vars, maxtime, local);
-    	distributor.start();
-
-    	// return the resulting queue while the processing queues are still working
-    	return vars;
+    public static WordReferenceVars[] decode(final ReferenceContainer<WordReference> container, final long maxtime, final boolean local) {
+        final int size = container.size();
+        // fetching the rows is cheap (no cloning) but synchronized in the container, so it is done here in one go
+        final Row.Entry[] rows = new Row.Entry[size];
+        for (int p = 0; p < size; p++) rows[p] = container.get(p, false);
+        final WordReferenceVars[] vars = new WordReferenceVars[size];
+        final long timeout = maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + maxtime;
+        final DecodeTask task = new DecodeTask(rows, vars, 0, size, timeout, local);
+        if (size <= batchSize) task.compute(); else pool.invoke(task);
+
+        // remove the gaps which appear if the decoding was terminated by a timeout
+        int c = 0;
+        for (int p = 0; p < size; p++) if (vars[p] != null) vars[c++] = vars[p];
+        if (c == size) return vars;
+        ConcurrentLog.warn("WordReferenceVars", "decoding of row entries ended with timeout = " + maxtime + ", decoded " + c + " of " + size);
+        final WordReferenceVars[] v = new WordReferenceVars[c];
+        System.arraycopy(vars, 0, v, 0, c);
+        return v;
     }
 
-    private static class TransformDistributor extends Thread {
+    /**
+     * the number of entries which are processed in one task without splitting
+     */
+    public static final int batchSize = 256;
 
-    	private ReferenceContainer<WordReference> container;
-    	private BlockingQueue<WordReferenceVars> out;
-    	private long maxtime;
-    	private final boolean local;
-    	private TransformDistributor(final ReferenceContainer<WordReference> container, final BlockingQueue<WordReferenceVars> out, final long maxtime, final boolean local) {
-    		super("WordReferenceVars.TransformDistributor");
-    		this.container = container;
-    		this.out = out;
-    		this.maxtime = maxtime;
-    		this.local = local;
-    	}
+    /**
+     * a shared pool for data-parallel processing of decoded references
+     */
+    public static final ForkJoinPool pool = new ForkJoinPool(WorkflowProcessor.availableCPU, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+        @Override
+        public ForkJoinWorkerThread newThread(final ForkJoinPool p) {
+            final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("WordReferenceVars.pool-" + t.getPoolIndex());
+            return t;
+        }
+    }, null, false);
+
+    private static class DecodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 4143305413287453924L;
+        private final Row.Entry[] in;
+        private final WordReferenceVars[] out;
+        private final int from, to;
+        private final long timeout;
+        private final boolean local;
+
+        private DecodeTask(final Row.Entry[] in, final WordReferenceVars[] out, final int from, final int to, final long timeout, final boolean local) {
+            this.in = in;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.timeout = timeout;
+            this.local = local;
+        }
 
         @Override
-    	public void run() {
-        	// start the transformation threads
-        	final int cores0 = Math.min(WorkflowProcessor.availableCPU, this.container.size() / 100) + 1;
-        	final TransformWorker[] worker = new TransformWorker[cores0];
-        	for (int i = 0; i < cores0; i++) {
-        		worker[i] = new TransformWorker(this.out, this.maxtime, this.local);
-        		worker[i].start();
-        	}
-        	long timeout = this.maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + this.maxtime;
-
-        	// fill the queue
-        	int p = this.container.size();
-    		while (p > 0) {
-    			p--;
-				worker[p % cores0].add(this.container.get(p, false));
-				if (p % 100 == 0 && System.currentTimeMillis() > timeout) {
-				    ConcurrentLog.warn("TransformDistributor", "distribution of WordReference entries to worker queues ended with timeout = " + this.maxtime);
-				    break;
-				}
+        protected void compute() {
+            if (this.to - this.from > batchSize) {
+                final int mid = (this.from + this.to) >>> 1;
+                invokeAll(new DecodeTask(this.in, this.out, this.from, mid, this.timeout, this.local),
+                          new DecodeTask(this.in, this.out, mid, this.to, this.timeout, this.local));
+                return;
             }
-
-        	// insert poison to stop the queues
-        	for (int i = 0; i < cores0; i++) {
-        	    worker[i].add(WordReferenceRow.poisonRowEntry);
-        	}
-
-        	// wait for the worker to terminate because we want to place a poison entry into the out queue afterwards
-        	for (int i = 0; i < cores0; i++) {
-                try {
-                    worker[i].join();
-                } catch (final InterruptedException e) {
-                }
+            for (int p = this.from; p < this.to; p++) {
+                this.out[p] = new WordReferenceVars(new WordReferenceRow(this.in[p]), this.local);
+                if (p % 100 == 0 && System.currentTimeMillis() > this.timeout) break;
             }
-
-        	this.out.add(WordReferenceVars.poison);
-    	}
-    }
-
-    private static class TransformWorker extends Thread {
-
-    	private BlockingQueue<Row.Entry> in;
-    	private BlockingQueue<WordReferenceVars> out;
-    	private long maxtime;
-    	private final boolean local;
-
-    	private TransformWorker(final BlockingQueue<WordReferenceVars> out, final long maxtime, final boolean local) {
-    		super("WordReferenceVars.TransformWorker");
-    		this.in = new LinkedBlockingQueue<Row.Entry>();
-    		this.out = out;
-    		this.maxtime = maxtime;
-    		this.local = local;
-    	}
-
-    	private void add(final Row.Entry entry) {
-    		try {
-				this.in.put(entry);
-			} catch (final InterruptedException e) {
-			}
-    	}
-
-        @Override
-    	public void run() {
-        	Row.Entry entry;
-        	long timeout = this.maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + this.maxtime;
-    		try {
-				while ((entry = this.in.take()) != WordReferenceRow.poisonRowEntry) {
-				    this.out.put(new WordReferenceVars(new WordReferenceRow(entry), local));
-				    if (System.currentTimeMillis() > timeout) {
-	                    ConcurrentLog.warn("TransformWorker", "normalization of row entries from row to vars ended with timeout = " + this.maxtime);
-				        break;
-				    }
-				}
-			} catch (final InterruptedException e) {}
-    	}
+        }
     }
 
 }
@@ -33,6 +33,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.order.CloneableIterator;
@@ -69,7 +70,8 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
     // class variables
     private final ReferenceContainerArray<ReferenceType> array;
-    private       ReferenceContainerCache<ReferenceType> ram;
+    private volatile ReferenceContainerCache<ReferenceType> ram;
+    private final ReentrantReadWriteLock                 ramLock; // writers share the read lock, the exchange of the ram cache for a dump takes the write lock
     private final ComparableARC<byte[], Integer>         countCache;
     private       int                                    maxRamEntries;
     private       IODispatcher                           merger; // pointer to shared merger
@@ -98,6 +100,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         this.merger = merger;
         this.array = new ReferenceContainerArray<ReferenceType>(cellPath, prefix, factory, termOrder, termSize);
         this.ram = new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize);
+        this.ramLock = new ReentrantReadWriteLock();
         this.countCache = new ComparableARC<byte[], Integer>(1000, termOrder);
         this.maxRamEntries = maxRamEntries;
         this.lastCleanup = System.currentTimeMillis();
@@ -149,10 +152,14 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
                         ReferenceContainerCache<ReferenceType> ramdump;
                         final ByteOrder termOrder = IndexCell.this.ram.termKeyOrdering();
                         final int termSize = IndexCell.this.ram.termKeyLength();
-                        synchronized (this) {
+                        // the write lock waits until all concurrent add operations on the old cache are finished
+                        IndexCell.this.ramLock.writeLock().lock();
+                        try {
                             ramdump = IndexCell.this.ram;
                             // get a fresh ram cache
                             IndexCell.this.ram = new ReferenceContainerCache<ReferenceType>(IndexCell.this.factory, termOrder, termSize);
+                        } finally {
+                            IndexCell.this.ramLock.writeLock().unlock();
                         }
                         // WARNING : if this cell is queried before this dump termination, terms are no longer in the cache and would therefore not be found
                         // dump the buffer
@@ -266,12 +273,14 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     }
 
     /**
-     * add entries to the cell: this adds the new entries always to the RAM part, never to BLOBs
+     * add entries to the cell: this adds the new entries always to the RAM part, never to BLOBs.
+     * Many threads may add concurrently; the RAM cache serializes only writers of the same term hash partition.
      * @throws IOException
      * @throws SpaceExceededException
      */
     @Override
     public void add(final ReferenceContainer<ReferenceType> newEntries) throws IOException, SpaceExceededException {
+        this.ramLock.readLock().lock();
         try {
             this.ram.add(newEntries);
             final long t = System.currentTimeMillis();
@@ -281,12 +290,14 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         } catch (final SpaceExceededException e) {
             EventTracker.update(EventTracker.EClass.WORDCACHE, Long.valueOf(this.ram.size()), true);
             this.ram.add(newEntries);
+        } finally {
+            this.ramLock.readLock().unlock();
         }
-
     }
 
     @Override
     public void add(final byte[] termHash, final ReferenceType entry) throws IOException, SpaceExceededException {
+        this.ramLock.readLock().lock();
         try {
             this.ram.add(termHash, entry);
             final long t = System.currentTimeMillis();
@@ -296,6 +307,8 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         } catch (final SpaceExceededException e) {
             EventTracker.update(EventTracker.EClass.WORDCACHE, Long.valueOf(this.ram.size()), true);
             this.ram.add(termHash, entry);
+        } finally {
+            this.ramLock.readLock().unlock();
         }
     }
 
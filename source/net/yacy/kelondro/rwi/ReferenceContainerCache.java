@@ -66,7 +66,10 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
     private final ByteOrder termOrder;
     private final ContainerOrder<ReferenceType> containerOrder;
     private ConcurrentHashMap<ByteArray, ReferenceContainer<ReferenceType>> cache;
+    private final Object[] partitionLocks; // write locks partitioned by term hash, so concurrent writers of different terms do not block each other
 
+    /** the number of partitions of the write locks */
+    private static final int lockPartitions = 64;
     
     /**
      * open an existing heap file in undefined mode
@@ -83,6 +86,17 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         this.termSize = termSize;
         this.containerOrder = new ContainerOrder<ReferenceType>(this.termOrder);
         this.cache = new ConcurrentHashMap<ByteArray, ReferenceContainer<ReferenceType>>();
+        this.partitionLocks = new Object[lockPartitions];
+        for (int i = 0; i < lockPartitions; i++) this.partitionLocks[i] = new Object();
+    }
+
+    /**
+     * get the lock for all modifications of the container of a given term
+     * @param termHash
+     * @return the lock of the partition of the term
+     */
+    private Object lock(final ByteArray termHash) {
+        return this.partitionLocks[(termHash.hashCode() & 0x7fffffff) % lockPartitions];
     }
 
     public Row rowdef() {
@@ -511,7 +525,7 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         assert this.cache != null;
         if (this.cache == null) return false;
         final ByteArray tha = new ByteArray(termHash);
-        synchronized (this.cache) {
+        synchronized (lock(tha)) {
 	        final ReferenceContainer<ReferenceType> c = this.cache.get(tha);
 	        if (c != null && c.delete(urlHashBytes)) {
 	            // removal successful
@@ -533,7 +547,7 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         if (urlHashes.isEmpty()) return 0;
         final ByteArray tha = new ByteArray(termHash);
         int count;
-        synchronized (this.cache) {
+        synchronized (lock(tha)) {
             final ReferenceContainer<ReferenceType> c = this.cache.get(tha);
             if ((c != null) && ((count = c.removeEntries(urlHashes)) > 0)) {
                 // removal successful
@@ -559,7 +573,7 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         // put new words into cache
         final ByteArray tha = new ByteArray(container.getTermHash());
         int added = 0;
-        synchronized (this.cache) {
+        synchronized (lock(tha)) {
             ReferenceContainer<ReferenceType> entries = this.cache.get(tha); // null pointer exception? wordhash != null! must be cache==null
             if (entries == null) {
                 entries = container.topLevelClone();
@@ -581,29 +595,14 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         if (this.cache == null) return;
         final ByteArray tha = new ByteArray(termHash);
 
-        // first access the cache without synchronization
-        ReferenceContainer<ReferenceType> container = this.cache.remove(tha);
-        if (container == null) container = new ReferenceContainer<ReferenceType>(this.factory, termHash, 1);
-        container.put(newEntry);
-
-        // synchronization: check if the entry is still empty and set new value
-        final ReferenceContainer<ReferenceType> container0 = this.cache.put(tha, container);
-        if (container0 != null) synchronized (this.cache) {
-            // no luck here, we get a lock exclusively to sort this out
-            final ReferenceContainer<ReferenceType> containerNew = this.cache.put(tha, container0);
-            if (containerNew == null) return;
-            if (container0 == containerNew) {
-                // The containers are the same, so nothing needs to be done
-                return;
-            }
-            // Now merge the smaller container into the lager.
-            // The other way around can become very slow
-            if (container0.size() >= containerNew.size()) {
-                container0.putAllRecent(containerNew);
-       	        this.cache.put(tha, container0);
-            } else {
-                containerNew.putAllRecent(container0);
+        synchronized (lock(tha)) {
+            final ReferenceContainer<ReferenceType> container = this.cache.get(tha);
+            if (container == null) {
+                final ReferenceContainer<ReferenceType> containerNew = new ReferenceContainer<ReferenceType>(this.factory, termHash, 1);
+                containerNew.put(newEntry);
                 this.cache.put(tha, containerNew);
+            } else {
+                container.put(newEntry);
             }
         }
     }
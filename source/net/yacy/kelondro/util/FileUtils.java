@@ -45,6 +45,8 @@ import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -889,11 +891,34 @@ public final class FileUtils {
     }
 
     /**
+     * replace a file; the file is replaced atomically if the file system supports that,
+     * so that readers see either the old or the new file but never a missing or partial one.
+     * A failed atomic replacement, i.e. while another process has opened the target file on Windows,
+     * is tried again a few times before the file is replaced with delete and rename.
      * @param from
      * @param to
      * @throws IOException
      */
     private static void forceMove(final File from, final File to) throws IOException {
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            try {
+                java.nio.file.Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            } catch (final AtomicMoveNotSupportedException e) {
+                break; // fall back to delete and rename
+            } catch (final IOException e) {
+                if (attempt == 3) {
+                    ConcurrentLog.warn("FileUtils", "could not replace " + to + " atomically: " + e.getMessage());
+                    break;
+                }
+                try {
+                    Thread.sleep(50 * attempt);
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
         if ( !(to.delete() && from.renameTo(to)) ) {
             // do it manually
             Files.copy(from, to);
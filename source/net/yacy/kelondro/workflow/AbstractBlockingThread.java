@@ -54,6 +54,7 @@ public abstract class AbstractBlockingThread<J extends WorkflowJob> extends Abst
         long timestamp;
         long memstamp0, memstamp1;
         long busyCycles = 0;
+        boolean retired = false;
 
         while (this.running) {
             try {
@@ -83,6 +84,11 @@ public abstract class AbstractBlockingThread<J extends WorkflowJob> extends Abst
                 if (out != null) {
                     this.manager.passOn(out);
                 }
+                // terminate if the concurrency of the manager has been reduced
+                if (this.manager.retire()) {
+                    retired = true;
+                    this.running = false;
+                }
                 // do memory and busy/idle-count/time monitoring
                 memstamp1 = MemoryControl.used();
                 if (memstamp1 >= memstamp0) {
@@ -108,7 +114,7 @@ public abstract class AbstractBlockingThread<J extends WorkflowJob> extends Abst
                 busyCycles++;
             }
         }
-        this.manager.decExecutors();
+        if (!retired) this.manager.decExecutors();
         this.close();
         logSystem("thread '" + this.getName() + "' terminated.");
     }
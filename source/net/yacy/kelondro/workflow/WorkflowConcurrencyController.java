@@ -0,0 +1,126 @@
+/**
+ *  WorkflowConcurrencyController
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.workflow;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.Memory;
+import net.yacy.kelondro.util.MemoryControl;
+
+/**
+ * A controller which adjusts the concurrency of all adaptive {@link WorkflowProcessor} stages.
+ * For each stage the arrival rate and the service time of the jobs since the last run are measured.
+ * By Little's law the average number of jobs in service is arrival rate * service time; the target
+ * concurrency is this number with some headroom plus the number of threads which are needed to process
+ * the queue backlog within one control interval. The concurrency is not increased while the system load
+ * is above a limit or the memory is short, and it is changed by at most a quarter per step.
+ */
+public class WorkflowConcurrencyController implements Runnable {
+
+    private static final ConcurrentLog log = new ConcurrentLog("WorkflowConcurrencyController");
+
+    /** factor on the Little's law concurrency to handle variations of the arrival rate */
+    private static final double HEADROOM = 1.25d;
+
+    /** the measurements of a stage at the last run: time, enqueue count, exec count, exec time */
+    private final Map<WorkflowProcessor<?>, long[]> snapshots;
+    private final double maxLoad;
+
+    /**
+     * @param maxLoad the system load average above which no stage gets more threads
+     */
+    public WorkflowConcurrencyController(final double maxLoad) {
+        this.snapshots = new IdentityHashMap<WorkflowProcessor<?>, long[]>();
+        this.maxLoad = maxLoad;
+    }
+
+    @Override
+    public synchronized void run() {
+        final long now = System.currentTimeMillis();
+        final double load = Memory.load();
+        final boolean overload = (this.maxLoad > 0 && load > this.maxLoad) || MemoryControl.shortStatus();
+        final Iterator<WorkflowProcessor<?>> i = WorkflowProcessor.processes();
+        while (i.hasNext()) {
+            final WorkflowProcessor<?> p;
+            try {
+                p = i.next();
+            } catch (final RuntimeException e) {
+                break; // the process list was changed during a shutdown
+            }
+            if (!p.isAdaptive()) continue;
+            final long[] current = new long[]{now, p.getEnqueueCount(), p.getExecCount(), p.getExecTime()};
+            final long[] last = this.snapshots.put(p, current);
+            if (last == null) continue;
+            final long interval = current[0] - last[0];
+            final long arrivals = current[1] - last[1];
+            final long done = current[2] - last[2];
+            final long busy = current[3] - last[3];
+            if (interval <= 0) continue;
+            if (done <= 0 && p.getQueueSize() == 0) {
+                p.setControlDecision("idle");
+                continue;
+            }
+            // the service time is unknown if no job finished; then the stage is blocked by jobs which run the whole interval
+            final double serviceTime = done > 0 ? (double) busy / done : (double) interval;
+            final int concurrency = p.getMaxConcurrency();
+            int target = target(arrivals, serviceTime, p.getQueueSize(), interval);
+            final String reason;
+            if (target > concurrency && overload) {
+                target = concurrency;
+                reason = "hold (load " + String.format("%.1f", load) + ")";
+            } else {
+                target = step(concurrency, target);
+                reason = target > concurrency ? "grow" : target < concurrency ? "shrink" : "hold";
+            }
+            final int result = p.setConcurrency(target);
+            p.setControlDecision(reason + ": " + concurrency + " -> " + result + " threads; rate " + String.format("%.1f", arrivals * 1000.0d / interval) + "/s, service " + String.format("%.0f", serviceTime) + " ms, queue " + p.getQueueSize());
+            if (result != concurrency) log.info(p.getName() + ": " + p.getControlDecision());
+        }
+    }
+
+    /**
+     * compute the target concurrency of a stage
+     * @param arrivals the number of jobs which arrived within the interval
+     * @param serviceTime the average processing time of a job in milliseconds
+     * @param queueSize the number of waiting jobs
+     * @param interval the length of the measurement interval in milliseconds
+     * @return the number of threads which are needed to process the arriving jobs and the backlog within one interval
+     */
+    public static int target(final long arrivals, final double serviceTime, final int queueSize, final long interval) {
+        final double rate = (double) arrivals / interval; // jobs per millisecond
+        final double inService = rate * serviceTime; // Little's law
+        final double backlog = queueSize * serviceTime / interval;
+        return Math.max(1, (int) Math.ceil(inService * HEADROOM + backlog));
+    }
+
+    /**
+     * limit a concurrency change to a quarter of the current concurrency, at least one thread;
+     * the concurrency is only decreased if the target is more than one thread below to avoid oscillation
+     */
+    public static int step(final int concurrency, final int target) {
+        final int maxStep = Math.max(1, concurrency / 4);
+        if (target > concurrency) return Math.min(target, concurrency + maxStep);
+        if (target < concurrency - 1) return Math.max(target, concurrency - maxStep);
+        return concurrency;
+    }
+}
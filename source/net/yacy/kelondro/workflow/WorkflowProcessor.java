@@ -32,6 +32,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.kelondro.util.NamePrefixThreadFactory;
@@ -46,12 +47,15 @@ public class WorkflowProcessor<J extends WorkflowJob> {
     private AtomicInteger executorRunning;
     private BlockingQueue<J> input;
     private final WorkflowProcessor<J> output;
-    private final int maxpoolsize;
+    private volatile int concurrency;
+    private int minConcurrency, maxConcurrency;
+    private volatile String controlDecision;
     private final WorkflowTask<J> task;
     private final String processName, description;
     private final String[] childs;
     private long blockTime, execTime, passOnTime;
     private long execCount;
+    private final AtomicLong enqueueCount;
 
     public WorkflowProcessor(
             final String name, final String description, final String[] childnames,
@@ -63,7 +67,10 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         this.description = description;
         this.task = task;
         this.childs = childnames;
-        this.maxpoolsize = maxpoolsize;
+        this.concurrency = maxpoolsize;
+        this.minConcurrency = maxpoolsize;
+        this.maxConcurrency = maxpoolsize;
+        this.controlDecision = "";
         this.input = new LinkedBlockingQueue<J>(Math.max(maxpoolsize + 1, inputQueueSize));
         this.output = output;
         this.executor = Executors.newCachedThreadPool(new NamePrefixThreadFactory(name));
@@ -79,6 +86,7 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         this.execTime = 0;
         this.passOnTime = 0;
         this.execCount = 0;
+        this.enqueueCount = new AtomicLong(0);
 
         // store this object for easy monitoring
         processMonitor.add(this);
@@ -102,8 +110,65 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         return this.input.size() + this.input.remainingCapacity();
     }
 
+    /**
+     * @return the current maximum number of threads; this may be changed by the {@link WorkflowConcurrencyController}
+     */
     public int getMaxConcurrency() {
-        return this.maxpoolsize;
+        return this.concurrency;
+    }
+
+    /**
+     * set the bounds for the adjustment of the concurrency by the {@link WorkflowConcurrencyController};
+     * if both bounds are equal, the concurrency is fixed
+     */
+    public synchronized void setConcurrencyBounds(final int min, final int max) {
+        this.minConcurrency = Math.max(1, min);
+        this.maxConcurrency = Math.max(this.minConcurrency, max);
+        setConcurrency(this.concurrency);
+    }
+
+    public int getMinConcurrencyBound() {
+        return this.minConcurrency;
+    }
+
+    public int getMaxConcurrencyBound() {
+        return this.maxConcurrency;
+    }
+
+    public boolean isAdaptive() {
+        return this.maxConcurrency > this.minConcurrency;
+    }
+
+    /**
+     * set the maximum number of threads within the concurrency bounds; surplus threads terminate after their current job
+     * @return the new concurrency
+     */
+    public synchronized int setConcurrency(final int concurrency) {
+        this.concurrency = Math.max(this.minConcurrency, Math.min(this.maxConcurrency, concurrency));
+        return this.concurrency;
+    }
+
+    /**
+     * @return a description of the latest concurrency decision of the {@link WorkflowConcurrencyController}
+     */
+    public String getControlDecision() {
+        return this.controlDecision;
+    }
+
+    public void setControlDecision(final String decision) {
+        this.controlDecision = decision;
+    }
+
+    /**
+     * the retire method may only be called within the AbstractBlockingThread while loop!!
+     * @return true if the calling thread is surplus and has been removed from the executor count; it must terminate then
+     */
+    public boolean retire() {
+        int running;
+        while ((running = this.executorRunning.get()) > this.concurrency) {
+            if (this.executorRunning.compareAndSet(running, running - 1)) return true;
+        }
+        return false;
     }
     
     public int getExecutors() {
@@ -183,8 +248,9 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         while (this.input != null) {
             try {
                 this.input.put(in);
-                if (this.input.size() > this.executorRunning.get() && this.executorRunning.get() < this.maxpoolsize) synchronized (executor) {
-                    if (this.input.size() > this.executorRunning.get() && this.executorRunning.get() < this.maxpoolsize) {
+                this.enqueueCount.incrementAndGet();
+                if (this.input.size() > this.executorRunning.get() && this.executorRunning.get() < this.concurrency) synchronized (executor) {
+                    if (this.input.size() > this.executorRunning.get() && this.executorRunning.get() < this.concurrency) {
                         this.executorRunning.incrementAndGet();
                         this.executor.submit(new InstantBlockingThread<J>(this));
                     }
@@ -294,6 +360,13 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         return this.execCount;
     }
 
+    /**
+     * @return the number of jobs which have been put into the input queue
+     */
+    public long getEnqueueCount() {
+        return this.enqueueCount.get();
+    }
+
     /**
      * the passOn time is the time that a put() takes to enqueue a result value to the next queue
      * in case that the target queue is limited and may be full, this value may increase
@@ -0,0 +1,563 @@
+/**
+ *  DHTOutbox
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.index.RowSet;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceFactory;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.kelondro.util.MemoryControl;
+
+/**
+ * A durable outbox for the references which are selected for the DHT distribution.
+ * The selected containers are appended to a log for each vertical partition, together with the hashes of their
+ * target peers. For each target peer the outbox holds a queue of the records which the peer has not yet received;
+ * the head of the queue is the cursor of the peer. Received records are acknowledged in an acknowledgement file
+ * next to the log, so that after a restart only the unacknowledged records are sent again and no reference is
+ * lost or put back to the RWI index.
+ * The containers of new records are held in memory up to a limit and are read from the log otherwise. A log is
+ * rolled over when it exceeds {@link #MAX_LOG_SIZE} and is deleted when all of its records have been delivered.
+ */
+public class DHTOutbox {
+
+    /** a log is rolled over when it exceeds this size */
+    public static final long MAX_LOG_SIZE = 16L * 1024L * 1024L;
+
+    /** the references of a target are given up after this number of consecutive failed transmissions */
+    public static final int MAX_ATTEMPTS = 3;
+
+    private static final int MAGIC = 0x4F425831; // "OBX1"
+    private static final int HASH_LENGTH = Word.commonHashLength;
+    private static final int ACK_LENGTH = 8 + HASH_LENGTH;
+    private static final Pattern LOG_NAME = Pattern.compile("(\\d+)\\.(\\d+)\\.log");
+
+    /** a log file of a vertical partition with its acknowledgements */
+    private static class Log {
+        private final int partition, generation;
+        private final File file, ackFile;
+        private final FileChannel channel, ackChannel;
+        private int live; // the number of records with pending targets
+
+        private Log(final File dir, final int partition, final int generation) throws IOException {
+            this.partition = partition;
+            this.generation = generation;
+            this.file = new File(dir, partition + "." + generation + ".log");
+            this.ackFile = new File(dir, partition + "." + generation + ".ack");
+            this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.ackChannel = FileChannel.open(this.ackFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.live = 0;
+        }
+
+        private void close() {
+            try {
+                this.channel.close();
+                this.ackChannel.close();
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+        }
+
+        private void delete() {
+            close();
+            FileUtils.deletedelete(this.file);
+            FileUtils.deletedelete(this.ackFile);
+        }
+    }
+
+    /** a container in a log with the target peers which have not yet received it */
+    private static class Record {
+        private final Log log;
+        private final long offset, payloadOffset;
+        private final int payloadLength, size;
+        private final byte[] termHash;
+        private final long created;
+        private final Set<String> targets;
+        private ReferenceContainer<WordReference> container; // null if the container is not held in memory
+
+        private Record(final Log log, final long offset, final long payloadOffset, final int payloadLength, final byte[] termHash,
+                final int size, final long created, final Set<String> targets, final ReferenceContainer<WordReference> container) {
+            this.log = log;
+            this.offset = offset;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+            this.termHash = termHash;
+            this.size = size;
+            this.created = created;
+            this.targets = targets;
+            this.container = container;
+        }
+    }
+
+    /** records which are taken from the queue of a target for a transmission */
+    public static class Batch {
+        public final String target;
+        private final List<Record> records;
+        private final List<ReferenceContainer<WordReference>> containers;
+
+        private Batch(final String target) {
+            this.target = target;
+            this.records = new ArrayList<Record>();
+            this.containers = new ArrayList<ReferenceContainer<WordReference>>();
+        }
+
+        /**
+         * @return copies of the containers of the batch
+         */
+        public List<ReferenceContainer<WordReference>> containers() {
+            return this.containers;
+        }
+    }
+
+    private final File dir;
+    private final ReferenceFactory<WordReference> factory;
+    private final long memoryLimit;
+    private final Set<Log> logs; // all open logs
+    private final Map<Integer, Log> current; // the log for new records of each partition
+    private final Map<String, LinkedList<Record>> queues; // the pending records of each target
+    private final Map<String, Integer> failures; // the number of consecutive failures of each target
+    private final Set<Record> inFlight; // the records of batches which are neither acknowledged nor failed
+    private long memoryReferences; // the number of references held in memory
+    private long pendingReferences; // the number of references of records with pending targets
+
+    /**
+     * open the outbox and read the pending records of the logs in the directory
+     * @param dir the directory of the logs
+     * @param factory the factory of the references
+     * @param memoryLimit the maximum number of references which are held in memory
+     */
+    public DHTOutbox(final File dir, final ReferenceFactory<WordReference> factory, final long memoryLimit) throws IOException {
+        this.dir = dir;
+        this.factory = factory;
+        this.memoryLimit = memoryLimit;
+        this.logs = new HashSet<Log>();
+        this.current = new HashMap<Integer, Log>();
+        this.queues = new HashMap<String, LinkedList<Record>>();
+        this.failures = new HashMap<String, Integer>();
+        this.inFlight = new HashSet<Record>();
+        this.memoryReferences = 0;
+        this.pendingReferences = 0;
+        dir.mkdirs();
+        final String[] names = dir.list();
+        if (names != null) for (final String name: names) {
+            final Matcher m = LOG_NAME.matcher(name);
+            if (!m.matches()) continue;
+            final Log log = new Log(dir, Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+            this.logs.add(log);
+            replay(log);
+            final Log c = this.current.get(log.partition);
+            if (c == null || c.generation < log.generation) {
+                this.current.put(log.partition, log);
+                if (c != null) release(c);
+            } else {
+                release(log);
+            }
+        }
+        final Comparator<Record> byAge = new Comparator<Record>() {
+            @Override
+            public int compare(final Record r0, final Record r1) {
+                return Long.compare(r0.created, r1.created);
+            }
+        };
+        for (final LinkedList<Record> queue: this.queues.values()) Collections.sort(queue, byAge);
+        if (this.pendingReferences > 0) ConcurrentLog.info("DHTOutbox", "resuming " + this.pendingReferences + " references for " + this.queues.size() + " peers");
+    }
+
+    /** read the records and the acknowledgements of a log and enqueue the records with pending targets */
+    private void replay(final Log log) throws IOException {
+        final Map<Long, Set<String>> acks = new HashMap<Long, Set<String>>();
+        final long ackSize = log.ackChannel.size() / ACK_LENGTH * ACK_LENGTH;
+        final ByteBuffer ack = ByteBuffer.allocate(ACK_LENGTH);
+        for (long p = 0; p < ackSize; p += ACK_LENGTH) {
+            ack.clear();
+            readFully(log.ackChannel, ack, p);
+            ack.flip();
+            final long offset = ack.getLong();
+            final byte[] target = new byte[HASH_LENGTH];
+            ack.get(target);
+            Set<String> acked = acks.get(offset);
+            if (acked == null) {
+                acked = new HashSet<String>();
+                acks.put(offset, acked);
+            }
+            acked.add(ASCII.String(target));
+        }
+        log.ackChannel.truncate(ackSize);
+        log.ackChannel.position(ackSize);
+
+        final long size = log.channel.size();
+        long offset = 0;
+        try {
+            final ByteBuffer head = ByteBuffer.allocate(4 + 8 + 1);
+            while (offset < size) {
+                head.clear();
+                readFully(log.channel, head, offset);
+                head.flip();
+                if (head.getInt() != MAGIC) break;
+                final long created = head.getLong();
+                final int targetCount = head.get() & 0xff;
+                final ByteBuffer body = ByteBuffer.allocate(targetCount * HASH_LENGTH + HASH_LENGTH + 8);
+                readFully(log.channel, body, offset + head.capacity());
+                body.flip();
+                final Set<String> targets = new HashSet<String>();
+                final byte[] hash = new byte[HASH_LENGTH];
+                for (int i = 0; i < targetCount; i++) {
+                    body.get(hash);
+                    targets.add(ASCII.String(hash));
+                }
+                final byte[] termHash = new byte[HASH_LENGTH];
+                body.get(termHash);
+                final int references = body.getInt();
+                final int payloadLength = body.getInt();
+                final long payloadOffset = offset + head.capacity() + body.capacity();
+                if (payloadLength < 0 || payloadOffset + payloadLength > size) break;
+                final Set<String> acked = acks.get(offset);
+                if (acked != null) targets.removeAll(acked);
+                if (!targets.isEmpty()) enqueue(new Record(log, offset, payloadOffset, payloadLength, termHash, references, created, targets, null));
+                offset = payloadOffset + payloadLength;
+            }
+        } catch (final EOFException e) {
+            // an incomplete record at the end of the log
+        }
+        if (offset < size) {
+            ConcurrentLog.warn("DHTOutbox", "truncating incomplete log " + log.file + " at " + offset);
+            log.channel.truncate(offset);
+        }
+        log.channel.position(offset);
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer b, long position) throws IOException {
+        while (b.hasRemaining()) {
+            final int r = channel.read(b, position);
+            if (r < 0) throw new EOFException();
+            position += r;
+        }
+    }
+
+    private void enqueue(final Record record) {
+        record.log.live++;
+        this.pendingReferences += record.size;
+        for (final String target: record.targets) {
+            LinkedList<Record> queue = this.queues.get(target);
+            if (queue == null) {
+                queue = new LinkedList<Record>();
+                this.queues.put(target, queue);
+            }
+            queue.add(record);
+        }
+    }
+
+    /**
+     * append a container to the log of a vertical partition
+     * @param partition the vertical partition of the references
+     * @param container the references
+     * @param targets the hashes of the peers which shall receive the references
+     */
+    public synchronized void append(final int partition, final ReferenceContainer<WordReference> container, final Collection<String> targets) throws IOException {
+        if (container.isEmpty() || targets.isEmpty()) return;
+        Log log = this.current.get(partition);
+        if (log == null || log.channel.size() >= MAX_LOG_SIZE) {
+            final Log next = new Log(this.dir, partition, log == null ? 0 : log.generation + 1);
+            this.logs.add(next);
+            if (log != null) release(log);
+            this.current.put(partition, next);
+            log = next;
+        }
+        final byte[] payload = container.exportCollection();
+        final ByteBuffer b = ByteBuffer.allocate(4 + 8 + 1 + targets.size() * HASH_LENGTH + HASH_LENGTH + 8 + payload.length);
+        final long created = System.currentTimeMillis();
+        b.putInt(MAGIC);
+        b.putLong(created);
+        b.put((byte) targets.size());
+        for (final String target: targets) b.put(ASCII.getBytes(target), 0, HASH_LENGTH);
+        b.put(container.getTermHash(), 0, HASH_LENGTH);
+        b.putInt(container.size());
+        b.putInt(payload.length);
+        final long offset = log.channel.size();
+        final long payloadOffset = offset + b.position();
+        b.put(payload);
+        b.flip();
+        while (b.hasRemaining()) log.channel.write(b, offset + b.position());
+        log.channel.position(offset + b.limit());
+
+        final boolean inMemory = this.memoryReferences + container.size() <= this.memoryLimit && !MemoryControl.shortStatus();
+        if (inMemory) this.memoryReferences += container.size();
+        enqueue(new Record(log, offset, payloadOffset, payload.length, container.getTermHash(), container.size(), created,
+                new HashSet<String>(targets), inMemory ? container : null));
+    }
+
+    /**
+     * write the appended records to the storage device
+     */
+    public synchronized void flush() {
+        for (final Log log: this.current.values()) try {
+            log.channel.force(false);
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
+    }
+
+    /**
+     * @return the hashes of the target peers ordered by the number of their pending references, the largest first
+     */
+    public synchronized List<String> targets() {
+        final Map<String, Integer> sizes = new HashMap<String, Integer>();
+        for (final Map.Entry<String, LinkedList<Record>> queue: this.queues.entrySet()) {
+            int size = 0;
+            for (final Record record: queue.getValue()) size += record.size;
+            sizes.put(queue.getKey(), size);
+        }
+        final List<String> targets = new ArrayList<String>(sizes.keySet());
+        Collections.sort(targets, new Comparator<String>() {
+            @Override
+            public int compare(final String t0, final String t1) {
+                return Integer.compare(sizes.get(t1), sizes.get(t0));
+            }
+        });
+        return targets;
+    }
+
+    /**
+     * take the first pending records of a target. The records stay pending until the batch is acknowledged
+     * or failed; each batch must be given to {@link #ack(Batch)} or {@link #fail(Batch)}.
+     * @param target the hash of a target peer
+     * @param maxReferences the maximum number of references in the batch; at least one record is taken
+     * @return the batch or null if the target has no pending records
+     */
+    public synchronized Batch take(final String target, final int maxReferences) throws IOException {
+        final LinkedList<Record> queue = this.queues.get(target);
+        if (queue == null || queue.isEmpty()) return null;
+        final Batch batch = new Batch(target);
+        int references = 0;
+        while (!queue.isEmpty() && (batch.records.isEmpty() || references + queue.getFirst().size <= maxReferences)) {
+            final Record record = queue.removeFirst();
+            try {
+                batch.containers.add(container(record));
+            } catch (final SpaceExceededException e) {
+                queue.addFirst(record);
+                break;
+            } catch (final IOException e) {
+                // the records stay pending
+                queue.addFirst(record);
+                queue.addAll(0, batch.records);
+                throw e;
+            }
+            batch.records.add(record);
+            references += record.size;
+        }
+        if (queue.isEmpty()) this.queues.remove(target);
+        if (batch.records.isEmpty()) return null;
+        this.inFlight.addAll(batch.records);
+        return batch;
+    }
+
+    /** a copy of the container of a record, from memory or from the log */
+    private ReferenceContainer<WordReference> container(final Record record) throws IOException, SpaceExceededException {
+        if (record.container != null) return record.container.topLevelClone();
+        final ByteBuffer payload = ByteBuffer.allocate(record.payloadLength);
+        readFully(record.log.channel, payload, record.payloadOffset);
+        return new ReferenceContainer<WordReference>(this.factory, record.termHash, RowSet.importRowSet(payload.array(), this.factory.getRow()));
+    }
+
+    /**
+     * acknowledge that the target of a batch has received the references
+     */
+    public synchronized void ack(final Batch batch) throws IOException {
+        this.failures.remove(batch.target);
+        this.inFlight.removeAll(batch.records);
+        for (final Record record: batch.records) done(record, batch.target);
+    }
+
+    /**
+     * put the records of a failed transmission back to the head of the queue of the target. After
+     * {@link #MAX_ATTEMPTS} consecutive failures all pending references of the target are given up.
+     * @return the containers which are given up and must be put back to the RWI index, may be empty
+     */
+    public synchronized List<ReferenceContainer<WordReference>> fail(final Batch batch) throws IOException {
+        final Integer f = this.failures.get(batch.target);
+        final int count = f == null ? 1 : f.intValue() + 1;
+        final List<ReferenceContainer<WordReference>> givenUp = new ArrayList<ReferenceContainer<WordReference>>();
+        this.inFlight.removeAll(batch.records);
+        // records which are done for the target meanwhile, i.e. given up with the target, are not pending any more
+        final List<Record> pending = new ArrayList<Record>(batch.records.size());
+        final List<ReferenceContainer<WordReference>> containers = new ArrayList<ReferenceContainer<WordReference>>(batch.records.size());
+        for (int i = 0; i < batch.records.size(); i++) {
+            final Record record = batch.records.get(i);
+            if (!record.targets.contains(batch.target)) continue;
+            pending.add(record);
+            containers.add(batch.containers.get(i));
+        }
+        if (count < MAX_ATTEMPTS) {
+            this.failures.put(batch.target, count);
+            if (pending.isEmpty()) return givenUp;
+            LinkedList<Record> queue = this.queues.get(batch.target);
+            if (queue == null) {
+                queue = new LinkedList<Record>();
+                this.queues.put(batch.target, queue);
+            }
+            queue.addAll(0, pending);
+            return givenUp;
+        }
+        givenUp.addAll(containers);
+        for (final Record record: pending) done(record, batch.target);
+        givenUp.addAll(giveUp(batch.target));
+        ConcurrentLog.info("DHTOutbox", "giving up " + givenUp.size() + " containers for peer " + batch.target + " after " + count + " failed transmissions");
+        return givenUp;
+    }
+
+    /**
+     * give up all pending records of a target, i.e. if the target peer is not known any more
+     * @param target the hash of a target peer
+     * @return the containers of the records which must be put back to the RWI index, may be empty
+     */
+    public synchronized List<ReferenceContainer<WordReference>> giveUp(final String target) throws IOException {
+        this.failures.remove(target);
+        final List<ReferenceContainer<WordReference>> givenUp = new ArrayList<ReferenceContainer<WordReference>>();
+        final LinkedList<Record> queue = this.queues.remove(target);
+        if (queue != null) for (final Record record: queue) {
+            try {
+                givenUp.add(container(record));
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.logException(e);
+            }
+            done(record, target);
+        }
+        return givenUp;
+    }
+
+    /**
+     * give up all records which are pending for longer than the given time. Records which are in
+     * transmission are not given up; they are expired after the transmission failed.
+     * @param maxAge the maximum age of pending records in milliseconds
+     * @return the containers which are given up and must be put back to the RWI index, may be empty
+     */
+    public synchronized List<ReferenceContainer<WordReference>> expire(final long maxAge) throws IOException {
+        final long limit = System.currentTimeMillis() - maxAge;
+        final Set<Record> expired = new HashSet<Record>();
+        final Iterator<Map.Entry<String, LinkedList<Record>>> i = this.queues.entrySet().iterator();
+        while (i.hasNext()) {
+            final LinkedList<Record> queue = i.next().getValue();
+            while (!queue.isEmpty() && queue.getFirst().created < limit && !this.inFlight.contains(queue.getFirst())) expired.add(queue.removeFirst());
+            if (queue.isEmpty()) i.remove();
+        }
+        final List<ReferenceContainer<WordReference>> givenUp = new ArrayList<ReferenceContainer<WordReference>>(expired.size());
+        for (final Record record: expired) {
+            try {
+                givenUp.add(container(record));
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.logException(e);
+            }
+            for (final String target: new ArrayList<String>(record.targets)) {
+                final LinkedList<Record> queue = this.queues.get(target);
+                if (queue != null) queue.remove(record); // the record may be pending for another target which is not expired yet
+                done(record, target);
+            }
+        }
+        return givenUp;
+    }
+
+    /** write the acknowledgement of a record for a target and release the record when all targets are done */
+    private void done(final Record record, final String target) throws IOException {
+        if (!record.targets.remove(target)) return;
+        final Log log = record.log;
+        if (log.channel.isOpen()) {
+            final ByteBuffer ack = ByteBuffer.allocate(ACK_LENGTH);
+            ack.putLong(record.offset);
+            ack.put(ASCII.getBytes(target), 0, HASH_LENGTH);
+            ack.flip();
+            while (ack.hasRemaining()) log.ackChannel.write(ack);
+        }
+        if (!record.targets.isEmpty()) return;
+        this.pendingReferences -= record.size;
+        if (record.container != null) {
+            this.memoryReferences -= record.container.size();
+            record.container = null;
+        }
+        log.live--;
+        release(log);
+    }
+
+    /** delete a log without pending records which is not the current log of its partition, or empty the current log */
+    private void release(final Log log) throws IOException {
+        if (log.live > 0) return;
+        if (this.current.get(log.partition) == log) {
+            // the acknowledgements go first: after a crash, stale acknowledgements would match the offsets of new records
+            log.ackChannel.truncate(0);
+            log.ackChannel.position(0);
+            log.ackChannel.force(false);
+            log.channel.truncate(0);
+            log.channel.position(0);
+        } else {
+            log.delete();
+            this.logs.remove(log);
+        }
+    }
+
+    /**
+     * @return the number of references which are pending for at least one target
+     */
+    public synchronized long size() {
+        return this.pendingReferences;
+    }
+
+    /**
+     * write all records and acknowledgements to the storage device and close the logs; pending records are
+     * delivered after the next start
+     */
+    public synchronized void close() {
+        for (final Log log: this.logs) {
+            try {
+                log.channel.force(false);
+                log.ackChannel.force(false);
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+            log.close();
+        }
+        this.logs.clear();
+        this.queues.clear();
+        this.inFlight.clear();
+        this.current.clear();
+    }
+}
@@ -25,11 +25,14 @@
 
 package net.yacy.peers;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -59,11 +62,12 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
      * - (1) a number of RWIs are selected and accumulated.
      *       When they are selected, they are removed from the index
      * - (2) the RWI collection is split into a number of partitions according to the vertical DHT.
-     * - (3) the split RWIs are enqueued as Entry object in the write buffer of the dispatcher
-     * - (4) more entries may be enqueued to the dispatcher and
-     *       entries with the same primary target are accumulated to the same buffer entry.
-     * - (5) the largest entries are selected from the dispatcher write buffer and enqueued to the 'next' array
-     *       which means that they are ready for transmission
+     * - (3) the split RWIs are appended to the durable outbox of the dispatcher together with their targets
+     * - (4) more entries may be appended to the outbox and
+     *       entries with the same target are accumulated in the queue of the target.
+     * - (5) the largest queue of the outbox is taken as a chunk and enqueued to the 'next' array
+     *       which means that they are ready for transmission; the references stay in the outbox until
+     *       the target has acknowledged them
      * - (6) the dispatcher takes some of the entries in the next queue and initiates
      *       transmission to other peers concurrently. As much transmissions are initiated concurrently
      *       as the redundancy factor.
@@ -85,10 +89,13 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
      */
 
     /**
-     * A transmission buffer is a write buffer for the rwi objects (indices) that wait to be transmitted.
-     * The String-key is the primary target as contained in the chunk entry.
+     * The outbox holds the rwi objects (indices) that wait to be transmitted in logs on disk,
+     * so that they are neither lost nor put back to the index when the peer is restarted.
      */
-    private Map<String, Transmission.Chunk> transmissionBuffer;
+    private DHTOutbox outbox;
+
+    /** the outbox batches of the chunks which are in transmission */
+    private final Map<Transmission.Chunk, DHTOutbox.Batch> inTransmission;
 
     /** the segment backend is used to store the remaining indexContainers in case that the object is closed */
     private final Segment segment;
@@ -114,10 +121,17 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
             final int timeout
             ) {
         this.env = env;
-        this.transmissionBuffer = new ConcurrentHashMap<String, Transmission.Chunk>();
+        this.inTransmission = new ConcurrentHashMap<Transmission.Chunk, DHTOutbox.Batch>();
         this.segment = env.index;
         this.seeds = env.peers;
         this.log = new ConcurrentLog("INDEX-TRANSFER-DISPATCHER");
+        try {
+            this.outbox = new DHTOutbox(new File(env.queuesRoot, "dhtOutbox"), Segment.wordReferenceFactory,
+                    env.getConfigLong(SwitchboardConstants.INDEX_DIST_OUTBOX_MEMORY, SwitchboardConstants.INDEX_DIST_OUTBOX_MEMORY_DEFAULT));
+        } catch (final IOException e) {
+            this.log.severe("cannot open the DHT outbox, no index distribution", e);
+            this.outbox = null;
+        }
 		this.transmission = new Transmission(env, this.log, gzipBody, timeout);
 
         final int concurrentSender = Math.min(8, WorkflowProcessor.availableCPU);
@@ -128,8 +142,11 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
                 this, concurrentSender * 3, null, concurrentSender);
     }
 
-    public int bufferSize() {
-    	return (this.transmissionBuffer == null) ? 0 : this.transmissionBuffer.size();
+    /**
+     * @return the number of references in the outbox which are not yet received by all of their targets
+     */
+    public long outboxSize() {
+    	return (this.outbox == null) ? 0 : this.outbox.size();
     }
 
     public int transmissionSize() {
@@ -258,38 +275,57 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
 
     /**
      * PROCESS(3) and PROCESS(4)
-     * put containers into the write buffer. This needs information about the network,
-     * because the possible targets are assigned here as well. The indexRepositoryReference
-     * is the database of references which is needed here because this is the place where
-     * finally is checked if the reference exists. If the entry does not exist for specific
-     * entries in the indexContainer, then it is discarded. If it exists, then the entry is
-     * stored in a cache of the Entry for later transmission to the targets, which means that
-     * then no additional IO is necessary.
-     * @param containers a reference containers array, one container for each vertical position
+     * append containers to the outbox. This needs information about the network,
+     * because the possible targets are assigned here as well. Containers which are larger than
+     * a chunk which a remote peer accepts are split, so that each part can be transmitted as a whole.
+     * The check if the references exist in the fulltext index is done when a chunk is taken from the outbox.
+     * @param containers a reference containers array, one container for each vertical position.
+     * The containers which are in the outbox or in the RWI index are replaced by empty containers, so that
+     * after a failure the array holds only the references which must be put back to the RWI index.
+     * @throws IOException if the outbox cannot be written
+     * @throws SpaceExceededException
      */
-    private void enqueueContainersToBuffer(final byte[] wordhash, final ReferenceContainer<WordReference>[] containers) {
+    private void enqueueContainersToBuffer(final byte[] wordhash, final ReferenceContainer<WordReference>[] containers) throws IOException, SpaceExceededException {
         assert (containers.length == this.seeds.scheme.verticalPartitions());
-        if (this.transmissionBuffer == null) return;
+        if (this.outbox == null) return;
         List<Seed>[] targets = DHTSelection.selectDHTDistributionTargets(this.seeds, wordhash, 3, this.seeds.redundancy());
         assert (targets.length == this.seeds.scheme.verticalPartitions());
         assert (targets.length == containers.length);
         for (int vertical = 0; vertical < containers.length; vertical++) {
             ReferenceContainer<WordReference> verticalContainer = containers[vertical];
             if (verticalContainer.isEmpty()) continue;
-            
-            // extend the transmissionBuffer with entries for each redundant position
-            for (Seed target: targets[vertical]) {
-                Transmission.Chunk entry = this.transmissionBuffer.get(target.hash); // if this is not null, the entry is extended here
-                if (entry == null) entry =  transmission.newChunk(target); else {
-                    log.info("extending chunk for peer " + entry.dhtTarget().hash + " containing " + entry.containersSize() + " references with " + verticalContainer.size() + " more entries");
+            final Set<String> targetHashes = new HashSet<String>();
+            for (Seed target: targets[vertical]) targetHashes.add(target.hash);
+            if (targetHashes.isEmpty()) {
+                this.segment.storeRWI(verticalContainer);
+                containers[vertical] = ReferenceContainer.emptyContainer(Segment.wordReferenceFactory, wordhash);
+                continue;
+            }
+
+            // split the container into parts which fit into a chunk
+            final List<ReferenceContainer<WordReference>> parts = new ArrayList<ReferenceContainer<WordReference>>();
+            ReferenceContainer<WordReference> part = new ReferenceContainer<WordReference>(Segment.wordReferenceFactory, wordhash, Math.min(verticalContainer.size(), Transmission.maxRWIsCount));
+            final Iterator<WordReference> i = verticalContainer.entries();
+            while (i.hasNext()) {
+                part.add(i.next());
+                if (part.size() >= Transmission.maxRWIsCount) {
+                    parts.add(part);
+                    part = new ReferenceContainer<WordReference>(Segment.wordReferenceFactory, wordhash, Transmission.maxRWIsCount);
                 }
+            }
+            if (!part.isEmpty()) parts.add(part);
+            for (int p = 0; p < parts.size(); p++) {
                 try {
-                    entry.add(verticalContainer);
-                } catch (SpaceExceededException e) {
-                    ConcurrentLog.logException(e);
+                    this.outbox.append(vertical, parts.get(p), targetHashes);
+                } catch (final IOException e) {
+                    // keep only the parts which are not in the outbox
+                    ReferenceContainer<WordReference> rest = parts.get(p);
+                    for (final ReferenceContainer<WordReference> r: parts.subList(p + 1, parts.size())) rest = rest.merge(r);
+                    containers[vertical] = rest;
+                    throw e;
                 }
-                this.transmissionBuffer.put(target.hash, entry);
             }
+            containers[vertical] = ReferenceContainer.emptyContainer(Segment.wordReferenceFactory, wordhash);
         }
     }
     
@@ -299,7 +335,7 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
             final int maxContainerCount,
             final int maxReferenceCount,
             final int maxtime) {
-        if (this.transmissionBuffer == null) return false;
+        if (this.outbox == null) return false;
 
     	List<ReferenceContainer<WordReference>> selectedContainerCache;
         try {
@@ -316,41 +352,97 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
         }
 
         // check all entries and split them to the partitions
+        int c = 0;
+        ReferenceContainer<WordReference>[] partitionBuffer = null;
         try {
             for (final ReferenceContainer<WordReference> container: selectedContainerCache) {
                 // init the new partitions
-                final ReferenceContainer<WordReference>[] partitionBuffer = splitContainer(container);
+                partitionBuffer = splitContainer(container);
                 enqueueContainersToBuffer(container.getTermHash(), partitionBuffer);
+                partitionBuffer = null;
+                c++;
             }
         } catch (final SpaceExceededException e) {
             this.log.severe("splitContainer: splitContainers failed because of too low RAM", e);
+        } catch (final IOException e) {
+            this.log.severe("enqueueContainersToBuffer: cannot write to the outbox", e);
+        } finally {
+            this.outbox.flush();
+        }
+        if (c < selectedContainerCache.size()) {
+            // put the references back which are not in the outbox: the rest of a partly enqueued container and the following containers
+            final List<ReferenceContainer<WordReference>> rest = new ArrayList<ReferenceContainer<WordReference>>();
+            if (partitionBuffer == null) {
+                rest.add(selectedContainerCache.get(c));
+            } else {
+                for (final ReferenceContainer<WordReference> part: partitionBuffer) if (!part.isEmpty()) rest.add(part);
+            }
+            rest.addAll(selectedContainerCache.subList(c + 1, selectedContainerCache.size()));
+            for (final ReferenceContainer<WordReference> container: rest) try {
+                this.segment.storeRWI(container);
+            } catch (final Exception e) {
+                ConcurrentLog.logException(e);
+            }
             return false;
         }
-    	this.log.info("selectContainersEnqueueToBuffer: splitContainerCache enqueued to the write buffer array which has now " + this.transmissionBuffer.size() + " entries.");
+    	this.log.info("selectContainersEnqueueToBuffer: splitContainerCache enqueued to the outbox which has now " + this.outbox.size() + " references.");
         return true;
     }
 
     /**
      * PROCESS(5)
-     * take the largest container from the write buffer and put it into the 'next' array,
-     * where it waits to be processed.
+     * take the largest queue of a target from the outbox and put it as chunk into the 'next' array,
+     * where it waits to be processed. References which could not be delivered for a long time
+     * are put back to the index.
      * This method returns true if a container was dequeued, false if not
      */
     public boolean dequeueContainer() {
-    	if (this.transmissionBuffer == null) return false;
+    	if (this.outbox == null) return false;
         if (this.indexingTransmissionProcessor.getQueueSize() > this.indexingTransmissionProcessor.getMaxConcurrency()) return false;
-        String maxtarget = null;
-        int maxsize = -1;
-        for (final Map.Entry<String, Transmission.Chunk> chunk: this.transmissionBuffer.entrySet()) {
-            if (chunk.getValue().containersSize() > maxsize) {
-                maxsize = chunk.getValue().containersSize();
-                maxtarget = chunk.getKey();
+        try {
+            restore(this.outbox.expire(this.env.getConfigLong(SwitchboardConstants.INDEX_DIST_OUTBOX_MAXAGE, SwitchboardConstants.INDEX_DIST_OUTBOX_MAXAGE_DEFAULT)));
+            final Set<String> transmitting = new HashSet<String>();
+            for (final DHTOutbox.Batch batch: this.inTransmission.values()) transmitting.add(batch.target);
+            for (final String target: this.outbox.targets()) {
+                if (transmitting.contains(target)) continue;
+                final Seed seed = this.seeds.get(target);
+                if (seed == null) {
+                    this.log.info("target peer " + target + " is not known any more, putting back its references to the backend");
+                    restore(this.outbox.giveUp(target));
+                    continue;
+                }
+                final DHTOutbox.Batch batch = this.outbox.take(target, Transmission.maxRWIsCount);
+                if (batch == null) continue;
+                final Transmission.Chunk chunk = this.transmission.newChunk(seed);
+                try {
+                    for (final ReferenceContainer<WordReference> container: batch.containers()) chunk.add(container);
+                } catch (final SpaceExceededException e) {
+                    restore(this.outbox.fail(batch)); // the batch must not stay in transmission
+                    throw e;
+                }
+                if (chunk.containersSize() == 0) {
+                    // none of the references exists in the fulltext index
+                    this.outbox.ack(batch);
+                    continue;
+                }
+                this.inTransmission.put(chunk, batch);
+                this.indexingTransmissionProcessor.enQueue(chunk);
+                return true;
             }
+        } catch (final IOException e) {
+            this.log.severe("dequeueContainer: cannot read from the outbox", e);
+        } catch (final SpaceExceededException e) {
+            this.log.severe("dequeueContainer: cannot create a chunk because of too low RAM", e);
+        }
+        return false;
+    }
+
+    private void restore(final List<ReferenceContainer<WordReference>> containers) {
+        for (final ReferenceContainer<WordReference> container: containers) try {
+            this.segment.storeRWI(container);
+        } catch (final Exception e) {
+            ConcurrentLog.logException(e);
         }
-        if (maxsize < 0) return false;
-        final Transmission.Chunk chunk = this.transmissionBuffer.remove(maxtarget);
-        this.indexingTransmissionProcessor.enQueue(chunk);
-        return true;
     }
     
     @Override
@@ -371,32 +463,35 @@ public class Dispatcher implements WorkflowTask<Transmission.Chunk> {
         
         // do the transmission
         final boolean success = chunk.transmit();
-        if (success) return chunk;
-
-        this.log.info("STORE: Chunk " + chunk.dhtTarget().getName() + " does not respond or accept the dht index, putting back index to backend");
-        chunk.restore();
+        final DHTOutbox.Batch batch = this.inTransmission.remove(chunk);
+        final DHTOutbox outbox = this.outbox;
+        if (batch == null || outbox == null) {
+            // the dispatcher is closed; unacknowledged references are sent again after a restart
+            return success ? chunk : null;
+        }
+        try {
+            if (success) {
+                outbox.ack(batch);
+                return chunk;
+            }
+            this.log.info("STORE: Chunk " + chunk.dhtTarget().getName() + " does not respond or accept the dht index, keeping index in the outbox");
+            restore(outbox.fail(batch));
+        } catch (final IOException e) {
+            this.log.warn("transferDocumentIndex: cannot write to the outbox", e);
+        }
         return null;
     }
 
     public void close() {
-        // removes all entries from the dispatcher and puts them back to a RAMRI
+        // stops the transmissions; the references in the outbox remain there for the next start
         if (this.indexingTransmissionProcessor != null) this.indexingTransmissionProcessor.shutdown();
-        if (this.transmissionBuffer != null) {
-        	outerLoop: for (final Map.Entry<String, Transmission.Chunk> e : this.transmissionBuffer.entrySet()) {
-        		for (final ReferenceContainer<WordReference> i : e.getValue()) try {
-        		    this.segment.storeRWI(i);
-        		} catch (final Exception e1) {
-        		    ConcurrentLog.logException(e1);
-        		    break outerLoop;
-        		}
-        	}
-        	this.transmissionBuffer.clear();
-        }
-        this.transmissionBuffer = null;
         if (this.indexingTransmissionProcessor != null) {
         	this.indexingTransmissionProcessor.clear();
         }
         this.indexingTransmissionProcessor = null;
+        this.inTransmission.clear();
+        if (this.outbox != null) this.outbox.close();
+        this.outbox = null;
     }
 
 }
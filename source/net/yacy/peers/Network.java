@@ -39,11 +39,10 @@
 package net.yacy.peers;
 
 import java.net.MalformedURLException;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -69,7 +68,6 @@ public class Network
 {
 
     // statics
-    public static final ThreadGroup publishThreadGroup = new ThreadGroup("publishThreadGroup");
     public static final HashMap<String, String> seedUploadMethods = new HashMap<String, String>();
     public static final ConcurrentLog log = new ConcurrentLog("YACY");
     /** pseudo-random key derived from a time-interval while YaCy startup */
@@ -83,12 +81,15 @@ public class Network
     private static final int PING_MIN_DBSIZE = 5;
     private static final int PING_MIN_PEERSEEN = 1; // min. accessible to force senior
     private static final long PING_MAX_DBAGE = 15 * 60 * 1000; // in milliseconds
+    private static final int PING_CANDIDATES = 4; // number of candidates per ping, the prober skips peers which are not due
+    private static final long PING_TIMEOUT = 40000; // time in milliseconds to wait for the probes of a ping round
 
     // public static yacyShare shareManager = null;
     // public static boolean terminate = false;
 
     // class variables
     Switchboard sb;
+    private final PeerProber prober;
 
     public Network(final Switchboard sb) {
         final long time = System.currentTimeMillis();
@@ -112,6 +113,17 @@ public class Network
 
         loadSeedUploadMethods();
 
+        this.prober = new PeerProber(
+            (int) sb.getConfigLong(SwitchboardConstants.PEER_PING_CONCURRENCY, SwitchboardConstants.PEER_PING_CONCURRENCY_DEFAULT),
+            sb.getConfigLong(SwitchboardConstants.PEER_PING_MININTERVAL, SwitchboardConstants.PEER_PING_MININTERVAL_DEFAULT),
+            sb.getConfigLong(SwitchboardConstants.PEER_PING_MAXINTERVAL, SwitchboardConstants.PEER_PING_MAXINTERVAL_DEFAULT),
+            new PeerProber.Probe() {
+                @Override
+                public boolean probe(final Seed seed) {
+                    return hello(seed);
+                }
+            });
+
         log.config("CORE INITIALIZED");
         // ATTENTION, VERY IMPORTANT: before starting the thread, the httpd yacy server must be running!
 
@@ -193,94 +205,91 @@ public class Network
         GenericFormatter.FORMAT_SHORT_SECOND,
         GenericFormatter.time_second);
 
-    protected class publishThread extends Thread
-    {
-        private final Seed seed;
-
-        public publishThread(final ThreadGroup tg, final Seed seed) {
-            super(tg, "PublishSeed_" + seed.getName());
-            this.seed = seed;
-        }
-
-        @Override
-        public final void run() {
-        	Map<String, String> result = null;
-            try {
-				final boolean preferHttps = Network.this.sb.getConfigBool(
-						SwitchboardConstants.NETWORK_PROTOCOL_HTTPS_PREFERRED,
-						SwitchboardConstants.NETWORK_PROTOCOL_HTTPS_PREFERRED_DEFAULT);
-                for (final String ip: this.seed.getIPs()) {
-                	try {
-                		MultiProtocolURL targetBaseURL = this.seed.getPublicMultiprotocolURL(ip, preferHttps);
-                        result = Protocol.hello(Network.this.sb.peers.mySeed(), Network.this.sb.peers.peerActions, targetBaseURL, this.seed.hash);
-						if (result == null && targetBaseURL.isHTTPS()) {
-							/* Failed with https : retry with http on the same address */
-							targetBaseURL = this.seed.getPublicMultiprotocolURL(ip, false);
-							result = Protocol.hello(Network.this.sb.peers.mySeed(), Network.this.sb.peers.peerActions,
-									targetBaseURL, this.seed.hash);
-							if (result != null) {
-								/* Got a result using http : mark SSL as unavailable on the peer */
-								log.info("publish: SSL/TLS unavailable on " + this.seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '"
-										+ this.seed.getName() + "' : can be reached using http but not https on address "
-										+ ip);
-	                            this.seed.setFlagSSLAvailable(false);
-	                            Network.this.sb.peers.updateConnected(this.seed);
-							}
-						}
-                        if(result == null) {
-                            // no or wrong response, delete that address
-                            final String cause = "peer ping to peer resulted in error response (added < 0)";
-                            log.info("publish: disconnected " + this.seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + this.seed.getName() + "' from " + this.seed.getIPs() + ": " + cause);
-                            Network.this.sb.peers.peerActions.interfaceDeparture(this.seed, ip);
-                            continue;
+    /**
+     * perform the hello handshake with a peer on all of its addresses; the result is written to the seed database
+     * @param seed the peer
+     * @return true if the peer answered on at least one address
+     */
+    private boolean hello(final Seed seed) {
+        boolean answered = false;
+        try {
+            final boolean preferHttps = this.sb.getConfigBool(
+                    SwitchboardConstants.NETWORK_PROTOCOL_HTTPS_PREFERRED,
+                    SwitchboardConstants.NETWORK_PROTOCOL_HTTPS_PREFERRED_DEFAULT);
+            for (final String ip: seed.getIPs()) {
+                Map<String, String> result = null;
+                try {
+                    MultiProtocolURL targetBaseURL = seed.getPublicMultiprotocolURL(ip, preferHttps);
+                    result = Protocol.hello(this.sb.peers.mySeed(), this.sb.peers.peerActions, targetBaseURL, seed.hash);
+                    if (result == null && targetBaseURL.isHTTPS()) {
+                        /* Failed with https : retry with http on the same address */
+                        targetBaseURL = seed.getPublicMultiprotocolURL(ip, false);
+                        result = Protocol.hello(this.sb.peers.mySeed(), this.sb.peers.peerActions,
+                                targetBaseURL, seed.hash);
+                        if (result != null) {
+                            /* Got a result using http : mark SSL as unavailable on the peer */
+                            log.info("publish: SSL/TLS unavailable on " + seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '"
+                                    + seed.getName() + "' : can be reached using http but not https on address "
+                                    + ip);
+                            seed.setFlagSSLAvailable(false);
+                            this.sb.peers.updateConnected(seed);
                         }
-                	} catch(final MalformedURLException e) {
-                        final String cause = "malformed peer URL";
-                        log.info("publish: disconnected " + this.seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + this.seed.getName() + "' from " + this.seed.getIPs() + ": " + cause);
-                        Network.this.sb.peers.peerActions.interfaceDeparture(this.seed, ip);
-                		continue;
-                	}
-                    // success! we have published our peer to a senior peer
-                    // update latest news from the other peer
-                    log.info("publish: handshaked "+ this.seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + this.seed.getName() + "' at " + this.seed.getIPs());
-                    // check if seed's lastSeen has been updated
-                    final Seed newSeed = Network.this.sb.peers.getConnected(this.seed.hash);
-                    if ( newSeed != null ) {
-                        if ( !newSeed.isOnline() ) {
+                    }
+                    if (result == null) {
+                        // no or wrong response, delete that address
+                        final String cause = "peer ping to peer resulted in error response (added < 0)";
+                        log.info("publish: disconnected " + seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + seed.getName() + "' from " + seed.getIPs() + ": " + cause);
+                        this.sb.peers.peerActions.interfaceDeparture(seed, ip);
+                        continue;
+                    }
+                } catch (final MalformedURLException e) {
+                    final String cause = "malformed peer URL";
+                    log.info("publish: disconnected " + seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + seed.getName() + "' from " + seed.getIPs() + ": " + cause);
+                    this.sb.peers.peerActions.interfaceDeparture(seed, ip);
+                    continue;
+                }
+                // success! we have published our peer to a senior peer
+                answered = true;
+                // update latest news from the other peer
+                log.info("publish: handshaked "+ seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + seed.getName() + "' at " + seed.getIPs());
+                // check if seed's lastSeen has been updated
+                final Seed newSeed = this.sb.peers.getConnected(seed.hash);
+                if ( newSeed != null ) {
+                    if ( !newSeed.isOnline() ) {
+                        if ( log.isFine() ) {
+                            log.fine("publish: recently handshaked " + seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + seed.getName() + "' at " + seed.getIPs() + " is not online." + " Removing Peer from connected");
+                        }
+                        this.sb.peers.peerActions.interfaceDeparture(newSeed, ip);
+                        continue;
+                    } else if ( newSeed.getLastSeenUTC() < (System.currentTimeMillis() - 10000) ) {
+                        // update last seed date
+                        if ( newSeed.getLastSeenUTC() >= seed.getLastSeenUTC() ) {
                             if ( log.isFine() ) {
-                                log.fine("publish: recently handshaked " + this.seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + this.seed.getName() + "' at " + this.seed.getIPs() + " is not online." + " Removing Peer from connected");
+                                log.fine("publish: recently handshaked " + seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + seed.getName() + "' at " + seed.getIPs() + " with old LastSeen: '" + my_SHORT_SECOND_FORMATTER.format(new Date(newSeed.getLastSeenUTC())) + "'");
                             }
-                            Network.this.sb.peers.peerActions.interfaceDeparture(newSeed, ip);
-                            continue;
-                        } else if ( newSeed.getLastSeenUTC() < (System.currentTimeMillis() - 10000) ) {
-                            // update last seed date
-                            if ( newSeed.getLastSeenUTC() >= this.seed.getLastSeenUTC() ) {
-                                if ( log.isFine() ) {
-                                    log.fine("publish: recently handshaked " + this.seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + this.seed.getName() + "' at " + this.seed.getIPs() + " with old LastSeen: '" + my_SHORT_SECOND_FORMATTER.format(new Date(newSeed.getLastSeenUTC())) + "'");
-                                }
-                                newSeed.setLastSeenUTC();
-                                Network.this.sb.peers.peerActions.peerArrival(newSeed, true);
-                            } else {
-                                if ( log.isFine() ) {
-                                    log.fine("publish: recently handshaked " + this.seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + this.seed.getName() + "' at " + this.seed.getIPs() + " with old LastSeen: '" + my_SHORT_SECOND_FORMATTER.format(new Date(newSeed.getLastSeenUTC())) + "', this is more recent: '" + my_SHORT_SECOND_FORMATTER.format(new Date(this.seed.getLastSeenUTC())) + "'");
-                                }
-                                this.seed.setLastSeenUTC();
-                                Network.this.sb.peers.peerActions.peerArrival(this.seed, true);
+                            newSeed.setLastSeenUTC();
+                            this.sb.peers.peerActions.peerArrival(newSeed, true);
+                        } else {
+                            if ( log.isFine() ) {
+                                log.fine("publish: recently handshaked " + seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + seed.getName() + "' at " + seed.getIPs() + " with old LastSeen: '" + my_SHORT_SECOND_FORMATTER.format(new Date(newSeed.getLastSeenUTC())) + "', this is more recent: '" + my_SHORT_SECOND_FORMATTER.format(new Date(seed.getLastSeenUTC())) + "'");
                             }
+                            seed.setLastSeenUTC();
+                            this.sb.peers.peerActions.peerArrival(seed, true);
                         }
-                    } else {
-                        if ( log.isFine() ) {
-                            log.fine("publish: recently handshaked " + this.seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + this.seed.getName() + "' at " + this.seed.getIPs() + " not in connectedDB");
-                        }
+                    }
+                } else {
+                    if ( log.isFine() ) {
+                        log.fine("publish: recently handshaked " + seed.get(Seed.PEERTYPE, Seed.PEERTYPE_SENIOR) + " peer '" + seed.getName() + "' at " + seed.getIPs() + " not in connectedDB");
                     }
                 }
-            } catch (final Exception e ) {
-                ConcurrentLog.logException(e);
-                log.severe(
-                    "publishThread: error with target seed " + this.seed.toString() + ": " + e.getMessage(),
-                    e);
             }
+        } catch (final Exception e ) {
+            ConcurrentLog.logException(e);
+            log.severe(
+                "publish: error with target seed " + seed.toString() + ": " + e.getMessage(),
+                e);
         }
+        return answered;
     }
 
     private boolean publishMySeed() {
@@ -325,6 +334,7 @@ public class Network
                         seeds.put(hash, seed);
                     }
                 }
+                attempts = seeds.size(); // a virgin peer contacts all of them
             } else {
                 int diff = PING_MIN_DBSIZE - amIAccessibleDB.size();
                 if ( diff > PING_MIN_RUNNING ) {
@@ -337,7 +347,7 @@ public class Network
                         attempts = PING_MAX_RUNNING;
                     }
                 }
-                seeds = DHTSelection.seedsByAge(this.sb.peers, false, attempts); // best for seed list maintenance/cleaning
+                seeds = DHTSelection.seedsByAge(this.sb.peers, false, attempts * PING_CANDIDATES); // best for seed list maintenance/cleaning
             }
 
             if (seeds == null || seeds.isEmpty()) return false;
@@ -359,11 +369,8 @@ public class Network
                 log.severe("publishMySeed: problem with news encoding", e);
             }
             this.sb.peers.mySeed().setUnusedFlags();
-            //if (seeds.length > 1) {
-            // holding a reference to all started threads
-            final List<publishThread> syncList = Collections.synchronizedList(new LinkedList<publishThread>()); // memory for threads
-            
-            // go through the peer list and starting a new publisher thread for each peer
+            // go through the peer list and collect the targets of the probes
+            final List<Seed> targets = new ArrayList<Seed>(seeds.size());
             int i = 0;
             while ( si.hasNext() ) {
                 seed = si.next();
@@ -385,19 +392,14 @@ public class Network
                 		// we don't like that address, delete it
                 		this.sb.peers.peerActions.interfaceDeparture(seed, ip);
                 	} else {
-                		// starting a new publisher thread
-                		publishThread t = new publishThread(Network.publishThreadGroup, seed);
-                		t.start();
-                		syncList.add(t);
+                		targets.add(seed);
                 	}
                 }
             }
 
-            // receiving the result of all started publisher threads
-            for (publishThread t: syncList) {
-                // waiting for the next thread to finish
-                t.join();
-            }
+            // probe the peers which are due and wait for the results
+            final int answered = this.prober.probe(targets, attempts, PING_TIMEOUT);
+            if (log.isFine()) log.fine("publish: " + answered + " of " + targets.size() + " candidate peer(s) answered, " + this.prober.running() + " probe(s) still running");
 
             int accessible = 0;
             int notaccessible = 0;
@@ -467,61 +469,16 @@ public class Network
             this.sb.peers.saveMySeed();
             return false;
         } catch (final InterruptedException e ) {
-            try {
-                log.info("publish: Interruption detected while publishing my seed.");
-
-                // consuming the theads interrupted signal
-                Thread.interrupted();
-
-                // interrupt all already started publishThreads
-                log.info("publish: Signaling shutdown to "
-                    + Network.publishThreadGroup.activeCount()
-                    + " remaining publishing threads ...");
-                Network.publishThreadGroup.interrupt();
-
-                // waiting some time for the publishThreads to finish execution
-                try {
-                    Thread.sleep(500);
-                } catch (final InterruptedException ex ) {
-                }
-
-                // getting the amount of remaining publishing threads
-                int threadCount = Network.publishThreadGroup.activeCount();
-                final Thread[] threadList = new Thread[threadCount];
-                threadCount = Network.publishThreadGroup.enumerate(threadList);
-
-                // we need to use a timeout here because of missing interruptable session threads ...
-                if ( log.isFine() ) {
-                    log.fine("publish: Waiting for "
-                        + Network.publishThreadGroup.activeCount()
-                        + " remaining publishing threads to finish shutdown ...");
-                }
-                for ( int currentThreadIdx = 0; currentThreadIdx < threadCount; currentThreadIdx++ ) {
-                    final Thread currentThread = threadList[currentThreadIdx];
-
-                    if ( currentThread.isAlive() ) {
-                        if ( log.isFine() ) {
-                            log.fine("publish: Waiting for remaining publishing thread '"
-                                + currentThread.getName()
-                                + "' to finish shutdown");
-                        }
-                        try {
-                            currentThread.join(500);
-                        } catch (final InterruptedException ex ) {
-                        }
-                    }
-                }
-
-                log.info("publish: Shutdown off all remaining publishing thread finished.");
-
-            } catch (final Exception ee ) {
-                log.warn("publish: Unexpected error while trying to shutdown all remaining publishing threads.", e);
-            }
-
+            // the probes which are still running finish in the background
+            log.info("publish: Interruption detected while publishing my seed.");
             return false;
         }
     }
 
+    public void close() {
+        this.prober.close();
+    }
+
     @SuppressWarnings("unchecked")
     public static HashMap<String, String> getSeedUploadMethods() {
         synchronized ( Network.seedUploadMethods ) {
@@ -0,0 +1,212 @@
+/**
+ *  PeerProber
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * Runs the liveness probes (the hello handshake) of the peer ping on a bounded pool of worker threads
+ * and schedules every peer according to its probe history.
+ * A peer which answered is probed again after twice its last interval, up to a maximum interval, while a
+ * peer which did not answer falls back to the minimum interval. This way stable peers cost few probes and the
+ * probes of a ping round go to the peers whose state is uncertain. A probe which is still running at the end
+ * of a round is not interrupted; it finishes in the background and the peer is not probed again until then.
+ */
+public class PeerProber {
+
+    /**
+     * the probe of a single peer
+     */
+    public interface Probe {
+        /**
+         * @param seed the peer
+         * @return true if the peer answered
+         */
+        public boolean probe(Seed seed);
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Probe probe;
+    private final long minInterval, maxInterval;
+    private final Map<String, Schedule> schedules; // peer hash to probe schedule
+
+    /**
+     * @param concurrency the maximum number of probes which run at the same time
+     * @param minInterval the minimum time in milliseconds between two probes of the same peer
+     * @param maxInterval the maximum time in milliseconds between two probes of the same peer
+     * @param probe the probe
+     */
+    public PeerProber(final int concurrency, final long minInterval, final long maxInterval, final Probe probe) {
+        final int threads = Math.max(1, concurrency);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory("PeerProber"));
+        this.executor.allowCoreThreadTimeOut(true); // no idle threads between the ping rounds
+        this.probe = probe;
+        this.minInterval = Math.max(0, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.schedules = new ConcurrentHashMap<String, Schedule>();
+    }
+
+    /**
+     * probe the peers which are due, at most max of them, and wait for the results
+     * @param seeds the candidates
+     * @param max the maximum number of probes
+     * @param timeout the maximum time in milliseconds to wait for the probes
+     * @return the number of peers which answered within the timeout
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public int probe(final Iterable<Seed> seeds, final int max, final long timeout) throws InterruptedException {
+        final long now = System.currentTimeMillis();
+        cleanup(now);
+        final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (final Seed seed: seeds) {
+            if (results.size() >= max) break;
+            if (seed == null || seed.hash == null) continue;
+            Schedule schedule = this.schedules.get(seed.hash);
+            if (schedule == null) {
+                schedule = new Schedule(this.minInterval);
+                final Schedule s = this.schedules.putIfAbsent(seed.hash, schedule);
+                if (s != null) schedule = s;
+            }
+            if (!schedule.start(now)) continue;
+            results.add(this.executor.submit(new Task(seed, schedule)));
+        }
+        final long deadline = now + timeout;
+        int answered = 0;
+        for (final Future<Boolean> result: results) {
+            try {
+                if (result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS).booleanValue()) answered++;
+            } catch (final TimeoutException e) {
+                // the probe continues in the background
+            } catch (final ExecutionException e) {
+                // the task reports its failures itself
+            }
+        }
+        return answered;
+    }
+
+    /**
+     * @param hash the peer hash
+     * @return true if the peer may be probed now
+     */
+    public boolean isDue(final String hash) {
+        final Schedule schedule = this.schedules.get(hash);
+        return schedule == null || schedule.isDue(System.currentTimeMillis());
+    }
+
+    /**
+     * @param hash the peer hash
+     * @return the current probe interval of the peer in milliseconds
+     */
+    public long interval(final String hash) {
+        final Schedule schedule = this.schedules.get(hash);
+        return schedule == null ? this.minInterval : schedule.interval;
+    }
+
+    /**
+     * @return the number of probes which are running or waiting for a worker
+     */
+    public int running() {
+        return this.executor.getActiveCount() + this.executor.getQueue().size();
+    }
+
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * remove the schedules of peers which have not been probed for a long time
+     */
+    private void cleanup(final long now) {
+        final Iterator<Schedule> i = this.schedules.values().iterator();
+        while (i.hasNext()) {
+            final Schedule schedule = i.next();
+            synchronized (schedule) {
+                if (!schedule.running && schedule.next + this.maxInterval < now) i.remove();
+            }
+        }
+    }
+
+    private class Schedule {
+
+        private long interval;
+        private long next = 0;
+        private boolean running = false;
+
+        private Schedule(final long interval) {
+            this.interval = interval;
+        }
+
+        private synchronized boolean isDue(final long now) {
+            return !this.running && this.next <= now;
+        }
+
+        private synchronized boolean start(final long now) {
+            if (!isDue(now)) return false;
+            this.running = true;
+            return true;
+        }
+
+        private synchronized void done(final boolean answered) {
+            this.interval = answered ? Math.min(PeerProber.this.maxInterval, Math.max(1, this.interval) * 2) : PeerProber.this.minInterval;
+            this.next = System.currentTimeMillis() + this.interval;
+            this.running = false;
+        }
+    }
+
+    private class Task implements Callable<Boolean> {
+
+        private final Seed seed;
+        private final Schedule schedule;
+
+        private Task(final Seed seed, final Schedule schedule) {
+            this.seed = seed;
+            this.schedule = schedule;
+        }
+
+        @Override
+        public Boolean call() {
+            boolean answered = false;
+            try {
+                answered = PeerProber.this.probe.probe(this.seed);
+            } catch (final Exception e) {
+                ConcurrentLog.logException(e);
+                Network.log.severe("PeerProber: error with target seed " + this.seed.hash + ": " + e.getMessage(), e);
+            } finally {
+                this.schedule.done(answered);
+            }
+            return answered;
+        }
+    }
+
+}
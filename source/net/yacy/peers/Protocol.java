@@ -953,6 +953,7 @@ public final class Protocol {
             parts.put("maxdist", UTF8.StringBody(Integer.toString(maxDistance)));
             parts.put("profile", UTF8.StringBody(crypt.simpleEncode(event.query.ranking.toExternalString())));
             parts.put("constraint", UTF8.StringBody((event.query.constraint == null) ? "" : event.query.constraint.exportB64()));
+            parts.put(SearchResultCodec.FORMAT_ATTRIBUTE, UTF8.StringBody(SearchResultCodec.FORMAT));
             if ( secondarySearchSuperviser != null ) {
                 parts.put("abstracts", UTF8.StringBody("auto"));
                 // resultMap = FileUtils.table(HTTPConnector.getConnector(MultiProtocolURI.yacybotUserAgent).post(new MultiProtocolURI("http://" + hostaddress + "/yacy/search.html"), 60000, hostname, parts));
@@ -1006,6 +1007,19 @@ public final class Protocol {
             }
             this.references = CommonPattern.COMMA.split(resultMap.get("references"));
             this.links = new ArrayList<URIMetadataNode>(this.availableCount);
+            final String resources = resultMap.get(SearchResultCodec.RESPONSE_PROPERTY);
+            if ( resources != null ) {
+                // the remote peer answered with the binary result format
+                for ( final Map<String, String> properties : SearchResultCodec.decode(resources) ) {
+                    final URIMetadataNode urlEntry = URIMetadataNode.importEntry(properties, "dht");
+                    if ( urlEntry == null ) {
+                        continue;
+                    }
+                    this.links.add(urlEntry);
+                }
+                return;
+            }
+            // fallback to the text format of peers which do not know the binary format
             for ( int n = 0; n < this.availableCount; n++ ) {
                 // get one single search result
                 final String resultLine = resultMap.get("resource" + n);
@@ -1814,20 +1828,7 @@ public final class Protocol {
             }
 
             int indexcount = 0;
-            final StringBuilder entrypost = new StringBuilder(indexes.size() * 73);
-            Iterator<WordReference> eenum;
-            Reference entry;
-            for ( final ReferenceContainer<WordReference> ic : indexes ) {
-                eenum = ic.entries();
-                while ( eenum.hasNext() ) {
-                    entry = eenum.next();
-                    entrypost
-                            .append(ASCII.String(ic.getTermHash()))
-                            .append(entry.toPropertyForm())
-                            .append(serverCore.CRLF_STRING);
-                    indexcount++;
-                }
-            }
+            for ( final ReferenceContainer<WordReference> ic : indexes ) indexcount += ic.size();
 
             if ( indexcount == 0 ) {
                 // nothing to do but everything ok
@@ -1840,7 +1841,15 @@ public final class Protocol {
                 final Map<String, ContentBody> parts = basicRequestParts(Switchboard.getSwitchboard(), targetSeed.hash, salt);
                 parts.put("wordc", UTF8.StringBody(Integer.toString(indexes.size())));
                 parts.put("entryc", UTF8.StringBody(Integer.toString(indexcount)));
-                parts.put("indexes", UTF8.StringBody(entrypost.toString()));
+                final String entrypost;
+                if (targetSeed.getFlagAcceptBinaryRWI()) {
+                    // the target decodes the rows directly into reference containers
+                    entrypost = RWITransferCodec.encode(indexes);
+                    parts.put(RWITransferCodec.FORMAT_ATTRIBUTE, UTF8.StringBody(RWITransferCodec.FORMAT));
+                } else {
+                    entrypost = textIndexes(indexes, indexcount);
+                }
+                parts.put("indexes", UTF8.StringBody(entrypost));
                 final HTTPClient httpClient = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, timeout);
                 byte[] content = null;
                 try {
@@ -1877,6 +1886,28 @@ public final class Protocol {
         return null;
     }
 
+    /**
+     * @param indexes the index entries to transfer
+     * @param indexcount the number of index entries
+     * @return the index entries as lines of term hash and property form, for peers without the binary format
+     */
+    private static String textIndexes(final ReferenceContainerCache<WordReference> indexes, final int indexcount) {
+        final StringBuilder entrypost = new StringBuilder(indexcount * 73);
+        Iterator<WordReference> eenum;
+        Reference entry;
+        for ( final ReferenceContainer<WordReference> ic : indexes ) {
+            eenum = ic.entries();
+            while ( eenum.hasNext() ) {
+                entry = eenum.next();
+                entrypost
+                        .append(ASCII.String(ic.getTermHash()))
+                        .append(entry.toPropertyForm())
+                        .append(serverCore.CRLF_STRING);
+            }
+        }
+        return entrypost.toString();
+    }
+
     /**
      * Transfer URL entries to remote peer
      *
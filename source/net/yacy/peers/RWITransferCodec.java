@@ -0,0 +1,200 @@
+/**
+ *  RWITransferCodec
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceFactory;
+
+/**
+ * A compact binary encoding of the reference containers of a DHT transmission (yacy/transferRWI.html).
+ * The text format transmits every reference as a property list line with its term hash, which the receiver
+ * must parse field by field; this encoding instead writes the rows of each container as they are stored:
+ * <pre>
+ * block     := magic version varint(rowSize) varint(containerCount) container*
+ * container := termHash varint(rowCount) row*
+ * </pre>
+ * The block is gzipped if that makes it smaller and is then transported as a single base64 value in the
+ * 'indexes' attribute of the request. The sender uses the format only if the target peer announces it with
+ * {@link Seed#getFlagAcceptBinaryRWI()} and marks the request with the {@link #FORMAT_ATTRIBUTE}.
+ */
+public class RWITransferCodec {
+
+    /** name of the request attribute which marks the binary format */
+    public static final String FORMAT_ATTRIBUTE = "indexformat";
+
+    /** value of the request attribute for this format version */
+    public static final String FORMAT = "bin1";
+
+    private static final byte MAGIC = 'W';
+    private static final byte VERSION = 1;
+    private static final int compressionThreshold = 512; // smaller blocks are not compressed
+    private static final int maxDecodedSize = 10 * 1024 * 1024; // protection against compression bombs
+
+    /**
+     * encode a set of reference containers
+     * @param containers the containers
+     * @return the encoded containers as 'z|' (gzip) or 'b|' (plain) prefixed base64 string
+     */
+    public static String encode(final Iterable<ReferenceContainer<WordReference>> containers) {
+        final int rowSize = WordReferenceRow.urlEntryRow.objectsize;
+        int containerCount = 0, size = 0;
+        for (final ReferenceContainer<WordReference> container: containers) {
+            if (container.isEmpty()) continue;
+            assert container.row().objectsize == rowSize;
+            containerCount++;
+            size += container.size();
+        }
+        final ByteArrayOutputStream block = new ByteArrayOutputStream(containerCount * (Word.commonHashLength + 3) + size * rowSize + 16);
+        block.write(MAGIC);
+        block.write(VERSION);
+        writeVarint(block, rowSize);
+        writeVarint(block, containerCount);
+        for (final ReferenceContainer<WordReference> container: containers) {
+            if (container.isEmpty()) continue;
+            block.write(container.getTermHash(), 0, Word.commonHashLength);
+            writeVarint(block, container.size());
+            for (final Row.Entry row: container) {
+                final byte[] b = row.bytes();
+                block.write(b, 0, rowSize);
+            }
+        }
+        final byte[] b = block.toByteArray();
+        if (b.length >= compressionThreshold) {
+            final byte[] z = gzip(b);
+            if (z.length < b.length) return "z|" + Base64Order.enhancedCoder.encode(z);
+        }
+        return "b|" + Base64Order.enhancedCoder.encode(b);
+    }
+
+    /**
+     * decode a set of reference containers
+     * @param encoded a string produced by {@link #encode(Iterable)}
+     * @param factory the factory of the references
+     * @param maxReferences the maximum number of references which are decoded; further references are ignored
+     * @return the containers in the order of the encoding
+     * @throws IOException if the string is not a valid encoding
+     */
+    public static List<ReferenceContainer<WordReference>> decode(final String encoded, final ReferenceFactory<WordReference> factory, final int maxReferences) throws IOException {
+        if (encoded == null || encoded.length() < 2 || encoded.charAt(1) != '|') throw new IOException("not a binary index transmission");
+        byte[] b;
+        try {
+            b = Base64Order.enhancedCoder.decode(encoded.substring(2));
+        } catch (final RuntimeException e) {
+            throw new IOException("bad base64 encoding of index transmission: " + e.getMessage());
+        }
+        if (encoded.charAt(0) == 'z') {
+            b = gunzip(b);
+        } else if (encoded.charAt(0) != 'b') {
+            throw new IOException("unknown index transmission encoding " + encoded.charAt(0));
+        }
+        final ByteArrayInputStream in = new ByteArrayInputStream(b);
+        if (in.read() != MAGIC) throw new IOException("bad magic in index transmission");
+        final int version = in.read();
+        if (version != VERSION) throw new IOException("unsupported index transmission version " + version);
+        final Row row = factory.getRow();
+        final int rowSize = readVarint(in);
+        if (rowSize != row.objectsize) throw new IOException("row size " + rowSize + " in index transmission does not match " + row.objectsize);
+        final int containerCount = readVarint(in);
+        if (containerCount < 0) throw new IOException("bad container count in index transmission");
+        final List<ReferenceContainer<WordReference>> containers = new ArrayList<ReferenceContainer<WordReference>>(Math.min(containerCount, 1000));
+        int references = 0;
+        for (int c = 0; c < containerCount && references < maxReferences; c++) {
+            final byte[] termHash = new byte[Word.commonHashLength];
+            if (in.read(termHash, 0, termHash.length) != termHash.length) throw new IOException("truncated term hash in index transmission");
+            final int rowCount = readVarint(in);
+            if (rowCount < 0 || (long) rowCount * rowSize > in.available()) throw new IOException("truncated container " + c + " in index transmission");
+            final int count = Math.min(rowCount, maxReferences - references);
+            final byte[] rows = new byte[rowCount * rowSize];
+            in.read(rows, 0, rows.length);
+            try {
+                final ReferenceContainer<WordReference> container = new ReferenceContainer<WordReference>(factory, termHash, count);
+                for (int r = 0; r < count; r++) container.put(row.newEntry(rows, r * rowSize, true)); // put removes double entries
+                containers.add(container);
+                references += container.size();
+            } catch (final SpaceExceededException e) {
+                throw new IOException("not enough memory to decode index transmission: " + e.getMessage());
+            }
+        }
+        return containers;
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream out, int v) {
+        while ((v & ~0x7f) != 0) {
+            out.write((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int readVarint(final InputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.read();
+            if (b < 0) throw new IOException("unexpected end of index transmission");
+            v |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("bad varint in index transmission");
+    }
+
+    private static byte[] gzip(final byte[] b) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(b.length / 3 + 32);
+        try {
+            final GZIPOutputStream out = new GZIPOutputStream(baos, 4096);
+            out.write(b);
+            out.close();
+        } catch (final IOException e) {
+            // not possible on a byte array stream
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] gunzip(final byte[] b) throws IOException {
+        final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(b), 4096);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(b.length * 4);
+        final byte[] buffer = new byte[4096];
+        int c;
+        try {
+            while ((c = in.read(buffer)) > 0) {
+                out.write(buffer, 0, c);
+                if (out.size() > maxDecodedSize) throw new IOException("index transmission too large");
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,226 @@
+/**
+ *  SearchResultCodec
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.order.Base64Order;
+
+/**
+ * A compact binary encoding of the result list of a remote search (yacy/search.html).
+ * The text format transmits every result as a property list line where most values are additionally
+ * base64-encoded; this encoding instead writes all results into one length-prefixed binary block:
+ * <pre>
+ * block   := magic version varint(recordCount) record*
+ * record  := varint(recordLength) varint(propertyCount) property*
+ * property:= key varint(valueLength) value
+ * key     := byte(index into {@link #KEYS}) | 0xff varint(keyLength) keyname
+ * </pre>
+ * The block is gzipped if that makes it smaller and is then transported as a single base64 value
+ * in the key/value response of the search servlet, so the response stays readable for the
+ * existing parser. The format is only used if the requesting peer asked for it with the
+ * {@link #FORMAT_ATTRIBUTE} set to {@link #FORMAT}; peers not knowing the format get the text form.
+ */
+public class SearchResultCodec {
+
+    /** name of the request attribute which announces the support of the binary format */
+    public static final String FORMAT_ATTRIBUTE = "resultformat";
+
+    /** value of the request attribute for this format version */
+    public static final String FORMAT = "bin1";
+
+    /** name of the response property which holds the encoded result list */
+    public static final String RESPONSE_PROPERTY = "resources";
+
+    /** the well-known property names of a search result; the index of a name is its binary key */
+    private static final String[] KEYS = new String[] {
+        "hash", "url", "descr", "author", "tags", "publisher", "lat", "lon", "mod", "load", "fresh", "referrer",
+        "size", "wc", "dt", "mime", "flags", "lang", "llocal", "lother", "limage", "laudio", "lvideo", "lapp",
+        "score", "wi", "favicon", "snippet"
+    };
+    private static final Map<String, Integer> KEYINDEX = new HashMap<String, Integer>();
+    static {
+        for (int i = 0; i < KEYS.length; i++) KEYINDEX.put(KEYS[i], i);
+    }
+
+    private static final int LITERAL_KEY = 0xff;
+    private static final byte MAGIC = 'Y';
+    private static final byte VERSION = 1;
+    private static final int compressionThreshold = 512; // smaller blocks are not compressed
+    private static final int maxDecodedSize = 10 * 1024 * 1024; // protection against compression bombs
+
+    /**
+     * encode a list of search results
+     * @param records the transport properties of each result; null values are omitted
+     * @return the encoded result list as 'z|' (gzip) or 'b|' (plain) prefixed base64 string
+     */
+    public static String encode(final List<? extends Map<String, String>> records) {
+        final ByteArrayOutputStream block = new ByteArrayOutputStream(records.size() * 300 + 8);
+        final ByteArrayOutputStream record = new ByteArrayOutputStream(600);
+        block.write(MAGIC);
+        block.write(VERSION);
+        writeVarint(block, records.size());
+        for (final Map<String, String> properties: records) {
+            record.reset();
+            int count = 0;
+            for (final String value: properties.values()) if (value != null) count++;
+            writeVarint(record, count);
+            for (final Map.Entry<String, String> entry: properties.entrySet()) {
+                if (entry.getValue() == null) continue;
+                final Integer index = KEYINDEX.get(entry.getKey());
+                if (index == null) {
+                    record.write(LITERAL_KEY);
+                    writeBytes(record, UTF8.getBytes(entry.getKey()));
+                } else {
+                    record.write(index.intValue());
+                }
+                writeBytes(record, UTF8.getBytes(entry.getValue()));
+            }
+            writeVarint(block, record.size());
+            block.write(record.toByteArray(), 0, record.size());
+        }
+        final byte[] b = block.toByteArray();
+        if (b.length >= compressionThreshold) {
+            final byte[] z = gzip(b);
+            if (z.length < b.length) return "z|" + Base64Order.enhancedCoder.encode(z);
+        }
+        return "b|" + Base64Order.enhancedCoder.encode(b);
+    }
+
+    /**
+     * decode a list of search results
+     * @param encoded a string produced by {@link #encode(List)}
+     * @return the properties of each result in the order of the encoding
+     * @throws IOException if the string is not a valid encoding
+     */
+    public static List<Map<String, String>> decode(final String encoded) throws IOException {
+        if (encoded == null || encoded.length() < 2 || encoded.charAt(1) != '|') throw new IOException("not a binary search result");
+        byte[] b;
+        try {
+            b = Base64Order.enhancedCoder.decode(encoded.substring(2));
+        } catch (final RuntimeException e) {
+            throw new IOException("bad base64 encoding of search result: " + e.getMessage());
+        }
+        if (encoded.charAt(0) == 'z') {
+            b = gunzip(b);
+        } else if (encoded.charAt(0) != 'b') {
+            throw new IOException("unknown search result encoding " + encoded.charAt(0));
+        }
+        final ByteArrayInputStream in = new ByteArrayInputStream(b);
+        if (in.read() != MAGIC) throw new IOException("bad magic in search result");
+        final int version = in.read();
+        if (version != VERSION) throw new IOException("unsupported search result version " + version);
+        final int recordCount = readVarint(in);
+        if (recordCount < 0) throw new IOException("bad record count in search result");
+        final List<Map<String, String>> records = new ArrayList<Map<String, String>>(Math.min(recordCount, 1000));
+        for (int r = 0; r < recordCount; r++) {
+            final int recordLength = readVarint(in);
+            if (recordLength < 0 || recordLength > in.available()) throw new IOException("truncated search result record " + r);
+            final int propertyCount = readVarint(in);
+            final Map<String, String> properties = new LinkedHashMap<String, String>(Math.min(propertyCount, KEYS.length) * 2);
+            for (int p = 0; p < propertyCount; p++) {
+                final int k = in.read();
+                final String key;
+                if (k == LITERAL_KEY) {
+                    key = UTF8.String(readBytes(in));
+                } else if (k >= 0 && k < KEYS.length) {
+                    key = KEYS[k];
+                } else {
+                    throw new IOException("unknown key " + k + " in search result record " + r);
+                }
+                properties.put(key, UTF8.String(readBytes(in)));
+            }
+            records.add(properties);
+        }
+        return records;
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream out, int v) {
+        while ((v & ~0x7f) != 0) {
+            out.write((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int readVarint(final InputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.read();
+            if (b < 0) throw new IOException("unexpected end of search result");
+            v |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("bad varint in search result");
+    }
+
+    private static void writeBytes(final ByteArrayOutputStream out, final byte[] b) {
+        writeVarint(out, b.length);
+        out.write(b, 0, b.length);
+    }
+
+    private static byte[] readBytes(final InputStream in) throws IOException {
+        final int length = readVarint(in);
+        if (length < 0 || length > in.available()) throw new IOException("truncated value in search result");
+        final byte[] b = new byte[length];
+        if (in.read(b, 0, length) != length) throw new IOException("truncated value in search result");
+        return b;
+    }
+
+    private static byte[] gzip(final byte[] b) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(b.length / 3 + 32);
+        try {
+            final GZIPOutputStream out = new GZIPOutputStream(baos, 4096);
+            out.write(b);
+            out.close();
+        } catch (final IOException e) {
+            // not possible on a byte array stream
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] gunzip(final byte[] b) throws IOException {
+        final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(b), 4096);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(b.length * 4);
+        final byte[] buffer = new byte[4096];
+        int c;
+        try {
+            while ((c = in.read(buffer)) > 0) {
+                out.write(buffer, 0, c);
+                if (out.size() > maxDecodedSize) throw new IOException("search result too large");
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -31,7 +31,6 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -54,7 +53,6 @@ import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.cora.protocol.http.HTTPClient;
 import net.yacy.cora.util.CommonPattern;
 import net.yacy.cora.util.ConcurrentLog;
-import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.blob.MapDataMining;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.util.FileUtils;
@@ -85,6 +83,7 @@ public final class SeedDB implements AlternativeDomainNames {
     private File seedActiveDBFile, seedPassiveDBFile, seedPotentialDBFile;
     private File myOwnSeedFile;
     private MapDataMining seedActiveDB, seedPassiveDB, seedPotentialDB;
+    private final SeedRegistry seedActiveRegistry, seedPassiveRegistry, seedPotentialRegistry; // in-memory mirrors of the seed tables
 
     protected int lastSeedUpload_seedDBSize = 0;
     public long lastSeedUpload_timeStamp = System.currentTimeMillis();
@@ -120,6 +119,10 @@ public final class SeedDB implements AlternativeDomainNames {
         this.seedActiveDB = openSeedTable(this.seedActiveDBFile);
         this.seedPassiveDB = openSeedTable(this.seedPassiveDBFile);
         this.seedPotentialDB = openSeedTable(this.seedPotentialDBFile);
+        this.seedActiveRegistry = new SeedRegistry();
+        this.seedPassiveRegistry = new SeedRegistry();
+        this.seedPotentialRegistry = new SeedRegistry();
+        loadRegistries();
 
         // check if we are in the seedCaches: this can happen if someone else published our seed
         removeMySeed();
@@ -165,6 +168,7 @@ public final class SeedDB implements AlternativeDomainNames {
         this.seedActiveDB = openSeedTable(this.seedActiveDBFile);
         this.seedPassiveDB = openSeedTable(this.seedPassiveDBFile);
         this.seedPotentialDB = openSeedTable(this.seedPotentialDBFile);
+        loadRegistries();
 
         initMySeed();
         this.mySeed.setName(peername);
@@ -275,6 +279,9 @@ public final class SeedDB implements AlternativeDomainNames {
             this.seedActiveDB.delete(mySeedHash);
             this.seedPassiveDB.delete(mySeedHash);
             this.seedPotentialDB.delete(mySeedHash);
+            this.seedActiveRegistry.remove(this.mySeed.hash);
+            this.seedPassiveRegistry.remove(this.mySeed.hash);
+            this.seedPotentialRegistry.remove(this.mySeed.hash);
         } catch (final IOException e) { ConcurrentLog.warn("yacySeedDB", "could not remove hash ("+ e.getClass() +"): "+ e.getMessage()); }
     }
 
@@ -310,10 +317,28 @@ public final class SeedDB implements AlternativeDomainNames {
         }
     }
 
+    private synchronized void loadRegistries() {
+        this.seedActiveRegistry.load(this.seedActiveDB);
+        this.seedPassiveRegistry.load(this.seedPassiveDB);
+        this.seedPotentialRegistry.load(this.seedPotentialDB);
+    }
+
+    /**
+     * @return the registry which mirrors the given seed table or null if the table is not one of the seed tables
+     */
+    private SeedRegistry registry(final MapDataMining seedDB) {
+        if (seedDB == this.seedActiveDB) return this.seedActiveRegistry;
+        if (seedDB == this.seedPassiveDB) return this.seedPassiveRegistry;
+        if (seedDB == this.seedPotentialDB) return this.seedPotentialRegistry;
+        return null;
+    }
+
     private synchronized MapDataMining resetSeedTable(MapDataMining seedDB, final File seedDBFile) {
         // this is an emergency function that should only be used if any problem with the
         // seed.db is detected
         Network.log.warn("seed-db " + seedDBFile.toString() + " reset (on-the-fly)");
+        final SeedRegistry registry = registry(seedDB);
+        if (registry != null) registry.clear();
         seedDB.close();
         FileUtils.deletedelete(seedDBFile);
         if (seedDBFile.exists())
@@ -484,8 +509,11 @@ public final class SeedDB implements AlternativeDomainNames {
         synchronized (this) {
             try {
                 this.seedActiveDB.insert(ASCII.getBytes(seed.hash), seedPropMap);
+                this.seedActiveRegistry.put(seed.hash, seedPropMap);
                 this.seedPassiveDB.delete(ASCII.getBytes(seed.hash));
+                this.seedPassiveRegistry.remove(seed.hash);
                 this.seedPotentialDB.delete(ASCII.getBytes(seed.hash));
+                this.seedPotentialRegistry.remove(seed.hash);
             } catch (final Exception e) {
                 Network.log.severe("ERROR add: seed.db corrupt (" + e.getMessage() + "); resetting seed.db", e);
                 resetActiveTable();
@@ -498,12 +526,15 @@ public final class SeedDB implements AlternativeDomainNames {
         synchronized (this) {
             try {
                 this.seedActiveDB.delete(ASCII.getBytes(seed.hash));
+                this.seedActiveRegistry.remove(seed.hash);
                 this.seedPotentialDB.delete(ASCII.getBytes(seed.hash));
+                this.seedPotentialRegistry.remove(seed.hash);
             } catch (final Exception e) { ConcurrentLog.warn("yacySeedDB", "could not remove hash ("+ e.getClass() +"): "+ e.getMessage()); }
             //seed.put(yacySeed.LASTSEEN, yacyCore.shortFormatter.format(new Date(yacyCore.universalTime())));
             try {
                 final ConcurrentMap<String, String> seedPropMap = seed.getMap();
                 this.seedPassiveDB.insert(ASCII.getBytes(seed.hash), seedPropMap);
+                this.seedPassiveRegistry.put(seed.hash, seedPropMap);
             } catch (final Exception e) {
                 Network.log.severe("ERROR add: seed.db corrupt (" + e.getMessage() + "); resetting seed.db", e);
                 resetPassiveTable();
@@ -517,11 +548,14 @@ public final class SeedDB implements AlternativeDomainNames {
         synchronized (this) {
             try {
                 this.seedActiveDB.delete(ASCII.getBytes(seed.hash));
+                this.seedActiveRegistry.remove(seed.hash);
                 this.seedPassiveDB.delete(ASCII.getBytes(seed.hash));
+                this.seedPassiveRegistry.remove(seed.hash);
             } catch (final Exception e) { ConcurrentLog.warn("yacySeedDB", "could not remove hash ("+ e.getClass() +"): "+ e.getMessage()); }
             //seed.put(yacySeed.LASTSEEN, yacyCore.shortFormatter.format(new Date(yacyCore.universalTime())));
             try {
                 this.seedPotentialDB.insert(ASCII.getBytes(seed.hash), seedPropMap);
+                this.seedPotentialRegistry.put(seed.hash, seedPropMap);
             } catch (final Exception e) {
                 Network.log.severe("ERROR add: seed.db corrupt (" + e.getMessage() + "); resetting seed.db", e);
                 resetPotentialTable();
@@ -533,6 +567,7 @@ public final class SeedDB implements AlternativeDomainNames {
     	if (peerHash == null) return;
     	try {
 			this.seedPassiveDB.delete(ASCII.getBytes(peerHash));
+			this.seedPassiveRegistry.remove(peerHash);
 		} catch (final IOException e) { ConcurrentLog.warn("yacySeedDB", "could not remove hash ("+ e.getClass() +"): "+ e.getMessage()); }
     }
 
@@ -540,87 +575,58 @@ public final class SeedDB implements AlternativeDomainNames {
     	if (peerHash == null) return;
     	try {
 			this.seedPotentialDB.delete(ASCII.getBytes(peerHash));
+			this.seedPotentialRegistry.remove(peerHash);
 		} catch (final IOException e) { ConcurrentLog.warn("yacySeedDB", "could not remove hash ("+ e.getClass() +"): "+ e.getMessage()); }
     }
 
     public boolean hasConnected(final byte[] hash) {
-        return this.seedActiveDB.containsKey(hash);
+        return this.seedActiveRegistry.contains(ASCII.String(hash));
     }
 
     public boolean hasDisconnected(final byte[] hash) {
-        return this.seedPassiveDB.containsKey(hash);
+        return this.seedPassiveRegistry.contains(ASCII.String(hash));
     }
 
     public boolean hasPotential(final byte[] hash) {
-        return this.seedPotentialDB.containsKey(hash);
-    }
-
-    private Seed get(final String hash, final MapDataMining database) {
-        if (hash == null || hash.isEmpty()) return null;
-        if ((this.mySeed != null) && (hash.equals(this.mySeed.hash))) return this.mySeed;
-        final ConcurrentHashMap<String, String> entry = new ConcurrentHashMap<String, String>();
-        try {
-            final Map<String, String> map = database.get(ASCII.getBytes(hash));
-            if (map == null) return null;
-            entry.putAll(map);
-        } catch (final IOException e) {
-            ConcurrentLog.logException(e);
-            return null;
-        } catch (final SpaceExceededException e) {
-            ConcurrentLog.logException(e);
-            return null;
-        }
-        return new Seed(hash, entry);
+        return this.seedPotentialRegistry.contains(ASCII.String(hash));
     }
 
     /**
-     * Get seed denoted by hash from the given database.
+     * Get seed denoted by hash from the registry of the given table.
      * If hash equals own peers hash, the own seed is returned
-     * !(regardless if included in given database)
+     * !(regardless if included in given table)
      * @param hash
-     * @param database
+     * @param registry
      * @return seed with hash or null
      */
-    private Seed get(final byte[] hash, final MapDataMining database) {
-        if (hash == null || hash.length == 0) return null;
-        if ((this.mySeed != null) && (ASCII.String(hash).equals(this.mySeed.hash))) return this.mySeed;
-        final ConcurrentHashMap<String, String> entry = new ConcurrentHashMap<String, String>();
-        try {
-            final Map<String, String> map = database.get(hash);
-            if (map == null) return null;
-            entry.putAll(map);
-        } catch (final IOException e) {
-            ConcurrentLog.logException(e);
-            return null;
-        } catch (final SpaceExceededException e) {
-            ConcurrentLog.logException(e);
-            return null;
-        }
-        return new Seed(ASCII.String(hash), entry);
+    private Seed get(final String hash, final SeedRegistry registry) {
+        if (hash == null || hash.isEmpty()) return null;
+        if ((this.mySeed != null) && (hash.equals(this.mySeed.hash))) return this.mySeed;
+        return registry.get(hash);
     }
 
     public Seed getConnected(final String hash) {
-        return get(hash, this.seedActiveDB);
+        return get(hash, this.seedActiveRegistry);
     }
 
     public Seed getConnected(final byte[] hash) {
-        return get(hash, this.seedActiveDB);
+        return hash == null ? null : get(ASCII.String(hash), this.seedActiveRegistry);
     }
 
     public Seed getDisconnected(final String hash) {
-        return get(hash, this.seedPassiveDB);
+        return get(hash, this.seedPassiveRegistry);
     }
 
     public Seed getDisconnected(final byte[] hash) {
-        return get(hash, this.seedPassiveDB);
+        return hash == null ? null : get(ASCII.String(hash), this.seedPassiveRegistry);
     }
 
     public Seed getPotential(final String hash) {
-        return get(hash, this.seedPotentialDB);
+        return get(hash, this.seedPotentialRegistry);
     }
 
     public Seed getPotential(final byte[] hash) {
-        return get(hash, this.seedPotentialDB);
+        return hash == null ? null : get(ASCII.String(hash), this.seedPotentialRegistry);
     }
 
     public Seed get(final String hash) {
@@ -636,6 +642,7 @@ public final class SeedDB implements AlternativeDomainNames {
         synchronized (this) {
             if (this.seedActiveDB.containsKey(ASCII.getBytes(seed.hash))) try {
                 this.seedActiveDB.insert(ASCII.getBytes(seed.hash), seedPropMap);
+                this.seedActiveRegistry.put(seed.hash, seedPropMap);
             } catch (final Exception e) {
                 Network.log.severe("ERROR add: seed.db corrupt (" + e.getMessage() + "); resetting seed.db", e);
                 resetActiveTable();
@@ -648,6 +655,7 @@ public final class SeedDB implements AlternativeDomainNames {
         synchronized (this) {
             if (this.seedPassiveDB.containsKey(ASCII.getBytes(seed.hash))) try {
                 this.seedPassiveDB.insert(ASCII.getBytes(seed.hash), seedPropMap);
+                this.seedPassiveRegistry.put(seed.hash, seedPropMap);
             } catch (final Exception e) {
                 Network.log.severe("ERROR add: seed.db corrupt (" + e.getMessage() + "); resetting seed.db", e);
                 resetActiveTable();
@@ -660,6 +668,7 @@ public final class SeedDB implements AlternativeDomainNames {
         synchronized (this) {
             if (this.seedPotentialDB.containsKey(ASCII.getBytes(seed.hash))) try {
                 this.seedPotentialDB.insert(ASCII.getBytes(seed.hash), seedPropMap);
+                this.seedPotentialRegistry.put(seed.hash, seedPropMap);
             } catch (final Exception e) {
                 Network.log.severe("ERROR add: seed.db corrupt (" + e.getMessage() + "); resetting seed.db", e);
                 resetActiveTable();
@@ -680,28 +689,12 @@ public final class SeedDB implements AlternativeDomainNames {
         peerName = peerName.toLowerCase();
         Seed seed;
 
-        // enumerate the cache
+        // look up the registries
         String name = Seed.checkPeerName(peerName);
-        synchronized (this) { try {
-            Collection<byte[]> idx = this.seedActiveDB.select(Seed.NAME, name);
-            for (byte[] pk: idx) {
-                seed = this.getConnected(pk);
-                if (seed == null) continue;
-                //System.out.println("*** found lookupByName in seedActiveDB: " + peerName);
-                return seed;
-            }
-        } catch (final  IOException e ) {
-        }}
-        synchronized (this) { try {
-            Collection<byte[]> idx = this.seedPassiveDB.select(Seed.NAME, name);
-            for (byte[] pk: idx) {
-                seed = this.getDisconnected(pk);
-                if (seed == null) continue;
-                //System.out.println("*** found lookupByName in seedPassiveDB: " + peerName);
-                return seed;
-            }
-        } catch (final  IOException e ) {
-        }}
+        seed = this.seedActiveRegistry.lookupByName(name);
+        if (seed != null) return seed;
+        seed = this.seedPassiveRegistry.lookupByName(name);
+        if (seed != null) return seed;
 
         // check local seed
         if (this.mySeed == null) initMySeed();
@@ -746,48 +739,18 @@ public final class SeedDB implements AlternativeDomainNames {
         String ipString = peerIP.getHostAddress();
 
         if (lookupConnected) {
-            try {
-                Collection<byte[]> idx = this.seedActiveDB.select(Seed.IP, ipString);
-                for (byte[] pk: idx) {
-                    seed = this.getConnected(pk);
-                    if (seed == null) continue;
-                    if (port > 0 && seed.getPort() != port) continue;
-                    //System.out.println("*** found lookupByIP in connected: " + peerIP.toString() + " -> " + seed.getName());
-                    return seed;
-                }
-            } catch (final IOException e ) {
-                ConcurrentLog.logException(e);
-            }
+            seed = this.seedActiveRegistry.lookupByIP(ipString, port);
+            if (seed != null) return seed;
         }
 
         if (lookupDisconnected) {
-            try {
-                Collection<byte[]> idx = this.seedPassiveDB.select(Seed.IP, ipString);
-                for (byte[] pk: idx) {
-                    seed = this.getDisconnected(pk);
-                    if (seed == null) continue;
-                    if (port > 0 && seed.getPort() != port) continue;
-                    //System.out.println("*** found lookupByIP in disconnected: " + peerIP.toString() + " -> " + seed.getName());
-                    return seed;
-                }
-            } catch (final IOException e ) {
-                ConcurrentLog.logException(e);
-            }
+            seed = this.seedPassiveRegistry.lookupByIP(ipString, port);
+            if (seed != null) return seed;
         }
 
         if (lookupPotential) {
-            try {
-                Collection<byte[]> idx = this.seedPotentialDB.select(Seed.IP, ipString);
-                for (byte[] pk: idx) {
-                    seed = this.getPotential(pk);
-                    if (seed == null) continue;
-                    if (port > 0 && seed.getPort() != port) continue;
-                    //System.out.println("*** found lookupByIP in potential: " + peerIP.toString() + " -> " + seed.getName());
-                    return seed;
-                }
-            } catch (final IOException e ) {
-                ConcurrentLog.logException(e);
-            }
+            seed = this.seedPotentialRegistry.lookupByIP(ipString, port);
+            if (seed != null) return seed;
         }
 
         // check local seed
@@ -1104,6 +1067,8 @@ public final class SeedDB implements AlternativeDomainNames {
             	// emergency reset
             	Network.log.severe("seed-db emergency reset", e);
             	this.database.clear();
+            	final SeedRegistry registry = registry(this.database);
+            	if (registry != null) registry.clear();
 				this.nextSeed = null;
 				return null;
             }
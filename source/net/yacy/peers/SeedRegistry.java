@@ -0,0 +1,204 @@
+/**
+ *  SeedRegistry
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.blob.MapDataMining;
+
+/**
+ * An in-memory mirror of one of the seed tables of the {@link SeedDB}.
+ * The seed tables are heap files which decode the property map of a seed on every access and which can only
+ * be searched by a field value with a scan over all entries. Peer lookups during the authentication of
+ * remote requests and the selection of search targets should not pay for that, so this registry holds an
+ * immutable snapshot of the properties of every seed together with indexes by hash, by name and by IP.
+ * The registry must be updated together with the table whenever an entry is inserted or deleted; the
+ * {@link SeedDB} does that within its own lock, while lookups are lock-free.
+ */
+public class SeedRegistry {
+
+    private final ConcurrentHashMap<String, Snapshot> seeds; // peer hash to properties
+    private final ConcurrentHashMap<String, Set<String>> names; // lower case peer name to peer hashes
+    private final ConcurrentHashMap<String, Set<String>> ips; // IP to peer hashes, the port is checked on the snapshot
+
+    public SeedRegistry() {
+        this.seeds = new ConcurrentHashMap<String, Snapshot>();
+        this.names = new ConcurrentHashMap<String, Set<String>>();
+        this.ips = new ConcurrentHashMap<String, Set<String>>();
+    }
+
+    /**
+     * replace the content of the registry with all entries of a seed table
+     * @param table the seed table
+     * @return the number of seeds in the registry
+     */
+    public synchronized int load(final MapDataMining table) {
+        clear();
+        try {
+            final Iterator<Map.Entry<byte[], Map<String, String>>> i = table.entries(true, false);
+            while (i.hasNext()) {
+                final Map.Entry<byte[], Map<String, String>> entry = i.next();
+                if (entry == null || entry.getKey() == null || entry.getValue() == null) continue;
+                put(ASCII.String(entry.getKey()), entry.getValue());
+            }
+        } catch (final IOException e) {
+            ConcurrentLog.warn("yacySeedDB", "could not load seed registry: " + e.getMessage());
+        }
+        return this.seeds.size();
+    }
+
+    /**
+     * add or replace a seed
+     * @param hash the peer hash
+     * @param dna the properties of the seed as they are written to the seed table; the map is copied
+     */
+    public synchronized void put(final String hash, final Map<String, String> dna) {
+        final Snapshot snapshot = new Snapshot(dna);
+        final Snapshot old = this.seeds.put(hash, snapshot);
+        index(this.names, snapshot.name, hash);
+        index(this.ips, snapshot.ip, hash);
+        if (old == null) return;
+        if (old.name != null && !old.name.equals(snapshot.name)) unindex(this.names, old.name, hash);
+        if (old.ip != null && !old.ip.equals(snapshot.ip)) unindex(this.ips, old.ip, hash);
+    }
+
+    public synchronized void remove(final String hash) {
+        if (hash == null) return;
+        final Snapshot old = this.seeds.remove(hash);
+        if (old == null) return;
+        unindex(this.names, old.name, hash);
+        unindex(this.ips, old.ip, hash);
+    }
+
+    public synchronized void clear() {
+        this.seeds.clear();
+        this.names.clear();
+        this.ips.clear();
+    }
+
+    public boolean contains(final String hash) {
+        return hash != null && this.seeds.containsKey(hash);
+    }
+
+    public int size() {
+        return this.seeds.size();
+    }
+
+    /**
+     * get a seed by its hash
+     * @param hash the peer hash
+     * @return a new seed object with a copy of the registered properties, or null if the hash is unknown.
+     * The seed may be modified by the caller; changes are stored with the update methods of the {@link SeedDB}.
+     */
+    public Seed get(final String hash) {
+        if (hash == null) return null;
+        final Snapshot snapshot = this.seeds.get(hash);
+        return snapshot == null ? null : snapshot.seed(hash);
+    }
+
+    /**
+     * get a seed by its name
+     * @param name the peer name, compared case-insensitive
+     * @return a seed with that name or null if there is no such seed
+     */
+    public Seed lookupByName(final String name) {
+        if (name == null) return null;
+        final Set<String> hashes = this.names.get(name.toLowerCase(Locale.ROOT));
+        if (hashes == null) return null;
+        for (final String hash: hashes) {
+            final Seed seed = get(hash);
+            if (seed != null) return seed;
+        }
+        return null;
+    }
+
+    /**
+     * get a seed by its IP
+     * @param ip the IP as given in the {@link Seed#IP} field
+     * @param port the port of the seed or -1 if the port is not significant
+     * @return a seed with that address or null if there is no such seed
+     */
+    public Seed lookupByIP(final String ip, final int port) {
+        if (ip == null) return null;
+        final Set<String> hashes = this.ips.get(ip);
+        if (hashes == null) return null;
+        for (final String hash: hashes) {
+            final Snapshot snapshot = this.seeds.get(hash);
+            if (snapshot == null) continue;
+            if (port > 0 && snapshot.port != port) continue;
+            return snapshot.seed(hash);
+        }
+        return null;
+    }
+
+    private static void index(final ConcurrentHashMap<String, Set<String>> index, final String key, final String hash) {
+        if (key == null) return;
+        Set<String> hashes = index.get(key);
+        if (hashes == null) {
+            hashes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            index.put(key, hashes);
+        }
+        hashes.add(hash);
+    }
+
+    private static void unindex(final ConcurrentHashMap<String, Set<String>> index, final String key, final String hash) {
+        if (key == null) return;
+        final Set<String> hashes = index.get(key);
+        if (hashes == null) return;
+        hashes.remove(hash);
+        if (hashes.isEmpty()) index.remove(key);
+    }
+
+    private static class Snapshot {
+
+        private final Map<String, String> dna;
+        private final String name, ip;
+        private final int port;
+
+        private Snapshot(final Map<String, String> dna) {
+            this.dna = Collections.unmodifiableMap(new HashMap<String, String>(dna));
+            final String n = this.dna.get(Seed.NAME);
+            this.name = n == null ? null : Seed.checkPeerName(n).toLowerCase(Locale.ROOT);
+            this.ip = this.dna.get(Seed.IP);
+            int p = -1;
+            final String ps = this.dna.get(Seed.PORT);
+            if (ps != null) try {
+                p = Integer.parseInt(ps);
+            } catch (final NumberFormatException e) {
+                p = -1;
+            }
+            this.port = p;
+        }
+
+        private Seed seed(final String hash) {
+            return new Seed(hash, new ConcurrentHashMap<String, String>(this.dna));
+        }
+    }
+
+}
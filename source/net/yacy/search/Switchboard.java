@@ -54,13 +54,16 @@ import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -167,14 +170,17 @@ import net.yacy.document.Document;
 import net.yacy.document.LibraryProvider;
 import net.yacy.document.Parser;
 import net.yacy.document.Parser.Failure;
+import net.yacy.document.ParserLanes;
 import net.yacy.document.ProbabilisticClassifier;
 import net.yacy.document.TextParser;
 import net.yacy.document.Tokenizer;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.document.content.DCEntry;
-import net.yacy.document.content.SurrogateReader;
+import net.yacy.document.content.ParallelSurrogateReader;
+import net.yacy.document.content.SurrogateChunker;
 import net.yacy.document.importer.OAIListFriendsLoader;
 import net.yacy.document.importer.WarcImporter;
+import net.yacy.document.importer.WarcOffsetIndex;
 import net.yacy.document.parser.audioTagParser;
 import net.yacy.document.parser.pdfParser;
 import net.yacy.document.parser.html.Evaluation;
@@ -195,6 +201,7 @@ import net.yacy.kelondro.util.SetTools;
 import net.yacy.kelondro.workflow.BusyThread;
 import net.yacy.kelondro.workflow.InstantBusyThread;
 import net.yacy.kelondro.workflow.OneTimeBusyThread;
+import net.yacy.kelondro.workflow.WorkflowConcurrencyController;
 import net.yacy.kelondro.workflow.WorkflowProcessor;
 import net.yacy.kelondro.workflow.WorkflowTask;
 import net.yacy.kelondro.workflow.WorkflowThread;
@@ -216,6 +223,7 @@ import net.yacy.repository.Blacklist.BlacklistType;
 import net.yacy.repository.FilterEngine;
 import net.yacy.repository.LoaderDispatcher;
 import net.yacy.search.index.Fulltext;
+import net.yacy.search.index.NearDuplicateIndex;
 import net.yacy.search.index.Segment;
 import net.yacy.search.index.Segment.ReferenceReportCache;
 import net.yacy.search.query.AccessTracker;
@@ -578,6 +586,12 @@ public final class Switchboard extends serverSwitch {
         if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_CITATION, true)) try {
             this.index.connectCitation(wordCacheMaxCount, fileSizeMax);
         } catch (final IOException e) {ConcurrentLog.logException(e);}
+        if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_EDGES, false)) try {
+            this.index.connectHyperlinkEdges(this.getConfigInt(SwitchboardConstants.CORE_SERVICE_EDGES_PARTITIONS, SwitchboardConstants.CORE_SERVICE_EDGES_PARTITIONS_DEFAULT));
+        } catch (final IOException e) {ConcurrentLog.logException(e);}
+        this.index.setNearDuplicateIndex(
+                this.getConfigInt(SwitchboardConstants.INDEX_NEARDUPLICATES_CAPACITY, SwitchboardConstants.INDEX_NEARDUPLICATES_CAPACITY_DEFAULT),
+                Math.max(0, Math.min(3, this.getConfigInt(SwitchboardConstants.INDEX_NEARDUPLICATES_DISTANCE, SwitchboardConstants.INDEX_NEARDUPLICATES_DISTANCE_DEFAULT))));
 		if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_FULLTEXT,
 				SwitchboardConstants.CORE_SERVICE_FULLTEXT_DEFAULT)) {
             try {this.index.fulltext().connectLocalSolr();} catch (final IOException e) {ConcurrentLog.logException(e);}
@@ -892,6 +906,14 @@ public final class Switchboard extends serverSwitch {
         TextParser.setDenyExtension(getConfig(SwitchboardConstants.PARSER_EXTENSIONS_DENY, ""));
         pdfParser.individualPages = getConfigBool(SwitchboardConstants.PARSER_PDF_INDIVIDUALPAGES, false);
         pdfParser.individualPagePropertyname = getConfig(SwitchboardConstants.PARSER_PDF_INDIVIDUALPAGES_KEY, "page");
+        for (final ParserLanes.Lane lane: ParserLanes.Lane.values()) {
+            if (!lane.threaded) continue; // markup parsers run in the indexer thread
+            final String prefix = SwitchboardConstants.PARSER_LANE_PREFIX + lane.key();
+            final int threads = getConfigInt(prefix + SwitchboardConstants.PARSER_LANE_THREADS_SUFFIX, 0);
+            ParserLanes.configure(lane,
+                    threads <= 0 ? lane.defaultThreads : threads,
+                    getConfigLong(prefix + SwitchboardConstants.PARSER_LANE_TIMEOUT_SUFFIX, lane.defaultTimeout));
+        }
 
         // start a loader
         this.log.config("Starting Crawl Loader");
@@ -1019,10 +1041,12 @@ public final class Switchboard extends serverSwitch {
         this.clusterhashes = this.peers.clusterHashes(getConfig("cluster.peers.yacydomain", ""));
 
         // deploy blocking threads
+        final int configuredStorageConcurrency = getConfigInt(SwitchboardConstants.INDEXER_STORAGE_CONCURRENCY, SwitchboardConstants.INDEXER_STORAGE_CONCURRENCY_DEFAULT);
+        final int storageConcurrency = configuredStorageConcurrency > 0 ? configuredStorageConcurrency : Math.max(1, WorkflowProcessor.availableCPU / 2);
         this.indexingStorageProcessor =
             new WorkflowProcessor<IndexingQueueEntry>(
                 "storeDocumentIndex",
-                "This is the sequencing step of the indexing queue. Files are written as streams, too much councurrency would destroy IO performance. In this process the words are written to the RWI cache, which flushes if it is full.",
+                "This is the last step of the indexing queue. In this process the words are written to the RWI cache, which flushes if it is full, and the document is handed to the buffered Solr writer. Concurrent workers only contend for the same term hash partition of the RWI cache; BLOB dumps of the cache stay serialized.",
                 new String[] {
                     "RWI/Cache/Collections"
                 },
@@ -1034,9 +1058,9 @@ public final class Switchboard extends serverSwitch {
 						return null;
 					}
 				},
-                2,
+                storageConcurrency + 1,
                 null,
-                1);
+                storageConcurrency);
         this.indexingAnalysisProcessor =
             new WorkflowProcessor<IndexingQueueEntry>(
                 "webStructureAnalysis",
@@ -1088,6 +1112,13 @@ public final class Switchboard extends serverSwitch {
                 Math.max(20, WorkflowProcessor.availableCPU * 2), // it may happen that this is filled with new files from the search process. That means there should be enough place for two result pages
                 this.indexingCondensementProcessor,
                 WorkflowProcessor.availableCPU);
+        if (getConfigBool(SwitchboardConstants.WORKFLOW_AUTOTUNE, true)) {
+            final List<WorkflowProcessor<IndexingQueueEntry>> tuned = new ArrayList<WorkflowProcessor<IndexingQueueEntry>>(Arrays.<WorkflowProcessor<IndexingQueueEntry>>asList(this.indexingDocumentProcessor, this.indexingCondensementProcessor, this.indexingAnalysisProcessor));
+            if (configuredStorageConcurrency <= 0) tuned.add(this.indexingStorageProcessor); // an explicit storage concurrency stays fixed
+            for (final WorkflowProcessor<IndexingQueueEntry> p: tuned) {
+                p.setConcurrencyBounds(1, Math.max(p.getMaxConcurrency(), WorkflowProcessor.availableCPU * 2));
+            }
+        }
 
         // deploy busy threads
         this.log.config("Starting Threads");
@@ -1234,6 +1265,17 @@ public final class Switchboard extends serverSwitch {
             Long.parseLong(getConfig(SwitchboardConstants.INDEX_DIST_MEMPREREQ, "1000000")),
             Double.parseDouble(getConfig(SwitchboardConstants.INDEX_DIST_LOADPREREQ, "9.0")));
 
+        // workflow control: adjust the concurrency of the indexing workflow stages
+        double workflowMaxLoad = getConfigFloat(SwitchboardConstants.WORKFLOW_AUTOTUNE_MAXLOAD, 0.0f);
+        if (workflowMaxLoad <= 0) workflowMaxLoad = WorkflowProcessor.availableCPU;
+        deployThread(
+            SwitchboardConstants.WORKFLOW_CONTROL,
+            "Workflow Control",
+            "adjusts the number of threads of the indexing workflow stages to their load",
+            "/PerformanceConcurrency_p.html",
+            InstantBusyThread.createFromRunnable(new WorkflowConcurrencyController(workflowMaxLoad), 10000, 10000),
+            30000);
+        
         // content control: initialize list sync thread
         deployThread(
             "720_ccimport",
@@ -1508,6 +1550,10 @@ public final class Switchboard extends serverSwitch {
             this.index = new Segment(this.log, segmentsPath, archivePath, collectionConfiguration, webgraphConfiguration);
             if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_RWI, true)) this.index.connectRWI(wordCacheMaxCount, fileSizeMax);
             if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_CITATION, true)) this.index.connectCitation(wordCacheMaxCount, fileSizeMax);
+            if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_EDGES, false)) this.index.connectHyperlinkEdges(this.getConfigInt(SwitchboardConstants.CORE_SERVICE_EDGES_PARTITIONS, SwitchboardConstants.CORE_SERVICE_EDGES_PARTITIONS_DEFAULT));
+            this.index.setNearDuplicateIndex(
+                    this.getConfigInt(SwitchboardConstants.INDEX_NEARDUPLICATES_CAPACITY, SwitchboardConstants.INDEX_NEARDUPLICATES_CAPACITY_DEFAULT),
+                    Math.max(0, Math.min(3, this.getConfigInt(SwitchboardConstants.INDEX_NEARDUPLICATES_DISTANCE, SwitchboardConstants.INDEX_NEARDUPLICATES_DISTANCE_DEFAULT))));
 			if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_FULLTEXT,
 					SwitchboardConstants.CORE_SERVICE_FULLTEXT_DEFAULT)) {
                 this.index.fulltext().connectLocalSolr();
@@ -2000,6 +2046,7 @@ public final class Switchboard extends serverSwitch {
         if ( this.dhtDispatcher != null ) {
             this.dhtDispatcher.close();
         }
+        this.yc.close();
 //        de.anomic.http.client.Client.closeAllConnections();
         this.wikiDB.close();
         this.blogDB.close();
@@ -2028,6 +2075,7 @@ public final class Switchboard extends serverSwitch {
             ConcurrentLog.logException(e);
         }
         RemoteInstance.closeConnectionManager();
+        closeConfig();
         this.log.config("SWITCHBOARD SHUTDOWN TERMINATED");
         /* Print also to the standard output : when this method is triggered by the shutdown hook thread, the LogManager is likely to have
          * been concurrently reset by its own shutdown hook thread */
@@ -2146,7 +2194,13 @@ public final class Switchboard extends serverSwitch {
                 } catch (InterruptedException ex) {
                     return moved;
                 }
+                if (wri.isStopped()) return moved; // resumed from the checkpoint with the next run
                 moved = infile.renameTo(outfile);
+                if (moved) {
+                    // keep the offset index with the archive
+                    final File cdx = WarcOffsetIndex.indexFile(infile);
+                    if (cdx.exists() && !cdx.renameTo(WarcOffsetIndex.indexFile(outfile))) FileUtils.deletedelete(cdx);
+                }
             } catch (IOException ex) {
                 log.warn("IO Error processing warc file " + infile);
             }
@@ -2256,17 +2310,26 @@ public final class Switchboard extends serverSwitch {
             }
             return moved;
         }
-        InputStream is = null;
+        final File offsetFile = new File(this.surrogatesInPath, s + ".offset");
+        final long offset = readSurrogateOffset(offsetFile);
+        if (offset > 0) log.info("resuming import of surrogate " + infile + " at offset " + offset);
         try {
-            is = new BufferedInputStream(new FileInputStream(infile));
-            if (s.endsWith(".gz")) is = new GZIPInputStream(is, 65535);
-            processSurrogate(is, infile.getName());
+            final int chunkSize = getConfigInt(SwitchboardConstants.SURROGATES_IMPORT_CHUNKSIZE, SwitchboardConstants.SURROGATES_IMPORT_CHUNKSIZE_DEFAULT);
+            final SurrogateChunker chunker = s.endsWith(".gz") ?
+                    new SurrogateChunker(new GZIPInputStream(new BufferedInputStream(new FileInputStream(infile)), 65536), offset, chunkSize) :
+                    new SurrogateChunker(FileChannel.open(infile.toPath(), StandardOpenOption.READ), offset, chunkSize);
+            try {
+                processSurrogate(chunker, infile.getName(), s.endsWith(".gz") ? -1 : infile.length(), offsetFile);
+            } finally {
+                chunker.close();
+            }
         } catch (final IOException e ) {
             ConcurrentLog.logException(e);
         } finally {
             if (!shallTerminate()) {
                 moved = infile.renameTo(outfile);
                 if ( moved ) {
+                    FileUtils.deletedelete(offsetFile);
                     // check if this file is already compressed, if not, compress now
                     if ( !outfile.getName().endsWith(".gz") ) {
                         final String gzname = outfile.getName() + ".gz";
@@ -2292,94 +2355,142 @@ public final class Switchboard extends serverSwitch {
                     log.info("processed surrogate " + infile);
                 }
             }
-            if (is != null) try {is.close();} catch (IOException e) {
-            	log.warn("Could not close input stream on file " + infile);
-            }
         }
         return moved;
     }
 
     public void processSurrogate(final InputStream is, final String name) throws IOException {
-        final int concurrency = Runtime.getRuntime().availableProcessors();
+        final SurrogateChunker chunker = new SurrogateChunker(is, 0, getConfigInt(SwitchboardConstants.SURROGATES_IMPORT_CHUNKSIZE, SwitchboardConstants.SURROGATES_IMPORT_CHUNKSIZE_DEFAULT));
+        processSurrogate(chunker, name, -1, null);
+    }
 
-        // start reader thread
-        final SurrogateReader reader = new SurrogateReader(is, 100, this.crawlStacker, this.index.fulltext().getDefaultConfiguration(), concurrency);
-        final Thread readerThread = new Thread(reader, name);
-        readerThread.setPriority(Thread.MAX_PRIORITY); // we must have maximum prio here because this thread feeds the other threads. It must always be ahead of them.
-        readerThread.start();
-        
-        // start indexer threads
+    /**
+     * import all surrogates of a dump; the dump is decoded and indexed in parallel chunks
+     * @param chunker the source of the dump
+     * @param name the name of the dump
+     * @param size the (uncompressed) size of the dump or -1 if unknown; only used for progress logging
+     * @param offsetFile a file where the offset up to which the dump is imported is stored, or null
+     * @return true if the whole dump was imported, false if the import was terminated
+     */
+    private boolean processSurrogate(final SurrogateChunker chunker, final String name, final long size, final File offsetFile) throws IOException {
+        int concurrency = getConfigInt(SwitchboardConstants.SURROGATES_IMPORT_CONCURRENCY, 0);
+        if (concurrency <= 0) concurrency = Runtime.getRuntime().availableProcessors();
         assert this.crawlStacker != null;
-        Thread[] indexer = new Thread[concurrency];
-        for (int t = 0; t < concurrency; t++) {
-            indexer[t] = new Thread("Switchboard.processSurrogate-" + t) {
-                @Override
-                public void run() {
-                    VocabularyScraper scraper = new VocabularyScraper();
-                    Object surrogateObj;
-                    while ((surrogateObj = reader.take()) != SurrogateReader.POISON_DOCUMENT ) {
-                        assert surrogateObj != null;
-                        /* When parsing a full-text Solr xml data dump Surrogate reader produces SolrInputDocument instances */
-                        if(surrogateObj instanceof SolrInputDocument) {
-                        	SolrInputDocument surrogate = (SolrInputDocument)surrogateObj;
-                        	try {
-                        		// enrich the surrogate
-                        		final String id = (String) surrogate.getFieldValue(CollectionSchema.id.getSolrFieldName());
-                        		final String text = (String) surrogate.getFieldValue(CollectionSchema.text_t.getSolrFieldName());
-                        		final DigestURL rootURL = new DigestURL((String) surrogate.getFieldValue(CollectionSchema.sku.getSolrFieldName()), ASCII.getBytes(id));
-                        		if (text != null && text.length() > 0 && id != null ) {
-                        			// run the tokenizer on the text to get vocabularies and synonyms
-                        			final Tokenizer tokenizer = new Tokenizer(rootURL, text, LibraryProvider.dymLib, true, scraper);
-                        			final Map<String, Set<String>> facets = Document.computeGenericFacets(tokenizer.tags());
-                        			// overwrite the given vocabularies and synonyms with new computed ones
-                        			Switchboard.this.index.fulltext().getDefaultConfiguration().enrich(surrogate, tokenizer.synonyms(), facets);
-                        		}
-                        		
-                            	/* Update the ResultURLS stack for monitoring */
-                        		final byte[] myPeerHash = ASCII.getBytes(peers.mySeed().hash);
-                                ResultURLs.stack(
-                                        ASCII.String(rootURL.hash()),
-                                        rootURL.getHost(),
-                                        myPeerHash,
-                                        myPeerHash,
-                                        EventOrigin.SURROGATES);
-                        	} catch (MalformedURLException e) {
-                        		ConcurrentLog.logException(e);
-                        	}
-                        	// write the surrogate into the index
-                        	Switchboard.this.index.putDocument(surrogate);
-                        } else if(surrogateObj instanceof DCEntry) {
-                        	/* When parsing a MediaWiki dump Surrogate reader produces DCEntry instances */
-                            // create a queue entry
-                        	final DCEntry entry = (DCEntry)surrogateObj;
-                            final Document document = entry.document();
-                            final Request request =
-                                new Request(
-                                    ASCII.getBytes(peers.mySeed().hash),
-                                    entry.getIdentifier(true),
-                                    null,
-                                    "",
-                                    entry.getDate(),
-                                    crawler.defaultSurrogateProfile.handle(),
-                                    0,
-                                    crawler.defaultSurrogateProfile.timezoneOffset());
-                            final Response response = new Response(request, null, null, crawler.defaultSurrogateProfile, false, null);
-                            final IndexingQueueEntry queueEntry =
-                                new IndexingQueueEntry(response, new Document[] {document}, null);
-                
-                            indexingCondensementProcessor.enQueue(queueEntry);
-                        }
-                        if (shallTerminate()) break;
-                    }
+        final ParallelSurrogateReader reader = new ParallelSurrogateReader(chunker, this.crawlStacker, this.index.fulltext().getDefaultConfiguration(), concurrency);
+        final VocabularyScraper scraper = new VocabularyScraper();
+        final long[] lastReport = new long[]{System.currentTimeMillis(), System.currentTimeMillis()}; // time of the last log and of the last offset
+        final boolean complete = reader.process(new ParallelSurrogateReader.Handler() {
+            @Override
+            public void process(final Object surrogate) {
+                processSurrogateDocument(surrogate, scraper);
+                if (shallTerminate()) reader.terminate();
+            }
+        }, new ParallelSurrogateReader.Progress() {
+            @Override
+            public void committed(final long committed, final long records) {
+                final long now = System.currentTimeMillis();
+                if (now - lastReport[0] < 10000) return;
+                lastReport[0] = now;
+                if (offsetFile != null && now - lastReport[1] >= 60000) {
+                    // the offset needs a hard commit of the index, so it is written less often than the progress is logged
+                    lastReport[1] = now;
+                    writeSurrogateOffset(offsetFile, committed);
                 }
-            };
-            indexer[t].setPriority(5);
-            indexer[t].start();
+                log.info("processed " + records + " surrogates from " + name + ", " + (committed >> 20) + " MB" + (size > 0 ? " of " + (size >> 20) + " MB" : ""));
+            }
+        });
+        if (!complete && offsetFile != null) writeSurrogateOffset(offsetFile, reader.committed());
+        return complete;
+    }
+
+    /**
+     * @return the offset where an interrupted surrogate import is resumed, 0 if the import was not started yet
+     */
+    private long readSurrogateOffset(final File offsetFile) {
+        if (!offsetFile.exists()) return 0;
+        try {
+            return Long.parseLong(UTF8.String(FileUtils.read(offsetFile)).trim());
+        } catch (final IOException | NumberFormatException e) {
+            log.warn("cannot read surrogate offset file " + offsetFile + ", starting from the beginning");
+            return 0;
         }
-        
-        // wait for termination of indexer threads
-        for (int t = 0; t < concurrency; t++) {
-            try {indexer[t].join();} catch (InterruptedException e) {}
+    }
+
+    /**
+     * store the offset up to which a surrogate import is finished. The records before the offset have been
+     * indexed in the reader threads; their documents are written and committed first, so that a resumed import
+     * does not skip records which were never stored.
+     */
+    private void writeSurrogateOffset(final File offsetFile, final long offset) {
+        this.index.fulltext().flush();
+        final File tmp = new File(offsetFile.getParentFile(), offsetFile.getName() + ".tmp");
+        try {
+            FileUtils.copy(UTF8.getBytes(Long.toString(offset)), tmp);
+            if (!tmp.renameTo(offsetFile)) {
+                FileUtils.deletedelete(offsetFile);
+                tmp.renameTo(offsetFile);
+            }
+        } catch (final IOException e) {
+            log.warn("cannot write surrogate offset file " + offsetFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * index one surrogate which was read from a dump
+     * @param surrogateObj a SolrInputDocument from a full-text Solr xml data dump or a DCEntry from a surrogate xml file
+     */
+    private void processSurrogateDocument(final Object surrogateObj, final VocabularyScraper scraper) {
+        /* When parsing a full-text Solr xml data dump Surrogate reader produces SolrInputDocument instances */
+        if(surrogateObj instanceof SolrInputDocument) {
+        	SolrInputDocument surrogate = (SolrInputDocument)surrogateObj;
+        	try {
+        		// enrich the surrogate
+        		final String id = (String) surrogate.getFieldValue(CollectionSchema.id.getSolrFieldName());
+        		final String text = (String) surrogate.getFieldValue(CollectionSchema.text_t.getSolrFieldName());
+        		final DigestURL rootURL = new DigestURL((String) surrogate.getFieldValue(CollectionSchema.sku.getSolrFieldName()), ASCII.getBytes(id));
+        		if (text != null && text.length() > 0 && id != null ) {
+        			// run the tokenizer on the text to get vocabularies and synonyms
+        			final Tokenizer tokenizer = new Tokenizer(rootURL, text, LibraryProvider.dymLib, true, scraper);
+        			final Map<String, Set<String>> facets = Document.computeGenericFacets(tokenizer.tags());
+        			// overwrite the given vocabularies and synonyms with new computed ones
+        			this.index.fulltext().getDefaultConfiguration().enrich(surrogate, tokenizer.synonyms(), facets);
+        		}
+        		
+            	/* Update the ResultURLS stack for monitoring */
+        		final byte[] myPeerHash = ASCII.getBytes(peers.mySeed().hash);
+                ResultURLs.stack(
+                        ASCII.String(rootURL.hash()),
+                        rootURL.getHost(),
+                        myPeerHash,
+                        myPeerHash,
+                        EventOrigin.SURROGATES);
+        	} catch (MalformedURLException e) {
+        		ConcurrentLog.logException(e);
+        	}
+        	// write the surrogate into the index
+        	this.index.putDocument(surrogate);
+        } else if(surrogateObj instanceof DCEntry) {
+        	/* When parsing a MediaWiki dump Surrogate reader produces DCEntry instances */
+            // create a queue entry
+        	final DCEntry entry = (DCEntry)surrogateObj;
+            final Document document = entry.document();
+            final Request request =
+                new Request(
+                    ASCII.getBytes(peers.mySeed().hash),
+                    entry.getIdentifier(true),
+                    null,
+                    "",
+                    entry.getDate(),
+                    crawler.defaultSurrogateProfile.handle(),
+                    0,
+                    crawler.defaultSurrogateProfile.timezoneOffset());
+            final Response response = new Response(request, null, null, crawler.defaultSurrogateProfile, false, null);
+            final IndexingQueueEntry queueEntry =
+                new IndexingQueueEntry(response, new Document[] {document}, null);
+
+            // index within the reader thread and not in the indexing queue: a surrogate must be stored
+            // when this returns, otherwise the offset of an interrupted import would skip queued records
+            storeDocumentIndex(webStructureAnalysis(condenseDocument(queueEntry)));
         }
     }
 
@@ -2820,8 +2931,8 @@ public final class Switchboard extends serverSwitch {
 
                 boolean process_key_exist = collection1Configuration.contains(CollectionSchema.process_sxt);
                 if (!process_key_exist) log.info("postprocessing deactivated: field process_sxt is not enabled");
-                boolean reference_index_exist = (index.connectedCitation() || fulltext.useWebgraph());
-                if (!reference_index_exist) log.info("postprocessing deactivated: no reference index avilable; activate citation index or webgraph");
+                boolean reference_index_exist = (index.connectedCitation() || index.connectedHyperlinkEdges() || fulltext.useWebgraph());
+                if (!reference_index_exist) log.info("postprocessing deactivated: no reference index avilable; activate citation index, hyperlink edge store or webgraph");
                 boolean minimum_ram_fullfilled = MemoryControl.available() > getConfigLong("postprocessing.minimum_ram", 0);
                 if (!minimum_ram_fullfilled) log.info("postprocessing deactivated: no enough ram (" + MemoryControl.available() + "), needed " + getConfigLong("postprocessing.minimum_ram", 0) + ", to force change field postprocessing.minimum_ram");
                 boolean minimum_load_fullfilled = Memory.load() < getConfigFloat("postprocessing.maximum_load", 0);
@@ -3328,6 +3439,14 @@ public final class Switchboard extends serverSwitch {
         // remove stopwords
         this.log.info("Excluded " + condenser.excludeWords(stopwords) + " words in URL " + url.toNormalform(true));
 
+        // register the document in the near-duplicate index and skip near-duplicates of documents of the same host
+        final NearDuplicateIndex nearDuplicates = this.index.nearDuplicates();
+        final int copies = nearDuplicates == null ? -1 : nearDuplicates.add(url.hash(), NearDuplicateIndex.simhash(condenser.words()));
+        if (copies > 0 && this.getConfigBool(SwitchboardConstants.INDEX_NEARDUPLICATES_SKIP, false)) {
+            this.crawlQueues.errorURL.push(url, queueEntry.depth(), profile, FailCategory.FINAL_PROCESS_CONTEXT, "near-duplicate of " + copies + " documents of the same host, process case=" + processCase, -1);
+            return;
+        }
+
         // STORE WORD INDEX
         SolrInputDocument newEntry =
             this.index.storeDocument(
@@ -3342,7 +3461,8 @@ public final class Switchboard extends serverSwitch {
                 sourceName,
                 getConfigBool(SwitchboardConstants.DHT_ENABLED, false),
                 this.getConfigBool(SwitchboardConstants.PROXY_TRANSPARENT_PROXY, false) ? "http://127.0.0.1:" + sb.getConfigInt(SwitchboardConstants.SERVER_PORT, 8090) : null,
-                this.getConfig("crawler.http.acceptLanguage", null));
+                this.getConfig("crawler.http.acceptLanguage", null),
+                copies);
         final RSSFeed feed =
             EventChannel.channels(queueEntry.initiator() == null
                 ? EventChannel.PROXY
@@ -3978,9 +4098,9 @@ public final class Switchboard extends serverSwitch {
         boolean hasDoneSomething = false;
         final long kbytesUp = ConnectionInfo.getActiveUpbytes() / 1024;
         // accumulate RWIs to transmission buffer
-        if ( this.dhtDispatcher.bufferSize() > this.peers.scheme.verticalPartitions() ) {
-            this.log.info("dhtTransferJob: no selection, too many entries in transmission buffer: "
-                + this.dhtDispatcher.bufferSize());
+        if ( this.dhtDispatcher.outboxSize() > getConfigLong(SwitchboardConstants.INDEX_DIST_OUTBOX_MAXREFERENCES, SwitchboardConstants.INDEX_DIST_OUTBOX_MAXREFERENCES_DEFAULT) ) {
+            this.log.info("dhtTransferJob: no selection, too many references in the outbox: "
+                + this.dhtDispatcher.outboxSize());
         } else if ( MemoryControl.available() < 1024 * 1024 * 25 ) {
             this.log.info("dhtTransferJob: no selection, too less memory available : "
                 + (MemoryControl.available() / 1024 / 1024)
@@ -4254,6 +4374,7 @@ public final class Switchboard extends serverSwitch {
         mySeed.put(Seed.UTC, GenericFormatter.UTCDiffString());
         mySeed.setFlagAcceptRemoteCrawl(getConfigBool(SwitchboardConstants.CRAWLJOB_REMOTE, false));
         mySeed.setFlagAcceptRemoteIndex(getConfigBool(SwitchboardConstants.INDEX_RECEIVE_ALLOW, true));
+        mySeed.setFlagAcceptBinaryRWI(true);
         mySeed.setFlagSSLAvailable(this.getHttpServer() != null && this.getHttpServer().withSSL() && getConfigBool("server.https", false));
         if (mySeed.getFlagSSLAvailable()) mySeed.put(Seed.PORTSSL, Integer.toString(getPublicPort(SwitchboardConstants.SERVER_SSLPORT, 8443)));
 
@@ -61,6 +61,8 @@ public final class SwitchboardConstants {
     public static final String SERVER_SSLPORT               = "port.ssl"; // port for https
     public static final String SERVER_SHUTDOWNPORT          = "port.shutdown"; // local port to listen for a shutdown signal (0 <= disabled)
     public static final String SERVER_STATICIP              = "staticIP"; // static IP of http server
+    public static final String CONFIG_SAVE_DELAY            = "config.save.delay"; // milliseconds between a config change and the write of the config file
+    public static final long   CONFIG_SAVE_DELAY_DEFAULT    = 2000;
 
     public static final String PUBLIC_SEARCHPAGE            = "publicSearchpage";
     
@@ -89,6 +91,26 @@ public final class SwitchboardConstants {
     public static final String PEER_PING                    = "30_peerping";
     public static final String PEER_PING_IDLESLEEP          = "30_peerping_idlesleep";
     public static final String PEER_PING_BUSYSLEEP          = "30_peerping_busysleep";
+    /**
+     * <p><code>public static final String <strong>PEER_PING_CONCURRENCY</strong> = "peerPing.concurrency"</code></p>
+     * <p>Name of the setting how many hello probes of the peer ping may run at the same time</p>
+     */
+    public static final String PEER_PING_CONCURRENCY        = "peerPing.concurrency";
+    public static final long   PEER_PING_CONCURRENCY_DEFAULT = 4;
+    /**
+     * <p><code>public static final String <strong>PEER_PING_MININTERVAL</strong> = "peerPing.minInterval"</code></p>
+     * <p>Name of the setting for the minimum time in milliseconds between two probes of the same peer;
+     * a peer which did not answer is probed again after this time</p>
+     */
+    public static final String PEER_PING_MININTERVAL        = "peerPing.minInterval";
+    public static final long   PEER_PING_MININTERVAL_DEFAULT = 60000;
+    /**
+     * <p><code>public static final String <strong>PEER_PING_MAXINTERVAL</strong> = "peerPing.maxInterval"</code></p>
+     * <p>Name of the setting for the maximum time in milliseconds between two probes of the same peer;
+     * the interval of a peer doubles with every answered probe up to this time</p>
+     */
+    public static final String PEER_PING_MAXINTERVAL        = "peerPing.maxInterval";
+    public static final long   PEER_PING_MAXINTERVAL_DEFAULT = 3600000;
     // 40_peerseedcycle
     /**
      * <p><code>public static final String <strong>SEED_UPLOAD</strong> = "40_peerseedcycle"</code></p>
@@ -159,6 +181,12 @@ public final class SwitchboardConstants {
     public static final String SCHEDULER                    = "85_scheduler";
     public static final String SCHEDULER_IDLESLEEP          = "85_scheduler_idlesleep";
     public static final String SCHEDULER_BUSYSLEEP          = "85_scheduler_busysleep";
+    // 87_workflowcontrol
+    /**
+     * <p><code>public static final String <strong>WORKFLOW_CONTROL</strong> = "87_workflowcontrol"</code></p>
+     * <p>The thread which adjusts the concurrency of the indexing workflow stages</p>
+     */
+    public static final String WORKFLOW_CONTROL             = "87_workflowcontrol";
     // 90_cleanup
     /**
      * <p><code>public static final String <strong>CLEANUP</strong> = "90_cleanup"</code></p>
@@ -193,6 +221,24 @@ public final class SwitchboardConstants {
      * <p>Name of the setting whether DHT chunks shall be transferred gzip-encodedly</p>
      */
     public static final String INDEX_DIST_GZIP_BODY             = "indexDistribution.gzipBody";
+    /**
+     * <p><code>public static final String <strong>INDEX_DIST_OUTBOX_MAXREFERENCES</strong> = "indexDistribution.outbox.maxReferences"</code></p>
+     * <p>Name of the setting how many references the DHT outbox may hold before no more references are selected</p>
+     */
+    public static final String INDEX_DIST_OUTBOX_MAXREFERENCES  = "indexDistribution.outbox.maxReferences";
+    public static final long   INDEX_DIST_OUTBOX_MAXREFERENCES_DEFAULT = 100000;
+    /**
+     * <p><code>public static final String <strong>INDEX_DIST_OUTBOX_MEMORY</strong> = "indexDistribution.outbox.memory"</code></p>
+     * <p>Name of the setting how many references of the DHT outbox are held in memory in addition to the log on disk</p>
+     */
+    public static final String INDEX_DIST_OUTBOX_MEMORY         = "indexDistribution.outbox.memory";
+    public static final long   INDEX_DIST_OUTBOX_MEMORY_DEFAULT = 20000;
+    /**
+     * <p><code>public static final String <strong>INDEX_DIST_OUTBOX_MAXAGE</strong> = "indexDistribution.outbox.maxAge"</code></p>
+     * <p>Name of the setting after how many milliseconds undelivered references of the DHT outbox are put back to the index</p>
+     */
+    public static final String INDEX_DIST_OUTBOX_MAXAGE         = "indexDistribution.outbox.maxAge";
+    public static final long   INDEX_DIST_OUTBOX_MAXAGE_DEFAULT = 24L * 60L * 60L * 1000L;
     /**
      * <p><code>public static final String <strong>INDEX_DIST_ALLOW</strong> = "allowDistributeIndex"</code></p>
      * <p>Name of the setting whether Index Distribution shall be allowed (and the DHT-thread therefore started) or not</p>
@@ -220,6 +266,10 @@ public final class SwitchboardConstants {
     public static final String PARSER_EXTENSIONS_DENY           = "parser.extensions.deny";
     public static final String PARSER_PDF_INDIVIDUALPAGES       = "parser.pdf.individualpages";
     public static final String PARSER_PDF_INDIVIDUALPAGES_KEY   = "parser.pdf.individualpages.key";
+    /** prefix of the settings for the parser lanes: parser.lane.&lt;lane&gt;.threads and parser.lane.&lt;lane&gt;.timeout */
+    public static final String PARSER_LANE_PREFIX               = "parser.lane.";
+    public static final String PARSER_LANE_THREADS_SUFFIX       = ".threads";
+    public static final String PARSER_LANE_TIMEOUT_SUFFIX       = ".timeout";
     /**
      * <p><code>public static final String <strong>PROXY_ONLINE_CAUTION_DELAY</strong> = "onlineCautionDelay"</code></p>
      * <p>Name of the setting how long indexing should pause after the last time the proxy was used in milliseconds</p>
@@ -310,6 +360,28 @@ public final class SwitchboardConstants {
     /** Default configuration setting for remote Solr responses binary encoding */
     public static final boolean REMOTE_SOLR_BINARY_RESPONSE_ENABLED_DEFAULT            = true;
 
+    /** Setting key for the maximum number of documents collected per Solr core before they are written as one batch; 1 disables the buffer */
+    public static final String SOLR_INGEST_BUFFER_COUNT = "solr.ingest.buffer.count";
+    public static final int SOLR_INGEST_BUFFER_COUNT_DEFAULT = 100;
+
+    /** Setting key for the maximum estimated size in bytes of the documents collected per Solr core before they are written */
+    public static final String SOLR_INGEST_BUFFER_BYTES = "solr.ingest.buffer.bytes";
+    public static final long SOLR_INGEST_BUFFER_BYTES_DEFAULT = 16L * 1024L * 1024L;
+
+    /** Setting key for the maximum time in milliseconds a collected document waits before it is written */
+    public static final String SOLR_INGEST_BUFFER_MAXAGE = "solr.ingest.buffer.maxage";
+    public static final long SOLR_INGEST_BUFFER_MAXAGE_DEFAULT = 2000L;
+
+    /** Setting key for the number of concurrent storeDocumentIndex workers; 0 selects half of the available processors */
+    public static final String INDEXER_STORAGE_CONCURRENCY = "indexer.storage.concurrency";
+    public static final int INDEXER_STORAGE_CONCURRENCY_DEFAULT = 0;
+
+    /** Setting key controlling whether the concurrency of the indexing workflow stages is adjusted automatically */
+    public static final String WORKFLOW_AUTOTUNE = "workflow.autotune";
+
+    /** Setting key for the system load average above which the workflow stages get no more threads; 0 selects the number of available processors */
+    public static final String WORKFLOW_AUTOTUNE_MAXLOAD = "workflow.autotune.maxload";
+
     /** Key of the setting controlling whether to use or not remote Solr server(s) */
     public static final String FEDERATED_SERVICE_SOLR_INDEXING_ENABLED      = "federated.service.solr.indexing.enabled";
     
@@ -339,6 +411,26 @@ public final class SwitchboardConstants {
     public static final String CORE_SERVICE_CITATION            = "core.service.citation.tmp";
     public static final String CORE_SERVICE_WEBGRAPH            = "core.service.webgraph.tmp";
 
+    /** Key of the setting controlling whether the links of all documents are written to the native hyperlink edge store */
+    public static final String CORE_SERVICE_EDGES               = "core.service.edges";
+
+    /** Key of the setting for the number of partitions of the native hyperlink edge store; it must not be changed for an existing store */
+    public static final String CORE_SERVICE_EDGES_PARTITIONS    = "core.service.edges.partitions";
+
+    /** Default number of partitions of the native hyperlink edge store */
+    public static final int CORE_SERVICE_EDGES_PARTITIONS_DEFAULT = 16;
+
+    /** Key of the setting for the number of documents in the in-memory near-duplicate index; 0 switches the detection at storage time off */
+    public static final String INDEX_NEARDUPLICATES_CAPACITY     = "index.nearDuplicates.capacity";
+    public static final int INDEX_NEARDUPLICATES_CAPACITY_DEFAULT = 200000;
+
+    /** Key of the setting for the maximum hamming distance (0 to 3) of the SimHash fingerprints of near-duplicate documents */
+    public static final String INDEX_NEARDUPLICATES_DISTANCE     = "index.nearDuplicates.distance";
+    public static final int INDEX_NEARDUPLICATES_DISTANCE_DEFAULT = 3;
+
+    /** Key of the setting controlling whether near-duplicates of documents of the same host are not indexed at all */
+    public static final String INDEX_NEARDUPLICATES_SKIP         = "index.nearDuplicates.skip";
+
     /**
      * <p><code>public static final String <strong>CRAWLER_THREADS_ACTIVE_MAX</strong> = "crawler.MaxActiveThreads"</code></p>
      * <p>Name of the setting how many active crawler-threads may maximal be running on the same time</p>
@@ -431,6 +523,13 @@ public final class SwitchboardConstants {
     public static final String SURROGATES_OUT_PATH         = "surrogates.out";
     public static final String SURROGATES_OUT_PATH_DEFAULT = "DATA/SURROGATES/out";
 
+    /** Setting key for the size in bytes of the chunks in which surrogate dumps are split for the parallel import */
+    public static final String SURROGATES_IMPORT_CHUNKSIZE = "surrogates.import.chunksize";
+    public static final int SURROGATES_IMPORT_CHUNKSIZE_DEFAULT = 4 * 1024 * 1024;
+
+    /** Setting key for the number of threads which decode and index surrogate chunks; 0 selects the number of available processors */
+    public static final String SURROGATES_IMPORT_CONCURRENCY = "surrogates.import.concurrency";
+
     public static final String DICTIONARY_SOURCE_PATH         = "dictionaries";
     public static final String DICTIONARY_SOURCE_PATH_DEFAULT = "DATA/DICTIONARIES";
     
@@ -490,6 +589,42 @@ public final class SwitchboardConstants {
     
     /** Default setting value controlling whether HTTP responses should be compressed */
     public static final boolean SERVER_RESPONSE_COMPRESS_GZIP_DEFAULT = true;
+
+    /** Key of the setting controlling whether static files are served from the static resource cache with ETags and precompressed variants */
+    public static final String SERVER_STATICCACHE = "server.staticcache";
+
+    /** Default setting value controlling whether the static resource cache is used */
+    public static final boolean SERVER_STATICCACHE_DEFAULT = true;
+
+    /** Key of the setting for the memory in megabytes which the static resource cache may use for file contents */
+    public static final String SERVER_STATICCACHE_MEMORY = "server.staticcache.memory";
+
+    /** Default memory of the static resource cache in megabytes */
+    public static final long SERVER_STATICCACHE_MEMORY_DEFAULT = 32;
+
+    /** Key of the setting controlling whether the admission control with concurrency and queue limits per request class is active (see YaCyQoSFilter) */
+    public static final String SERVER_ADMISSION = "server.admission";
+
+    /** Default setting value controlling whether the admission control is active */
+    public static final boolean SERVER_ADMISSION_DEFAULT = true;
+
+    /** Key of the setting for the maximum time in milliseconds a request waits for admission before it is rejected */
+    public static final String SERVER_ADMISSION_TIMEOUT = "server.admission.timeout";
+
+    /** Default maximum waiting time for admission in milliseconds */
+    public static final long SERVER_ADMISSION_TIMEOUT_DEFAULT = 10000;
+
+    /** Key of the setting for the seconds in the Retry-After header of rejected requests */
+    public static final String SERVER_ADMISSION_RETRYAFTER = "server.admission.retryAfter";
+
+    /** Default seconds in the Retry-After header of rejected requests */
+    public static final int SERVER_ADMISSION_RETRYAFTER_DEFAULT = 5;
+
+    /** Key of the setting for the maximum number of waiting requests of all classes which cannot be suspended and block a server thread */
+    public static final String SERVER_ADMISSION_BLOCKED = "server.admission.blocked";
+
+    /** Default maximum number of waiting requests which block a server thread */
+    public static final int SERVER_ADMISSION_BLOCKED_DEFAULT = 20;
     
     
     /** Key of the setting controlling the maximum number of simultaneously open outgoing HTTP connections in the general pool (net.yacy.cora.protocol.http.HTTPClient) */
@@ -194,7 +194,8 @@ public class DocumentIndex extends Segment {
                     DocumentIndex.class.getName() + ".add",
                     false,
                     null,
-                    null);
+                    null,
+                    -1);
         }
         return rows;
     }
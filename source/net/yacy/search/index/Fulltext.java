@@ -50,6 +50,7 @@ import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.federate.solr.connector.AbstractSolrConnector;
+import net.yacy.cora.federate.solr.connector.BufferedSolrConnector;
 import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
 import net.yacy.cora.federate.solr.connector.RemoteSolrConnector;
 import net.yacy.cora.federate.solr.connector.ShardSelection;
@@ -78,6 +79,7 @@ import net.yacy.search.schema.CollectionSchema;
 import net.yacy.search.schema.WebgraphConfiguration;
 import net.yacy.search.schema.WebgraphSchema;
 
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
@@ -99,6 +101,7 @@ public final class Fulltext {
     private final CollectionConfiguration collectionConfiguration;
     private final WebgraphConfiguration   webgraphConfiguration;
     private       boolean                 writeWebgraph;
+    private       HyperlinkEdgeStore      hyperlinkEdges; // the links of the documents, removed together with the documents
 
     protected Fulltext(final File segmentPath, final File archivePath,
             final CollectionConfiguration collectionConfiguration, final WebgraphConfiguration webgraphConfiguration) {
@@ -109,6 +112,7 @@ public final class Fulltext {
         this.collectionConfiguration = collectionConfiguration;
         this.webgraphConfiguration = webgraphConfiguration;
         this.writeWebgraph = false;
+        this.hyperlinkEdges = null;
     }
     
     public void setUseWebgraph(boolean check) {
@@ -119,6 +123,14 @@ public final class Fulltext {
         return this.writeWebgraph;
     }
 
+    /**
+     * set the hyperlink edge store of the segment; the links of deleted documents are removed from it
+     * @param hyperlinkEdges the edge store or null if it is not connected
+     */
+    protected void setHyperlinkEdges(final HyperlinkEdgeStore hyperlinkEdges) {
+        this.hyperlinkEdges = hyperlinkEdges;
+    }
+
     public CollectionConfiguration getDefaultConfiguration() {
         return this.collectionConfiguration;
     }
@@ -298,6 +310,16 @@ public final class Fulltext {
         if (this.writeWebgraph) getWebgraphConnector().commit(softCommit);
     }
 
+    /**
+     * write all buffered documents and make them durable with a hard commit; unlike {@link #commit(boolean)}
+     * this is never skipped, so all documents which were put before the call are stored when it returns
+     */
+    public void flush() {
+        this.lastCommit = System.currentTimeMillis();
+        getDefaultConnector().commit(false);
+        if (this.writeWebgraph) getWebgraphConnector().commit(false);
+    }
+
     /**
      * Loads the meta data stored in the embedded solr index for the url referenced
      * by the WordReference.
@@ -345,9 +367,9 @@ public final class Fulltext {
         String id = (String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
         String url = (String) doc.getFieldValue(CollectionSchema.sku.getSolrFieldName());
         assert url != null && url.length() < 30000;
-        ConcurrentLog.info("Fulltext", "indexing: " + id + " " + url);
+        ConcurrentLog.fine("Fulltext", "indexing: " + id + " " + url);
         try {
-            connector.add(doc);
+            connector.add(doc); // buffered and written in batches by the BufferedSolrConnector
         } catch (final SolrException e) {
             throw new IOException(e.getMessage(), e);
         }
@@ -409,10 +431,10 @@ public final class Fulltext {
     public void deleteStaleDomainHashes(final Set<String> hosthashes, Date freshdate) {
         // delete in solr
         Date now = new Date();
-        deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_id_s.getSolrFieldName(), hosthashes,
+        deleteDomainWithConstraint(this.getDefaultConnector(), this.hyperlinkEdges, CollectionSchema.host_id_s.getSolrFieldName(), hosthashes,
                 (freshdate == null || freshdate.after(now)) ? null :
                 (CollectionSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
-        if (this.writeWebgraph) deleteDomainWithConstraint(this.getWebgraphConnector(), WebgraphSchema.source_host_id_s.getSolrFieldName(), hosthashes,
+        if (this.writeWebgraph) deleteDomainWithConstraint(this.getWebgraphConnector(), null, WebgraphSchema.source_host_id_s.getSolrFieldName(), hosthashes,
                 (freshdate == null || freshdate.after(now)) ? null :
                 (WebgraphSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
     }
@@ -420,10 +442,10 @@ public final class Fulltext {
     public void deleteStaleDomainNames(final Set<String> hostnames, Date freshdate) {
 
         Date now = new Date();
-        deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_s.getSolrFieldName(), hostnames,
+        deleteDomainWithConstraint(this.getDefaultConnector(), this.hyperlinkEdges, CollectionSchema.host_s.getSolrFieldName(), hostnames,
                 (freshdate == null || freshdate.after(now)) ? null :
                 (CollectionSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
-        if (this.writeWebgraph) deleteDomainWithConstraint(this.getWebgraphConnector(), WebgraphSchema.source_host_s.getSolrFieldName(), hostnames,
+        if (this.writeWebgraph) deleteDomainWithConstraint(this.getWebgraphConnector(), null, WebgraphSchema.source_host_s.getSolrFieldName(), hostnames,
                 (freshdate == null || freshdate.after(now)) ? null :
                 (WebgraphSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
     }
@@ -433,10 +455,15 @@ public final class Fulltext {
      * @param hosthashes
      */
     public void deleteDomainErrors(final Set<String> hosthashes) {
-        deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_id_s.getSolrFieldName(), hosthashes, CollectionSchema.failreason_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM);
+        deleteDomainWithConstraint(this.getDefaultConnector(), this.hyperlinkEdges, CollectionSchema.host_id_s.getSolrFieldName(), hosthashes, CollectionSchema.failreason_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM);
     }
     
-    private static void deleteDomainWithConstraint(SolrConnector connector, String fieldname, final Set<String> hosthashes, String constraintQuery) {
+    /**
+     * delete the documents of a set of hosts
+     * @param connector the connector of the core
+     * @param edges the hyperlink edge store where the links of the deleted documents are removed or null
+     */
+    private static void deleteDomainWithConstraint(SolrConnector connector, final HyperlinkEdgeStore edges, String fieldname, final Set<String> hosthashes, String constraintQuery) {
         if (hosthashes == null || hosthashes.size() == 0) return;
         int subsetscount = 1 + (hosthashes.size() / 255); // if the list is too large, we get a "too many boolean clauses" exception
         int c = 0;
@@ -452,7 +479,9 @@ public final class Fulltext {
                     //query.append(CollectionSchema.host_id_s.getSolrFieldName()).append(":\"").append(hosthash).append(":\"");
                     query.append("({!cache=false raw f=").append(fieldname).append('}').append(hosthash).append(")");
                 }
-                if (constraintQuery == null) connector.deleteByQuery(query.toString()); else connector.deleteByQuery("(" + query.toString() + ") AND " + constraintQuery);
+                final String deleteQuery = constraintQuery == null ? query.toString() : "(" + query.toString() + ") AND " + constraintQuery;
+                removeHyperlinkEdges(edges, connector, deleteQuery);
+                connector.deleteByQuery(deleteQuery);
             } catch (final IOException e) {
             }
         }
@@ -463,6 +492,7 @@ public final class Fulltext {
         final String collection1Query = (loaddate ? CollectionSchema.load_date_dt : CollectionSchema.last_modified).getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(deleteageDate) + "]";
         final String webgraphQuery = (loaddate ? WebgraphSchema.load_date_dt : WebgraphSchema.last_modified).getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(deleteageDate) + "]";
         try {
+            removeHyperlinkEdges(this.hyperlinkEdges, this.getDefaultConnector(), collection1Query);
             this.getDefaultConnector().deleteByQuery(collection1Query);
             if (this.getWebgraphConnector() != null) this.getWebgraphConnector().deleteByQuery(webgraphQuery);
         } catch (final IOException e) {
@@ -505,6 +535,7 @@ public final class Fulltext {
      */
     public void remove(final Collection<String> deleteIDs) {
         if (deleteIDs == null || deleteIDs.size() == 0) return;
+        for (final String id: deleteIDs) removeHyperlinkEdges(id);
         try {
             this.getDefaultConnector().deleteByIds(deleteIDs);
             if (this.writeWebgraph) { // Webgraph.id is combination of sourceHash+targetHash+hexCounter, to be successful use source_id_s and/or target_id_s
@@ -526,6 +557,7 @@ public final class Fulltext {
      */
     public boolean remove(final byte[] urlHash) {
         if (urlHash == null) return false;
+        removeHyperlinkEdges(ASCII.String(urlHash));
         try {
             String id = ASCII.String(urlHash);
             this.getDefaultConnector().deleteById(id);
@@ -539,6 +571,41 @@ public final class Fulltext {
         return false;
     }
 
+    /**
+     * remove the links of a deleted document from the hyperlink edge store
+     * @param id the document id
+     */
+    private void removeHyperlinkEdges(final String id) {
+        final HyperlinkEdgeStore edges = this.hyperlinkEdges;
+        if (edges == null) return;
+        try {
+            edges.remove(id);
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
+    }
+
+    /**
+     * remove the links of the documents matching a delete query from the hyperlink edge store; this must be called before the documents are deleted
+     * @param edges the hyperlink edge store or null
+     * @param connector the connector of the collection core
+     * @param query the delete query
+     */
+    private static void removeHyperlinkEdges(final HyperlinkEdgeStore edges, final SolrConnector connector, final String query) {
+        if (edges == null || connector == null) return;
+        final BlockingQueue<String> ids = connector.concurrentIDsByQuery(query, null, 0, Integer.MAX_VALUE, Long.MAX_VALUE, 100, 1);
+        try {
+            String id;
+            while ((id = ids.take()) != AbstractSolrConnector.POISON_ID) {
+                try {
+                    edges.remove(id);
+                } catch (final IOException e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
+        } catch (final InterruptedException e) {}
+    }
+
     public DigestURL getURL(final String urlHash) throws IOException {
         if (urlHash == null || this.getDefaultConnector() == null) return null;
         
@@ -558,6 +625,40 @@ public final class Fulltext {
         if (md == null) return -1l;
         return md.date;
     }
+
+    /**
+     * check the existence of a set of documents with a single query
+     * @param urlHashes the url hashes of the documents
+     * @return the url hashes of the documents which exist in the index
+     */
+    public Set<String> exists(final Collection<String> urlHashes) throws IOException {
+        final SolrConnector connector = this.getDefaultConnector();
+        final Set<String> existing = new HashSet<String>();
+        if (urlHashes.isEmpty() || connector == null) return existing;
+        // documents which are not yet written by the write buffer are not found by a query; check the buffer first
+        if (connector instanceof BufferedSolrConnector) existing.addAll(((BufferedSolrConnector) connector).bufferedIds(urlHashes));
+        final StringBuilder ids = new StringBuilder(urlHashes.size() * 13);
+        for (final String urlHash: urlHashes) {
+            if (existing.contains(urlHash)) continue;
+            if (ids.length() > 0) ids.append(',');
+            ids.append(urlHash);
+        }
+        if (ids.length() == 0) return existing;
+        final SolrQuery params = new SolrQuery();
+        params.setQuery("{!cache=false terms f=" + CollectionSchema.id.getSolrFieldName() + "}" + ids.toString());
+        params.setRows(urlHashes.size());
+        params.setStart(0);
+        params.setFacet(false);
+        params.clearSorts();
+        params.setFields(CollectionSchema.id.getSolrFieldName());
+        params.setIncludeScore(false);
+        final SolrDocumentList sdl = connector.getDocumentListByParams(params);
+        if (sdl != null) for (final SolrDocument doc: sdl) {
+            final Object id = doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+            if (id != null) existing.add((String) id);
+        }
+        return existing;
+    }
     
     public List<File> dumpFiles() {
         EmbeddedInstance esc = this.solrInstances.getEmbedded();
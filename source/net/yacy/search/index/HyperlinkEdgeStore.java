@@ -0,0 +1,931 @@
+/**
+ *  HyperlinkEdgeStore
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.AnchorURL;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.document.id.MultiProtocolURL;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.search.schema.HyperlinkEdge;
+import net.yacy.search.schema.HyperlinkType;
+
+/**
+ * A native store for the hyperlinks of all indexed documents; it is an alternative to the webgraph Solr core
+ * which produces one Solr document for each link.
+ * The store is partitioned by the hash of the source document id. Each partition has two append-only files:
+ * an edge file with fixed-size records and a text file with the urls and anchor texts of the edges.
+ * For every stored document a header record is written, followed by one record for each link of the document:
+ * <pre>
+ * source id (12 bytes) | target id (12 bytes) | type (1 byte) | target url ref (8 bytes) | anchor text ref (8 bytes)
+ * </pre>
+ * In a header record the type is {@link #HEADER}, the target url ref holds the number of edges and the anchor text ref
+ * holds the reference of the source url. A header with zero edges removes a document.
+ * Storing a document again appends a new header and edge set; the postings and host entry of the former records are
+ * dropped at once and the dead records are removed by a compaction of the partition as soon as they make up more than
+ * half of it.
+ * Forward (source to edges), reverse (target to edges) and host (host to sources) indexes are held in RAM
+ * and are rebuilt from the edge files when the store is opened.
+ */
+public final class HyperlinkEdgeStore {
+
+    private static final ConcurrentLog log = new ConcurrentLog("HyperlinkEdgeStore");
+
+    private static final int ID_LENGTH = Word.commonHashLength;
+    private static final int RECORD_SIZE = ID_LENGTH + ID_LENGTH + 1 + 8 + 8;
+    private static final byte HEADER = (byte) 0xff;
+    private static final HyperlinkType[] TYPES = HyperlinkType.values();
+    private static final byte[] NO_TARGET = new byte[ID_LENGTH];
+    /** the number of bytes which are read at once for a text; most urls and anchor texts fit */
+    private static final int TEXT_PREFETCH = 256;
+    /** edge records at positions which are closer than this number of records are read together */
+    private static final int READ_WINDOW = 64;
+    /** a partition is compacted when it has at least this number of dead records and they are more than half of it */
+    private static final long COMPACT_MIN_DEAD = 100000;
+
+    /** the maximum number of partitions; the partition number is part of a record position */
+    public static final int MAX_PARTITIONS = 64;
+    /** the maximum number of edges of one document */
+    public static final int MAX_EDGES = 0xffffff;
+
+    /**
+     * an edge as read from the store
+     */
+    public static final class Edge {
+        public final String sourceId, sourceURL, targetId, targetURL, anchor;
+        public final HyperlinkType type;
+
+        private Edge(final String sourceId, final String sourceURL, final String targetId, final String targetURL, final HyperlinkType type, final String anchor) {
+            this.sourceId = sourceId;
+            this.sourceURL = sourceURL;
+            this.targetId = targetId;
+            this.targetURL = targetURL;
+            this.type = type;
+            this.anchor = anchor;
+        }
+
+        public HyperlinkEdge toHyperlinkEdge() throws MalformedURLException {
+            return new HyperlinkEdge(new MultiProtocolURL(this.sourceURL), new HyperlinkEdge.Target(this.targetURL, this.type));
+        }
+
+        @Override
+        public String toString() {
+            return this.sourceURL + " -> " + this.targetURL + " (" + this.type.name() + ")";
+        }
+    }
+
+    /** the positions of the edge records which point to one target */
+    private static final class Postings {
+        private long[] positions = new long[2];
+        private int size = 0;
+        /** set when the empty postings are removed from the reverse index; they must not be used any more */
+        private boolean dropped = false;
+
+        private synchronized void add(final long position) {
+            if (this.size == this.positions.length) {
+                final long[] p = new long[this.size * 2];
+                System.arraycopy(this.positions, 0, p, 0, this.size);
+                this.positions = p;
+            }
+            this.positions[this.size++] = position;
+        }
+
+        /**
+         * @return true if the postings are empty afterwards
+         */
+        private synchronized boolean remove(final long position) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.positions[i] == position) {
+                    this.positions[i] = this.positions[--this.size];
+                    break;
+                }
+            }
+            return this.size == 0;
+        }
+
+        /**
+         * move the positions in a compacted partition
+         * @param partition the partition number
+         * @param oldHeaders the sorted former header positions of the live runs of the partition
+         * @param newHeaders the header positions of the same runs after the compaction
+         */
+        private synchronized void relocate(final int partition, final long[] oldHeaders, final long[] newHeaders) {
+            for (int i = 0; i < this.size; i++) {
+                final long position = this.positions[i];
+                if (partitionNumber(position) != partition) continue;
+                int r = Arrays.binarySearch(oldHeaders, position);
+                if (r < 0) r = -r - 2;
+                if (r >= 0) this.positions[i] = newHeaders[r] + (position - oldHeaders[r]);
+            }
+        }
+
+        private synchronized long[] get() {
+            final long[] p = new long[this.size];
+            System.arraycopy(this.positions, 0, p, 0, this.size);
+            return p;
+        }
+    }
+
+    private final class Partition {
+        private final int number;
+        private final File edgeFile, textFile, edgeCompactFile, textCompactFile;
+        private RandomAccessFile edgeRaf, textRaf;
+        private FileChannel edgeChannel, textChannel;
+        private long records, textLength;
+        /** the number of records of replaced and removed documents */
+        private long dead;
+
+        private Partition(final int number) throws IOException {
+            this.number = number;
+            this.edgeFile = new File(HyperlinkEdgeStore.this.location, "edges." + number + ".bin");
+            this.textFile = new File(HyperlinkEdgeStore.this.location, "text." + number + ".bin");
+            this.edgeCompactFile = new File(HyperlinkEdgeStore.this.location, "edges." + number + ".compact");
+            this.textCompactFile = new File(HyperlinkEdgeStore.this.location, "text." + number + ".compact");
+            recover();
+            open();
+            load();
+        }
+
+        /**
+         * finish or discard a compaction which was interrupted.
+         * The compacted edge file is created first and moved into place first; as long as it exists the former files are valid.
+         */
+        private void recover() throws IOException {
+            if (this.edgeCompactFile.exists()) {
+                log.warn("discarding interrupted compaction of " + this.edgeFile);
+                this.edgeCompactFile.delete();
+                this.textCompactFile.delete();
+            } else if (this.textCompactFile.exists()) {
+                log.warn("finishing interrupted compaction of " + this.textFile);
+                move(this.textCompactFile, this.textFile);
+            }
+        }
+
+        private void open() throws IOException {
+            this.edgeRaf = new RandomAccessFile(this.edgeFile, "rw");
+            this.textRaf = new RandomAccessFile(this.textFile, "rw");
+            this.edgeChannel = this.edgeRaf.getChannel();
+            this.textChannel = this.textRaf.getChannel();
+        }
+
+        private void load() throws IOException {
+            this.records = replay();
+            if (this.records * RECORD_SIZE != this.edgeChannel.size()) {
+                log.warn("truncating incomplete edge records in " + this.edgeFile + " from " + this.edgeChannel.size() + " to " + (this.records * RECORD_SIZE) + " bytes");
+                this.edgeChannel.truncate(this.records * RECORD_SIZE);
+            }
+            this.textLength = this.textChannel.size();
+        }
+
+        /**
+         * read all edge records of the partition and fill the indexes.
+         * The first pass reads the headers to find the live run of every document, the second pass reads the edges of the live runs.
+         * @return the number of complete records
+         */
+        private long replay() throws IOException {
+            final long available = this.edgeChannel.size() / RECORD_SIZE;
+            this.dead = 0;
+            if (available == 0) return 0;
+            final Map<String, long[]> runs = new HashMap<String, long[]>(); // source id to header index, number of edges and source url ref
+            final byte[] record = new byte[RECORD_SIZE];
+            long index = 0;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.edgeFile), 1 << 16));
+            try {
+                while (index < available) {
+                    in.readFully(record);
+                    if (record[2 * ID_LENGTH] != HEADER) {
+                        log.warn("edge record without header at " + index + " in " + this.edgeFile);
+                        break;
+                    }
+                    final ByteBuffer b = ByteBuffer.wrap(record);
+                    final long count = b.getLong(2 * ID_LENGTH + 1);
+                    if (count < 0 || count > MAX_EDGES || index + 1 + count > available) break; // incomplete document at the end of the file
+                    final String sourceId = ASCII.String(record, 0, ID_LENGTH);
+                    if (count == 0) runs.remove(sourceId); else runs.put(sourceId, new long[]{index, count, b.getLong(2 * ID_LENGTH + 9)});
+                    skip(in, count * RECORD_SIZE);
+                    index += 1 + count;
+                }
+            } catch (final EOFException e) {
+                // the records up to index are complete
+            } finally {
+                in.close();
+            }
+            final long records = index;
+            long live = 0;
+            for (final Map.Entry<String, long[]> run: runs.entrySet()) {
+                final long[] r = run.getValue();
+                index(run.getKey(), host(r[2]), position(this.number, r[0]), (int) r[1]);
+                live += 1 + r[1];
+            }
+            this.dead = records - live;
+            index = 0;
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.edgeFile), 1 << 16));
+            try {
+                while (index < records) {
+                    in.readFully(record);
+                    final int count = (int) ByteBuffer.wrap(record).getLong(2 * ID_LENGTH + 1);
+                    final long[] r = runs.get(ASCII.String(record, 0, ID_LENGTH));
+                    if (r == null || r[0] != index) {
+                        skip(in, (long) count * RECORD_SIZE);
+                    } else {
+                        final long header = position(this.number, index);
+                        for (int i = 1; i <= count; i++) {
+                            in.readFully(record);
+                            addPosting(ASCII.String(record, ID_LENGTH, ID_LENGTH), header + i);
+                        }
+                    }
+                    index += 1 + count;
+                }
+            } finally {
+                in.close();
+            }
+            return records;
+        }
+
+        private String host(final long sourceURLRef) {
+            if (sourceURLRef < 0) return null;
+            try {
+                final String url = readText(sourceURLRef);
+                final String host = url == null ? null : new MultiProtocolURL(url).getHost();
+                return host == null ? null : host.toLowerCase(Locale.ROOT);
+            } catch (final IOException e) {
+                return null;
+            }
+        }
+
+        private long appendText(final DataOutputStream text, final String s) throws IOException {
+            if (s == null || s.isEmpty()) return -1;
+            final long ref = this.textLength + text.size();
+            final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            text.writeInt(b.length);
+            text.write(b);
+            return ref;
+        }
+
+        private String readText(final long ref) throws IOException {
+            final byte[] b = readBytes(ref);
+            return b == null ? null : new String(b, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * read a text entry; the length and the beginning of the text are read together
+         */
+        private byte[] readBytes(final long ref) throws IOException {
+            if (ref < 0) return null;
+            final long size = this.textChannel.size();
+            if (ref + 4 > size) return null;
+            final ByteBuffer b = ByteBuffer.allocate((int) Math.min(TEXT_PREFETCH, size - ref));
+            while (b.hasRemaining() && this.textChannel.read(b, ref + b.position()) > 0) {}
+            if (b.position() < 4) return null;
+            final int length = b.getInt(0);
+            if (length < 0 || ref + 4 + length > size) return null;
+            final byte[] text = new byte[length];
+            final int prefetched = Math.min(length, b.position() - 4);
+            System.arraycopy(b.array(), 4, text, 0, prefetched);
+            if (prefetched < length) {
+                final ByteBuffer rest = ByteBuffer.wrap(text, prefetched, length - prefetched);
+                while (rest.hasRemaining() && this.textChannel.read(rest, ref + 4 + rest.position()) > 0) {}
+                if (rest.hasRemaining()) return null;
+            }
+            return text;
+        }
+
+        /**
+         * append a document with its links
+         * @return the position of the header record
+         */
+        private synchronized long append(final String sourceId, final String sourceURL, final List<byte[]> targetIds, final List<String> targetURLs, final List<HyperlinkType> types, final List<String> anchors) throws IOException {
+            final int count = targetIds.size();
+            final ByteArrayOutputStream textBytes = new ByteArrayOutputStream();
+            final DataOutputStream text = new DataOutputStream(textBytes);
+            final ByteBuffer edges = ByteBuffer.allocate((count + 1) * RECORD_SIZE);
+            edges.put(ASCII.getBytes(sourceId)).put(NO_TARGET).put(HEADER).putLong(count).putLong(appendText(text, sourceURL));
+            for (int i = 0; i < count; i++) {
+                edges.put(ASCII.getBytes(sourceId)).put(targetIds.get(i)).put((byte) types.get(i).ordinal());
+                edges.putLong(appendText(text, targetURLs.get(i))).putLong(appendText(text, anchors.get(i)));
+            }
+            text.flush();
+            // the text is written first; the edges which refer to it are then complete when they are found in the edge file
+            final ByteBuffer t = ByteBuffer.wrap(textBytes.toByteArray());
+            while (t.hasRemaining()) this.textChannel.write(t, this.textLength + t.position());
+            this.textLength += textBytes.size();
+            edges.flip();
+            final long offset = this.records * RECORD_SIZE;
+            while (edges.hasRemaining()) this.edgeChannel.write(edges, offset + edges.position());
+            final long header = position(this.number, this.records);
+            this.records += count + 1;
+            return header;
+        }
+
+        private ByteBuffer read(final long index, final int count) throws IOException {
+            final ByteBuffer b = ByteBuffer.allocate(count * RECORD_SIZE);
+            final long offset = index * RECORD_SIZE;
+            while (b.hasRemaining()) {
+                if (this.edgeChannel.read(b, offset + b.position()) < 0) throw new EOFException();
+            }
+            b.flip();
+            return b;
+        }
+
+        private boolean needsCompaction() {
+            return this.dead >= COMPACT_MIN_DEAD && this.dead * 2 > this.records;
+        }
+
+        private void close() {
+            try {this.edgeChannel.force(true);} catch (final IOException e) {}
+            try {this.textChannel.force(true);} catch (final IOException e) {}
+            try {this.edgeRaf.close();} catch (final IOException e) {}
+            try {this.textRaf.close();} catch (final IOException e) {}
+        }
+
+        private synchronized void clear() throws IOException {
+            close();
+            this.edgeFile.delete();
+            this.textFile.delete();
+            open();
+            load();
+        }
+    }
+
+    private final File location;
+    private final Partition[] partitions;
+    /** source id to the header position and the number of edges of the document, see {@link #run(long, int)} */
+    private final ConcurrentHashMap<String, Long> forward;
+    /** target id to the positions of the edge records */
+    private final ConcurrentHashMap<String, Postings> reverse;
+    /** host name to the ids of the stored documents of the host; changes are synchronized on the map */
+    private final ConcurrentHashMap<String, Set<String>> hosts;
+    /** readers and writers share the lock; clear, close and compaction move the files and take it exclusively */
+    private final ReentrantReadWriteLock lock;
+
+    /**
+     * open or create an edge store
+     * @param location the directory of the store files
+     * @param partitions the number of partitions; must not be changed for an existing store
+     * @throws IOException
+     */
+    public HyperlinkEdgeStore(final File location, final int partitions) throws IOException {
+        if (partitions < 1 || partitions > MAX_PARTITIONS) throw new IllegalArgumentException("partitions must be between 1 and " + MAX_PARTITIONS + ": " + partitions);
+        this.location = location;
+        location.mkdirs();
+        this.forward = new ConcurrentHashMap<String, Long>();
+        this.reverse = new ConcurrentHashMap<String, Postings>();
+        this.hosts = new ConcurrentHashMap<String, Set<String>>();
+        this.lock = new ReentrantReadWriteLock();
+        this.partitions = new Partition[partitions];
+        final long start = System.currentTimeMillis();
+        for (int p = 0; p < partitions; p++) this.partitions[p] = new Partition(p);
+        log.info("opened edge store " + location + " with " + this.forward.size() + " documents and " + this.reverse.size() + " link targets in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /** a record position is the partition number and the index of the record in the edge file of the partition */
+    private static long position(final int partition, final long index) {
+        return ((long) partition << 34) | index;
+    }
+
+    private static int partitionNumber(final long position) {
+        return (int) (position >>> 34);
+    }
+
+    private static long index(final long position) {
+        return position & ((1L << 34) - 1);
+    }
+
+    /** a run is the position of a header record and the number of edges which follow */
+    private static long run(final long header, final int count) {
+        return (header << 24) | count;
+    }
+
+    private static long header(final long run) {
+        return run >>> 24;
+    }
+
+    private static int count(final long run) {
+        return (int) (run & MAX_EDGES);
+    }
+
+    private static void skip(final DataInputStream in, final long n) throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            final long skipped = in.skip(remaining);
+            if (skipped <= 0) throw new EOFException();
+            remaining -= skipped;
+        }
+    }
+
+    private static void move(final File from, final File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Partition partition(final String sourceId) {
+        return this.partitions[(sourceId.hashCode() & 0x7fffffff) % this.partitions.length];
+    }
+
+    private void index(final String sourceId, final String host, final long header, final int count) {
+        this.forward.put(sourceId, run(header, count));
+        if (host == null) return;
+        synchronized (this.hosts) {
+            Set<String> ids = this.hosts.get(host);
+            if (ids == null) {
+                ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                this.hosts.put(host, ids);
+            }
+            ids.add(sourceId);
+        }
+    }
+
+    private void unindexHost(final String host, final String sourceId) {
+        synchronized (this.hosts) {
+            final Set<String> ids = this.hosts.get(host);
+            if (ids == null) return;
+            ids.remove(sourceId);
+            if (ids.isEmpty()) this.hosts.remove(host);
+        }
+    }
+
+    private void addPosting(final String targetId, final long position) {
+        while (true) {
+            Postings p = this.reverse.get(targetId);
+            if (p == null) {
+                p = new Postings();
+                final Postings p0 = this.reverse.putIfAbsent(targetId, p);
+                if (p0 != null) p = p0;
+            }
+            synchronized (p) {
+                if (!p.dropped) {
+                    p.add(position);
+                    return;
+                }
+            }
+            // the postings were emptied and removed meanwhile; try again with new postings
+        }
+    }
+
+    private void removePosting(final String targetId, final long position) {
+        final Postings p = this.reverse.get(targetId);
+        if (p == null) return;
+        synchronized (p) {
+            if (!p.remove(position)) return;
+            p.dropped = true;
+            this.reverse.remove(targetId, p);
+        }
+    }
+
+    /**
+     * drop the postings and the host entry of a run which was replaced or removed; must be called within the partition lock
+     * @param partition the partition of the document
+     * @param sourceId the id of the document
+     * @param run the former run of the document
+     * @param host the host of the new run or null if the document was removed
+     */
+    private void release(final Partition partition, final String sourceId, final long run, final String host) throws IOException {
+        final long header = header(run);
+        final int count = count(run);
+        final ByteBuffer b = partition.read(index(header), count + 1);
+        final String formerHost = partition.host(b.getLong(2 * ID_LENGTH + 9));
+        if (formerHost != null && !formerHost.equals(host)) unindexHost(formerHost, sourceId);
+        for (int i = 1; i <= count; i++) removePosting(ASCII.String(b.array(), i * RECORD_SIZE + ID_LENGTH, ID_LENGTH), header + i);
+        partition.dead += count + 1;
+    }
+
+    /**
+     * store the links of a document; a former link set of the same document is replaced
+     * @param source the url of the document
+     * @param links the links of the document; the anchor text and nofollow attribute are taken from {@link AnchorURL} objects
+     * @throws IOException
+     */
+    public void put(final DigestURL source, final Collection<? extends DigestURL> links) throws IOException {
+        final String sourceId = ASCII.String(source.hash());
+        final String sourceHost = source.getHost();
+        final int count = Math.min(MAX_EDGES, links.size());
+        final List<byte[]> targetIds = new ArrayList<byte[]>(count);
+        final List<String> targetURLs = new ArrayList<String>(count);
+        final List<HyperlinkType> types = new ArrayList<HyperlinkType>(count);
+        final List<String> anchors = new ArrayList<String>(count);
+        for (final DigestURL link: links) {
+            if (targetIds.size() >= count) break;
+            final String host = link.getHost();
+            final boolean inbound = sourceHost == null ? host == null : sourceHost.equals(host);
+            final boolean nofollow = link instanceof AnchorURL && ((AnchorURL) link).attachedNofollow();
+            targetIds.add(link.hash());
+            targetURLs.add(link.toNormalform(true));
+            types.add(inbound ? (nofollow ? HyperlinkType.InboundNofollow : HyperlinkType.Inbound) : HyperlinkType.Outbound);
+            anchors.add(link instanceof AnchorURL ? ((AnchorURL) link).getTextProperty() : null);
+        }
+        final String host = sourceHost == null ? null : sourceHost.toLowerCase(Locale.ROOT);
+        final Partition partition = partition(sourceId);
+        final boolean compact;
+        this.lock.readLock().lock();
+        try {
+            synchronized (partition) {
+                final Long former = this.forward.get(sourceId);
+                final long header = partition.append(sourceId, source.toNormalform(true), targetIds, targetURLs, types, anchors);
+                if (targetIds.isEmpty()) {
+                    this.forward.remove(sourceId);
+                    partition.dead++;
+                } else {
+                    index(sourceId, host, header, targetIds.size());
+                    for (int i = 0; i < targetIds.size(); i++) addPosting(ASCII.String(targetIds.get(i)), header + 1 + i);
+                }
+                if (former != null) release(partition, sourceId, former.longValue(), targetIds.isEmpty() ? null : host);
+                compact = partition.needsCompaction();
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        if (compact) compact(partition, false);
+    }
+
+    /**
+     * remove the links of a document
+     * @param sourceId the id of the document
+     * @throws IOException
+     */
+    public void remove(final String sourceId) throws IOException {
+        if (!this.forward.containsKey(sourceId)) return;
+        final Partition partition = partition(sourceId);
+        final boolean compact;
+        this.lock.readLock().lock();
+        try {
+            synchronized (partition) {
+                final Long former = this.forward.get(sourceId);
+                if (former == null) return;
+                final List<byte[]> none = Collections.emptyList();
+                partition.append(sourceId, null, none, Collections.<String>emptyList(), Collections.<HyperlinkType>emptyList(), Collections.<String>emptyList());
+                this.forward.remove(sourceId);
+                partition.dead++;
+                release(partition, sourceId, former.longValue(), null);
+                compact = partition.needsCompaction();
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        if (compact) compact(partition, false);
+    }
+
+    /**
+     * remove the records of replaced and removed documents from all partitions
+     * @throws IOException
+     */
+    public void compact() throws IOException {
+        for (final Partition partition: this.partitions) compact(partition, true);
+    }
+
+    /**
+     * rewrite a partition with the live runs only and move the positions in the indexes
+     * @param partition the partition
+     * @param force if false, the partition is only compacted if it still {@link Partition#needsCompaction() needs} it
+     */
+    private void compact(final Partition partition, final boolean force) throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            if (partition.dead == 0 || !(force || partition.needsCompaction())) return;
+            final long start = System.currentTimeMillis();
+            final long before = partition.records;
+            // the live runs of the partition in the order of the edge file
+            final List<String> ids = new ArrayList<String>();
+            final List<Long> runs = new ArrayList<Long>();
+            for (final Map.Entry<String, Long> entry: this.forward.entrySet()) {
+                if (partitionNumber(header(entry.getValue().longValue())) != partition.number) continue;
+                ids.add(entry.getKey());
+                runs.add(entry.getValue());
+            }
+            final Integer[] order = new Integer[runs.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer a, final Integer b) {
+                    return Long.compare(runs.get(a.intValue()).longValue(), runs.get(b.intValue()).longValue());
+                }
+            });
+            final long[] oldHeaders = new long[order.length];
+            final long[] newHeaders = new long[order.length];
+            long records = 0;
+            final FileOutputStream edgeOut = new FileOutputStream(partition.edgeCompactFile); // created first, see Partition.recover
+            try {
+                final FileOutputStream textOut = new FileOutputStream(partition.textCompactFile);
+                try {
+                    final DataOutputStream edges = new DataOutputStream(new BufferedOutputStream(edgeOut, 1 << 16));
+                    final DataOutputStream text = new DataOutputStream(new BufferedOutputStream(textOut, 1 << 16));
+                    final long[] textLength = new long[1];
+                    for (int r = 0; r < order.length; r++) {
+                        final long run = runs.get(order[r].intValue()).longValue();
+                        final int count = count(run);
+                        final ByteBuffer b = partition.read(index(header(run)), count + 1);
+                        oldHeaders[r] = header(run);
+                        newHeaders[r] = position(partition.number, records);
+                        for (int i = 0; i <= count; i++) {
+                            final int p = i * RECORD_SIZE;
+                            edges.write(b.array(), p, 2 * ID_LENGTH + 1);
+                            final long targetRef = b.getLong(p + 2 * ID_LENGTH + 1);
+                            edges.writeLong(i == 0 ? targetRef : copyText(partition, text, textLength, targetRef)); // the header holds the number of edges
+                            edges.writeLong(copyText(partition, text, textLength, b.getLong(p + 2 * ID_LENGTH + 9)));
+                        }
+                        records += count + 1;
+                    }
+                    text.flush();
+                    edges.flush();
+                    textOut.getFD().sync();
+                    edgeOut.getFD().sync();
+                } finally {
+                    textOut.close();
+                }
+            } catch (final IOException e) {
+                edgeOut.close();
+                partition.edgeCompactFile.delete();
+                partition.textCompactFile.delete();
+                throw e;
+            }
+            edgeOut.close();
+            partition.close();
+            try {
+                move(partition.edgeCompactFile, partition.edgeFile);
+                move(partition.textCompactFile, partition.textFile);
+            } finally {
+                partition.open();
+            }
+            partition.records = records;
+            partition.textLength = partition.textChannel.size();
+            partition.dead = 0;
+            for (int r = 0; r < order.length; r++) {
+                this.forward.put(ids.get(order[r].intValue()), run(newHeaders[r], count(runs.get(order[r].intValue()).longValue())));
+            }
+            for (final Postings postings: this.reverse.values()) postings.relocate(partition.number, oldHeaders, newHeaders);
+            log.info("compacted " + partition.edgeFile + " from " + before + " to " + records + " records in " + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private static long copyText(final Partition partition, final DataOutputStream text, final long[] textLength, final long ref) throws IOException {
+        final byte[] b = partition.readBytes(ref);
+        if (b == null) return -1;
+        final long newRef = textLength[0];
+        text.writeInt(b.length);
+        text.write(b);
+        textLength[0] += 4 + b.length;
+        return newRef;
+    }
+
+    private Edge edge(final Partition partition, final ByteBuffer b, final String sourceURL, final String targetURL) throws IOException {
+        final int p = b.position();
+        final String sourceId = ASCII.String(b.array(), p, ID_LENGTH);
+        final String targetId = ASCII.String(b.array(), p + ID_LENGTH, ID_LENGTH);
+        final int type = b.get(p + 2 * ID_LENGTH) & 0xff;
+        final long targetRef = b.getLong(p + 2 * ID_LENGTH + 1);
+        final long anchorRef = b.getLong(p + 2 * ID_LENGTH + 9);
+        b.position(p + RECORD_SIZE);
+        if (type >= TYPES.length) return null;
+        final String url = targetURL == null ? partition.readText(targetRef) : targetURL;
+        if (url == null) return null;
+        return new Edge(sourceId, sourceURL, targetId, url, TYPES[type], partition.readText(anchorRef));
+    }
+
+    /**
+     * check that an edge record belongs to the current run of its document
+     */
+    private boolean live(final String sourceId, final long position) {
+        final Long run = this.forward.get(sourceId);
+        if (run == null) return false;
+        final long header = header(run.longValue());
+        return position > header && position <= header + count(run.longValue());
+    }
+
+    /**
+     * reads the edge records at a set of positions in the order of the edge files;
+     * records which are close to each other are read with a single read
+     */
+    private final class Records {
+        private final long[] positions;
+        private int next = 0;
+        private long position, windowStart;
+        private ByteBuffer window = null;
+        private int windowLength = 0;
+
+        private Records(final long[] positions) {
+            Arrays.sort(positions);
+            this.positions = positions;
+        }
+
+        private boolean hasNext() {
+            return this.next < this.positions.length;
+        }
+
+        /**
+         * @return a buffer which is positioned at the next record
+         */
+        private ByteBuffer next() throws IOException {
+            this.position = this.positions[this.next++];
+            final int partition = partitionNumber(this.position);
+            if (this.window == null || partitionNumber(this.windowStart) != partition || this.position >= this.windowStart + this.windowLength) {
+                int last = this.next - 1;
+                while (last + 1 < this.positions.length && partitionNumber(this.positions[last + 1]) == partition && this.positions[last + 1] - this.position < READ_WINDOW) last++;
+                this.windowStart = this.position;
+                this.windowLength = (int) (this.positions[last] - this.position + 1);
+                this.window = HyperlinkEdgeStore.this.partitions[partition].read(index(this.position), this.windowLength);
+            }
+            this.window.position((int) (this.position - this.windowStart) * RECORD_SIZE);
+            return this.window;
+        }
+
+        private Partition partition() {
+            return HyperlinkEdgeStore.this.partitions[partitionNumber(this.position)];
+        }
+    }
+
+    /**
+     * get all links of a document
+     * @param sourceId the id of the document
+     * @return the edges from the document; an empty list if the document is unknown
+     * @throws IOException
+     */
+    public List<Edge> outgoing(final String sourceId) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            final Long run = this.forward.get(sourceId);
+            if (run == null) return Collections.emptyList();
+            final long header = header(run.longValue());
+            final int count = count(run.longValue());
+            final Partition partition = this.partitions[partitionNumber(header)];
+            final ByteBuffer b = partition.read(index(header), count + 1);
+            final String sourceURL = partition.readText(b.getLong(2 * ID_LENGTH + 9));
+            b.position(RECORD_SIZE);
+            final List<Edge> edges = new ArrayList<Edge>(count);
+            for (int i = 0; i < count; i++) {
+                final Edge edge = edge(partition, b, sourceURL, null);
+                if (edge != null) edges.add(edge);
+            }
+            return edges;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * get the links to a document from all stored documents
+     * @param targetId the id of the link target
+     * @param maxcount the maximum number of edges
+     * @return the edges to the target
+     * @throws IOException
+     */
+    public List<Edge> incoming(final String targetId, final int maxcount) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            final Postings postings = this.reverse.get(targetId);
+            if (postings == null) return Collections.emptyList();
+            final Records records = new Records(postings.get());
+            final List<Edge> edges = new ArrayList<Edge>();
+            final Map<Long, String> sourceURLs = new HashMap<Long, String>(); // header position to source url
+            String targetURL = null; // the same for all edges
+            while (records.hasNext() && edges.size() < maxcount) {
+                final ByteBuffer b = records.next();
+                final String sourceId = ASCII.String(b.array(), b.position(), ID_LENGTH);
+                if (!live(sourceId, records.position)) continue; // replaced after the postings were read
+                final Partition partition = records.partition();
+                final long header = header(this.forward.get(sourceId).longValue());
+                String sourceURL = sourceURLs.get(header);
+                if (sourceURL == null) {
+                    sourceURL = partition.readText(partition.read(index(header), 1).getLong(2 * ID_LENGTH + 9));
+                    sourceURLs.put(header, sourceURL);
+                }
+                final Edge edge = edge(partition, b, sourceURL, targetURL);
+                if (edge == null) continue;
+                targetURL = edge.targetURL;
+                edges.add(edge);
+            }
+            return edges;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * get the ids of the documents which link to a document; this reads only the edge records and is much cheaper than {@link #incoming(String, int)}
+     * @param targetId the id of the link target
+     * @param maxcount the maximum number of edges
+     * @return the source ids, one for each edge to the target
+     * @throws IOException
+     */
+    public List<String> incomingSources(final String targetId, final int maxcount) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            final Postings postings = this.reverse.get(targetId);
+            if (postings == null) return Collections.emptyList();
+            final Records records = new Records(postings.get());
+            final List<String> ids = new ArrayList<String>();
+            while (records.hasNext() && ids.size() < maxcount) {
+                final ByteBuffer b = records.next();
+                final String sourceId = ASCII.String(b.array(), b.position(), ID_LENGTH);
+                if (live(sourceId, records.position)) ids.add(sourceId);
+            }
+            return ids;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * get the ids of all documents of a host which have links in the store
+     * @param host the host name
+     * @return the document ids
+     */
+    public Collection<String> sources(final String host) {
+        final Set<String> ids = host == null ? null : this.hosts.get(host.toLowerCase(Locale.ROOT));
+        if (ids == null) return Collections.emptyList();
+        final List<String> live = new ArrayList<String>(ids.size());
+        for (final String id: ids) if (this.forward.containsKey(id)) live.add(id);
+        return live;
+    }
+
+    /**
+     * @return the number of documents in the store
+     */
+    public int size() {
+        return this.forward.size();
+    }
+
+    /**
+     * @return the number of distinct link targets
+     */
+    public int targets() {
+        return this.reverse.size();
+    }
+
+    public File getLocation() {
+        return this.location;
+    }
+
+    public void clear() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            this.forward.clear();
+            this.reverse.clear();
+            this.hosts.clear();
+            for (final Partition partition: this.partitions) partition.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void close() {
+        this.lock.writeLock().lock();
+        try {
+            for (final Partition partition: this.partitions) partition.close();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+}
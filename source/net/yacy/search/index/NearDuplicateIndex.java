@@ -0,0 +1,200 @@
+/**
+ *  NearDuplicateIndex
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.index;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import net.yacy.kelondro.data.word.Word;
+
+/**
+ * An in-memory locality-sensitive index of SimHash fingerprints for the detection of near-duplicate documents
+ * while they are stored. A 64 bit fingerprint is split into four bands of 16 bits; two fingerprints with a
+ * hamming distance of at most three bits share at least one band, so all near-duplicates are found by looking
+ * into the four buckets of a fingerprint.
+ * Like the double content postprocessing, only documents of the same host are considered as duplicates.
+ * The index has a fixed capacity; when it is full the oldest entries are replaced.
+ */
+public final class NearDuplicateIndex {
+
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 16;
+    private static final int BUCKETS = 1 << BAND_BITS;
+    private static final int ID_LENGTH = Word.commonHashLength;
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final int maxDistance;
+    private final long[] fingerprints;
+    private final byte[] ids;
+    /** bucket heads and doubly linked bucket chains for each band */
+    private final int[][] heads, next, prev;
+    private int slot, size;
+
+    /**
+     * @param capacity the maximum number of documents in the index
+     * @param maxDistance the maximum hamming distance of near-duplicate fingerprints, between 0 and 3
+     */
+    public NearDuplicateIndex(final int capacity, final int maxDistance) {
+        if (maxDistance < 0 || maxDistance >= BANDS) throw new IllegalArgumentException("maxDistance must be between 0 and " + (BANDS - 1) + ": " + maxDistance);
+        this.capacity = Math.max(1, capacity);
+        this.maxDistance = maxDistance;
+        this.fingerprints = new long[this.capacity];
+        this.ids = new byte[this.capacity * ID_LENGTH];
+        this.heads = new int[BANDS][BUCKETS];
+        this.next = new int[BANDS][this.capacity];
+        this.prev = new int[BANDS][this.capacity];
+        for (int b = 0; b < BANDS; b++) Arrays.fill(this.heads[b], NONE);
+        this.slot = 0;
+        this.size = 0;
+    }
+
+    /**
+     * compute a SimHash fingerprint from the word statistics of a document
+     * @param words the words of a document as produced by the Condenser
+     * @return the fingerprint; 0 if there are no words
+     */
+    public static long simhash(final Map<String, Word> words) {
+        if (words == null || words.isEmpty()) return 0;
+        final int[] v = new int[64];
+        for (final Map.Entry<String, Word> entry: words.entrySet()) {
+            final long h = hash(entry.getKey());
+            final int weight = Math.max(1, entry.getValue().occurrences());
+            for (int i = 0; i < 64; i++) {
+                if (((h >>> i) & 1L) != 0) v[i] += weight; else v[i] -= weight;
+            }
+        }
+        long fingerprint = 0;
+        for (int i = 0; i < 64; i++) if (v[i] > 0) fingerprint |= 1L << i;
+        return fingerprint;
+    }
+
+    /** a 64 bit FNV-1a hash with a final bit mixing step */
+    private static long hash(final String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int band(final long fingerprint, final int b) {
+        return (int) ((fingerprint >>> (b * BAND_BITS)) & (BUCKETS - 1));
+    }
+
+    private boolean sameHost(final int s, final byte[] urlhash) {
+        final int offset = s * ID_LENGTH;
+        for (int i = 6; i < ID_LENGTH; i++) if (this.ids[offset + i] != urlhash[i]) return false;
+        return true;
+    }
+
+    private boolean sameId(final int s, final byte[] urlhash) {
+        final int offset = s * ID_LENGTH;
+        for (int i = 0; i < 6; i++) if (this.ids[offset + i] != urlhash[i]) return false;
+        return sameHost(s, urlhash);
+    }
+
+    /**
+     * count the near-duplicates of a document
+     * @param urlhash the id of the document; the document itself is not counted
+     * @param fingerprint the SimHash of the document
+     * @return the number of documents of the same host with a near-duplicate fingerprint
+     */
+    public synchronized int count(final byte[] urlhash, final long fingerprint) {
+        if (fingerprint == 0) return 0;
+        return count(urlhash, fingerprint, null);
+    }
+
+    /**
+     * @param self if not null, the first slot of the document itself is stored at position 0
+     */
+    private int count(final byte[] urlhash, final long fingerprint, final int[] self) {
+        int count = 0;
+        for (int b = 0; b < BANDS; b++) {
+            final int bucket = band(fingerprint, b);
+            for (int s = this.heads[b][bucket]; s != NONE; s = this.next[b][s]) {
+                // count each entry only in the first band where it matches
+                boolean counted = false;
+                for (int c = 0; c < b; c++) if (band(this.fingerprints[s], c) == band(fingerprint, c)) {counted = true; break;}
+                if (counted) continue;
+                if (Long.bitCount(this.fingerprints[s] ^ fingerprint) > this.maxDistance) continue;
+                if (!sameHost(s, urlhash)) continue;
+                if (sameId(s, urlhash)) {
+                    if (self != null && self[0] == NONE && this.fingerprints[s] == fingerprint) self[0] = s;
+                    continue;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * add a document to the index and count its near-duplicates
+     * @param urlhash the id of the document
+     * @param fingerprint the SimHash of the document; documents without fingerprint are not added
+     * @return the number of other documents of the same host with a near-duplicate fingerprint, found before the document was added
+     */
+    public synchronized int add(final byte[] urlhash, final long fingerprint) {
+        if (fingerprint == 0 || urlhash == null || urlhash.length < ID_LENGTH) return 0;
+        final int[] self = new int[]{NONE};
+        final int count = count(urlhash, fingerprint, self);
+        if (self[0] != NONE) return count; // the document is already in the index with the same fingerprint
+        final int s = this.slot;
+        if (this.size == this.capacity) unlink(s); else this.size++;
+        this.fingerprints[s] = fingerprint;
+        System.arraycopy(urlhash, 0, this.ids, s * ID_LENGTH, ID_LENGTH);
+        for (int b = 0; b < BANDS; b++) {
+            final int bucket = band(fingerprint, b);
+            final int head = this.heads[b][bucket];
+            this.next[b][s] = head;
+            this.prev[b][s] = NONE;
+            if (head != NONE) this.prev[b][head] = s;
+            this.heads[b][bucket] = s;
+        }
+        this.slot = (s + 1) % this.capacity;
+        return count;
+    }
+
+    private void unlink(final int s) {
+        for (int b = 0; b < BANDS; b++) {
+            final int n = this.next[b][s];
+            final int p = this.prev[b][s];
+            if (p == NONE) this.heads[b][band(this.fingerprints[s], b)] = n; else this.next[b][p] = n;
+            if (n != NONE) this.prev[b][n] = p;
+        }
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    public synchronized void clear() {
+        for (int b = 0; b < BANDS; b++) Arrays.fill(this.heads[b], NONE);
+        this.slot = 0;
+        this.size = 0;
+    }
+}
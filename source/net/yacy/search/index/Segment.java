@@ -112,6 +112,7 @@ public class Segment {
     public static final String termIndexName = "text.index";
     public static final String citationIndexName = "citation.index";
     public static final String firstseenIndexName = "firstseen.index";
+    public static final String hyperlinkEdgesName = "hyperlink.edges";
 
     // the reference factory
     public static final ReferenceFactory<WordReference> wordReferenceFactory = new WordReferenceFactory();
@@ -124,6 +125,8 @@ public class Segment {
     protected       IndexCell<WordReference>       termIndex;
     protected       IndexCell<CitationReference>   urlCitationIndex;
     protected       IndexTable                     firstSeenIndex;
+    protected       HyperlinkEdgeStore             hyperlinkEdges;
+    protected       NearDuplicateIndex             nearDuplicates;
     protected       IODispatcher                   merger = null; // shared iodispatcher for kelondro indexes
 
     /**
@@ -142,6 +145,8 @@ public class Segment {
         this.fulltext = new Fulltext(segmentPath, archivePath, collectionConfiguration, webgraphConfiguration);
         this.termIndex = null;
         this.urlCitationIndex = null;
+        this.hyperlinkEdges = null;
+        this.nearDuplicates = null;
         this.firstSeenIndex = new IndexTable(new File(segmentPath, firstseenIndexName), 12, 8, false, false);
     }
     
@@ -213,6 +218,45 @@ public class Segment {
         return this.urlCitationIndex == null ? 0 : this.urlCitationIndex.getSegmentCount();
     }
 
+    public boolean connectedHyperlinkEdges() {
+        return this.hyperlinkEdges != null;
+    }
+
+    /**
+     * connect the native hyperlink edge store, an alternative to the webgraph Solr core for link structure and citation queries
+     * @param partitions the number of partitions of the store files
+     * @throws IOException
+     */
+    public void connectHyperlinkEdges(final int partitions) throws IOException {
+        if (this.hyperlinkEdges != null) return;
+        this.hyperlinkEdges = new HyperlinkEdgeStore(new File(new File(this.segmentPath, "default"), hyperlinkEdgesName), partitions);
+        this.fulltext.setHyperlinkEdges(this.hyperlinkEdges);
+    }
+
+    public void disconnectHyperlinkEdges() {
+        if (this.hyperlinkEdges == null) return;
+        this.fulltext.setHyperlinkEdges(null);
+        this.hyperlinkEdges.close();
+        this.hyperlinkEdges = null;
+    }
+
+    public HyperlinkEdgeStore hyperlinkEdges() {
+        return this.hyperlinkEdges;
+    }
+
+    /**
+     * switch the detection of near-duplicate documents at storage time on or off
+     * @param capacity the number of documents in the near-duplicate index; 0 switches the detection off
+     * @param maxDistance the maximum hamming distance of the SimHash fingerprints of near-duplicates
+     */
+    public void setNearDuplicateIndex(final int capacity, final int maxDistance) {
+        this.nearDuplicates = capacity <= 0 ? null : new NearDuplicateIndex(capacity, maxDistance);
+    }
+
+    public NearDuplicateIndex nearDuplicates() {
+        return this.nearDuplicates;
+    }
+
     public Fulltext fulltext() {
         return this.fulltext;
     }
@@ -290,7 +334,25 @@ public class Segment {
                 // the Citation Index got too large, we ignore the problem and hope that a second solr index is attached which will take over now
                 if (Segment.this.fulltext.useWebgraph()) internalIDs.clear();
             }
-            if ((internalIDs.size() == 0 || !connectedCitation()) && Segment.this.fulltext.useWebgraph()) {
+            if ((internalIDs.size() == 0 || !connectedCitation()) && connectedHyperlinkEdges()) {
+                // read the references from the native edge store
+                for (String sourceId: Segment.this.hyperlinkEdges.incomingSources(ASCII.String(id), 10000000)) {
+                    if (MemoryControl.shortStatus()) break;
+                    byte[] refidh = ASCII.getBytes(sourceId);
+                    byte[] hh = new byte[6]; // host hash
+                    System.arraycopy(refidh, 6, hh, 0, 6);
+                    if (ByteBuffer.equals(hh, 0, id, 6, 6)) {
+                        if (acceptSelfReference || !Arrays.equals(refidh, id)) {
+                            internalIDs.put(refidh);
+                            internal++;
+                        }
+                    } else {
+                        externalHosts.put(hh);
+                        externalIDs.put(refidh);
+                        external++;
+                    }
+                }
+            } else if ((internalIDs.size() == 0 || !connectedCitation()) && Segment.this.fulltext.useWebgraph()) {
                 // reqd the references from the webgraph
                 SolrConnector webgraph = Segment.this.fulltext.getWebgraphConnector();
                 BlockingQueue<SolrDocument> docs = webgraph.concurrentDocumentsByQuery("{!cache=false raw f=" + WebgraphSchema.target_id_s.getSolrFieldName() + "}" + ASCII.String(id), WebgraphSchema.source_chars_i.getSolrFieldName() + " asc", 0, 10000000, Long.MAX_VALUE, 100, 1, false, WebgraphSchema.source_id_s.getSolrFieldName());
@@ -463,6 +525,8 @@ public class Segment {
             if (this.fulltext != null) this.fulltext.clearLocalSolr();
             if (this.fulltext != null) this.fulltext.clearRemoteSolr();
             if (this.urlCitationIndex != null) this.urlCitationIndex.clear();
+            if (this.hyperlinkEdges != null) this.hyperlinkEdges.clear();
+            if (this.nearDuplicates != null) this.nearDuplicates.clear();
         } catch (final IOException e) {
             ConcurrentLog.logException(e);
         }
@@ -482,6 +546,7 @@ public class Segment {
     	if (this.termIndex != null) this.termIndex.close();
         if (this.fulltext != null) this.fulltext.close();
         if (this.urlCitationIndex != null) this.urlCitationIndex.close();
+        if (this.hyperlinkEdges != null) this.hyperlinkEdges.close();
         if (this.firstSeenIndex != null) this.firstSeenIndex.close();
         if (this.merger != null) {
             this.merger.terminate();
@@ -571,7 +636,8 @@ public class Segment {
             final String sourceName, // contains the crawl profile hash if this comes from a web crawl
             final boolean storeToRWI,
             final String proxy,
-            final String acceptLanguage
+            final String acceptLanguage,
+            final int nearDuplicateCopies // the result of NearDuplicateIndex.add for the document, or -1 if it was not added yet
             ) {
         final long startTime = System.currentTimeMillis();
         
@@ -598,6 +664,14 @@ public class Segment {
         // ENRICH DOCUMENT WITH RANKING INFORMATION
         this.fulltext.getDefaultConfiguration().postprocessing_references(this.getReferenceReportCache(), vector, url, null);
         
+        // MARK NEAR-DUPLICATES; the postprocessing may correct this later with the complete index
+        final NearDuplicateIndex nearDuplicates = this.nearDuplicates;
+        final int copies = nearDuplicateCopies >= 0 || nearDuplicates == null ? nearDuplicateCopies : nearDuplicates.add(url.hash(), NearDuplicateIndex.simhash(condenser.words()));
+        if (copies > 0) {
+            if (collectionConfig.contains(CollectionSchema.fuzzy_signature_unique_b)) vector.setField(CollectionSchema.fuzzy_signature_unique_b.getSolrFieldName(), false);
+            if (collectionConfig.contains(CollectionSchema.fuzzy_signature_copycount_i)) vector.setField(CollectionSchema.fuzzy_signature_copycount_i.getSolrFieldName(), copies + 1);
+        }
+        
         // CREATE SNAPSHOT
         if ((url.getProtocol().equals("http") || url.getProtocol().equals("https")) &&
                 crawlProfile != null && document.getDepth() <= crawlProfile.snapshotMaxdepth() &&
@@ -681,6 +755,13 @@ public class Segment {
             ConcurrentLog.logException(e);
         }
         
+        // write the edges to the native hyperlink edge store
+        if (this.connectedHyperlinkEdges()) try {
+            this.hyperlinkEdges.put(url, document.getHyperlinks().keySet());
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
+        
         if (error != null) {
             ConcurrentLog.severe("SOLR", error + ", PLEASE REPORT TO bugs.yacy.net");
             //Switchboard.getSwitchboard().pauseCrawlJob(SwitchboardConstants.CRAWLJOB_LOCAL_CRAWL, error);
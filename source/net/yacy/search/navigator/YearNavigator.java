@@ -22,11 +22,13 @@
  */
 package net.yacy.search.navigator;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import net.yacy.cora.federate.solr.SolrType;
@@ -129,6 +131,19 @@ public class YearNavigator extends StringNavigator implements Navigator {
      */
     @Override
     public Iterator<String> keys(boolean up) {
+        return keys(up, Integer.MAX_VALUE).iterator();
+    }
+
+    /**
+     * YearNavigator returns the keys with the highest scores in asc or desc
+     * order of the keys
+     *
+     * @param up true = asc
+     * @param maxcount the maximum number of returned keys
+     * @return key alphabetically ordered
+     */
+    @Override
+    public List<String> keys(boolean up, int maxcount) {
         TreeSet<String> years;
         if (up) {
             years = new TreeSet<String>();
@@ -137,13 +152,8 @@ public class YearNavigator extends StringNavigator implements Navigator {
         }
 
         // make sure keys with high score are included (display may be limited in size)
-        // Iterator<String> it = this.iterator();
-        Iterator<String> it = super.keys(false);
-
-        while (it.hasNext()) {
-            years.add(it.next());
-        }
-        return years.iterator();
+        years.addAll(super.keys(false, maxcount));
+        return new ArrayList<String>(years);
     }
 
 
@@ -41,6 +41,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import net.yacy.cora.date.GenericFormatter;
+import net.yacy.cora.document.CompletionIndex;
 import net.yacy.cora.document.WordCache;
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.util.ConcurrentLog;
@@ -116,6 +117,7 @@ public class AccessTracker {
             sb.append(queryString);
             WordCache.learn(sb);
         }
+        CompletionIndex.learnQuery(queryString, resultCount);
 
         // add query to statistics list
         list.add(query);
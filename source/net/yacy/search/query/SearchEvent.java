@@ -41,10 +41,8 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
@@ -65,6 +63,7 @@ import net.yacy.cora.lod.vocabulary.Tagging;
 import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.sorting.ConcurrentScoreMap;
+import net.yacy.cora.sorting.InternedScoreMap;
 import net.yacy.cora.sorting.ReversibleScoreMap;
 import net.yacy.cora.sorting.ScoreMap;
 import net.yacy.cora.sorting.ScoreMapUpdatesListener;
@@ -165,7 +164,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     public final ScoreMap<String> protocolNavigator;
     
     /** a counter for file types */
-    public final ConcurrentScoreMap<String> dateNavigator;
+    public final InternedScoreMap<String> dateNavigator;
     
     /** counters for Vocabularies; key is metatag.getVocabularyName() */
     public final Map<String, ScoreMap<String>> vocabularyNavigator;
@@ -354,9 +353,9 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         this.excludeintext_image = Switchboard.getSwitchboard().getConfigBool("search.excludeintext.image", true);
         // prepare configured search navigation
         final String navcfg = Switchboard.getSwitchboard().getConfig("search.navigation", "");
-        this.locationNavigator = navcfg.contains("location") ? new ConcurrentScoreMap<String>(this) : null;
-        this.protocolNavigator = navcfg.contains("protocol") ? new ConcurrentScoreMap<String>(this) : null;
-        this.dateNavigator = navcfg.contains("date") ? new ConcurrentScoreMap<String>(this) : null;
+        this.locationNavigator = navcfg.contains("location") ? new InternedScoreMap<String>(this) : null;
+        this.protocolNavigator = navcfg.contains("protocol") ? new InternedScoreMap<String>(this) : null;
+        this.dateNavigator = navcfg.contains("date") ? new InternedScoreMap<String>(this) : null;
         this.topicNavigatorCount = navcfg.contains("topics") ? MAX_TOPWORDS : 0;
         this.vocabularyNavigator = new TreeMap<String, ScoreMap<String>>();
         // prepare configured search navigation (plugins)
@@ -675,8 +674,8 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         long timer = System.currentTimeMillis();
 
         // normalize entries
-        final BlockingQueue<WordReferenceVars> decodedEntries = this.order.normalizeWith(index, maxtime, local);
-        int is = index.size();
+        final WordReferenceVars[] decodedEntries = this.order.normalizeWith(index, maxtime, local);
+        int is = decodedEntries.length;
         EventTracker.update(EventTracker.EClass.SEARCH, new ProfilingGraph.EventSearch(
             this.query.id(true),
             SearchEventType.NORMALIZING,
@@ -693,25 +692,17 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         int successcounter = 0;
         try {
             WordReferenceVars iEntry;
-            long remaining;
+            final List<WordReferenceVars> accepted = new ArrayList<WordReferenceVars>(decodedEntries.length);
             String acceptableAlternativeSitehash = null;
             if (this.query.modifier.sitehost != null && this.query.modifier.sitehost.length() > 0) try {
                 acceptableAlternativeSitehash = DigestURL.hosthash(this.query.modifier.sitehost.startsWith("www.") ? this.query.modifier.sitehost.substring(4) : "www." + this.query.modifier.sitehost, 80);
             } catch (MalformedURLException e1) {}
-            pollloop: while ( true ) {
-                remaining = timeout - System.currentTimeMillis();
-                if (remaining <= 0) {
-                    ConcurrentLog.warn("SearchEvent", "terminated 'add' loop before poll time-out = " + remaining + ", decodedEntries.size = " + decodedEntries.size());
-                    break;
-                }
-                iEntry = decodedEntries.poll(remaining, TimeUnit.MILLISECONDS);
-                if (iEntry == null) {
-                    ConcurrentLog.warn("SearchEvent", "terminated 'add' loop after poll time-out = " + remaining + ", decodedEntries.size = " + decodedEntries.size());
-                    break pollloop;
-                }
-                if (iEntry == WordReferenceVars.poison) {
+            pollloop: for (int i = 0; i < decodedEntries.length; i++) {
+                if (i % 100 == 0 && System.currentTimeMillis() > timeout) {
+                    ConcurrentLog.warn("SearchEvent", "terminated 'add' loop after time-out, remaining entries = " + (decodedEntries.length - i));
                     break pollloop;
                 }
+                iEntry = decodedEntries[i];
                 assert (iEntry.urlhash().length == index.row().primaryKeyLength);
 
                 // doublecheck for urls
@@ -783,26 +774,22 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                     }
                 }
 
-                // finally extend the double-check and insert result to stack
+                // finally extend the double-check and collect the entry for ranking
                 this.urlhashes.putUnique(iEntry.urlhash());
-                rankingtryloop: while (true) {
-                    try {
-                        this.rwiStack.put(new ReverseElement<WordReferenceVars>(iEntry, this.order.cardinal(iEntry))); // inserts the element and removes the worst (which is smallest)
-                        break rankingtryloop;
-                    } catch (final ArithmeticException e ) {
-                        // this may happen if the concurrent normalizer changes values during cardinal computation
-                        if (log.isFine()) log.fine("dropped RWI: arithmetic exception");
-                        continue rankingtryloop;
-                    }
-                }
+                accepted.add(iEntry);
+            }
+
+            // rank all accepted entries in one batch and insert them to the stack
+            final WordReferenceVars[] acceptedEntries = accepted.toArray(new WordReferenceVars[accepted.size()]);
+            final long[] cardinals = this.order.cardinals(acceptedEntries);
+            for (int i = 0; i < acceptedEntries.length; i++) {
+                this.rwiStack.put(new ReverseElement<WordReferenceVars>(acceptedEntries[i], cardinals[i])); // inserts the element and removes the worst (which is smallest)
                 // increase counter for statistics
                 if (local) this.local_rwi_available.incrementAndGet(); else this.remote_rwi_available.incrementAndGet();
-                
                 successcounter++;
             }
             if (System.currentTimeMillis() >= timeout) ConcurrentLog.warn("SearchEvent", "rwi normalization ended with timeout = " + maxtime);
 
-        } catch (final InterruptedException e ) {
         } catch (final SpaceExceededException e ) {
         }
 
@@ -1162,7 +1149,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
 					if (fcts != null) {
 						ScoreMap<String> vocNav = this.vocabularyNavigator.get(vocName);
 						if (vocNav == null) {
-							vocNav = new ConcurrentScoreMap<String>();
+							vocNav = new InternedScoreMap<String>();
 							this.vocabularyNavigator.put(vocName, vocNav);
 						}
 						vocNav.inc(fcts);
@@ -1240,7 +1227,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
 		if(docValue instanceof String) {
 			ScoreMap<String> vocNav = this.vocabularyNavigator.get(vocName);
 			if (vocNav == null) {
-				vocNav = new ConcurrentScoreMap<String>();
+				vocNav = new InternedScoreMap<String>();
 				this.vocabularyNavigator.put(vocName, vocNav);
 			}
 			vocNav.inc((String)docValue);
@@ -1248,7 +1235,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
 			if (!((Collection<?>) docValue).isEmpty()) {
 				ScoreMap<String> vocNav = this.vocabularyNavigator.get(vocName);
 				if (vocNav == null) {
-					vocNav = new ConcurrentScoreMap<String>();
+					vocNav = new InternedScoreMap<String>();
 					this.vocabularyNavigator.put(vocName, vocNav);
 				}
 				for (final Object singleDocValue : (Collection<?>) docValue) {
@@ -1797,9 +1784,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                     result = this.getTopics(/*ic, 500*/);
                 } else { // collect top most count topics
                     result = new ConcurrentScoreMap<String>();
-                    Iterator<String> it = this.getTopics(/*ic, 500*/).keys(false);
-                    while (ic-- > 0 && it.hasNext()) {
-                        String word = it.next();
+                    for (String word: this.getTopics(/*ic, 500*/).keys(false, ic)) {
                         result.set(word, this.ref.get(word));
                     }
                 }
@@ -2433,6 +2418,13 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         }
         return c;
     }
+
+    /**
+     * @return true if no references or documents wait in the queues to be drained to the result list
+     */
+    public boolean isResultQueueEmpty() {
+        return rwiQueueSize() == 0 && this.nodeStack.sizeQueue() == 0;
+    }
     
     protected boolean testFlags(final Bitfield flags) {
         if (this.query.constraint == null) return true;
@@ -2474,7 +2466,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         }
 
         final Map<String, Float> counts = new HashMap<String, Float>();
-        final Iterator<String> i = this.ref.keys(false);
+        final Iterator<String> i = this.ref.keys(false, maxcount).iterator();
         String word;
         int c;
         float q, min = Float.MAX_VALUE, max = Float.MIN_VALUE;
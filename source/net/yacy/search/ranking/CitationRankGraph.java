@@ -0,0 +1,300 @@
+/**
+ *  CitationRankGraph
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.ranking;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A link graph for the citation rank computation with int node ids in compressed sparse row form:
+ * the incoming links of node i are the source nodes sources[offsets[i]] to sources[offsets[i + 1] - 1].
+ * Every node has an out degree, which is the divisor for the rank it passes to each of its link targets;
+ * this is not necessarily the number of links in the graph, because links to nodes outside of the graph
+ * (i.e. to another host) are not part of it.
+ * The ranking is a power iteration over primitive arrays which is computed in parallel slices of the nodes.
+ */
+public final class CitationRankGraph {
+
+    /** minimum number of nodes of a slice which is computed in one task */
+    private static final int sliceSize = 4096;
+
+    /** a pool for the rank computation; it is used by the postprocessing only */
+    private static final ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+        @Override
+        public ForkJoinWorkerThread newThread(final ForkJoinPool p) {
+            final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("CitationRankGraph.pool-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }
+    }, null, false);
+
+    private final int nodes;
+    private final int[] offsets;
+    private final int[] sources;
+    private final int[] outDegree;
+    private int steps;
+
+    private CitationRankGraph(final int nodes, final int[] offsets, final int[] sources, final int[] outDegree) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.sources = sources;
+        this.outDegree = outDegree;
+        this.steps = 0;
+    }
+
+    /**
+     * is informed about every iteration step of a rank computation which did not converge
+     */
+    public interface StepListener {
+        /**
+         * @param step the number of the step which was just computed
+         * @return true to continue the iteration, false to stop it with the current values
+         */
+        public boolean step(int step);
+    }
+
+    /**
+     * collects the links of a graph and produces the compressed sparse row form
+     */
+    public static final class Builder {
+        private final int nodes;
+        private final int[] outDegree;
+        private int[] linkSource, linkTarget;
+        private int links;
+
+        /**
+         * @param nodes the number of nodes; node ids are 0 to nodes - 1
+         */
+        public Builder(final int nodes) {
+            this.nodes = nodes;
+            this.outDegree = new int[nodes];
+            this.linkSource = new int[Math.max(16, nodes)];
+            this.linkTarget = new int[this.linkSource.length];
+            this.links = 0;
+        }
+
+        public Builder addLink(final int source, final int target) {
+            if (source < 0 || source >= this.nodes || target < 0 || target >= this.nodes) throw new IndexOutOfBoundsException("link " + source + " -> " + target + " outside of " + this.nodes + " nodes");
+            if (this.links == this.linkSource.length) {
+                this.linkSource = Arrays.copyOf(this.linkSource, this.links * 2);
+                this.linkTarget = Arrays.copyOf(this.linkTarget, this.links * 2);
+            }
+            this.linkSource[this.links] = source;
+            this.linkTarget[this.links] = target;
+            this.links++;
+            return this;
+        }
+
+        /**
+         * set the number of links from a node which share its rank; nodes with an out degree of 0 pass no rank
+         */
+        public Builder setOutDegree(final int node, final int degree) {
+            this.outDegree[node] = degree;
+            return this;
+        }
+
+        public CitationRankGraph build() {
+            // counting sort of the links by target
+            final int[] offsets = new int[this.nodes + 1];
+            for (int l = 0; l < this.links; l++) offsets[this.linkTarget[l] + 1]++;
+            for (int i = 0; i < this.nodes; i++) offsets[i + 1] += offsets[i];
+            final int[] fill = Arrays.copyOf(offsets, this.nodes);
+            final int[] sources = new int[this.links];
+            for (int l = 0; l < this.links; l++) sources[fill[this.linkTarget[l]]++] = this.linkSource[l];
+            this.linkSource = null;
+            this.linkTarget = null;
+            return new CitationRankGraph(this.nodes, offsets, sources, this.outDegree);
+        }
+    }
+
+    public int nodes() {
+        return this.nodes;
+    }
+
+    public int links() {
+        return this.sources.length;
+    }
+
+    /**
+     * @return the number of iteration steps of the last {@link #rank(double, int, int)} computation
+     */
+    public int steps() {
+        return this.steps;
+    }
+
+    /**
+     * compute the citation rank with a power iteration, starting with the same rank for all nodes.
+     * The rank of a node is (1 - damping) / nodes + damping * sum(rank(source) / outDegree(source)) over all incoming links.
+     * @param damping the damping factor
+     * @param convergeDigits the number of decimal digits which must be stable between two steps to stop the iteration
+     * @param maxSteps the maximum number of iteration steps
+     * @return the rank of each node
+     */
+    public double[] rank(final double damping, final int convergeDigits, final int maxSteps) {
+        return rank(damping, convergeDigits, maxSteps, null);
+    }
+
+    /**
+     * compute the citation rank like {@link #rank(double, int, int)} and inform a listener after each step
+     * @param damping the damping factor
+     * @param convergeDigits the number of decimal digits which must be stable between two steps to stop the iteration
+     * @param maxSteps the maximum number of iteration steps
+     * @param listener is called after each step which did not converge and may stop the iteration, may be null
+     * @return the rank of each node
+     */
+    public double[] rank(final double damping, final int convergeDigits, final int maxSteps, final StepListener listener) {
+        double[] cr = new double[this.nodes];
+        if (this.nodes == 0) return cr;
+        Arrays.fill(cr, 1.0d / this.nodes);
+        double[] next = new double[this.nodes];
+        final double[] share = new double[this.nodes];
+        final double df = (1.0d - damping) / this.nodes;
+        final int factor = (int) Math.pow(10.0d, convergeDigits);
+        this.steps = 0;
+        while (this.steps < maxSteps) {
+            this.steps++;
+            final boolean convergence;
+            final StepTask task = new StepTask(cr, next, share, df, damping, factor, 0, this.nodes);
+            if (this.nodes <= sliceSize) {
+                task.share(); // no parallelization for small graphs
+                convergence = task.step();
+            } else {
+                pool.invoke(new ShareTask(cr, share, 0, this.nodes));
+                convergence = pool.invoke(task).booleanValue();
+            }
+            final double[] t = cr; cr = next; next = t;
+            if (convergence) break;
+            if (listener != null && !listener.step(this.steps)) break;
+        }
+        return cr;
+    }
+
+    /** the rank share which each node passes to every link target */
+    private final class ShareTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] cr, share;
+        private final int from, to;
+
+        private ShareTask(final double[] cr, final double[] share, final int from, final int to) {
+            this.cr = cr; this.share = share; this.from = from; this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > sliceSize) {
+                final int mid = (this.from + this.to) >>> 1;
+                invokeAll(new ShareTask(this.cr, this.share, this.from, mid), new ShareTask(this.cr, this.share, mid, this.to));
+                return;
+            }
+            for (int i = this.from; i < this.to; i++) {
+                final int d = CitationRankGraph.this.outDegree[i];
+                this.share[i] = d > 0 ? this.cr[i] / d : 0.0d;
+            }
+        }
+    }
+
+    /** one iteration step for a slice of the nodes; the result is true if the values of the slice converged */
+    private final class StepTask extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+        private final double[] cr, next, share;
+        private final double df, damping;
+        private final int factor, from, to;
+
+        private StepTask(final double[] cr, final double[] next, final double[] share, final double df, final double damping, final int factor, final int from, final int to) {
+            this.cr = cr; this.next = next; this.share = share; this.df = df; this.damping = damping; this.factor = factor; this.from = from; this.to = to;
+        }
+
+        private void share() {
+            new ShareTask(this.cr, this.share, this.from, this.to).compute();
+        }
+
+        private boolean step() {
+            boolean convergence = true;
+            final int[] offsets = CitationRankGraph.this.offsets;
+            final int[] sources = CitationRankGraph.this.sources;
+            for (int i = this.from; i < this.to; i++) {
+                double ncr = 0.0d;
+                for (int l = offsets[i]; l < offsets[i + 1]; l++) ncr += this.share[sources[l]];
+                ncr = this.df + this.damping * ncr;
+                if (convergence && ((int) (ncr * this.factor)) != ((int) (this.cr[i] * this.factor))) convergence = false;
+                this.next[i] = ncr;
+            }
+            return convergence;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (this.to - this.from > sliceSize) {
+                final int mid = (this.from + this.to) >>> 1;
+                final StepTask left = new StepTask(this.cr, this.next, this.share, this.df, this.damping, this.factor, this.from, mid);
+                final StepTask right = new StepTask(this.cr, this.next, this.share, this.df, this.damping, this.factor, mid, this.to);
+                left.fork();
+                final boolean r = right.compute().booleanValue();
+                return Boolean.valueOf(left.join().booleanValue() && r);
+            }
+            return Boolean.valueOf(step());
+        }
+    }
+
+    /**
+     * compute integer citation rank numbers from rank values: the lower half of the nodes (by rank) get the lowest number,
+     * the lower half of the remaining nodes the next number and so on. Nodes with the same rank always get the same number.
+     * The numbers are shifted so that the highest number is 10.
+     * @param cr the rank values
+     * @return the rank number of each node
+     */
+    public static int[] rankNumbers(final double[] cr) {
+        final int n = cr.length;
+        final int[] crn = new int[n];
+        if (n == 0) return crn;
+        final double[] sorted = cr.clone();
+        Arrays.sort(sorted);
+        // distinct values and their number
+        final double[] values = new double[n];
+        final int[] valueCount = new int[n];
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || Double.compare(values[distinct - 1], sorted[i]) != 0) values[distinct++] = sorted[i];
+            valueCount[distinct - 1]++;
+        }
+        final int[] valueCrn = new int[distinct];
+        int nextcount = (n + 1) / 2;
+        int nextcrn = 0;
+        int v = 0;
+        while (v < distinct) {
+            int count = nextcount;
+            while (v < distinct && count > 0) {
+                count -= valueCount[v];
+                valueCrn[v++] = nextcrn;
+            }
+            nextcrn++;
+            nextcount = Math.max(1, (nextcount + count + 1) / 2);
+        }
+        // finally, increase the crn number in such a way that the maximum is always 10
+        final int inc = 11 - nextcrn; // nextcrn is +1
+        for (int i = 0; i < n; i++) crn[i] = valueCrn[Arrays.binarySearch(values, 0, distinct, cr[i])] + inc;
+        return crn;
+    }
+
+}
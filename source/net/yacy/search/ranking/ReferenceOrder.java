@@ -28,16 +28,13 @@ package net.yacy.search.ranking;
 
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.sorting.ConcurrentScoreMap;
-import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.document.LargeNumberCache;
 import net.yacy.document.Tokenizer;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
@@ -50,8 +47,6 @@ import net.yacy.kelondro.util.Bitfield;
 
 public class ReferenceOrder {
 
-    private static int cores = Runtime.getRuntime().availableProcessors();
-
     private       int maxdomcount;
     private       WordReferenceVars min, max;
     private final ConcurrentScoreMap<String> doms; // collected for "authority" heuristic
@@ -67,145 +62,137 @@ public class ReferenceOrder {
         this.language = language;
     }
 
-    public BlockingQueue<WordReferenceVars> normalizeWith(final ReferenceContainer<WordReference> container, long maxtime, final boolean local) {
-        final LinkedBlockingQueue<WordReferenceVars> out = new LinkedBlockingQueue<WordReferenceVars>();
-        int threads = cores;
-        if (container.size() < 100) threads = 2;
-        final Thread distributor = new NormalizeDistributor(container, out, threads, maxtime, local);
-        distributor.start();
+    /**
+     * decode a reference container and normalize the ranking with all decoded entries:
+     * the minimum and maximum of the separate ranking criteria and the domain counts are
+     * computed as data-parallel batch work on the shared {@link WordReferenceVars#pool}.
+     * @param container the references to be ranked
+     * @param maxtime the maximum time for decoding
+     * @param local true if the container was retrieved from the local index
+     * @return the decoded entries which can now be ranked with {@link #cardinal(WordReference)} or {@link #cardinals(WordReferenceVars[])}
+     */
+    public WordReferenceVars[] normalizeWith(final ReferenceContainer<WordReference> container, final long maxtime, final boolean local) {
+        final WordReferenceVars[] vars = WordReferenceVars.decode(container, maxtime, local);
+        if (vars.length == 0) return vars;
+        final NormalizeTask task = new NormalizeTask(vars, 0, vars.length);
+        final Normalization n = vars.length <= WordReferenceVars.batchSize ? task.compute() : WordReferenceVars.pool.invoke(task);
 
-        // return the resulting queue while the processing queues are still working
-        return out;
+        // merge the result into the order; this may happen concurrently for several containers of the same search
+        synchronized (this) {
+            if (this.min == null) this.min = n.min; else this.min.min(n.min);
+            if (this.max == null) this.max = n.max; else this.max.max(n.max);
+            for (final Map.Entry<String, Integer> entry: n.doms.entrySet()) {
+                this.doms.inc(entry.getKey(), entry.getValue().intValue());
+            }
+            if (!this.doms.isEmpty()) this.maxdomcount = this.doms.getMaxScore();
+        }
+        return vars;
     }
 
-    private final class NormalizeDistributor extends Thread {
+    /**
+     * the result of a normalization: minimum and maximum of separate ranking criteria and the domain counts
+     */
+    private static final class Normalization {
+
+        private final WordReferenceVars min, max;
+        private final Map<String, Integer> doms;
 
-        ReferenceContainer<WordReference> container;
-        LinkedBlockingQueue<WordReferenceVars> out;
-        private final int threads;
-        private final long maxtime;
-        private final boolean local;
-        
-        public NormalizeDistributor(final ReferenceContainer<WordReference> container, final LinkedBlockingQueue<WordReferenceVars> out, final int threads, final long maxtime, final boolean local) {
-        	super("ReferenceOrder.NormalizeDistributor");
-            this.container = container;
-            this.out = out;
-            this.threads = threads;
-            this.maxtime = maxtime;
-            this.local = local;
+        private Normalization(final WordReferenceVars[] vars, final int from, final int to) {
+            this.min = vars[from].clone();
+            this.max = vars[from].clone();
+            this.doms = new HashMap<String, Integer>();
+            for (int p = from; p < to; p++) {
+                final WordReferenceVars iEntry = vars[p];
+                if (p > from) {
+                    this.min.min(iEntry);
+                    this.max.max(iEntry);
+                }
+                inc(iEntry.hosthash(), 1);
+            }
         }
 
-        @Override
-        public void run() {
-            // transform the reference container into a stream of parsed entries
-            final BlockingQueue<WordReferenceVars> vars = WordReferenceVars.transform(this.container, this.maxtime, this.local);
+        private void inc(final String dom, final int c) {
+            final Integer count = this.doms.get(dom);
+            this.doms.put(dom, LargeNumberCache.valueOf(count == null ? c : count.intValue() + c));
+        }
 
-            // start the transformation threads
-            final Semaphore termination = new Semaphore(this.threads);
-            final NormalizeWorker[] worker = new NormalizeWorker[this.threads];
-            for (int i = 0; i < this.threads; i++) {
-                worker[i] = new NormalizeWorker(this.out, termination, this.maxtime);
-                worker[i].start();
+        private Normalization merge(final Normalization other) {
+            this.min.min(other.min);
+            this.max.max(other.max);
+            for (final Map.Entry<String, Integer> entry: other.doms.entrySet()) {
+                inc(entry.getKey(), entry.getValue().intValue());
             }
+            return this;
+        }
+    }
 
-            // fill the queue
-            WordReferenceVars iEntry;
-            int p = 0;
-            long timeout = this.maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + this.maxtime;
-            try {
-                while ((iEntry = vars.take()) != WordReferenceVars.poison) {
-                    worker[p % this.threads].add(iEntry);
-                    p++;
-                    if (System.currentTimeMillis() > timeout) {
-                        ConcurrentLog.warn("NormalizeDistributor", "adding of decoded rows to workers ended with timeout = " + this.maxtime);
-                        break;
-                    }
-                }
-            } catch (final InterruptedException e) {
-            }
+    private static final class NormalizeTask extends RecursiveTask<Normalization> {
 
-            // insert poison to stop the queues
-            for (int i = 0; i < this.threads; i++) worker[i].add(WordReferenceVars.poison);
+        private static final long serialVersionUID = -2290446226227370931L;
+        private final WordReferenceVars[] vars;
+        private final int from, to;
 
-            // wait for termination but not too long to make it possible that this
-            // is called from outside with a join to get some normalization results
-            // before going on
-            for (int i = 0; i < this.threads; i++) try {worker[i].join(100);} catch (final InterruptedException e) {}
+        private NormalizeTask(final WordReferenceVars[] vars, final int from, final int to) {
+            this.vars = vars;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Normalization compute() {
+            if (this.to - this.from <= WordReferenceVars.batchSize) return new Normalization(this.vars, this.from, this.to);
+            final int mid = (this.from + this.to) >>> 1;
+            final NormalizeTask right = new NormalizeTask(this.vars, mid, this.to);
+            right.fork();
+            final Normalization left = new NormalizeTask(this.vars, this.from, mid).compute();
+            return left.merge(right.join());
         }
     }
 
     /**
-     * normalize ranking: find minimum and maximum of separate ranking criteria
+     * compute the ranking of all given entries; large arrays are ranked in parallel
+     * @param vars normalized entries, see {@link #normalizeWith(ReferenceContainer, long, boolean)}
+     * @return the cardinal for each entry at the same position
      */
-    private class NormalizeWorker extends Thread {
+    public long[] cardinals(final WordReferenceVars[] vars) {
+        final long[] cardinals = new long[vars.length];
+        final CardinalTask task = new CardinalTask(vars, cardinals, 0, vars.length);
+        if (vars.length <= WordReferenceVars.batchSize) task.compute(); else WordReferenceVars.pool.invoke(task);
+        return cardinals;
+    }
 
-        private final BlockingQueue<WordReferenceVars> out;
-        private final Semaphore termination;
-        private final BlockingQueue<WordReferenceVars> decodedEntries;
-        private final long maxtime;
+    private final class CardinalTask extends RecursiveAction {
 
-        public NormalizeWorker(final BlockingQueue<WordReferenceVars> out, final Semaphore termination, long maxtime) {
-        	super("ReferenceOrder.NormalizeWorker");
-            this.out = out;
-            this.termination = termination;
-            this.decodedEntries = new LinkedBlockingQueue<WordReferenceVars>();
-            this.maxtime = maxtime;
-        }
+        private static final long serialVersionUID = 2672271476001806393L;
+        private final WordReferenceVars[] vars;
+        private final long[] cardinals;
+        private final int from, to;
 
-        public void add(final WordReferenceVars entry) {
-            try {
-                this.decodedEntries.put(entry);
-            } catch (final InterruptedException e) {
-            }
+        private CardinalTask(final WordReferenceVars[] vars, final long[] cardinals, final int from, final int to) {
+            this.vars = vars;
+            this.cardinals = cardinals;
+            this.from = from;
+            this.to = to;
         }
 
         @Override
-        public void run() {
-            try {
-                WordReferenceVars iEntry;
-                final Map<String, Integer> doms0 = new HashMap<String, Integer>();
-                String dom;
-                Integer count;
-                final Integer int1 = 1;
-                long timeout = this.maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + this.maxtime;
-                while ((iEntry = this.decodedEntries.take()) != WordReferenceVars.poison) {
-                    // find min/max
-                    if (ReferenceOrder.this.min == null) ReferenceOrder.this.min = iEntry.clone(); else ReferenceOrder.this.min.min(iEntry);
-                    if (ReferenceOrder.this.max == null) ReferenceOrder.this.max = iEntry.clone(); else ReferenceOrder.this.max.max(iEntry);
-                    this.out.put(iEntry); // must be after the min/max check to prevent that min/max is null in cardinal()
-                    // update domcount
-                    dom = iEntry.hosthash();
-                    count = doms0.get(dom);
-                    if (count == null) {
-                        doms0.put(dom, int1);
-                    } else {
-                        doms0.put(dom, LargeNumberCache.valueOf(count.intValue() + 1));
-                    }
-
-                    if (System.currentTimeMillis() > timeout) {
-                        ConcurrentLog.warn("NormalizeWorker", "normlization of decoded rows ended with timeout = " + this.maxtime);
+        protected void compute() {
+            if (this.to - this.from > WordReferenceVars.batchSize) {
+                final int mid = (this.from + this.to) >>> 1;
+                invokeAll(new CardinalTask(this.vars, this.cardinals, this.from, mid),
+                          new CardinalTask(this.vars, this.cardinals, mid, this.to));
+                return;
+            }
+            for (int p = this.from; p < this.to; p++) {
+                while (true) {
+                    try {
+                        this.cardinals[p] = cardinal(this.vars[p]);
                         break;
+                    } catch (final ArithmeticException e) {
+                        // this may happen if a concurrent normalization of another container changes values during cardinal computation
+                        continue;
                     }
                 }
-
-                // update domain score
-                Map.Entry<String, Integer> entry;
-                final Iterator<Map.Entry<String, Integer>> di = doms0.entrySet().iterator();
-                while (di.hasNext()) {
-                    entry = di.next();
-                    ReferenceOrder.this.doms.inc(entry.getKey(), (entry.getValue()).intValue());
-                }
-                if (!ReferenceOrder.this.doms.isEmpty()) ReferenceOrder.this.maxdomcount = ReferenceOrder.this.doms.getMaxScore();
-            } catch (final InterruptedException e) {
-                ConcurrentLog.logException(e);
-            } catch (final Exception e) {
-                ConcurrentLog.logException(e);
-            } finally {
-                // insert poison to signal the termination to next queue
-                try {
-                    this.termination.acquire();
-                    if (this.termination.availablePermits() == 0) this.out.put(WordReferenceVars.poison);
-                } catch (final InterruptedException e) {}
             }
         }
     }
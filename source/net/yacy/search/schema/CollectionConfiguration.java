@@ -32,6 +32,7 @@ import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -43,7 +44,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -77,7 +77,6 @@ import net.yacy.cora.federate.solr.logic.Disjunction;
 import net.yacy.cora.federate.solr.logic.LongLiteral;
 import net.yacy.cora.federate.solr.logic.Negation;
 import net.yacy.cora.federate.solr.logic.StringLiteral;
-import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.ResponseHeader;
@@ -98,7 +97,6 @@ import net.yacy.document.parser.html.IconEntry;
 import net.yacy.document.parser.html.ImageEntry;
 import net.yacy.kelondro.data.citation.CitationReference;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
-import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.util.Bitfield;
 import net.yacy.kelondro.util.MemoryControl;
@@ -106,6 +104,7 @@ import net.yacy.search.index.Segment;
 import net.yacy.search.index.Segment.ReferenceReport;
 import net.yacy.search.index.Segment.ReferenceReportCache;
 import net.yacy.search.query.QueryParams;
+import net.yacy.search.ranking.CitationRankGraph;
 
 
 public class CollectionConfiguration extends SchemaConfiguration implements Serializable {
@@ -1240,7 +1239,7 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
      */
     public int postprocessing(final Segment segment, final ReferenceReportCache rrCache, final String harvestkey, final boolean byPartialUpdate) {
         if (!this.contains(CollectionSchema.process_sxt)) return 0;
-        if (!segment.connectedCitation() && !segment.fulltext().useWebgraph()) return 0;
+        if (!segment.connectedCitation() && !segment.connectedHyperlinkEdges() && !segment.fulltext().useWebgraph()) return 0;
         final SolrConnector collectionConnector = segment.fulltext().getDefaultConnector();
         collectionConnector.commit(false); // make sure that we have latest information that can be found
         if (segment.fulltext().useWebgraph()) segment.fulltext().getWebgraphConnector().commit(false);
@@ -1700,19 +1699,11 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 if (collection1hosts.get(host) <= 0) continue;
                 // select all documents for each host
                 CRHost crh = new CRHost(segment, rrCache, host, 0.85d, 6);
-                int convergence_attempts = 0;
-                while (convergence_attempts++ < 30) {
-                    ConcurrentLog.info("CollectionConfiguration", "convergence step " + convergence_attempts + " for host " + host + " ...");
-                    if (crh.convergenceStep()) break;
-                    if (MemoryControl.shortStatus()) {
-                        ConcurrentLog.warn("CollectionConfiguration", "terminated convergenceStep during postprocessing because of short memory");
-                        break;
-                    }
-                }
+                int convergence_attempts = crh.converge(30);
                 ConcurrentLog.info("CollectionConfiguration", "convergence for host " + host + " after " + convergence_attempts + " steps");
                 // we have now the cr for all documents of a specific host; we store them for later use
                 Map<String, CRV> crn = crh.normalize();
-                //crh.log(crn);
+                //crh.log(segment, crn);
                 rankings.putAll(crn); // accumulate this here for usage in document update later
                 if (MemoryControl.shortStatus()) {
                     ConcurrentLog.warn("CollectionConfiguration", "terminated crn akkumulation during postprocessing because of short memory");
@@ -1948,33 +1939,40 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
     
     /**
      * The CRHost class is a container for all ranking values of a specific host.
-     * Objects of that class are needed as an environment for repeated convergenceStep() computations,
-     * which are iterative citation rank computations that are repeated until the ranking values
+     * The link graph of the host is loaded once into a {@link CitationRankGraph} with int node ids;
+     * the iterative citation rank computation is then done on primitive arrays until the ranking values
      * converge to stable values.
      * The class also contains normalization methods to compute simple integer ranking values out of the
      * double relevance values.
      */
     private static final class CRHost {
-        private final Segment segment;
-        private final Map<String, double[]> crt;
-        private final int cr_host_count;
-        private final RowHandleMap internal_links_counter;
-        private double damping;
-        private int converge_eq_factor;
-        private ReferenceReportCache rrCache;
+        private final String host;
+        private final String[] ids;
+        private final CitationRankGraph graph;
+        private final double damping;
+        private final int converge_digits;
+        private double[] cr;
         public CRHost(final Segment segment, final ReferenceReportCache rrCache, final String host, final double damping, final int converge_digits) {
-            this.segment = segment;
+            this.host = host;
             this.damping = damping;
-            this.rrCache = rrCache;
-            this.converge_eq_factor = (int) Math.pow(10.0d, converge_digits);
+            this.converge_digits = converge_digits;
             SolrConnector connector = segment.fulltext().getDefaultConnector();
-            this.crt = new ConcurrentHashMap<String, double[]>();
+            // select all documents for each host together with the number of internal links, which is the divisor of the cr of a document
+            final Map<String, Integer> nodes = new HashMap<String, Integer>();
+            final List<String> idlist = new ArrayList<String>();
+            int[] internal_links = new int[256];
             try {
-                // select all documents for each host
-                BlockingQueue<String> ids = connector.concurrentIDsByQuery("{!cache=false raw f=" + CollectionSchema.host_s.getSolrFieldName() + "}" + host, CollectionSchema.url_chars_i.getSolrFieldName() + " asc", 0, 100000000, 86400000, 200, 1);
-                String id;
-                while ((id = ids.take()) != AbstractSolrConnector.POISON_ID) {
-                    this.crt.put(id, new double[]{0.0d,0.0d}); //{old value, new value}
+                BlockingQueue<SolrDocument> docs = connector.concurrentDocumentsByQuery("{!cache=false raw f=" + CollectionSchema.host_s.getSolrFieldName() + "}" + host, CollectionSchema.url_chars_i.getSolrFieldName() + " asc", 0, 100000000, 86400000, 200, 1, false,
+                        CollectionSchema.id.getSolrFieldName(), CollectionSchema.inboundlinkscount_i.getSolrFieldName());
+                SolrDocument doc;
+                while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+                    String id = (String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+                    if (id == null || nodes.containsKey(id)) continue;
+                    Object x = doc.getFieldValue(CollectionSchema.inboundlinkscount_i.getSolrFieldName());
+                    if (idlist.size() == internal_links.length) internal_links = Arrays.copyOf(internal_links, internal_links.length * 2);
+                    internal_links[idlist.size()] = (x == null) ? 0 : (x instanceof Integer) ? ((Integer) x).intValue() : (x instanceof Long) ? ((Long) x).intValue() : 0;
+                    nodes.put(id, idlist.size());
+                    idlist.add(id);
                     if (MemoryControl.shortStatus()) {
                         ConcurrentLog.warn("CollectionConfiguration", "terminated CRHost collection during postprocessing because of short memory");
                         break;
@@ -1982,49 +1980,61 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 }
             } catch (final InterruptedException e2) {
             }
-            this.cr_host_count = this.crt.size();
-            double initval = 1.0d / cr_host_count;
-            for (Map.Entry<String, double[]> entry: this.crt.entrySet()) entry.getValue()[0] = initval;
-            this.internal_links_counter = new RowHandleMap(12, Base64Order.enhancedCoder, 8, 100, "internal_links_counter");
+            this.ids = idlist.toArray(new String[idlist.size()]);
+            // load the internal links of the host into the graph; links from documents which are not in the index are ignored
+            CitationRankGraph.Builder builder = new CitationRankGraph.Builder(this.ids.length);
+            for (int t = 0; t < this.ids.length; t++) {
+                builder.setOutDegree(t, internal_links[t]);
+                try {
+                    ReferenceReport rr = rrCache.getReferenceReport(this.ids[t], false);
+                    for (byte[] iid: rr.getInternallIDs()) {
+                        Integer s = nodes.get(ASCII.String(iid));
+                        if (s != null) builder.addLink(s.intValue(), t);
+                    }
+                } catch (final IOException e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
+            this.graph = builder.build();
+            this.cr = null;
+        }
+        /**
+         * compute the citation rank of all documents of the host; the computation stops early if the memory is short
+         * @param maxSteps the maximum number of convergence steps
+         * @return the number of convergence steps which were computed
+         */
+        public int converge(final int maxSteps) {
+            this.cr = this.graph.rank(this.damping, this.converge_digits, maxSteps, new CitationRankGraph.StepListener() {
+                @Override
+                public boolean step(final int step) {
+                    ConcurrentLog.info("CollectionConfiguration", "convergence step " + step + " for host " + CRHost.this.host + " ...");
+                    if (MemoryControl.shortStatus()) {
+                        ConcurrentLog.warn("CollectionConfiguration", "terminated convergenceStep during postprocessing because of short memory");
+                        return false;
+                    }
+                    return true;
+                }
+            });
+            return this.graph.steps();
         }
         /**
          * produce a map from IDs to CRV records, normalization entries containing the values that are stored to solr.
          * @return
          */
         public Map<String, CRV> normalize() {
-            final TreeMap<Double, List<byte[]>> reorder = new TreeMap<Double, List<byte[]>>();
-            for (Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                Double d = entry.getValue()[0];
-                List<byte[]> ds = reorder.get(d);
-                if (ds == null) {ds = new ArrayList<byte[]>(); reorder.put(d, ds);}
-                ds.add(ASCII.getBytes(entry.getKey()));
-            }
-            int nextcount = (this.cr_host_count + 1) / 2;
-            int nextcrn = 0;
+            if (this.cr == null) converge(30);
+            final int[] crn = CitationRankGraph.rankNumbers(this.cr);
             Map<String, CRV> r = new HashMap<String, CRV>();
-            while (reorder.size() > 0) {
-                int count = nextcount;
-                while (reorder.size() > 0 && count > 0) {
-                    Map.Entry<Double, List<byte[]>> next = reorder.pollFirstEntry();
-                    List<byte[]> ids = next.getValue();
-                    count -= ids.size();
-                    double cr = next.getKey();
-                    for (byte[] id: ids) r.put(ASCII.String(id), new CRV(this.cr_host_count, cr, nextcrn));
-                }
-                nextcrn++;
-                nextcount = Math.max(1, (nextcount + count + 1) / 2);
-            }
-            // finally, increase the crn number in such a way that the maximum is always 10
-            int inc = 11 - nextcrn; // nextcrn is +1
-            for (Map.Entry<String, CRV> entry: r.entrySet()) entry.getValue().crn += inc;
+            for (int i = 0; i < this.ids.length; i++) r.put(this.ids[i], new CRV(this.ids.length, this.cr[i], crn[i]));
             return r;
         }
         /**
          * log out a complete CRHost set of urls and ranking values
+         * @param segment the segment of the documents
          * @param rm
          */
         @SuppressWarnings("unused")
-        public void log(final Map<byte[], CRV> rm) {
+        public void log(final Segment segment, final Map<byte[], CRV> rm) {
             // print out all urls with their cr-values
             SolrConnector connector = segment.fulltext().getDefaultConnector();
             for (Map.Entry<byte[], CRV> entry: rm.entrySet()) {
@@ -2038,86 +2048,6 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 }
             }
         }
-        /**
-         * Calculate the number of internal links from a specific document, denoted by the document ID.
-         * This is a very important attribute for the ranking computation because it is the dividend for the previous ranking attribute.
-         * The internalLinks value will be requested several times for the same id during the convergenceStep()-steps; therefore it should use a cache.
-         * This cache is part of the CRHost data structure.
-         * @param id
-         * @return the number of links from the document, denoted by the ID to documents within the same domain
-         */
-        public int getInternalLinks(final byte[] id) {
-            int il = (int) this.internal_links_counter.get(id);
-            if (il >= 0) return il;
-            SolrConnector connector = this.segment.fulltext().getDefaultConnector();
-            if (connector == null) return 0;
-            try {
-                SolrDocument doc = connector.getDocumentById(ASCII.String(id), CollectionSchema.inboundlinkscount_i.getSolrFieldName());
-                if (doc == null) {
-                    this.internal_links_counter.put(id, 0);
-                    return 0;
-                }
-                Object x = doc.getFieldValue(CollectionSchema.inboundlinkscount_i.getSolrFieldName());
-                il = (x == null) ? 0 : (x instanceof Integer) ? ((Integer) x).intValue() : (x instanceof Long) ? ((Long) x).intValue() : 0;
-                this.internal_links_counter.put(id, il);
-                return il;
-            } catch (final IOException e) {
-                ConcurrentLog.logException(e);
-            } catch (final SpaceExceededException e) {
-                ConcurrentLog.logException(e);
-            }
-            try {this.internal_links_counter.put(id, 0);} catch (final SpaceExceededException e) {}
-            return 0;
-        }
-        /**
-         * Use the crt cache to compute the next generation of crt values.
-         * @return
-         */
-        public boolean convergenceStep() {
-            boolean convergence = true;
-            double df = (1.0d - damping) / this.cr_host_count;
-            try {
-                for (Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                    String id = entry.getKey();
-                    ReferenceReport rr = this.rrCache.getReferenceReport(id, false);
-                    // sum up the cr of the internal links
-                    HandleSet iids = rr.getInternallIDs();
-                    double ncr = 0.0d;
-                    for (byte[] iid: iids) {
-                        int ilc = getInternalLinks(iid);
-                        if (ilc > 0) { // if (ilc == 0) then the reference report is wrong!
-                            double[] d = this.crt.get(ASCII.String(iid));
-                            // d[] could be empty at some situations
-                            if (d != null && d.length > 0) {
-                                ncr += d[0] / ilc;
-                            } else {
-                                // Output a warning that d[] is empty
-                                ConcurrentLog.warn("COLLECTION", "d[] is empty, iid="  + ASCII.String(iid));
-                                break;
-                            }
-                        }
-                    }
-                    ncr = df + damping * ncr;
-                    if (convergence && !eqd(ncr, entry.getValue()[0])) convergence = false;
-                    entry.getValue()[1] = ncr;
-                }
-                // after the loop, replace the old value with the new value in crt
-                for (Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                    entry.getValue()[0] = entry.getValue()[1];
-                }
-            } catch (final IOException e) {
-            }
-            return convergence;
-        }
-        /**
-         * helper method to check if two doubles are equal using a specific number of digits
-         * @param a
-         * @param b
-         * @return
-         */
-        private boolean eqd(final double a, final double b) {
-            return ((int) (a * this.converge_eq_factor)) == ((int) (b * this.converge_eq_factor));
-        }
     }
     
     /**
@@ -20,10 +20,13 @@
 
 package net.yacy.search.schema;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -35,6 +38,7 @@ import net.yacy.cora.federate.solr.connector.AbstractSolrConnector;
 import net.yacy.cora.federate.solr.connector.SolrConnector;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.search.index.HyperlinkEdgeStore;
 import net.yacy.search.index.Segment;
 
 import org.apache.solr.common.SolrDocument;
@@ -141,10 +145,54 @@ public class HyperlinkGraph implements Iterable<HyperlinkEdge> {
         this.edges.addAll(errorEdges);
     }
     
+    /**
+     * fill the graph with the links of all documents of a host from the native edge store.
+     * In contrast to the fill from the Solr index, links to failed documents are not marked as dead links.
+     */
+    public void fill(final HyperlinkEdgeStore store, String hostname, final DigestURL stopURL, final long maxtime, final int maxnodes) {
+        this.hostname = hostname;
+        if (hostname.startsWith("www.")) hostname = hostname.substring(4);
+        final long timeout = System.currentTimeMillis() + maxtime;
+        List<String> ids = new ArrayList<String>(store.sources(hostname));
+        ids.addAll(store.sources("www." + hostname));
+        HyperlinkEdges inboundEdges = new HyperlinkEdges();
+        HyperlinkEdges outboundEdges = new HyperlinkEdges();
+        retrieval: for (String id: ids) {
+            try {
+                for (HyperlinkEdgeStore.Edge edge: store.outgoing(id)) {
+                    try {
+                        MultiProtocolURL from = new MultiProtocolURL(edge.sourceURL);
+                        if (edge.type == HyperlinkType.Outbound) {
+                            HyperlinkEdge.Target linkurl = new HyperlinkEdge.Target(edge.targetURL, HyperlinkType.Outbound);
+                            outboundEdges.addEdge(from, linkurl);
+                            if (stopURL != null && linkurl.equals(stopURL)) break retrieval;
+                        } else {
+                            HyperlinkEdge.Target linkurl = new HyperlinkEdge.Target(edge.targetURL, HyperlinkType.Inbound);
+                            inboundEdges.addEdge(from, linkurl);
+                            if (stopURL != null && linkurl.equals(stopURL)) break retrieval;
+                        }
+                    } catch (MalformedURLException e) {}
+                }
+            } catch (IOException e) {
+                ConcurrentLog.logException(e);
+                break retrieval;
+            }
+            if (inboundEdges.size() + outboundEdges.size() > maxnodes || System.currentTimeMillis() > timeout) {
+                break retrieval;
+            }
+        }
+        this.edges.addAll(outboundEdges);
+        this.edges.addAll(inboundEdges);
+    }
+    
     public void path(final Segment segment, DigestURL from, DigestURL to, final int maxtime, final int maxnodes) {
         // two steps to find the graph: (1) create a HyperlinkGraph (to-down) and (2) backtrack backlinks up to an element of the graph (bottom-up)
         if (this.edges.size() == 0) {
-            fill(segment.fulltext().getDefaultConnector(), from == null ? to.getHost() : from.getHost(), to, maxtime, maxnodes);
+            if (segment.connectedHyperlinkEdges()) {
+                fill(segment.hyperlinkEdges(), from == null ? to.getHost() : from.getHost(), to, maxtime, maxnodes);
+            } else {
+                fill(segment.fulltext().getDefaultConnector(), from == null ? to.getHost() : from.getHost(), to, maxtime, maxnodes);
+            }
         }
         if (getDepth(to) >= 0 && (from == null || getDepth(from) >= 0)) return; // nothing to do.
         // now find the link bottom-up
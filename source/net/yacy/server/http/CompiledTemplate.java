@@ -0,0 +1,375 @@
+/**
+ *  CompiledTemplate
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.server.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.server.serverObjects;
+
+/**
+ * A template which has been parsed once into a sequence of literal byte slices and typed slots for the
+ * normal (#[key]#), multi (#{key}#...#{/key}#), alternative (#(key)#...::...#(/key)#) and include (#%file%#)
+ * templates of the {@link TemplateEngine}. Rendering a compiled template only looks up the pattern values and
+ * copies the literal slices to the output; the template text is not scanned again.
+ * A compiled template is immutable and may be rendered by several threads at the same time.
+ */
+public final class CompiledTemplate {
+
+    private final static byte[] UNRESOLVED_PATTERN = UTF8.getBytes("-UNRESOLVED_PATTERN-");
+
+    /** a part of a template */
+    private static abstract class Node {
+        /**
+         * @return false if rendering of the enclosing template level must stop
+         */
+        abstract boolean render(CompiledTemplate template, OutputStream out, serverObjects pattern, String prefix) throws IOException;
+    }
+
+    /** text which is copied unchanged */
+    private final static class Literal extends Node {
+        private final byte[] b;
+        private final int off, len;
+
+        private Literal(final byte[] b, final int off, final int len) {
+            this.b = b;
+            this.off = off;
+            this.len = len;
+        }
+
+        @Override
+        boolean render(final CompiledTemplate template, final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            out.write(this.b, this.off, this.len);
+            return true;
+        }
+    }
+
+    /** #[key]# */
+    private final static class Normal extends Node {
+        private final String key;
+
+        private Normal(final String key) {
+            this.key = key;
+        }
+
+        @Override
+        boolean render(final CompiledTemplate template, final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            out.write(replacement(prefix + this.key, pattern));
+            return true;
+        }
+    }
+
+    /** #{key}# ... #{/key}# */
+    private final static class Multi extends Node {
+        private final String key;
+        private final Node[] body;
+
+        private Multi(final String key, final Node[] body) {
+            this.key = key;
+            this.body = body;
+        }
+
+        @Override
+        boolean render(final CompiledTemplate template, final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            int num = 0;
+            final String value = pattern.get(prefix + this.key);
+            if (value != null && !value.isEmpty()) {
+                try {
+                    num = Integer.parseInt(value); // key contains the iteration number as string
+                } catch (final NumberFormatException e) {
+                    ConcurrentLog.logException(e);
+                    num = 0;
+                }
+            }
+            final String p = prefix + this.key + "_";
+            for (int i = 0; i < num; i++) {
+                CompiledTemplate.render(this.body, template, out, pattern, p + i + "_");
+            }
+            return true;
+        }
+    }
+
+    /** #(key)# alternative 0 :: alternative 1 :: ... #(/key)#, also selectable by name with %%name */
+    private final static class Alternative extends Node {
+        private final String key;
+        private final Node[][] alternatives;
+        private final byte[] b;
+        private final int bodyStart, bodyEnd;
+        private final Map<String, Node[]> byName;
+
+        private Alternative(final String key, final Node[][] alternatives, final byte[] b, final int bodyStart, final int bodyEnd) {
+            this.key = key;
+            this.alternatives = alternatives;
+            this.b = b;
+            this.bodyStart = bodyStart;
+            this.bodyEnd = bodyEnd;
+            this.byName = new ConcurrentHashMap<String, Node[]>();
+        }
+
+        @Override
+        boolean render(final CompiledTemplate template, final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            final String patternKey = prefix + this.key;
+            final String patternId = pattern.get(patternKey);
+            // lazy parsing of pattern value; numeric values, "true", "false" and no value allowed
+            int which = 0;
+            if (patternId == null || "false".equals(patternId)) {
+                which = 0;
+            } else if ("true".equals(patternId)) {
+                which = 1;
+            } else try {
+                which = Integer.parseInt(patternId);
+            } catch (final NumberFormatException e) {
+                Node[] nodes = this.byName.get(patternId);
+                if (nodes == null) {
+                    nodes = template.parseByName(this.b, this.bodyStart, this.bodyEnd, patternId);
+                    if (nodes == null) {
+                        ConcurrentLog.severe("TEMPLATE", "Bad Key-Value pair in #()# construct: key=\"" + patternKey + "\", value=\"" + patternId + "\" in " + template.name);
+                        return false;
+                    }
+                    this.byName.put(patternId, nodes);
+                }
+                CompiledTemplate.render(nodes, template, out, pattern, patternKey + "_");
+                return true;
+            }
+            // a missing alternative selects the last one
+            final Node[] nodes = which >= 0 && which < this.alternatives.length ? this.alternatives[which] : this.alternatives[this.alternatives.length - 1];
+            CompiledTemplate.render(nodes, template, out, pattern, patternKey + "_");
+            return true;
+        }
+    }
+
+    /** #%file%# or #%[key]%# */
+    private final static class Include extends Node {
+        private final String filename;
+        private final boolean byKey;
+
+        private Include(final String filename, final boolean byKey) {
+            this.filename = filename;
+            this.byKey = byKey;
+        }
+
+        @Override
+        boolean render(final CompiledTemplate template, final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+            final byte[] filename = this.byKey ? replacement(prefix + this.filename, pattern) : UTF8.getBytes(this.filename);
+            if (filename.length == 0 || Arrays.equals(filename, UNRESOLVED_PATTERN)) return true;
+            final CompiledTemplate include = TemplateEngine.getInclude(UTF8.String(filename), pattern.get("clientlanguage"));
+            if (include != null) CompiledTemplate.render(include.nodes, include, out, pattern, ""); // clear pattern prefix for include
+            return true;
+        }
+    }
+
+    private final String name;
+    private final Node[] nodes;
+
+    private CompiledTemplate(final String name, final byte[] b) {
+        this.name = name;
+        this.nodes = parse(b, 0, b.length);
+    }
+
+    /**
+     * parse a template
+     * @param name the name of the template for log messages
+     * @param template the template text; the array is used by the compiled template and must not be changed any more
+     * @return the compiled template
+     */
+    public static CompiledTemplate compile(final String name, final byte[] template) {
+        return new CompiledTemplate(name, template);
+    }
+
+    /**
+     * write the template with replaced patterns
+     * @param out the target
+     * @param pattern the pattern values
+     */
+    public void render(final OutputStream out, final serverObjects pattern) throws IOException {
+        render(this.nodes, this, out, pattern, "");
+    }
+
+    private static void render(final Node[] nodes, final CompiledTemplate template, final OutputStream out, final serverObjects pattern, final String prefix) throws IOException {
+        for (final Node node: nodes) {
+            if (!node.render(template, out, pattern, prefix)) return;
+        }
+    }
+
+    private static byte[] replacement(final String key, final serverObjects pattern) {
+        final String value = pattern.get(key);
+        return value == null ? UNRESOLVED_PATTERN : UTF8.getBytes(value);
+    }
+
+    /** the position of the first occurrence of pattern in b[from, to) or -1 */
+    private static int indexOf(final byte[] b, final byte[] pattern, final int from, final int to) {
+        final int last = to - pattern.length;
+        search: for (int i = from; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (b[i + j] != pattern[j]) continue search;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(final byte[] b, final int from, final int to, final byte[] pattern) {
+        if (to - from < pattern.length) return false;
+        for (int j = 0; j < pattern.length; j++) if (b[from + j] != pattern[j]) return false;
+        return true;
+    }
+
+    private final static byte[] mClose = UTF8.getBytes("}#");
+    private final static byte[] aClose = UTF8.getBytes(")#");
+    private final static byte[] pClose = UTF8.getBytes("]#");
+    private final static byte[] iClose = UTF8.getBytes("%#");
+    private final static byte[] dpdp = UTF8.getBytes("::");
+
+    /**
+     * parse a part of a template
+     * @param b the template text
+     * @param start the first position of the part
+     * @param end the position behind the part
+     * @return the nodes of the part
+     */
+    private Node[] parse(final byte[] b, final int start, final int end) {
+        final List<Node> nodes = new ArrayList<Node>();
+        int literal = start;
+        int p = start;
+        while (p < end) {
+            if (b[p] != '#') {
+                p++;
+                continue;
+            }
+            if (p + 1 >= end) break; // a single hash at the end
+            final int q = p + 1;
+            final byte bb = b[q];
+            if (bb == '{') { // multi
+                if (p > literal) nodes.add(new Literal(b, literal, p - literal));
+                final int keyEnd = indexOf(b, mClose, q + 1, end);
+                if (keyEnd < 0) return toArray(nodes); // inconsistency, the rest is dropped
+                final String key = UTF8.String(b, q + 1, keyEnd - q - 1);
+                int bodyStart = keyEnd + mClose.length;
+                if (bodyStart < end && b[bodyStart] == '\n') bodyStart++; // kill newline
+                final byte[] close = UTF8.getBytes("#{/" + key + "}#");
+                final int bodyEnd = indexOf(b, close, bodyStart, end);
+                if (bodyEnd < 0) {
+                    ConcurrentLog.severe("TEMPLATE", "No Close Key found for #{" + key + "}# in " + this.name);
+                    return toArray(nodes);
+                }
+                nodes.add(new Multi(key, parse(b, bodyStart, bodyEnd)));
+                p = bodyEnd + close.length;
+                if (p < end && b[p] == '\n') p++; // kill newline
+                literal = p;
+            } else if (bb == '(') { // alternative
+                if (p > literal) nodes.add(new Literal(b, literal, p - literal));
+                final int keyEnd = indexOf(b, aClose, q + 1, end);
+                if (keyEnd < 0) return toArray(nodes);
+                final String key = UTF8.String(b, q + 1, keyEnd - q - 1);
+                final byte[] closeKey = UTF8.getBytes("/" + key);
+                final int bodyStart = keyEnd + aClose.length;
+                final List<Node[]> alternatives = new ArrayList<Node[]>();
+                int others = 0; // nesting depth of other alternatives
+                int segment = bodyStart;
+                int closeEnd = -1;
+                int i = bodyStart;
+                while (i < end) {
+                    final byte c = b[i];
+                    if (c == '#' && i + 1 < end && b[i + 1] == '(') {
+                        final int innerEnd = indexOf(b, aClose, i + 2, end);
+                        if (innerEnd < 0) break;
+                        if (innerEnd - i - 2 == closeKey.length && startsWith(b, i + 2, innerEnd, closeKey)) {
+                            alternatives.add(parse(b, segment, i));
+                            closeEnd = innerEnd + aClose.length;
+                            break;
+                        } else if (others > 0 && b[i + 2] == '/') {
+                            others--;
+                        } else {
+                            others++;
+                        }
+                        i = innerEnd + aClose.length;
+                    } else if (c == ':' && others == 0) {
+                        if (i + 1 < end && b[i + 1] == ':') {
+                            alternatives.add(parse(b, segment, i));
+                            i += 2;
+                            segment = i;
+                        } else {
+                            i += 2; // the byte after a single colon is taken literally
+                        }
+                    } else {
+                        i++;
+                    }
+                }
+                if (closeEnd < 0) {
+                    ConcurrentLog.severe("TEMPLATE", "No Close Key found for #(" + key + ")# in " + this.name);
+                    return toArray(nodes);
+                }
+                nodes.add(new Alternative(key, alternatives.toArray(new Node[alternatives.size()][]), b, bodyStart, closeEnd - closeKey.length - 4));
+                p = closeEnd;
+                literal = p;
+            } else if (bb == '[') { // normal
+                if (p > literal) nodes.add(new Literal(b, literal, p - literal));
+                final int keyEnd = indexOf(b, pClose, q + 1, end);
+                if (keyEnd < 0) return toArray(nodes); // inconsistency, simply finalize this
+                nodes.add(new Normal(UTF8.String(b, q + 1, keyEnd - q - 1)));
+                p = keyEnd + pClose.length;
+                literal = p;
+            } else if (bb == '%') { // include
+                if (p > literal) nodes.add(new Literal(b, literal, p - literal));
+                final int nameEnd = indexOf(b, iClose, q + 1, end);
+                if (nameEnd < 0) return toArray(nodes);
+                if (nameEnd > q + 1) {
+                    if (b[q + 1] == '[' && b[nameEnd - 1] == ']' && nameEnd - q - 1 >= 2) {
+                        nodes.add(new Include(UTF8.String(b, q + 2, nameEnd - q - 3), true)); // simple pattern for filename
+                    } else {
+                        nodes.add(new Include(UTF8.String(b, q + 1, nameEnd - q - 1), false));
+                    }
+                }
+                p = nameEnd + iClose.length;
+                literal = p;
+            } else {
+                // no special character; this is simply a '#' without meaning and the following byte
+                p = q + 1;
+            }
+        }
+        if (end > literal) nodes.add(new Literal(b, literal, end - literal));
+        return toArray(nodes);
+    }
+
+    /**
+     * parse the alternative which is selected by name: the text after %%name up to the next :: or the end of the alternatives
+     * @return the nodes of the alternative or null if the name does not exist
+     */
+    private Node[] parseByName(final byte[] b, final int bodyStart, final int end, final String name) {
+        final byte[] marker = UTF8.getBytes("%%" + name);
+        final int m = indexOf(b, marker, bodyStart, end);
+        if (m < 0) return null;
+        final int textStart = m + marker.length;
+        int textEnd = indexOf(b, dpdp, textStart, end);
+        if (textEnd < 0) textEnd = end;
+        return parse(b, textStart, textEnd);
+    }
+
+    private static Node[] toArray(final List<Node> nodes) {
+        return nodes.toArray(new Node[nodes.size()]);
+    }
+}
@@ -26,7 +26,6 @@ package net.yacy.server.http;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -124,7 +123,6 @@ public final class HTTPDemon {
             ResponseHeader header
     ) throws IOException {
 
-        FileInputStream fis = null;
         ByteArrayOutputStream o = null;
         try {
             // setting the proper http status message
@@ -189,7 +187,7 @@ public final class HTTPDemon {
 
             TemplateEngine.writeTemplate(
                     "/proxymsg/error.html",
-                    fis = new FileInputStream(new File(htRootPath, "/proxymsg/error.html")),
+                    new File(htRootPath, "/proxymsg/error.html"),
                     o = new ByteArrayOutputStream(512),
                     tp
             );
@@ -210,7 +208,6 @@ public final class HTTPDemon {
             }
             respond.flush();
         } finally {
-            if (fis != null) try { fis.close(); } catch (final Exception e) { ConcurrentLog.logException(e); }
             if (o != null)   try { o.close();   } catch (final Exception e) { ConcurrentLog.logException(e); }
         }
     }
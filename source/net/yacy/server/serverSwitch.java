@@ -41,6 +41,12 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import net.yacy.cora.order.Digest;
 import net.yacy.cora.protocol.ClientIdentification;
@@ -72,6 +78,9 @@ public class serverSwitch {
 	protected int serverJobs;
 	private ConcurrentMap<String, String> configProps;
 	private final ConcurrentMap<String, String> configRemoved;
+	private final AtomicBoolean configDirty; // true if the config file is older than configProps
+	private final ScheduledExecutorService configWriter; // writes the config file after changes
+	private final Object configFileLock = new Object();
 	private final NavigableMap<String, BusyThread> workerThreads;
 	private YaCyHttpServer httpserver; // implemented HttpServer
 	private ConcurrentMap<String, Integer> upnpPortMap = new ConcurrentHashMap<>();
@@ -113,6 +122,15 @@ public class serverSwitch {
 
 		// remove all values from config that do not appear in init
 		this.configRemoved = new ConcurrentHashMap<String, String>();
+		this.configDirty = new AtomicBoolean(false);
+		this.configWriter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "serverSwitch.configWriter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
 		synchronized (this.configProps) {
 			Iterator<String> i = this.configProps.keySet().iterator();
 			String key;
@@ -301,7 +319,7 @@ public class serverSwitch {
 		// set the value
 		final String oldValue = this.configProps.put(key, value);
 		if (oldValue == null || !value.equals(oldValue)) {
-			saveConfig();
+			configChanged();
 		}
 	}
 
@@ -498,12 +516,52 @@ public class serverSwitch {
 	}
 
 	/**
-	 * write the changes to permanent storage (File)
+	 * mark the configuration as changed. The config file is written by the config writer thread
+	 * after the save delay, so that all changes within the delay are written together and the
+	 * calling thread is not blocked by file IO.
+	 */
+	private void configChanged() {
+		if (!this.configDirty.compareAndSet(false, true)) return; // a write is already scheduled
+		try {
+			this.configWriter.schedule(new Runnable() {
+				@Override
+				public void run() {
+					flushConfig();
+				}
+			}, Math.max(0, getConfigLong(SwitchboardConstants.CONFIG_SAVE_DELAY, SwitchboardConstants.CONFIG_SAVE_DELAY_DEFAULT)), TimeUnit.MILLISECONDS);
+		} catch (final RejectedExecutionException e) {
+			// the config writer is closed
+			saveConfig();
+		}
+	}
+
+	/**
+	 * write pending changes of the configuration to the config file now
+	 */
+	public void flushConfig() {
+		if (this.configDirty.get()) saveConfig();
+	}
+
+	/**
+	 * write pending changes of the configuration and stop the config writer thread;
+	 * changes after this call are written immediately
+	 */
+	public void closeConfig() {
+		this.configWriter.shutdown();
+		flushConfig();
+	}
+
+	/**
+	 * write the changes to permanent storage (File); the file is written to a temporary
+	 * file first which then replaces the config file
 	 */
 	private void saveConfig() {
-		ConcurrentMap<String, String> configPropsCopy = new ConcurrentHashMap<String, String>();
-		configPropsCopy.putAll(this.configProps); // avoid concurrency problems
-		FileUtils.saveMap(this.configFile, configPropsCopy, this.configComment);
+		synchronized (this.configFileLock) {
+			this.configDirty.set(false); // changes after this point are written again
+			ConcurrentMap<String, String> configPropsCopy = new ConcurrentHashMap<String, String>();
+			configPropsCopy.putAll(this.configProps); // avoid concurrency problems
+			FileUtils.saveMap(this.configFile, configPropsCopy, this.configComment);
+		}
 	}
 
 	/**
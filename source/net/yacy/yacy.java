@@ -857,6 +857,7 @@ public final class yacy {
                         }
                         System.out.println();
                     }
+                    ss.closeConfig();
             } else {
 	            if (args.length == 1) {
 	            	applicationRoot= new File(args[0]);
@@ -0,0 +1,84 @@
+package net.yacy.cora.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompletionIndexTest {
+
+    @Before
+    public void setUp() {
+        CompletionIndex.clear();
+    }
+
+    @After
+    public void tearDown() {
+        CompletionIndex.clear();
+    }
+
+    private static void learnWord(final String word, final int times) {
+        for (int i = 0; i < times; i++) CompletionIndex.learnWord(new StringBuilder(word));
+    }
+
+    /**
+     * Test that learned words and queries are completed by frequency after a rebuild
+     */
+    @Test
+    public void testLearnAndComplete() {
+        learnWord("Hello", 3);
+        learnWord("help", 5);
+        learnWord("x", 10); // too short
+        CompletionIndex.learnQuery("hello  World", 1);
+        CompletionIndex.learnQuery("hello there", 0); // no results
+        assertEquals(0, CompletionIndex.size()); // not published before the rebuild
+        CompletionIndex.rebuild();
+        assertEquals(3, CompletionIndex.size());
+        assertEquals(Arrays.asList("hello world", "help", "hello"), CompletionIndex.complete("HE", 10));
+        assertEquals(Arrays.asList("hello world"), CompletionIndex.complete("hello", 10));
+        assertEquals(Arrays.asList("hello world"), CompletionIndex.complete("he", 1));
+        assertTrue(CompletionIndex.complete("x", 10).isEmpty());
+    }
+
+    /**
+     * Test that terms learned after a full rebuild are applied with the delta trie
+     */
+    @Test
+    public void testIncrementalRebuild() {
+        learnWord("hello", 3);
+        learnWord("help", 5);
+        CompletionIndex.rebuild();
+        assertEquals(Arrays.asList("help", "hello"), CompletionIndex.complete("hel", 10));
+        learnWord("hello", 4); // now ahead of help
+        learnWord("helium", 1);
+        CompletionIndex.rebuild();
+        assertEquals(3, CompletionIndex.size());
+        assertEquals(Arrays.asList("hello", "help", "helium"), CompletionIndex.complete("hel", 10));
+        assertEquals(Arrays.asList("hello", "help"), CompletionIndex.complete("hel", 2));
+        CompletionIndex.clear();
+        assertEquals(0, CompletionIndex.size());
+        assertTrue(CompletionIndex.complete("hel", 10).isEmpty());
+    }
+
+    /**
+     * Test that the changed terms are not collected without bound when no rebuild is triggered
+     */
+    @Test
+    public void testBoundedChanges() {
+        learnWord("hello", 1);
+        CompletionIndex.rebuild();
+        for (int i = 0; i < 10500; i++) CompletionIndex.learnQuery("term" + i, 1);
+        assertEquals(0, CompletionIndex.changedSize());
+        CompletionIndex.learnQuery("hello", 1);
+        assertEquals(0, CompletionIndex.changedSize()); // no recording until the full rebuild
+        CompletionIndex.rebuild();
+        assertEquals(10501, CompletionIndex.size());
+        assertEquals(Arrays.asList("hello"), CompletionIndex.complete("he", 10));
+        CompletionIndex.learnQuery("help", 1);
+        assertEquals(1, CompletionIndex.changedSize());
+    }
+}
@@ -0,0 +1,100 @@
+package net.yacy.cora.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class InternedScoreMapTest {
+
+    /**
+     * Test of keys method, keys must be ordered by score
+     */
+    @Test
+    public void testKeys() {
+        final InternedScoreMap<String> m = new InternedScoreMap<String>();
+        m.inc("b", 5);
+        m.inc("a");
+        m.inc("c", 10);
+        m.inc("a");
+        assertEquals(Arrays.asList("c", "b", "a"), m.keys(false, 10));
+        assertEquals(Arrays.asList("c", "b"), m.keys(false, 2));
+        final Iterator<String> i = m.keys(true);
+        assertEquals("a", i.next());
+        assertEquals("b", i.next());
+        assertEquals("c", i.next());
+        assertFalse(i.hasNext());
+        assertEquals(17, m.totalCount());
+        assertEquals(2, m.get("a"));
+        assertEquals(10, m.getMaxScore());
+        assertEquals(2, m.getMinScore());
+    }
+
+    /**
+     * Test of delete, dec and shrink methods, ids must be reused consistently
+     */
+    @Test
+    public void testDeleteAndShrink() {
+        final InternedScoreMap<String> m = new InternedScoreMap<String>();
+        for (int i = 0; i < 100; i++) m.set("k" + i, i);
+        assertEquals(100, m.size());
+        assertEquals(50, m.delete("k50"));
+        assertFalse(m.containsKey("k50"));
+        m.dec("k99", 9);
+        assertEquals(90, m.get("k99"));
+        m.shrinkToMinScore(60);
+        assertEquals(40, m.size());
+        // adding many new keys forces a compaction of the deleted ids
+        for (int i = 0; i < 100; i++) m.inc("n" + i);
+        assertEquals(140, m.size());
+        assertEquals(90, m.get("k99"));
+        assertEquals(1, m.get("n0"));
+        assertTrue(m.containsKey("k60"));
+        m.shrinkToMaxSize(10);
+        assertTrue(m.size() <= 10);
+        assertEquals("k98", m.keys(false).next());
+    }
+
+    /**
+     * Test of concurrent increments of known and new keys
+     */
+    @Test
+    public void testConcurrentInc() throws InterruptedException {
+        final InternedScoreMap<String> m = new InternedScoreMap<String>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) m.inc("k" + (i % 100));
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread: threads) thread.join();
+        assertEquals(100, m.size());
+        assertEquals(80000, m.totalCount());
+        for (int i = 0; i < 100; i++) assertEquals(800, m.get("k" + i));
+    }
+
+    /**
+     * Test of the top-k keys of the generic implementation
+     */
+    @Test
+    public void testKeysMaxcount() {
+        final ConcurrentScoreMap<String> m = new ConcurrentScoreMap<String>();
+        m.inc("b", 5);
+        m.inc("a");
+        m.inc("c", 10);
+        assertEquals(Arrays.asList("c", "b"), m.keys(false, 2));
+        assertEquals(Arrays.asList("a", "b", "c"), m.keys(true, 5));
+    }
+
+}
@@ -0,0 +1,86 @@
+package net.yacy.cora.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class WeightedPrefixTrieTest {
+
+    private static WeightedPrefixTrie trie(final Object... termWeights) {
+        final Map<String, Long> m = new HashMap<String, Long>();
+        for (int i = 0; i < termWeights.length; i += 2) {
+            m.put((String) termWeights[i], Long.valueOf(((Integer) termWeights[i + 1]).longValue()));
+        }
+        return new WeightedPrefixTrie(m);
+    }
+
+    /**
+     * Test of complete method, results must be ordered by weight
+     */
+    @Test
+    public void testCompleteOrder() {
+        final WeightedPrefixTrie t = trie("yacy", 5, "yacy search", 20, "yacy peer", 7, "yellow", 100, "java", 3);
+        assertEquals(Arrays.asList("yacy search", "yacy peer", "yacy"), t.complete("ya", 10));
+        assertEquals(Arrays.asList("yellow", "yacy search"), t.complete("y", 2));
+        assertEquals(Arrays.asList("yellow", "yacy search", "yacy peer", "yacy", "java"), t.complete("", 10));
+    }
+
+    /**
+     * Test of complete method with prefixes ending inside of an edge label or not contained
+     */
+    @Test
+    public void testCompletePrefixInsideLabel() {
+        final WeightedPrefixTrie t = trie("international", 1, "internet", 2, "interval", 3);
+        assertEquals(Arrays.asList("interval", "internet", "international"), t.complete("inter", 10));
+        assertEquals(Arrays.asList("internet", "international"), t.complete("intern", 10));
+        assertEquals(Arrays.asList("international"), t.complete("internati", 10));
+        assertEquals(Arrays.asList("international"), t.complete("international", 10));
+        assertTrue(t.complete("internationale", 10).isEmpty());
+        assertTrue(t.complete("x", 10).isEmpty());
+    }
+
+    /**
+     * Test of complete method against a brute force computation
+     */
+    @Test
+    public void testCompleteRandom() {
+        final Map<String, Long> m = new HashMap<String, Long>();
+        final java.util.Random r = new java.util.Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int l = 1 + r.nextInt(6);
+            for (int j = 0; j < l; j++) sb.append((char) ('a' + r.nextInt(4)));
+            m.put(sb.toString(), Long.valueOf(r.nextInt(1000000)));
+        }
+        final WeightedPrefixTrie t = new WeightedPrefixTrie(m);
+        assertEquals(m.size(), t.size());
+        for (final String prefix: new String[]{"", "a", "ab", "bcd", "dddd"}) {
+            final List<String> c = t.complete(prefix, 5);
+            long last = Long.MAX_VALUE;
+            int matching = 0;
+            for (final String s: m.keySet()) if (s.startsWith(prefix)) matching++;
+            assertEquals(Math.min(5, matching), c.size());
+            for (final String s: c) {
+                assertTrue(s.startsWith(prefix));
+                assertTrue(m.get(s).longValue() <= last);
+                last = m.get(s).longValue();
+            }
+            for (final String s: m.keySet()) {
+                if (s.startsWith(prefix) && !c.contains(s)) assertTrue(m.get(s).longValue() <= last);
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, WeightedPrefixTrie.EMPTY.size());
+        assertTrue(WeightedPrefixTrie.EMPTY.complete("a", 10).isEmpty());
+    }
+
+}
@@ -0,0 +1,133 @@
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+
+public class ParserLanesTest {
+
+    private static final Document[] NODOCS = new Document[0];
+
+    @After
+    public void tearDown() {
+        for (final ParserLanes.Lane lane: ParserLanes.Lane.values()) ParserLanes.configure(lane, lane.defaultThreads, lane.defaultTimeout);
+    }
+
+    /**
+     * Test of parse method, a task exceeding the deadline of its lane must fail with a timeout and be interrupted
+     */
+    @Test
+    public void testDeadline() throws Exception {
+        final Parser parser = new AbstractParser("Slow Test Parser") {};
+        ParserLanes.assign(parser, ParserLanes.Lane.MEDIA);
+        ParserLanes.configure(ParserLanes.Lane.MEDIA, 1, 1000);
+        final DigestURL location = new DigestURL("http://example.org/slow.png");
+        final boolean[] interrupted = new boolean[]{false};
+        final long start = System.currentTimeMillis();
+        try {
+            ParserLanes.parse(parser, location, new Callable<Document[]>() {
+                @Override
+                public Document[] call() throws Exception {
+                    try {
+                        Thread.sleep(20000);
+                    } catch (final InterruptedException e) {
+                        interrupted[0] = true;
+                    }
+                    return NODOCS;
+                }
+            });
+            fail("no timeout");
+        } catch (final Parser.Failure e) {
+            assertTrue(ParserLanes.isTimeout(e));
+        }
+        assertTrue(System.currentTimeMillis() - start < 10000);
+
+        // the lane slot is free again after the interrupted task terminated
+        Thread.sleep(200);
+        assertTrue(interrupted[0]);
+        assertEquals(0, ParserLanes.running(ParserLanes.Lane.MEDIA));
+        assertSame(NODOCS, ParserLanes.parse(parser, location, new Callable<Document[]>() {
+            @Override
+            public Document[] call() {
+                return NODOCS;
+            }
+        }));
+        final ParserLanes.Statistics stats = ParserLanes.statistics(parser.getName());
+        assertEquals(1, stats.documents());
+        assertEquals(1, stats.failures());
+        assertEquals(1, stats.timeouts());
+    }
+
+    /**
+     * Test of parse method, failures of the task are delivered to the caller and nested calls run in the lane thread
+     */
+    @Test
+    public void testFailureAndNesting() throws Exception {
+        final Parser outer = new AbstractParser("Archive Test Parser") {};
+        final Parser inner = new AbstractParser("Inner Test Parser") {};
+        ParserLanes.assign(outer, ParserLanes.Lane.ARCHIVE);
+        ParserLanes.configure(ParserLanes.Lane.ARCHIVE, 1, 5000);
+        final DigestURL location = new DigestURL("http://example.org/archive.zip");
+        final Thread caller = Thread.currentThread();
+        final Document[] docs = ParserLanes.parse(outer, location, new Callable<Document[]>() {
+            @Override
+            public Document[] call() throws Exception {
+                final Thread laneThread = Thread.currentThread();
+                assertFalse(laneThread == caller);
+                // a nested parser call must not wait for the (occupied) archive lane
+                return ParserLanes.parse(outer, location, new Callable<Document[]>() {
+                    @Override
+                    public Document[] call() {
+                        assertSame(laneThread, Thread.currentThread());
+                        return NODOCS;
+                    }
+                });
+            }
+        });
+        assertSame(NODOCS, docs);
+
+        try {
+            ParserLanes.parse(inner, location, new Callable<Document[]>() {
+                @Override
+                public Document[] call() throws Exception {
+                    throw new IllegalStateException("broken");
+                }
+            });
+            fail("no failure");
+        } catch (final Parser.Failure e) {
+            assertFalse(ParserLanes.isTimeout(e));
+        }
+        assertEquals(1, ParserLanes.statistics(inner.getName()).failures());
+    }
+
+    /**
+     * Test of parse method, markup parsers and parsers without a lane run in the calling thread
+     */
+    @Test
+    public void testCallingThread() throws Exception {
+        final Parser parser = new AbstractParser("Markup Test Parser") {};
+        assertSame(ParserLanes.Lane.MARKUP, ParserLanes.lane(parser));
+        final DigestURL location = new DigestURL("http://example.org/index.html");
+        final Thread caller = Thread.currentThread();
+        assertSame(NODOCS, ParserLanes.parse(parser, location, new Callable<Document[]>() {
+            @Override
+            public Document[] call() {
+                assertSame(caller, Thread.currentThread());
+                return NODOCS;
+            }
+        }));
+        assertEquals(1, ParserLanes.statistics(parser.getName()).documents());
+        assertFalse(ParserLanes.Lane.MARKUP.threaded);
+        assertTrue(ParserLanes.Lane.DOCUMENT.threaded);
+    }
+
+}
@@ -0,0 +1,83 @@
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import net.yacy.kelondro.data.word.Word;
+
+public class WordScannerTest {
+
+    /**
+     * Test of next method, the tokens must be the same as those of a WordTokenizer on a SentenceReader.
+     */
+    @Test
+    public void testNext() {
+        final String[] testTxtArr = new String[]{
+            "  word word..... (word) [word] . 'word word' \"word word\" word ?  word! ",
+            "word-word word . word.word@word.word ....word... word,word ",
+            "Über größere Straßen\r\nfährt \u0000man\tnicht. İstanbul ΟΔΟΣ! 3.14 e-mail: a@b.c?",
+            "",
+            "...",
+            "trailing"
+        };
+        for (final String testTxt : testTxtArr) {
+            final List<String> expected = new ArrayList<String>();
+            final WordTokenizer wt = new WordTokenizer(new SentenceReader(testTxt), null);
+            while (wt.hasMoreElements()) expected.add(wt.nextElement().toString());
+            wt.close();
+
+            final List<String> tokens = new ArrayList<String>();
+            final WordScanner scanner = new WordScanner(testTxt);
+            while (scanner.next()) {
+                assertEquals(scanner.length() == 1 && SentenceReader.punctuation(scanner.buffer()[0]), scanner.isPunctuation());
+                tokens.add(scanner.toString());
+            }
+            scanner.close();
+            assertEquals(testTxt, expected, tokens);
+        }
+    }
+
+    /**
+     * Test of toLowerCase method, the result must be the same as String.toLowerCase(Locale.ENGLISH)
+     */
+    @Test
+    public void testToLowerCase() {
+        for (final String word : new String[]{"Word", "ÜBER", "İstanbul", "ΟΔΟΣ", "ΣΟΦΙΑ", "mIxEd123"}) {
+            final WordScanner scanner = new WordScanner(word);
+            assertTrue(scanner.next());
+            scanner.toLowerCase();
+            assertEquals(word.toLowerCase(Locale.ENGLISH), scanner.toString());
+            assertTrue(scanner.matches(word.toLowerCase(Locale.ENGLISH)));
+        }
+    }
+
+    /**
+     * Test of the WordTable, words must be found with their char range
+     */
+    @Test
+    public void testWordTable() {
+        final WordTable table = new WordTable();
+        for (int i = 0; i < 1000; i++) {
+            final char[] w = ("word" + i).toCharArray();
+            assertNull(table.get(w, w.length));
+            assertEquals("word" + i, table.put(w, w.length, new Word(i, 0, 0)));
+        }
+        assertEquals(1000, table.size());
+        final char[] buffer = new char[20];
+        for (int i = 0; i < 1000; i++) {
+            final String s = "word" + i;
+            s.getChars(0, s.length(), buffer, 0);
+            assertEquals(i, table.get(buffer, s.length()).posInText);
+            assertEquals(s, table.key(buffer, s.length()));
+        }
+        assertNull(table.get(buffer, 2));
+    }
+
+}
@@ -0,0 +1,127 @@
+package net.yacy.document.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SurrogateChunkerTest {
+
+    private static String surrogates(final int count) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n").append(SurrogateReader.SURROGATES_MAIN_ELEMENT_OPEN).append('\n');
+        for (int i = 0; i < count; i++) {
+            sb.append("<record>\n<dc:identifier>http://example.org/").append(i).append(".html</dc:identifier>\n<dc:description>text ").append(i).append("</dc:description>\n</record>\n");
+        }
+        sb.append(SurrogateReader.SURROGATES_MAIN_ELEMENT_CLOSE).append('\n');
+        return sb.toString();
+    }
+
+    private static String string(final ByteBuffer data) {
+        final byte[] b = new byte[data.remaining()];
+        data.duplicate().get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> chunks(final SurrogateChunker chunker) throws IOException {
+        final List<String> chunks = new ArrayList<>();
+        SurrogateChunker.Chunk chunk;
+        long position = chunker.position();
+        while ((chunk = chunker.next()) != null) {
+            assertEquals(position, chunk.start);
+            assertEquals(chunks.size(), chunk.sequence);
+            position = chunk.end;
+            chunks.add(string(chunk.data));
+        }
+        return chunks;
+    }
+
+    /**
+     * Test that surrogate xml is split after record ends and that the records of the chunks are complete
+     */
+    @Test
+    public void testXmlStream() throws IOException {
+        final String xml = surrogates(100);
+        final SurrogateChunker chunker = new SurrogateChunker(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), 0, 1500);
+        assertFalse(chunker.isSolrDump());
+        final List<String> chunks = chunks(chunker);
+        assertTrue(chunks.size() > 5);
+        final StringBuilder all = new StringBuilder();
+        int records = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            final String chunk = chunks.get(i);
+            all.append(chunk);
+            if (i < chunks.size() - 1) assertTrue(chunk.endsWith("</record>"));
+            final String r = string(SurrogateChunker.records(ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8))));
+            assertTrue(r.startsWith("<record>"));
+            assertTrue(r.endsWith("</record>"));
+            records += r.split("</record>", -1).length - 1;
+        }
+        assertEquals(xml, all.toString());
+        assertEquals(100, records);
+        chunker.close();
+    }
+
+    /**
+     * Test that a memory-mapped file is split like a stream and that a resumed chunker continues at the offset
+     */
+    @Test
+    public void testFileAndResume() throws IOException {
+        final String xml = surrogates(100);
+        final File file = File.createTempFile("SurrogateChunkerTest", ".xml");
+        try {
+            Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+            final List<String> streamed = chunks(new SurrogateChunker(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), 0, 2000));
+            SurrogateChunker chunker = new SurrogateChunker(FileChannel.open(file.toPath(), StandardOpenOption.READ), 0, 2000);
+            final List<String> mapped = chunks(chunker);
+            chunker.close();
+            assertEquals(streamed, mapped);
+
+            final long offset = streamed.get(0).length() + streamed.get(1).length();
+            chunker = new SurrogateChunker(FileChannel.open(file.toPath(), StandardOpenOption.READ), offset, 2000);
+            assertEquals(streamed.subList(2, streamed.size()), chunks(chunker));
+            chunker.close();
+            chunker = new SurrogateChunker(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), offset, 2000);
+            assertEquals(streamed.subList(2, streamed.size()), chunks(chunker));
+            chunker.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test that a Solr dump is split at line ends and that a record larger than the chunk size is kept complete
+     */
+    @Test
+    public void testSolrDump() throws IOException {
+        final StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<response>\n<lst name=\"responseHeader\"><str format=\"yacy.index.export.solr.xml\"/></lst>\n<result>\n");
+        for (int i = 0; i < 20; i++) {
+            sb.append("<doc><str name=\"sku\">http://example.org/").append(i).append(".html</str>");
+            if (i == 10) for (int j = 0; j < 300; j++) sb.append("<str name=\"text_t\">long text</str>");
+            sb.append("</doc>\n");
+        }
+        sb.append("</result>\n</response>\n");
+        final SurrogateChunker chunker = new SurrogateChunker(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)), 0, 1024);
+        assertTrue(chunker.isSolrDump());
+        final List<String> chunks = chunks(chunker);
+        final StringBuilder all = new StringBuilder();
+        for (final String chunk: chunks) {
+            assertTrue(chunk.endsWith("\n"));
+            all.append(chunk);
+        }
+        assertEquals(sb.toString(), all.toString());
+        chunker.close();
+    }
+}
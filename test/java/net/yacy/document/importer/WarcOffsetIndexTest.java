@@ -0,0 +1,143 @@
+package net.yacy.document.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.jwat.common.HeaderLine;
+import org.jwat.warc.WarcConstants;
+import org.jwat.warc.WarcReader;
+import org.jwat.warc.WarcRecord;
+import org.junit.Test;
+
+public class WarcOffsetIndexTest {
+
+    private static byte[] record(final String type, final String uri, final String digest, final String contentType, final int status, final String body) {
+        final String http = "HTTP/1.1 " + status + " OK\r\nContent-Type: " + contentType + "\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+        final StringBuilder sb = new StringBuilder();
+        sb.append("WARC/1.0\r\n");
+        sb.append("WARC-Type: ").append(type).append("\r\n");
+        sb.append("WARC-Target-URI: ").append(uri).append("\r\n");
+        sb.append("WARC-Date: 2017-04-30T12:00:00Z\r\n");
+        sb.append("WARC-Record-ID: <urn:uuid:").append(Integer.toHexString(uri.hashCode())).append(type).append(">\r\n");
+        if (digest != null) sb.append("WARC-Payload-Digest: ").append(digest).append("\r\n");
+        sb.append("Content-Type: application/http; msgtype=response\r\n");
+        sb.append("Content-Length: ").append(http.length()).append("\r\n\r\n");
+        sb.append(http).append("\r\n\r\n");
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static File archive(final boolean compressed) throws IOException {
+        final File warc = File.createTempFile("WarcOffsetIndexTest", compressed ? ".warc.gz" : ".warc");
+        final byte[][] records = new byte[][]{
+            record("response", "http://example.org/a.html", "sha1:AAAA", "text/html; charset=UTF-8", 200, "<html><body>a</body></html>"),
+            record("request", "http://example.org/a.html", null, "text/html", 200, ""),
+            record("response", "http://example.org/b.png", "sha1:BBBB", "image/png", 200, "png"),
+            record("response", "http://example.org/c.html", "sha1:AAAA", "text/html", 404, "<html><body>c</body></html>")};
+        try (final OutputStream os = new FileOutputStream(warc)) {
+            for (final byte[] r: records) {
+                if (compressed) {
+                    // each record is a gzip member of its own
+                    final ByteArrayOutputStream member = new ByteArrayOutputStream();
+                    final GZIPOutputStream gz = new GZIPOutputStream(member);
+                    gz.write(r);
+                    gz.close();
+                    os.write(member.toByteArray());
+                } else {
+                    os.write(r);
+                }
+            }
+        }
+        return warc;
+    }
+
+    private static void check(final boolean compressed) throws IOException {
+        final File warc = archive(compressed);
+        final File cdx = WarcOffsetIndex.indexFile(warc);
+        try {
+            assertEquals(compressed, WarcOffsetIndex.isCompressed(warc));
+            final WarcOffsetIndex index = WarcOffsetIndex.load(warc, null);
+            assertTrue(cdx.exists());
+            for (final WarcOffsetIndex i: new WarcOffsetIndex[]{index, WarcOffsetIndex.read(cdx)}) {
+                final List<WarcOffsetIndex.Entry> entries = i.entries();
+                assertEquals(3, entries.size());
+                assertEquals("http://example.org/a.html", entries.get(0).url);
+                assertEquals("text/html", entries.get(0).mime);
+                assertEquals(200, entries.get(0).status);
+                assertEquals("sha1:AAAA", entries.get(0).digest);
+                assertEquals("20170430120000", entries.get(0).date);
+                assertEquals("image/png", entries.get(1).mime);
+                assertEquals(404, entries.get(2).status);
+                assertEquals(warc.length(), entries.get(2).offset + entries.get(2).length);
+            }
+            // each record can be read independently
+            try (final FileChannel channel = FileChannel.open(warc.toPath(), StandardOpenOption.READ)) {
+                for (final WarcOffsetIndex.Entry entry: index.entries()) {
+                    final WarcReader reader = WarcOffsetIndex.recordReader(channel, entry, compressed);
+                    final WarcRecord record = reader.getNextRecord();
+                    assertNotNull(record);
+                    final HeaderLine uri = record.getHeader(WarcConstants.FN_WARC_TARGET_URI);
+                    assertEquals(entry.url, uri.value);
+                    assertNull(reader.getNextRecord());
+                    reader.close();
+                }
+                assertTrue(channel.isOpen());
+            }
+        } finally {
+            warc.delete();
+            cdx.delete();
+        }
+    }
+
+    /**
+     * Test of building, writing and reading the index of a plain warc file
+     */
+    @Test
+    public void testUncompressed() throws IOException {
+        check(false);
+    }
+
+    /**
+     * Test of building, writing and reading the index of a warc file with one gzip member per record
+     */
+    @Test
+    public void testCompressed() throws IOException {
+        check(true);
+    }
+
+    /**
+     * Test that CDX files without offsets are not used
+     */
+    @Test
+    public void testForeignLegend() throws IOException {
+        final File cdx = File.createTempFile("WarcOffsetIndexTest", ".cdx");
+        try {
+            try (final OutputStream os = new FileOutputStream(cdx)) {
+                os.write(" CDX N b a m s k r\n".getBytes(StandardCharsets.UTF_8));
+            }
+            assertNull(WarcOffsetIndex.read(cdx));
+            try (final OutputStream os = new FileOutputStream(cdx)) {
+                os.write(" CDX N b a m s k r M S V g\norg,example)/ 20170430120000 http://example.org/ text/html 200 AAAA - - 100 2000 x.warc.gz\n".getBytes(StandardCharsets.UTF_8));
+            }
+            final WarcOffsetIndex index = WarcOffsetIndex.read(cdx);
+            assertFalse(index.entries().isEmpty());
+            assertEquals(2000, index.entries().get(0).offset);
+            assertEquals(100, index.entries().get(0).length);
+        } finally {
+            cdx.delete();
+        }
+    }
+}
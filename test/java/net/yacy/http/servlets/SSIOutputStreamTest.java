@@ -0,0 +1,66 @@
+package net.yacy.http.servlets;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SSIOutputStreamTest {
+
+    /**
+     * write the input in chunks of random size and replace includes by [path]
+     */
+    private static String process(final String input, final long seed) throws IOException {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final SSIOutputStream out = new SSIOutputStream(target) {
+            @Override
+            protected void include(final String path) throws IOException {
+                target.write(("[" + path + "]").getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        final byte[] b = input.getBytes(StandardCharsets.UTF_8);
+        final Random random = new Random(seed);
+        int i = 0;
+        while (i < b.length) {
+            if (random.nextBoolean()) {
+                out.write(b[i++]);
+            } else {
+                final int n = Math.min(b.length - i, random.nextInt(40));
+                out.write(b, i, n);
+                i += n;
+            }
+        }
+        out.close();
+        return new String(target.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void check(final String expected, final String input) throws IOException {
+        for (long seed = 0; seed < 20; seed++) assertEquals(expected, process(input, seed));
+    }
+
+    /**
+     * Test that include directives are replaced at their position and other content is unchanged
+     */
+    @Test
+    public void testIncludes() throws IOException {
+        check("<html><body>[/env/header.html]<p>a &lt; b</p>[yacysearch.html?q=a]</body></html>",
+                "<html><body><!--#include virtual=\"/env/header.html\" --><p>a &lt; b</p><!--#include virtual=\"yacysearch.html?q=a\"--></body></html>");
+        check("<<<[x]", "<<<<!--#include virtual=\"x\"-->");
+        check("no includes <!-- a comment --> <!--#include file=\"x\" -->", "no includes <!-- a comment --> <!--#include file=\"x\" -->");
+    }
+
+    /**
+     * Test that broken directives are written as they are
+     */
+    @Test
+    public void testBroken() throws IOException {
+        check("<!--#include virtual=\"\"-->", "<!--#include virtual=\"\"-->"); // too short for a directive
+        check("ab", "a<!--#include virtual=\"missing quote -->b"); // the directive is dropped
+        check("<!--#include virtual=\"unclosed", "<!--#include virtual=\"unclosed");
+        check("<!--#include virt", "<!--#include virt");
+    }
+}
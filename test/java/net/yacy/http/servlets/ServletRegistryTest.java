@@ -0,0 +1,93 @@
+package net.yacy.http.servlets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import net.yacy.cora.protocol.RequestHeader;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.server.serverObjects;
+import net.yacy.server.serverSwitch;
+
+public class ServletRegistryTest {
+
+    /** a servlet which returns its arguments */
+    public static class Echo {
+        public static serverObjects respond(final RequestHeader header, final serverObjects post, final serverSwitch env) {
+            return post;
+        }
+    }
+
+    /** a servlet which fails */
+    public static class Failing {
+        public static serverObjects respond(final RequestHeader header, final serverObjects post, final serverSwitch env) {
+            throw new IllegalStateException("failing");
+        }
+    }
+
+    /** copy the class file of a class to a file in the servlet directory */
+    private static void install(final Class<?> c, final File file) throws IOException {
+        file.getParentFile().mkdirs();
+        try (final InputStream is = c.getResourceAsStream(c.getName().substring(c.getName().lastIndexOf('.') + 1) + ".class")) {
+            Files.copy(is, file.toPath());
+        }
+    }
+
+    @Test
+    public void testKey() {
+        assertEquals("yacy/hello", ServletRegistry.key("/yacy/hello.html"));
+        assertEquals("suggest", ServletRegistry.key("/suggest.json"));
+        assertNull(ServletRegistry.key("/yacy/"));
+        assertNull(ServletRegistry.key("/a.b/c"));
+    }
+
+    /**
+     * Test of the lookup and the invocation of servlets
+     */
+    @Test
+    public void testRespond() throws Exception {
+        final File htroot = Files.createTempDirectory("ServletRegistryTest").toFile();
+        try {
+            install(Echo.class, new File(htroot, "yacy/hello.class"));
+            install(Failing.class, new File(htroot, "failing.class"));
+            install(Echo.class, new File(htroot, "inner$1.class"));
+            final ServletRegistry registry = new ServletRegistry(htroot);
+            assertEquals(2, registry.size());
+            final ServletRegistry.Entry hello = registry.get("/yacy/hello.html");
+            assertNotNull(hello);
+            assertSame(hello, registry.get("/yacy/hello.json"));
+            assertNull(registry.get("/hello.html"));
+            assertNull(registry.get("/inner$1.html"));
+
+            final serverObjects post = new serverObjects();
+            assertSame(post, hello.respond(null, post, null));
+            try {
+                registry.get("/failing.html").respond(null, post, null);
+                fail();
+            } catch (final InvocationTargetException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+
+            // a new servlet is found and a deleted servlet is removed with a reload
+            install(Echo.class, new File(htroot, "api/echo.class"));
+            FileUtils.deletedelete(new File(htroot, "failing.class"));
+            registry.reload();
+            assertNotNull(registry.get("/api/echo.xml"));
+            assertNull(registry.get("/failing.html"));
+            assertSame(hello, registry.get("/yacy/hello.html"));
+        } finally {
+            FileUtils.deletedelete(htroot);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package net.yacy.http.servlets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import net.yacy.kelondro.util.FileUtils;
+
+public class StaticResourceCacheTest {
+
+    private static File tempDir() throws IOException {
+        return Files.createTempDirectory("StaticResourceCacheTest").toFile();
+    }
+
+    private static void delete(final File dir) {
+        final File[] files = dir.listFiles();
+        if (files != null) for (final File f: files) {
+            if (f.isDirectory()) delete(f); else f.delete();
+        }
+        dir.delete();
+    }
+
+    private static byte[] script(final int lines) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) sb.append("function f").append(i).append("() { return ").append(i).append("; }\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] content(final StaticResourceCache.Entry entry, final boolean gzip) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entry.writeTo(out, gzip);
+        assertEquals(entry.length(gzip), out.size());
+        if (!gzip) return out.toByteArray();
+        return FileUtils.read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    /**
+     * Test of the compressed variants in memory and on disk and of the invalidation after a file change
+     */
+    @Test
+    public void testCache() throws IOException {
+        final File dir = tempDir();
+        try {
+            final File gzipPath = new File(dir, "gz");
+            final StaticResourceCache cache = new StaticResourceCache(gzipPath, 16 * 1024, true);
+            final File js = new File(dir, "a.js");
+            final byte[] small = script(100);
+            Files.write(js.toPath(), small);
+            final StaticResourceCache.Entry entry = cache.get(js, "application/javascript");
+            assertSame(entry, cache.get(js, "application/javascript"));
+            assertTrue(entry.hasGzip());
+            assertTrue(entry.length(true) < entry.length(false));
+            assertArrayEquals(small, content(entry, false));
+            assertArrayEquals(small, content(entry, true));
+            assertNotEquals(entry.etag, entry.gzipEtag);
+
+            // a changed file gets a new entry and a new ETag
+            final byte[] large = script(20000); // larger than MAX_MEMORY_FILE_SIZE
+            Files.write(js.toPath(), large);
+            js.setLastModified(js.lastModified() + 2000);
+            final StaticResourceCache.Entry changed = cache.get(js, "application/javascript");
+            assertNotEquals(entry.etag, changed.etag);
+            assertArrayEquals(large, content(changed, false));
+            assertArrayEquals(large, content(changed, true));
+            assertEquals(1, gzipPath.list().length); // the compressed variant of the large file is on disk
+
+            // images are not compressed
+            final File png = new File(dir, "a.png");
+            Files.write(png.toPath(), small);
+            assertFalse(cache.get(png, "image/png").hasGzip());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * files with the same content keep their compressed variants when one of them changes
+     */
+    @Test
+    public void testSameContent() throws IOException {
+        final File dir = tempDir();
+        try {
+            final File gzipPath = new File(dir, "gz");
+            final StaticResourceCache cache = new StaticResourceCache(gzipPath, 0, true);
+            final byte[] large = script(20000);
+            final File a = new File(dir, "a.js");
+            final File b = new File(dir, "b.js");
+            Files.write(a.toPath(), large);
+            Files.write(b.toPath(), large);
+            cache.get(a, "application/javascript");
+            final StaticResourceCache.Entry eb = cache.get(b, "application/javascript");
+            assertEquals(2, gzipPath.list().length);
+
+            Files.write(a.toPath(), script(100));
+            a.setLastModified(a.lastModified() + 2000);
+            cache.get(a, "application/javascript");
+            assertArrayEquals(large, content(eb, true));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Test of the request header evaluation
+     */
+    @Test
+    public void testHeaders() {
+        assertTrue(StaticResourceCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(StaticResourceCache.acceptsGzip("deflate, gzip;q=0.5"));
+        assertFalse(StaticResourceCache.acceptsGzip("gzip;q=0"));
+        assertFalse(StaticResourceCache.acceptsGzip("identity"));
+        assertFalse(StaticResourceCache.acceptsGzip(null));
+        assertTrue(StaticResourceCache.matches("\"abc\", \"def\"", "\"def\""));
+        assertTrue(StaticResourceCache.matches("W/\"abc\"", "\"abc\""));
+        assertTrue(StaticResourceCache.matches("*", "\"abc\""));
+        assertFalse(StaticResourceCache.matches("\"abc-gz\"", "\"abc\""));
+    }
+}
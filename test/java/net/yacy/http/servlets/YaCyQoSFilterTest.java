@@ -0,0 +1,124 @@
+package net.yacy.http.servlets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.yacy.http.servlets.YaCyQoSFilter.Admission;
+import net.yacy.http.servlets.YaCyQoSFilter.RequestClass;
+
+public class YaCyQoSFilterTest {
+
+    /**
+     * Test of the assignment of requests to classes
+     */
+    @Test
+    public void testClassify() {
+        assertEquals(RequestClass.P2P, YaCyQoSFilter.classify("/yacy/transferRWI.html", false));
+        assertEquals(RequestClass.P2P, YaCyQoSFilter.classify("/solr/select", false));
+        assertEquals(RequestClass.SEARCH, YaCyQoSFilter.classify("/yacysearch.html", false));
+        assertEquals(RequestClass.SEARCH, YaCyQoSFilter.classify("/yacysearchitem.html", false));
+        assertEquals(RequestClass.SEARCH, YaCyQoSFilter.classify("/suggest.json", false));
+        assertEquals(RequestClass.STREAM, YaCyQoSFilter.classify("/yacysearch.sse", false));
+        assertEquals(RequestClass.API, YaCyQoSFilter.classify("/api/version.xml", false));
+        assertEquals(RequestClass.ADMIN, YaCyQoSFilter.classify("/api/status_p.xml", false));
+        assertEquals(RequestClass.SEARCH, YaCyQoSFilter.classify("/yacysearch.html", true));
+        assertEquals(RequestClass.ADMIN, YaCyQoSFilter.classify("/index.html", true));
+        assertEquals(RequestClass.PROXY, YaCyQoSFilter.classify("/proxy.html", false));
+        assertEquals(RequestClass.OTHER, YaCyQoSFilter.classify("/env/base.css", false));
+    }
+
+    /**
+     * Test of the concurrency and queue limits and the statistics of a class
+     */
+    @Test
+    public void testAdmission() throws InterruptedException {
+        final Admission admission = new Admission(RequestClass.SEARCH, 2, 1);
+        assertTrue(admission.tryAcquire());
+        assertTrue(admission.tryAcquire());
+        assertEquals(2, admission.active());
+        assertFalse(admission.tryAcquire());
+        assertFalse(admission.tryAcquire(10)); // waits in the queue and times out
+        assertEquals(1, admission.timeouts());
+        assertEquals(0, admission.queued());
+
+        admission.finished(30);
+        admission.release();
+        admission.finished(10);
+        admission.release();
+        assertEquals(0, admission.active());
+        assertEquals(2, admission.requests());
+        assertEquals(20, admission.latencyAvg());
+        assertEquals(30, admission.latencyMax());
+
+        final Admission full = new Admission(RequestClass.P2P, 1, 0);
+        assertTrue(full.tryAcquire());
+        assertFalse(full.tryAcquire(10)); // no place in the queue
+        assertEquals(1, full.rejected());
+        assertEquals(0, full.timeouts());
+    }
+
+    /**
+     * Test that a blocked request gets the pass of a finished request
+     */
+    @Test
+    public void testHandOverToBlockedRequest() throws InterruptedException {
+        final Admission admission = new Admission(RequestClass.API, 1, 1);
+        assertTrue(admission.tryAcquire());
+        final AtomicInteger admitted = new AtomicInteger(0);
+        final Thread blocked = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    if (admission.tryAcquire(10000)) admitted.incrementAndGet();
+                } catch (final InterruptedException e) {}
+            }
+        };
+        blocked.start();
+        while (admission.queued() == 0) Thread.sleep(1);
+        admission.release();
+        blocked.join(10000);
+        assertEquals(1, admitted.get());
+        assertEquals(1, admission.active());
+        assertEquals(0, admission.queued());
+        admission.release();
+        assertEquals(0, admission.active());
+    }
+
+    /**
+     * Test that no pass is lost when requests arrive and finish concurrently
+     */
+    @Test
+    public void testConcurrentRelease() throws InterruptedException {
+        final Admission admission = new Admission(RequestClass.OTHER, 2, 100);
+        final AtomicInteger admitted = new AtomicInteger(0);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            if (!admission.tryAcquire(10000)) continue;
+                            admitted.incrementAndGet();
+                            admission.release();
+                        }
+                    } catch (final InterruptedException e) {}
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread: threads) thread.join(60000);
+        assertEquals(4000, admitted.get());
+        assertEquals(0, admission.active());
+        assertEquals(0, admission.queued());
+        assertEquals(0, admission.timeouts());
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ *  ReferenceContainerCacheTest
+ *  Copyright 2026 by the YaCy contributors, Frankfurt a. M., Germany
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.yacy.kelondro.rwi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceVars;
+import net.yacy.kelondro.util.Bitfield;
+
+/**
+ * Unit tests for ReferenceContainerCache class.
+ */
+public class ReferenceContainerCacheTest {
+
+    private static WordReferenceVars reference(final DigestURL url) {
+        final Queue<Integer> positions = new LinkedBlockingQueue<Integer>();
+        positions.add(1);
+        return new WordReferenceVars(url.hash(), url.toNormalform(true).length(), 1, 0, 1, 1, 1, 1, positions, 1, 1, 0, "en", Response.DT_TEXT, 0, 0, new Bitfield(4), 0.0d);
+    }
+
+    /**
+     * Test of concurrent add operations: writers of the same and of different terms
+     * must not lose references.
+     */
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final ReferenceContainerCache<WordReference> cache = new ReferenceContainerCache<WordReference>(new WordReferenceFactory(), Base64Order.enhancedCoder, Word.commonHashLength);
+        final int terms = 20, threads = 8, urlsPerThread = 50;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int u = 0; u < urlsPerThread; u++) {
+                        final WordReferenceVars ref = reference(new DigestURL("http://test" + thread + ".org/page" + u + ".html"));
+                        for (int term = 0; term < terms; term++) {
+                            cache.add(Word.word2hash("term" + term), ref);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (final Future<Void> f: futures) f.get();
+        executor.shutdown();
+
+        assertEquals(terms, cache.size());
+        for (int term = 0; term < terms; term++) {
+            final ReferenceContainer<WordReference> c = cache.get(Word.word2hash("term" + term), null);
+            assertNotNull(c);
+            assertEquals(threads * urlsPerThread, c.size());
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package net.yacy.kelondro.workflow;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class WorkflowConcurrencyControllerTest {
+
+    /**
+     * Test of target method: arrival rate times service time with headroom plus the backlog
+     */
+    @Test
+    public void testTarget() {
+        // 100 jobs in 10 s with 200 ms each: 2 jobs in service, 2.5 with headroom
+        assertEquals(3, WorkflowConcurrencyController.target(100, 200.0d, 0, 10000));
+        // a backlog of 100 jobs with 200 ms each needs 2 more threads to be processed within 10 s
+        assertEquals(5, WorkflowConcurrencyController.target(100, 200.0d, 100, 10000));
+        // at least one thread
+        assertEquals(1, WorkflowConcurrencyController.target(0, 0.0d, 0, 10000));
+    }
+
+    /**
+     * Test of step method: changes are limited and small decreases are ignored
+     */
+    @Test
+    public void testStep() {
+        assertEquals(10, WorkflowConcurrencyController.step(8, 20));
+        assertEquals(2, WorkflowConcurrencyController.step(1, 20));
+        assertEquals(6, WorkflowConcurrencyController.step(8, 1));
+        assertEquals(8, WorkflowConcurrencyController.step(8, 7));
+        assertEquals(8, WorkflowConcurrencyController.step(8, 8));
+        assertEquals(2, WorkflowConcurrencyController.step(2, 1));
+    }
+
+    /**
+     * Test that the concurrency of a processor is clamped to its bounds
+     */
+    @Test
+    public void testConcurrencyBounds() {
+        final WorkflowProcessor<WorkflowJob> p = new WorkflowProcessor<WorkflowJob>("test", "test", new String[0], null, 10, null, 4);
+        try {
+            assertEquals(false, p.isAdaptive());
+            p.setConcurrencyBounds(1, 8);
+            assertEquals(true, p.isAdaptive());
+            assertEquals(8, p.setConcurrency(20));
+            assertEquals(1, p.setConcurrency(0));
+            assertEquals(1, p.getMaxConcurrency());
+        } finally {
+            p.shutdown();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceFactory;
+
+public class DHTOutboxTest {
+
+    private static final String PEER_A = "AAAAAAAAAAAA";
+    private static final String PEER_B = "BBBBBBBBBBBB";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+
+    private ReferenceContainer<WordReference> container(final String word, final int size) throws Exception {
+        final ReferenceContainer<WordReference> container = new ReferenceContainer<WordReference>(this.factory, Word.word2hash(word), size);
+        for (int i = 0; i < size; i++) {
+            final byte[] urlHash = ASCII.getBytes((word + "________").substring(0, 8) + String.format("%04d", i));
+            container.add(new WordReferenceRow(urlHash, 30, 2, 0, 10, 1, 0, System.currentTimeMillis(), ASCII.getBytes("en"), 't', 0, 0));
+        }
+        return container;
+    }
+
+    /**
+     * a container is kept until all of its targets have acknowledged it; it is read from the log when it is not held in memory
+     */
+    @Test
+    public void testTakeAndAck() throws Exception {
+        final File dir = this.folder.newFolder();
+        final DHTOutbox outbox = new DHTOutbox(dir, this.factory, 0);
+        outbox.append(0, container("hello", 3), Arrays.asList(PEER_A, PEER_B));
+        outbox.append(1, container("world", 2), Arrays.asList(PEER_A));
+        assertEquals(5, outbox.size());
+        assertEquals(Arrays.asList(PEER_A, PEER_B), outbox.targets());
+
+        final DHTOutbox.Batch a = outbox.take(PEER_A, 1000);
+        assertEquals(2, a.containers().size());
+        assertEquals(3, a.containers().get(0).size());
+        assertTrue(Arrays.equals(Word.word2hash("hello"), a.containers().get(0).getTermHash()));
+        assertNull(outbox.take(PEER_A, 1000));
+        outbox.ack(a);
+        assertEquals(3, outbox.size());
+
+        final DHTOutbox.Batch b = outbox.take(PEER_B, 1);
+        assertEquals(1, b.containers().size());
+        outbox.ack(b);
+        assertEquals(0, outbox.size());
+        assertEquals(0, new File(dir, "0.0.log").length());
+        outbox.close();
+    }
+
+    /**
+     * records which are not acknowledged are delivered again after a restart
+     */
+    @Test
+    public void testReplay() throws Exception {
+        final File dir = this.folder.newFolder();
+        DHTOutbox outbox = new DHTOutbox(dir, this.factory, 1000);
+        outbox.append(0, container("hello", 3), Arrays.asList(PEER_A, PEER_B));
+        outbox.append(0, container("world", 2), Arrays.asList(PEER_B));
+        outbox.ack(outbox.take(PEER_A, 1000));
+        outbox.take(PEER_B, 1000); // in transmission while the peer stops
+        outbox.close();
+
+        outbox = new DHTOutbox(dir, this.factory, 1000);
+        assertEquals(5, outbox.size());
+        assertEquals(Arrays.asList(PEER_B), outbox.targets());
+        final DHTOutbox.Batch b = outbox.take(PEER_B, 1000);
+        assertEquals(2, b.containers().size());
+        assertTrue(Arrays.equals(Word.word2hash("hello"), b.containers().get(0).getTermHash()));
+        assertEquals(3, b.containers().get(0).size());
+        assertEquals(2, b.containers().get(1).size());
+        outbox.ack(b);
+        assertEquals(0, outbox.size());
+        outbox.close();
+    }
+
+    /**
+     * the references of a target are given up after repeated failures
+     */
+    @Test
+    public void testFail() throws Exception {
+        final DHTOutbox outbox = new DHTOutbox(this.folder.newFolder(), this.factory, 1000);
+        outbox.append(0, container("hello", 3), Arrays.asList(PEER_A));
+        outbox.append(0, container("world", 2), Arrays.asList(PEER_A));
+        for (int i = 1; i < DHTOutbox.MAX_ATTEMPTS; i++) {
+            assertTrue(outbox.fail(outbox.take(PEER_A, 3)).isEmpty());
+            assertEquals(5, outbox.size());
+        }
+        final List<ReferenceContainer<WordReference>> givenUp = outbox.fail(outbox.take(PEER_A, 3));
+        assertEquals(2, givenUp.size());
+        assertEquals(0, outbox.size());
+        assertTrue(outbox.targets().isEmpty());
+        outbox.close();
+    }
+
+    /**
+     * records of a batch in transmission are not expired until the transmission failed
+     */
+    @Test
+    public void testExpireInTransmission() throws Exception {
+        final File dir = this.folder.newFolder();
+        final DHTOutbox outbox = new DHTOutbox(dir, this.factory, 1000);
+        outbox.append(0, container("hello", 3), Arrays.asList(PEER_A, PEER_B));
+        final DHTOutbox.Batch a = outbox.take(PEER_A, 1000);
+        Thread.sleep(10);
+        assertTrue(outbox.expire(0).isEmpty()); // the record is in transmission to PEER_A
+        assertEquals(3, outbox.size());
+        assertTrue(outbox.fail(a).isEmpty());
+        assertEquals(1, outbox.expire(0).size()); // now expired for both targets
+        assertEquals(0, outbox.size());
+        outbox.close();
+    }
+}
@@ -0,0 +1,100 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PeerProberTest {
+
+    private static Seed seed(final String hash) {
+        return new Seed(hash, new ConcurrentHashMap<String, String>());
+    }
+
+    /**
+     * the interval of a peer doubles with every answer up to the maximum and falls back to the minimum without answer
+     */
+    @Test
+    public void testAdaptiveInterval() throws Exception {
+        final Set<String> down = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final PeerProber prober = new PeerProber(2, 50, 200, new PeerProber.Probe() {
+            @Override
+            public boolean probe(final Seed seed) {
+                return !down.contains(seed.hash);
+            }
+        });
+        final List<Seed> seeds = Arrays.asList(seed("AAAAAAAAAAAA"));
+        assertEquals(50, prober.interval("AAAAAAAAAAAA"));
+        assertEquals(1, prober.probe(seeds, 10, 10000));
+        assertEquals(100, prober.interval("AAAAAAAAAAAA"));
+        assertEquals(0, prober.probe(seeds, 10, 10000)); // not due
+        Thread.sleep(110);
+        assertEquals(1, prober.probe(seeds, 10, 10000));
+        assertEquals(200, prober.interval("AAAAAAAAAAAA"));
+        Thread.sleep(210);
+        assertEquals(1, prober.probe(seeds, 10, 10000));
+        assertEquals(200, prober.interval("AAAAAAAAAAAA"));
+        Thread.sleep(210);
+        down.add("AAAAAAAAAAAA");
+        assertEquals(0, prober.probe(seeds, 10, 10000));
+        assertEquals(50, prober.interval("AAAAAAAAAAAA"));
+        prober.close();
+    }
+
+    /**
+     * peers which are not due are skipped and a round probes at most max peers
+     */
+    @Test
+    public void testDueAndMax() throws Exception {
+        final PeerProber prober = new PeerProber(2, 60000, 600000, new PeerProber.Probe() {
+            @Override
+            public boolean probe(final Seed seed) {
+                return true;
+            }
+        });
+        final List<Seed> seeds = Arrays.asList(seed("AAAAAAAAAAAA"), seed("BBBBBBBBBBBB"), seed("CCCCCCCCCCCC"));
+        assertEquals(2, prober.probe(seeds, 2, 10000));
+        assertFalse(prober.isDue("AAAAAAAAAAAA"));
+        assertFalse(prober.isDue("BBBBBBBBBBBB"));
+        assertTrue(prober.isDue("CCCCCCCCCCCC"));
+        assertEquals(1, prober.probe(seeds, 2, 10000));
+        assertEquals(0, prober.probe(seeds, 2, 10000));
+        prober.close();
+    }
+
+    /**
+     * a probe which does not finish within the timeout continues and its peer is not probed again meanwhile
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final PeerProber prober = new PeerProber(1, 0, 0, new PeerProber.Probe() {
+            @Override
+            public boolean probe(final Seed seed) {
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    return false;
+                }
+            }
+        });
+        final List<Seed> seeds = Arrays.asList(seed("AAAAAAAAAAAA"));
+        assertEquals(0, prober.probe(seeds, 1, 50));
+        assertEquals(1, prober.running());
+        assertFalse(prober.isDue("AAAAAAAAAAAA"));
+        assertEquals(0, prober.probe(seeds, 1, 50));
+        release.countDown();
+        while (prober.running() > 0) Thread.sleep(10);
+        assertEquals(1, prober.probe(seeds, 1, 10000));
+        prober.close();
+    }
+}
@@ -0,0 +1,88 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceFactory;
+
+public class RWITransferCodecTest {
+
+    private final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+
+    private ReferenceContainer<WordReference> container(final String word, final int size) throws Exception {
+        final ReferenceContainer<WordReference> container = new ReferenceContainer<WordReference>(this.factory, Word.word2hash(word), size);
+        for (int i = 0; i < size; i++) {
+            final byte[] urlHash = ASCII.getBytes((word + "________").substring(0, 8) + String.format("%04d", i));
+            container.add(new WordReferenceRow(urlHash, 30 + i, 2, 0, 10, 1, 0, System.currentTimeMillis(), ASCII.getBytes("en"), 't', i, 0));
+        }
+        return container;
+    }
+
+    /**
+     * Test of encode and decode, the rows of the containers must be restored
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (final int size: new int[]{1, 100}) {
+            final List<ReferenceContainer<WordReference>> containers = Arrays.asList(container("hello", size), container("world", 3));
+            final String encoded = RWITransferCodec.encode(containers);
+            assertTrue(encoded.startsWith(size < 100 ? "b|" : "z|"));
+            final List<ReferenceContainer<WordReference>> decoded = RWITransferCodec.decode(encoded, this.factory, 1000);
+            assertEquals(2, decoded.size());
+            for (int c = 0; c < containers.size(); c++) {
+                final ReferenceContainer<WordReference> expected = containers.get(c);
+                final ReferenceContainer<WordReference> actual = decoded.get(c);
+                assertTrue(Arrays.equals(expected.getTermHash(), actual.getTermHash()));
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    final WordReference e = expected.getReference(expected.get(i, false).getPrimaryKeyBytes());
+                    final WordReference a = actual.getReference(e.urlhash());
+                    assertEquals(e.urllength(), a.urllength());
+                    assertEquals(e.llocal(), a.llocal());
+                }
+            }
+        }
+    }
+
+    /**
+     * the number of decoded references is limited
+     */
+    @Test
+    public void testMaxReferences() throws Exception {
+        final String encoded = RWITransferCodec.encode(Arrays.asList(container("hello", 8), container("world", 8), container("again", 8)));
+        final List<ReferenceContainer<WordReference>> decoded = RWITransferCodec.decode(encoded, this.factory, 10);
+        assertEquals(2, decoded.size());
+        assertEquals(8, decoded.get(0).size());
+        assertEquals(2, decoded.get(1).size());
+    }
+
+    /**
+     * broken transmissions are rejected
+     */
+    @Test
+    public void testBadInput() throws Exception {
+        final String encoded = RWITransferCodec.encode(new ArrayList<ReferenceContainer<WordReference>>(Arrays.asList(container("hello", 5))));
+        for (final String bad: new String[]{null, "", "x|AAAA", "b|", encoded.substring(0, encoded.length() - 8)}) {
+            try {
+                RWITransferCodec.decode(bad, this.factory, 1000);
+                fail("decoded " + bad);
+            } catch (final IOException e) {
+                // expected
+            }
+        }
+    }
+}
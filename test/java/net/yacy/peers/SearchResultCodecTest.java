@@ -0,0 +1,65 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SearchResultCodecTest {
+
+    private static Map<String, String> record(final int i) {
+        final Map<String, String> p = new LinkedHashMap<String, String>();
+        p.put("hash", "AAAAAAAAAAA" + (char) ('A' + i % 26));
+        p.put("url", "http://example.org/page" + i + ".html");
+        p.put("descr", "Title über page " + i);
+        p.put("lat", "0.0");
+        p.put("snippet", "a snippet, with = and \r\n line breaks");
+        p.put("unknownkey", "value" + i);
+        return p;
+    }
+
+    /**
+     * Test of encode and decode, the properties must be restored in order
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (final int size: new int[]{0, 1, 50}) {
+            final List<Map<String, String>> records = new ArrayList<Map<String, String>>();
+            for (int i = 0; i < size; i++) records.add(record(i));
+            final String encoded = SearchResultCodec.encode(records);
+            assertTrue(encoded.startsWith(size < 50 ? "b|" : "z|"));
+            assertTrue(encoded.indexOf('=') < 0 && encoded.indexOf('\n') < 0);
+            final List<Map<String, String>> decoded = SearchResultCodec.decode(encoded);
+            assertEquals(records, decoded);
+            for (int i = 0; i < size; i++) {
+                assertEquals(new ArrayList<String>(records.get(i).keySet()), new ArrayList<String>(decoded.get(i).keySet()));
+            }
+        }
+    }
+
+    /**
+     * Test of decode with damaged input, an IOException is expected
+     */
+    @Test
+    public void testDecodeBroken() {
+        final List<Map<String, String>> records = new ArrayList<Map<String, String>>();
+        records.add(record(1));
+        final String encoded = SearchResultCodec.encode(records);
+        for (final String broken: new String[]{"", "x|AAAA", encoded.substring(0, encoded.length() / 2)}) {
+            try {
+                SearchResultCodec.decode(broken);
+                fail("no exception for " + broken);
+            } catch (final IOException e) {
+                // expected
+            }
+        }
+    }
+
+}
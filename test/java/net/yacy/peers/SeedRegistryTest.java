@@ -0,0 +1,73 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SeedRegistryTest {
+
+    private static final String PEER_A = "AAAAAAAAAAAA";
+    private static final String PEER_B = "BBBBBBBBBBBB";
+
+    private static Map<String, String> dna(final String name, final String ip, final int port) {
+        final Map<String, String> dna = new HashMap<String, String>();
+        dna.put(Seed.NAME, name);
+        dna.put(Seed.IP, ip);
+        dna.put(Seed.PORT, Integer.toString(port));
+        return dna;
+    }
+
+    /**
+     * seeds are found by hash, name and IP; each lookup returns a private copy of the seed
+     */
+    @Test
+    public void testLookup() {
+        final SeedRegistry registry = new SeedRegistry();
+        registry.put(PEER_A, dna("PeerA", "192.168.1.1", 8090));
+        registry.put(PEER_B, dna("peerb", "192.168.1.1", 8091));
+        assertEquals(2, registry.size());
+
+        final Seed a = registry.get(PEER_A);
+        assertEquals("PeerA", a.getName());
+        assertNotSame(a, registry.get(PEER_A));
+        a.setName("changed");
+        assertEquals("PeerA", registry.get(PEER_A).getName());
+
+        assertEquals(PEER_A, registry.lookupByName("peera").hash);
+        assertEquals(PEER_B, registry.lookupByName("PeerB").hash);
+        assertNull(registry.lookupByName("peerc"));
+
+        assertEquals(PEER_B, registry.lookupByIP("192.168.1.1", 8091).hash);
+        assertTrue(registry.lookupByIP("192.168.1.1", -1) != null);
+        assertNull(registry.lookupByIP("192.168.1.1", 8092));
+        assertNull(registry.lookupByIP("192.168.1.2", -1));
+    }
+
+    /**
+     * the indexes follow updates and removals
+     */
+    @Test
+    public void testUpdate() {
+        final SeedRegistry registry = new SeedRegistry();
+        registry.put(PEER_A, dna("PeerA", "192.168.1.1", 8090));
+        registry.put(PEER_A, dna("Renamed", "192.168.1.2", 8090));
+        assertEquals(1, registry.size());
+        assertNull(registry.lookupByName("peera"));
+        assertNull(registry.lookupByIP("192.168.1.1", -1));
+        assertEquals(PEER_A, registry.lookupByName("renamed").hash);
+        assertEquals(PEER_A, registry.lookupByIP("192.168.1.2", 8090).hash);
+
+        registry.remove(PEER_A);
+        assertFalse(registry.contains(PEER_A));
+        assertNull(registry.get(PEER_A));
+        assertNull(registry.lookupByName("renamed"));
+        assertNull(registry.lookupByIP("192.168.1.2", -1));
+    }
+}
@@ -0,0 +1,183 @@
+package net.yacy.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.AnchorURL;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.search.schema.HyperlinkType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HyperlinkEdgeStoreTest {
+
+    private File location;
+
+    @Before
+    public void setUp() {
+        this.location = new File(System.getProperty("java.io.tmpdir"), "HyperlinkEdgeStoreTest-" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = this.location.listFiles();
+        if (files != null) for (final File f: files) f.delete();
+        this.location.delete();
+    }
+
+    private static AnchorURL anchor(final String url, final String text) throws IOException {
+        final AnchorURL a = new AnchorURL(url);
+        a.setTextProperty(text);
+        return a;
+    }
+
+    private static String id(final DigestURL url) {
+        return ASCII.String(url.hash());
+    }
+
+    /**
+     * Test of put, outgoing and incoming methods, also after reopening the store
+     */
+    @Test
+    public void testPutAndReopen() throws IOException {
+        final DigestURL a = new DigestURL("http://example.org/a.html");
+        final DigestURL b = new DigestURL("http://example.org/b.html");
+        final AnchorURL c = anchor("http://example.org/c.html", "see c");
+        final AnchorURL ext = anchor("http://yacy.net/", "YaCy");
+        HyperlinkEdgeStore store = new HyperlinkEdgeStore(this.location, 4);
+        store.put(a, Arrays.asList(c, ext));
+        store.put(b, Arrays.asList(anchor("http://example.org/c.html", null)));
+        assertEquals(2, store.size());
+        for (int reopen = 0; reopen < 2; reopen++) {
+            final List<HyperlinkEdgeStore.Edge> out = store.outgoing(id(a));
+            assertEquals(2, out.size());
+            assertEquals("http://example.org/c.html", out.get(0).targetURL);
+            assertEquals(HyperlinkType.Inbound, out.get(0).type);
+            assertEquals("see c", out.get(0).anchor);
+            assertEquals(HyperlinkType.Outbound, out.get(1).type);
+            assertEquals("http://example.org/a.html", out.get(1).sourceURL);
+            assertEquals(2, store.incoming(id(c), 100).size());
+            assertEquals(2, store.sources("example.org").size());
+            store.close();
+            store = new HyperlinkEdgeStore(this.location, 4);
+        }
+        store.close();
+    }
+
+    /**
+     * Test that replaced and removed link sets are not found any more
+     */
+    @Test
+    public void testReplaceAndRemove() throws IOException {
+        final DigestURL a = new DigestURL("http://example.org/a.html");
+        final AnchorURL c = anchor("http://example.org/c.html", null);
+        final AnchorURL d = anchor("http://example.org/d.html", null);
+        HyperlinkEdgeStore store = new HyperlinkEdgeStore(this.location, 2);
+        store.put(a, Arrays.asList(c));
+        store.put(a, Arrays.asList(d));
+        assertEquals(0, store.incoming(id(c), 100).size());
+        assertEquals(1, store.incoming(id(d), 100).size());
+        store.remove(id(a));
+        assertEquals(0, store.incoming(id(d), 100).size());
+        assertEquals(0, store.outgoing(id(a)).size());
+        store.close();
+        store = new HyperlinkEdgeStore(this.location, 2);
+        assertEquals(0, store.size());
+        assertEquals(0, store.incoming(id(d), 100).size());
+        store.close();
+    }
+
+    /**
+     * Test that an incomplete document at the end of an edge file is discarded when the store is opened
+     */
+    @Test
+    public void testTruncatedFile() throws IOException {
+        final DigestURL a = new DigestURL("http://example.org/a.html");
+        final DigestURL b = new DigestURL("http://example.org/b.html");
+        final List<AnchorURL> links = new ArrayList<AnchorURL>();
+        for (int i = 0; i < 10; i++) links.add(anchor("http://example.org/" + i + ".html", null));
+        HyperlinkEdgeStore store = new HyperlinkEdgeStore(this.location, 1);
+        store.put(a, links);
+        store.put(b, links);
+        store.close();
+        final File edges = new File(this.location, "edges.0.bin");
+        final RandomAccessFile raf = new RandomAccessFile(edges, "rw");
+        raf.setLength(raf.length() - 50);
+        raf.close();
+        store = new HyperlinkEdgeStore(this.location, 1);
+        assertEquals(1, store.size());
+        assertEquals(10, store.outgoing(id(a)).size());
+        assertTrue(store.outgoing(id(b)).isEmpty());
+        store.put(b, links);
+        assertEquals(10, store.outgoing(id(b)).size());
+        store.close();
+    }
+
+    /**
+     * Test that replaced and removed documents release their postings and host entries and that a compaction
+     * removes their records from the files
+     */
+    @Test
+    public void testReleaseAndCompact() throws IOException {
+        final DigestURL a = new DigestURL("http://example.org/a.html");
+        final DigestURL b = new DigestURL("http://example.net/b.html");
+        final AnchorURL c = anchor("http://example.org/c.html", "see c");
+        final AnchorURL d = anchor("http://example.org/d.html", "see d");
+        HyperlinkEdgeStore store = new HyperlinkEdgeStore(this.location, 1);
+        store.put(a, Arrays.asList(c));
+        store.put(b, Arrays.asList(c, d));
+        store.put(a, Arrays.asList(d));
+        store.remove(id(b));
+        assertEquals(1, store.targets());
+        assertTrue(store.sources("example.net").isEmpty());
+        assertEquals(1, store.sources("example.org").size());
+        final File edges = new File(this.location, "edges.0.bin");
+        assertEquals(8, edges.length() / 41);
+        store.compact();
+        assertEquals(2, edges.length() / 41);
+        for (int reopen = 0; reopen < 2; reopen++) {
+            final List<HyperlinkEdgeStore.Edge> out = store.outgoing(id(a));
+            assertEquals(1, out.size());
+            assertEquals("http://example.org/a.html", out.get(0).sourceURL);
+            assertEquals("http://example.org/d.html", out.get(0).targetURL);
+            assertEquals("see d", out.get(0).anchor);
+            final List<HyperlinkEdgeStore.Edge> in = store.incoming(id(d), 100);
+            assertEquals(1, in.size());
+            assertEquals("see d", in.get(0).anchor);
+            assertEquals(Arrays.asList(id(a)), store.incomingSources(id(d), 100));
+            assertEquals(1, store.targets());
+            store.put(b, Arrays.asList(d));
+            assertEquals(2, store.incomingSources(id(d), 100).size());
+            store.remove(id(b));
+            store.close();
+            store = new HyperlinkEdgeStore(this.location, 1);
+        }
+        store.close();
+    }
+
+    /**
+     * Test that the incoming edges of many documents are all found and bounded by maxcount
+     */
+    @Test
+    public void testIncomingMany() throws IOException {
+        final AnchorURL c = anchor("http://example.org/c.html", null);
+        final HyperlinkEdgeStore store = new HyperlinkEdgeStore(this.location, 2);
+        for (int i = 0; i < 200; i++) {
+            store.put(new DigestURL("http://example.org/" + i + ".html"), Arrays.asList(c, anchor("http://example.org/x" + i + ".html", null)));
+        }
+        assertEquals(200, store.incoming(id(c), 1000).size());
+        assertEquals(200, store.incomingSources(id(c), 1000).size());
+        assertEquals(50, store.incoming(id(c), 50).size());
+        store.close();
+    }
+}
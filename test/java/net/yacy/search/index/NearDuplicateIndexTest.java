@@ -0,0 +1,78 @@
+package net.yacy.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.yacy.cora.document.encoding.ASCII;
+
+import org.junit.Test;
+
+public class NearDuplicateIndexTest {
+
+    /** an id with the host part of the url hash */
+    private static byte[] id(final String path, final String host) {
+        return ASCII.getBytes(path + host);
+    }
+
+    /**
+     * Test of add method: near-duplicates within the hamming distance of the same host are counted
+     */
+    @Test
+    public void testAdd() {
+        final NearDuplicateIndex index = new NearDuplicateIndex(100, 3);
+        final long f = new Random(1).nextLong();
+        assertEquals(0, index.add(id("aaaaaa", "hostAA"), f));
+        assertEquals(1, index.add(id("bbbbbb", "hostAA"), f ^ 0x8000000000000001L ^ (1L << 20))); // 3 bits differ
+        assertEquals(2, index.add(id("cccccc", "hostAA"), f));
+        assertEquals(0, index.add(id("dddddd", "hostAA"), f ^ 0xfL)); // 4 bits differ from f
+        assertEquals(0, index.add(id("eeeeee", "hostBB"), f)); // other host
+        // adding the same document again does not count itself
+        assertEquals(2, index.add(id("aaaaaa", "hostAA"), f));
+        assertEquals(5, index.size());
+        assertEquals(3, index.count(id("ffffff", "hostAA"), f));
+    }
+
+    /**
+     * Test of the replacement of old entries when the capacity is exceeded
+     */
+    @Test
+    public void testCapacity() {
+        final NearDuplicateIndex index = new NearDuplicateIndex(3, 0);
+        index.add(id("aaaaaa", "hostAA"), 1L);
+        index.add(id("bbbbbb", "hostAA"), 2L);
+        index.add(id("cccccc", "hostAA"), 3L);
+        assertEquals(1, index.count(id("xxxxxx", "hostAA"), 1L));
+        index.add(id("dddddd", "hostAA"), 4L); // replaces aaaaaa
+        assertEquals(3, index.size());
+        assertEquals(0, index.count(id("xxxxxx", "hostAA"), 1L));
+        assertEquals(1, index.count(id("xxxxxx", "hostAA"), 4L));
+        index.clear();
+        assertEquals(0, index.count(id("xxxxxx", "hostAA"), 4L));
+    }
+
+    /**
+     * Test that the banded lookup finds the same documents as a comparison with all fingerprints
+     */
+    @Test
+    public void testLookupComplete() {
+        final Random r = new Random(2);
+        final int n = 2000;
+        final long[] fingerprints = new long[n];
+        final NearDuplicateIndex index = new NearDuplicateIndex(n, 3);
+        final long base = r.nextLong();
+        for (int i = 0; i < n; i++) {
+            long f = base;
+            final int flips = r.nextInt(6);
+            for (int j = 0; j < flips; j++) f ^= 1L << r.nextInt(64);
+            if (r.nextBoolean()) f = r.nextLong();
+            fingerprints[i] = f;
+            int expected = 0;
+            for (int k = 0; k < i; k++) if (fingerprints[k] != 0 && Long.bitCount(fingerprints[k] ^ f) <= 3) expected++;
+            if (f == 0) continue;
+            assertEquals(expected, index.add(id(String.format("%06d", i), "hostAA"), f));
+        }
+        assertTrue(index.size() > 0);
+    }
+}
@@ -3,8 +3,10 @@ package net.yacy.search.index;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.Collections;
 import java.util.Map;
 import net.yacy.cora.document.WordCache;
+import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
@@ -209,4 +211,26 @@ public class SegmentTest {
 
     }
 
+    /**
+     * Test that the links of deleted documents are removed from the hyperlink edge store
+     */
+    @Test
+    public void testRemoveHyperlinkEdges() throws IOException {
+        index.connectHyperlinkEdges(1);
+        final HyperlinkEdgeStore edges = index.hyperlinkEdges();
+        final DigestURL first = new DigestURL("http://test.org/first.html");
+        final DigestURL second = new DigestURL("http://test.org/second.html");
+        edges.put(first, Collections.singletonList(new DigestURL("http://example.org/")));
+        edges.put(second, Collections.singletonList(new DigestURL("http://example.org/")));
+        assertEquals(2, edges.size());
+
+        index.fulltext().remove(Collections.singletonList(ASCII.String(first.hash())));
+        assertTrue(edges.outgoing(ASCII.String(first.hash())).isEmpty());
+        assertEquals(1, edges.size());
+
+        index.fulltext().remove(second.hash());
+        assertTrue(edges.outgoing(ASCII.String(second.hash())).isEmpty());
+        assertEquals(0, edges.size());
+    }
+
 }
@@ -0,0 +1,130 @@
+package net.yacy.search.ranking;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CitationRankGraphTest {
+
+    /**
+     * reference implementation of the former map based convergence steps
+     */
+    private static double[] rankReference(final int n, final int[][] links, final int[] outDegree, final double damping, final int digits, final int maxSteps) {
+        final int factor = (int) Math.pow(10.0d, digits);
+        double[] cr = new double[n];
+        for (int i = 0; i < n; i++) cr[i] = 1.0d / n;
+        final double df = (1.0d - damping) / n;
+        for (int step = 0; step < maxSteps; step++) {
+            final double[] next = new double[n];
+            boolean convergence = true;
+            for (int t = 0; t < n; t++) {
+                double ncr = 0.0d;
+                for (final int[] link: links) {
+                    if (link[1] == t && outDegree[link[0]] > 0) ncr += cr[link[0]] / outDegree[link[0]];
+                }
+                ncr = df + damping * ncr;
+                if (((int) (ncr * factor)) != ((int) (cr[t] * factor))) convergence = false;
+                next[t] = ncr;
+            }
+            cr = next;
+            if (convergence) break;
+        }
+        return cr;
+    }
+
+    private static CitationRankGraph graph(final int n, final int[][] links, final int[] outDegree) {
+        final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(n);
+        for (final int[] link: links) builder.addLink(link[0], link[1]);
+        for (int i = 0; i < n; i++) builder.setOutDegree(i, outDegree[i]);
+        return builder.build();
+    }
+
+    /**
+     * Test of rank method, comparing the result with a straightforward implementation
+     */
+    @Test
+    public void testRank() {
+        // small graph: 0 is linked by all others, 3 has no links
+        final int[][] links = new int[][]{{1, 0}, {2, 0}, {3, 0}, {0, 1}, {0, 2}, {1, 2}};
+        final int[] outDegree = new int[]{2, 2, 1, 1};
+        final CitationRankGraph g = graph(4, links, outDegree);
+        assertEquals(4, g.nodes());
+        assertEquals(6, g.links());
+        final double[] cr = g.rank(0.85d, 6, 30);
+        assertArrayEquals(rankReference(4, links, outDegree, 0.85d, 6, 30), cr, 1e-12);
+        assertTrue(cr[0] > cr[2] && cr[2] > cr[1] && cr[1] > cr[3]);
+    }
+
+    /**
+     * Test of rank method with a graph which is large enough to be computed in parallel slices
+     */
+    @Test
+    public void testRankParallel() {
+        final int n = 20000;
+        final java.util.Random random = new java.util.Random(1);
+        final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(n);
+        final int[] outDegree = new int[n];
+        final int[][] links = new int[60000][];
+        for (int l = 0; l < links.length; l++) {
+            links[l] = new int[]{random.nextInt(n), random.nextInt(n)};
+            builder.addLink(links[l][0], links[l][1]);
+            outDegree[links[l][0]]++;
+        }
+        for (int i = 0; i < n; i++) builder.setOutDegree(i, outDegree[i]);
+        final CitationRankGraph g = builder.build();
+        final double[] cr = g.rank(0.85d, 6, 5);
+        assertEquals(5, g.steps());
+        assertArrayEquals(rankReferenceCSR(n, links, outDegree, 0.85d, 5), cr, 1e-12);
+    }
+
+    /**
+     * Test that a step listener is called after each step and can stop the iteration
+     */
+    @Test
+    public void testRankListener() {
+        final int[][] links = new int[][]{{1, 0}, {2, 0}, {3, 0}, {0, 1}, {0, 2}, {1, 2}};
+        final int[] outDegree = new int[]{2, 2, 1, 1};
+        final CitationRankGraph g = graph(4, links, outDegree);
+        final int[] called = new int[1];
+        final double[] cr = g.rank(0.85d, 6, 30, new CitationRankGraph.StepListener() {
+            @Override
+            public boolean step(final int step) {
+                called[0]++;
+                assertEquals(called[0], step);
+                return step < 2;
+            }
+        });
+        assertEquals(2, called[0]);
+        assertEquals(2, g.steps());
+        assertArrayEquals(rankReference(4, links, outDegree, 0.85d, 6, 2), cr, 1e-12);
+    }
+
+    /** fixed number of steps without convergence check, computed sequentially */
+    private static double[] rankReferenceCSR(final int n, final int[][] links, final int[] outDegree, final double damping, final int steps) {
+        double[] cr = new double[n];
+        java.util.Arrays.fill(cr, 1.0d / n);
+        final double df = (1.0d - damping) / n;
+        for (int step = 0; step < steps; step++) {
+            final double[] next = new double[n];
+            for (final int[] link: links) next[link[1]] += cr[link[0]] / outDegree[link[0]];
+            for (int i = 0; i < n; i++) next[i] = df + damping * next[i];
+            cr = next;
+        }
+        return cr;
+    }
+
+    /**
+     * Test of rankNumbers method
+     */
+    @Test
+    public void testRankNumbers() {
+        // 8 values: the lower half gets the lowest number, then the lower half of the rest and so on; the maximum is 10
+        final double[] cr = new double[]{0.8, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7};
+        assertArrayEquals(new int[]{10, 7, 7, 7, 7, 8, 8, 9}, CitationRankGraph.rankNumbers(cr));
+        // equal values get the same number
+        assertArrayEquals(new int[]{10, 10, 10}, CitationRankGraph.rankNumbers(new double[]{0.3, 0.3, 0.3}));
+        assertEquals(0, CitationRankGraph.rankNumbers(new double[0]).length);
+    }
+}
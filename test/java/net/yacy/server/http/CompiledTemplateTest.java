@@ -0,0 +1,113 @@
+package net.yacy.server.http;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import net.yacy.server.serverObjects;
+
+public class CompiledTemplateTest {
+
+    private static String render(final String template, final serverObjects pattern) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledTemplate.compile("test", template.getBytes(StandardCharsets.UTF_8)).render(out, pattern);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test of normal templates and of hash characters without meaning
+     */
+    @Test
+    public void testNormal() throws IOException {
+        final serverObjects pattern = new serverObjects();
+        pattern.put("name", "World");
+        assertEquals("Hello World!", render("Hello #[name]#!", pattern));
+        assertEquals("-UNRESOLVED_PATTERN- # ## #a", render("#[missing]# # ## #a", pattern));
+        assertEquals("broken ", render("broken #[name", pattern));
+    }
+
+    /**
+     * Test of multi templates with the prefixes of their iterations
+     */
+    @Test
+    public void testMulti() throws IOException {
+        final serverObjects pattern = new serverObjects();
+        pattern.put("times", "3");
+        for (int i = 0; i < 3; i++) pattern.put("times_" + i + "_num", Integer.toString(i + 1));
+        assertEquals("<ul>\n<li>1</li>\n<li>2</li>\n<li>3</li>\n</ul>", render("<ul>\n#{times}#\n<li>#[num]#</li>\n#{/times}#\n</ul>", pattern));
+        pattern.put("times", "x");
+        assertEquals("[]", render("[#{times}#a#{/times}#]", pattern));
+        assertEquals("[]", render("[#{none}#a#{/none}#]", pattern));
+    }
+
+    /**
+     * Test of alternatives selected by index, boolean and name, and of nested alternatives
+     */
+    @Test
+    public void testAlternative() throws IOException {
+        final String template = "Good #(daytime)#morning::evening::night#(/daytime)#, #[name]#";
+        final serverObjects pattern = new serverObjects();
+        pattern.put("name", "John");
+        assertEquals("Good morning, John", render(template, pattern));
+        pattern.put("daytime", "true");
+        assertEquals("Good evening, John", render(template, pattern));
+        pattern.put("daytime", "7");
+        assertEquals("Good night, John", render(template, pattern));
+        pattern.put("daytime_name", "Jane");
+        pattern.put("daytime", "2");
+        assertEquals("[night Jane]", render("[#(daytime)#morning::evening::night #[name]##(/daytime)#]", pattern));
+
+        final String nested = "#(a)#zero::#(b)#b0::b1#(/b)#::two#(/a)#.";
+        pattern.put("a", "1");
+        pattern.put("a_b", "1");
+        assertEquals("b1.", render(nested, pattern));
+        pattern.put("a", "2");
+        assertEquals("two.", render(nested, pattern));
+
+        final String byName = "#(lang)#%%de Hallo::%%en Hello::%%fr Bonjour#(/lang)#!";
+        pattern.put("lang", "en");
+        assertEquals(" Hello!", render(byName, pattern));
+        pattern.put("lang", "fr");
+        assertEquals(" Bonjour!", render(byName, pattern));
+    }
+
+    /**
+     * Test that a cached template is compiled again when the file is changed
+     */
+    @Test
+    public void testFileCache() throws IOException {
+        final File file = File.createTempFile("CompiledTemplateTest", ".html");
+        try {
+            final serverObjects pattern = new serverObjects();
+            pattern.put("a", "1");
+            pattern.put("b", "2");
+            write(file, "a=#[a]#");
+            assertEquals("a=1", render(file, pattern));
+            assertEquals("a=1", render(file, pattern));
+            write(file, "a=#[a]#, b=#[b]#");
+            file.setLastModified(file.lastModified() + 2000);
+            assertEquals("a=1, b=2", render(file, pattern));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        try (final OutputStream os = new FileOutputStream(file)) {
+            os.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String render(final File file, final serverObjects pattern) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TemplateEngine.writeTemplate(file.getName(), file, out, pattern);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
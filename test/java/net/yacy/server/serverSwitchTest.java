@@ -0,0 +1,70 @@
+package net.yacy.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.yacy.kelondro.util.FileUtils;
+
+public class serverSwitchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private serverSwitch createSwitch(final long saveDelay) throws IOException {
+        final File root = this.folder.getRoot();
+        final OutputStream out = new FileOutputStream(new File(root, "test.init"));
+        try {
+            out.write(("config.save.delay=" + saveDelay + "\nkey=a\n").getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+        return new serverSwitch(root, root, "test.init", "SETTINGS/test.conf");
+    }
+
+    private String saved(final String key) {
+        return FileUtils.loadMap(new File(this.folder.getRoot(), "SETTINGS/test.conf")).get(key);
+    }
+
+    /**
+     * Test that changes within the save delay are written together by the config writer
+     */
+    @Test
+    public void testWriteBehind() throws Exception {
+        final serverSwitch sw = createSwitch(500);
+        try {
+            assertEquals("a", saved("key"));
+            sw.setConfig("key", "b");
+            sw.setConfig("key", "c");
+            assertEquals("c", sw.getConfig("key", null));
+            assertEquals("a", saved("key")); // not written before the delay
+            final long timeout = System.currentTimeMillis() + 10000;
+            while (!"c".equals(saved("key")) && System.currentTimeMillis() < timeout) Thread.sleep(50);
+            assertEquals("c", saved("key"));
+        } finally {
+            sw.closeConfig();
+        }
+    }
+
+    /**
+     * Test that pending changes are written on close and that later changes are written immediately
+     */
+    @Test
+    public void testFlushOnClose() throws Exception {
+        final serverSwitch sw = createSwitch(60000);
+        sw.setConfig("key", "b");
+        assertEquals("a", saved("key"));
+        sw.closeConfig();
+        assertEquals("b", saved("key"));
+        sw.setConfig("key", "c");
+        assertEquals("c", saved("key"));
+    }
+}